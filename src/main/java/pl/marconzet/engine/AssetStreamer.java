@@ -0,0 +1,373 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.BufferUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.lwjgl.stb.STBImage.*;
+import static org.lwjgl.vulkan.VK10.VK_FORMAT_UNDEFINED;
+
+/**
+ * Loads meshes and textures while the render loop keeps running. An asset goes through four stages:
+ * <ol>
+ * <li>queued: waiting for a decoder thread,</li>
+ * <li>decode: read and decoded on a decoder thread, meshes through {@link MeshCache}, prebuilt and compressed mip
+ * chains through {@link TextureCache},</li>
+ * <li>upload wait: decoded, waiting for the render thread to record its upload,</li>
+ * <li>transfer: upload submitted through the {@link UploadManager}, waiting for its fence.</li>
+ * </ol>
+ * The render thread calls {@link #update(Listener)} once per frame; it records uploads for decoded assets within a
+ * byte budget and hands assets whose transfer completed to {@link Listener#swapIn(Asset)}, so resources only change
+ * between frames. The time spent in every stage is kept per asset and summed up by {@link #getStatistics()}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class AssetStreamer {
+    public static final String[] STAGES = {"queued", "decode", "upload wait", "transfer"};
+
+    /**
+     * Render thread callbacks of {@link #update(Listener)}.
+     */
+    public interface Listener {
+        /**
+         * Creates the device resources of a decoded asset and records their upload into {@code uploads}.
+         *
+         * @throws IllegalArgumentException if the device cannot use the asset; thrown before any resource is created,
+         *                                  the asset then counts as failed like one that could not be decoded
+         */
+        void upload(Asset asset, UploadManager uploads);
+
+        /**
+         * Called between frames once the upload of {@code asset} has completed.
+         */
+        void swapIn(Asset asset);
+
+        /**
+         * Destroys the device resources of an asset that was uploaded but never swapped in.
+         */
+        void discard(Asset asset);
+    }
+
+    private final UploadManager uploads;
+    private final long uploadBudget;
+    private final ExecutorService decoders;
+    private final ConcurrentLinkedQueue<Asset> decoded = new ConcurrentLinkedQueue<>();
+    private final List<Asset> transferring = new ArrayList<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final long[] stageTotal = new long[STAGES.length];
+    private final long[] stageMax = new long[STAGES.length];
+    private int completed;
+    private int failed;
+
+    /**
+     * @param uploadBudget decoded bytes whose upload is recorded per {@link #update(Listener)}; one asset is always
+     *                     taken, however large
+     */
+    public AssetStreamer(UploadManager uploads, int decoderThreads, long uploadBudget) {
+        this.uploads = uploads;
+        this.uploadBudget = uploadBudget;
+        this.decoders = Executors.newFixedThreadPool(decoderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "asset-decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Can be called from any thread.
+     */
+    public Mesh loadMesh(Path path, VertexFormat format) {
+        return loadMesh(path, format, 1);
+    }
+
+    /**
+     * Can be called from any thread.
+     *
+     * @param lods levels of detail to generate, see {@link MeshCache#load(Path, boolean, int, VertexFormat)}
+     */
+    public Mesh loadMesh(Path path, VertexFormat format, int lods) {
+        return loadMesh(path, format, false, lods);
+    }
+
+    /**
+     * Can be called from any thread.
+     *
+     * @param meshlets whether to group triangles into meshlets, see {@link Model#buildMeshlets}
+     * @param lods     levels of detail to generate, see {@link MeshCache#load(Path, boolean, boolean, int, VertexFormat)}
+     */
+    public Mesh loadMesh(Path path, VertexFormat format, boolean meshlets, int lods) {
+        return loadMesh(path, format, true, meshlets, lods);
+    }
+
+    /**
+     * Can be called from any thread.
+     *
+     * @param optimize whether to run {@link Model#optimize} before caching
+     * @param meshlets whether to group triangles into meshlets, see {@link Model#buildMeshlets}
+     * @param lods     levels of detail to generate, see {@link MeshCache#load(Path, boolean, boolean, int, VertexFormat)}
+     */
+    public Mesh loadMesh(Path path, VertexFormat format, boolean optimize, boolean meshlets, int lods) {
+        return submit(new Mesh(path, format, optimize, meshlets, lods));
+    }
+
+    /**
+     * Can be called from any thread.
+     */
+    public Texture loadTexture(Path path) {
+        return loadTexture(path, VK_FORMAT_UNDEFINED);
+    }
+
+    /**
+     * Can be called from any thread.
+     *
+     * @param format format of a complete mip chain built on the CPU, see {@link TextureCache#load(Path, int)}, or
+     *               {@code VK_FORMAT_UNDEFINED} to only decode level 0
+     */
+    public Texture loadTexture(Path path, int format) {
+        return submit(new Texture(path, format));
+    }
+
+    private <T extends Asset> T submit(T asset) {
+        asset.timestamps[0] = System.nanoTime();
+        pending.incrementAndGet();
+        decoders.execute(() -> {
+            asset.timestamps[1] = System.nanoTime();
+            try {
+                asset.decode();
+            } catch (Exception | OutOfMemoryError e) {
+                asset.error = e;
+            }
+            asset.timestamps[2] = System.nanoTime();
+            decoded.add(asset);
+        });
+        return asset;
+    }
+
+    /**
+     * Render thread, between frames: records uploads of decoded assets and swaps in the ones whose upload completed.
+     */
+    public void update(Listener listener) {
+        int firstNew = transferring.size();
+        long budget = uploadBudget;
+        Asset asset;
+        while (budget > 0 && (asset = decoded.poll()) != null) {
+            if (asset.error != null) {
+                fail(asset);
+                continue;
+            }
+            try {
+                listener.upload(asset, uploads);
+            } catch (IllegalArgumentException e) {
+                asset.error = e;
+                asset.release();
+                fail(asset);
+                continue;
+            }
+            asset.release();
+            asset.timestamps[3] = System.nanoTime();
+            budget -= asset.getDecodedSize();
+            transferring.add(asset);
+        }
+        if (firstNew < transferring.size()) {
+            long serial = uploads.flush();
+            for (int i = firstNew; i < transferring.size(); i++) {
+                transferring.get(i).serial = serial;
+            }
+        }
+
+        for (int i = 0; i < transferring.size(); i++) {
+            asset = transferring.get(i);
+            if (!uploads.isComplete(asset.serial)) {
+                break;
+            }
+            asset.timestamps[4] = System.nanoTime();
+            for (int stage = 0; stage < STAGES.length; stage++) {
+                long time = asset.timestamps[stage + 1] - asset.timestamps[stage];
+                stageTotal[stage] += time;
+                stageMax[stage] = Math.max(stageMax[stage], time);
+            }
+            completed++;
+            listener.swapIn(asset);
+            transferring.remove(i--);
+            pending.decrementAndGet();
+        }
+    }
+
+    private void fail(Asset asset) {
+        System.err.println("Failed to load " + asset.path + ": " + asset.error);
+        failed++;
+        pending.decrementAndGet();
+    }
+
+    /**
+     * @return whether every requested asset has been swapped in or has failed
+     */
+    public boolean isIdle() {
+        return pending.get() == 0;
+    }
+
+    /**
+     * @return average and maximum time of every stage over the swapped in assets
+     */
+    public String getStatistics() {
+        StringBuilder builder = new StringBuilder(String.format("assets: %d loaded, %d failed, %d pending%n",
+                completed, failed, pending.get()));
+        for (int stage = 0; stage < STAGES.length; stage++) {
+            builder.append(String.format("  %-12s avg %8.2f ms, max %8.2f ms%n", STAGES[stage],
+                    completed == 0 ? 0 : stageTotal[stage] / 1e6 / completed, stageMax[stage] / 1e6));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Stops the decoders and discards assets that were not swapped in. The device must be idle.
+     */
+    public void shutdown(Listener listener) {
+        decoders.shutdownNow();
+        Asset asset;
+        while ((asset = decoded.poll()) != null) {
+            asset.release();
+        }
+        for (Asset uploaded : transferring) {
+            listener.discard(uploaded);
+        }
+        transferring.clear();
+    }
+
+    /**
+     * Asset in flight. Decoded data is only valid until the upload has been recorded; device resources created by the
+     * {@link Listener} are kept in the subclass fields.
+     */
+    public abstract static class Asset {
+        final Path path;
+        final long[] timestamps = new long[STAGES.length + 1];
+        volatile Throwable error;
+        long serial;
+
+        Asset(Path path) {
+            this.path = path;
+        }
+
+        abstract void decode() throws IOException;
+
+        abstract long getDecodedSize();
+
+        void release() {
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * @return time spent in {@code STAGES[stage]} in milliseconds
+         */
+        public double getLatency(int stage) {
+            return (timestamps[stage + 1] - timestamps[stage]) / 1e6;
+        }
+
+        public String getLatencyReport() {
+            StringBuilder builder = new StringBuilder();
+            for (int stage = 0; stage < STAGES.length; stage++) {
+                builder.append(stage == 0 ? "" : ", ").append(String.format("%s %.1f ms", STAGES[stage], getLatency(stage)));
+            }
+            return builder.toString();
+        }
+    }
+
+    public static class Mesh extends Asset {
+        final VertexFormat format;
+        final boolean optimize;
+        final boolean meshlets;
+        final int lods;
+        Model model;
+        long vertexBuffer;
+        MemoryAllocation vertexMemory;
+        long indexBuffer;
+        MemoryAllocation indexMemory;
+
+        Mesh(Path path, VertexFormat format, boolean optimize, boolean meshlets, int lods) {
+            super(path);
+            this.format = format;
+            this.optimize = optimize;
+            this.meshlets = meshlets;
+            this.lods = lods;
+        }
+
+        @Override
+        void decode() throws IOException {
+            model = MeshCache.load(path, optimize, meshlets, lods, format);
+        }
+
+        @Override
+        long getDecodedSize() {
+            return model.vertices.remaining() + model.indices.remaining();
+        }
+
+        public Model getModel() {
+            return model;
+        }
+    }
+
+    public static class Texture extends Asset {
+        final int format;
+        ByteBuffer pixels;
+        MipChain chain;
+        int width;
+        int height;
+        long image;
+        MemoryAllocation memory;
+        long imageView;
+        int mipLevels;
+        int residency = -1;
+
+        Texture(Path path, int format) {
+            super(path);
+            this.format = format;
+        }
+
+        @Override
+        void decode() throws IOException {
+            if (format != VK_FORMAT_UNDEFINED || DdsLoader.isDds(path)) {
+                chain = TextureCache.load(path, format);
+                width = chain.getWidth(0);
+                height = chain.getHeight(0);
+                return;
+            }
+            IntBuffer width = BufferUtils.createIntBuffer(1);
+            IntBuffer height = BufferUtils.createIntBuffer(1);
+            IntBuffer channels = BufferUtils.createIntBuffer(1);
+            pixels = stbi_load(path.toString(), width, height, channels, STBI_rgb_alpha);
+            if (pixels == null) {
+                throw new IOException("Failed to load texture image: " + stbi_failure_reason());
+            }
+            this.width = width.get(0);
+            this.height = height.get(0);
+        }
+
+        @Override
+        long getDecodedSize() {
+            return chain != null ? chain.getSize() : (long) width * height * 4;
+        }
+
+        @Override
+        void release() {
+            chain = null;
+            if (pixels != null) {
+                stbi_image_free(pixels);
+                pixels = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package pl.marconzet.engine;
+
+import java.nio.file.Paths;
+
+/**
+ * Command line micro benchmarks of the CPU side of the engine. Usage: {@code Benchmark <name> [args]}.
+ * The benchmarks are grouped in {@link MeshBenchmark}, {@link FrameBenchmark} and {@link TextureBenchmark}; this class
+ * picks one by name and holds the timing and allocation measurement they share.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class Benchmark {
+    static final int WARMUP = 3;
+    static final int ITERATIONS = 10;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: Benchmark obj|obj-parallel|weld|optimize|formats|lod|meshlets <file.obj> | model [vertices] | uniform | frame | allocator | staging | mips [size] | bc [size] | atlas [textures] | residency [textures] | instances [count] | cull [count] | gpu-cull [count] | pipeline-cache [KB]");
+            return;
+        }
+        switch (args[0]) {
+            case "obj":
+                MeshBenchmark.obj(Paths.get(args[1]));
+                break;
+            case "obj-parallel":
+                MeshBenchmark.objParallel(Paths.get(args[1]));
+                break;
+            case "weld":
+                for (int i = 1; i < args.length; i++) {
+                    MeshBenchmark.weld(Paths.get(args[i]));
+                }
+                break;
+            case "optimize":
+                MeshBenchmark.optimize(Paths.get(args[1]));
+                break;
+            case "formats":
+                MeshBenchmark.formats(Paths.get(args[1]));
+                break;
+            case "lod":
+                MeshBenchmark.lod(Paths.get(args[1]));
+                break;
+            case "meshlets":
+                MeshBenchmark.meshlets(Paths.get(args[1]));
+                break;
+            case "model":
+                MeshBenchmark.model(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            case "uniform":
+                FrameBenchmark.uniform();
+                break;
+            case "frame":
+                FrameBenchmark.frame();
+                break;
+            case "allocator":
+                FrameBenchmark.allocator();
+                break;
+            case "staging":
+                FrameBenchmark.staging();
+                break;
+            case "mips":
+                TextureBenchmark.mips(args.length > 1 ? Integer.parseInt(args[1]) : 4096);
+                break;
+            case "bc":
+                TextureBenchmark.blockCompression(args.length > 1 ? Integer.parseInt(args[1]) : 2048);
+                break;
+            case "atlas":
+                TextureBenchmark.atlas(args.length > 1 ? Integer.parseInt(args[1]) : 400);
+                break;
+            case "residency":
+                TextureBenchmark.residency(args.length > 1 ? Integer.parseInt(args[1]) : 4000);
+                break;
+            case "instances":
+                FrameBenchmark.instances(args.length > 1 ? Integer.parseInt(args[1]) : 100_000);
+                break;
+            case "cull":
+                FrameBenchmark.cull(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            case "pipeline-cache":
+                FrameBenchmark.pipelineCache(args.length > 1 ? Integer.parseInt(args[1]) : 4096);
+                break;
+            case "gpu-cull":
+                FrameBenchmark.gpuCull(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            default:
+                System.out.println("Unknown benchmark: " + args[0]);
+        }
+    }
+
+    static void start(long[] stats) {
+        stats[0] = System.nanoTime();
+        stats[1] = FrameProfiler.allocatedBytes();
+    }
+
+    static void stop(long[] stats) {
+        stats[0] = System.nanoTime() - stats[0];
+        stats[1] = FrameProfiler.allocatedBytes() - stats[1] - FrameProfiler.PROBE_OVERHEAD;
+    }
+
+    static void report(String name, double megabytes, long[] stats) {
+        double seconds = stats[0] / 1e9 / ITERATIONS;
+        System.out.printf("%-16s %8.2f ms %8.1f MB/s %10.1f MB allocated%n",
+                name, seconds * 1000, megabytes / seconds, stats[1] / (1024.0 * 1024.0) / ITERATIONS);
+    }
+}
@@ -0,0 +1,317 @@
+package pl.marconzet.engine;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * CPU encoder of RGBA8 texels into the block compressed formats {@code VK_FORMAT_BC1_RGB_UNORM_BLOCK} (8 bytes per
+ * 4x4 block, opaque) and {@code VK_FORMAT_BC3_UNORM_BLOCK} (16 bytes, BC1 colors plus interpolated alpha).
+ * <p>
+ * Colors of a block are fit along their principal axis: the endpoints are the extreme projections, inset by 1/16 of
+ * their distance, and refined once by least squares against the chosen indices. Alpha uses the minimum and maximum of
+ * the block with eight interpolated values. Rows of blocks are encoded concurrently on a {@link ForkJoinPool}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class BlockCompressor {
+    private static final int BLOCKS_PER_TASK = 1 << 12;
+    private static final float[] WEIGHTS = {1, 0, 2 / 3f, 1 / 3f};
+
+    /**
+     * Encodes a tightly packed RGBA8 image at {@code srcOffset} into blocks of {@code format} at {@code dstOffset}.
+     * Edge blocks of sizes that are not multiples of four repeat the last row and column.
+     */
+    public static void compress(ByteBuffer src, int srcOffset, int width, int height, int format,
+                                ByteBuffer dst, int dstOffset, ForkJoinPool pool) {
+        if (format != VK_FORMAT_BC1_RGB_UNORM_BLOCK && format != VK_FORMAT_BC3_UNORM_BLOCK) {
+            throw new IllegalArgumentException("Unsupported compressed format " + format);
+        }
+        int blocksX = (width + 3) / 4;
+        int blocksY = (height + 3) / 4;
+        int rowsPerTask = Math.max(1, BLOCKS_PER_TASK / blocksX);
+        int tasks = (blocksY + rowsPerTask - 1) / rowsPerTask;
+        if (tasks == 1) {
+            compressRows(src, srcOffset, width, height, format, dst, dstOffset, 0, blocksY);
+            return;
+        }
+        ForkJoinTask<?>[] bands = new ForkJoinTask<?>[tasks];
+        for (int i = 0; i < tasks; i++) {
+            final int from = i * rowsPerTask;
+            final int to = Math.min(blocksY, from + rowsPerTask);
+            bands[i] = pool.submit(() -> compressRows(src, srcOffset, width, height, format, dst, dstOffset, from, to));
+        }
+        for (ForkJoinTask<?> band : bands) {
+            band.join();
+        }
+    }
+
+    private static void compressRows(ByteBuffer src, int srcOffset, int width, int height, int format,
+                                     ByteBuffer dst, int dstOffset, int from, int to) {
+        int blocksX = (width + 3) / 4;
+        int blockBytes = MipChain.getBlockBytes(format);
+        int[] texels = new int[64];
+        int[] palette = new int[12];
+        for (int blockY = from; blockY < to; blockY++) {
+            int out = dstOffset + blockY * blocksX * blockBytes;
+            for (int blockX = 0; blockX < blocksX; blockX++) {
+                for (int i = 0; i < 16; i++) {
+                    int x = Math.min(blockX * 4 + (i & 3), width - 1);
+                    int y = Math.min(blockY * 4 + (i >> 2), height - 1);
+                    int texel = srcOffset + (y * width + x) * 4;
+                    for (int c = 0; c < 4; c++) {
+                        texels[i * 4 + c] = src.get(texel + c) & 0xFF;
+                    }
+                }
+                if (format == VK_FORMAT_BC3_UNORM_BLOCK) {
+                    encodeAlpha(texels, dst, out);
+                    out += 8;
+                }
+                encodeColor(texels, palette, dst, out);
+                out += 8;
+            }
+        }
+    }
+
+    private static void encodeColor(int[] texels, int[] palette, ByteBuffer dst, int out) {
+        float meanR = 0, meanG = 0, meanB = 0;
+        for (int i = 0; i < 16; i++) {
+            meanR += texels[i * 4];
+            meanG += texels[i * 4 + 1];
+            meanB += texels[i * 4 + 2];
+        }
+        meanR /= 16;
+        meanG /= 16;
+        meanB /= 16;
+
+        float rr = 0, rg = 0, rb = 0, gg = 0, gb = 0, bb = 0;
+        for (int i = 0; i < 16; i++) {
+            float r = texels[i * 4] - meanR, g = texels[i * 4 + 1] - meanG, b = texels[i * 4 + 2] - meanB;
+            rr += r * r;
+            rg += r * g;
+            rb += r * b;
+            gg += g * g;
+            gb += g * b;
+            bb += b * b;
+        }
+        float axisR = 1, axisG = 1, axisB = 1;
+        for (int iteration = 0; iteration < 4; iteration++) {
+            float r = rr * axisR + rg * axisG + rb * axisB;
+            float g = rg * axisR + gg * axisG + gb * axisB;
+            float b = rb * axisR + gb * axisG + bb * axisB;
+            float length = Math.max(Math.abs(r), Math.max(Math.abs(g), Math.abs(b)));
+            if (length == 0) {
+                break;
+            }
+            axisR = r / length;
+            axisG = g / length;
+            axisB = b / length;
+        }
+
+        float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+        for (int i = 0; i < 16; i++) {
+            float projection = (texels[i * 4] - meanR) * axisR + (texels[i * 4 + 1] - meanG) * axisG + (texels[i * 4 + 2] - meanB) * axisB;
+            min = Math.min(min, projection);
+            max = Math.max(max, projection);
+        }
+        float axisLength = axisR * axisR + axisG * axisG + axisB * axisB;
+        float inset = (max - min) / 16;
+        float high = axisLength == 0 ? 0 : (max - inset) / axisLength;
+        float low = axisLength == 0 ? 0 : (min + inset) / axisLength;
+        int color0 = pack565(meanR + axisR * high, meanG + axisG * high, meanB + axisB * high);
+        int color1 = pack565(meanR + axisR * low, meanG + axisG * low, meanB + axisB * low);
+        int indices = chooseIndices(texels, color0, color1, palette);
+
+        // one least squares refinement of both endpoints against the chosen indices
+        if (color0 != color1) {
+            float aa = 0, ab = 0, bbSum = 0;
+            float ar = 0, ag = 0, abl = 0, br = 0, bg = 0, bbl = 0;
+            for (int i = 0; i < 16; i++) {
+                float alpha = WEIGHTS[(indices >>> (i * 2)) & 3];
+                float beta = 1 - alpha;
+                aa += alpha * alpha;
+                ab += alpha * beta;
+                bbSum += beta * beta;
+                ar += alpha * texels[i * 4];
+                ag += alpha * texels[i * 4 + 1];
+                abl += alpha * texels[i * 4 + 2];
+                br += beta * texels[i * 4];
+                bg += beta * texels[i * 4 + 1];
+                bbl += beta * texels[i * 4 + 2];
+            }
+            float determinant = aa * bbSum - ab * ab;
+            if (Math.abs(determinant) > 1e-6f) {
+                float scale = 1 / determinant;
+                int refined0 = pack565((ar * bbSum - br * ab) * scale, (ag * bbSum - bg * ab) * scale, (abl * bbSum - bbl * ab) * scale);
+                int refined1 = pack565((br * aa - ar * ab) * scale, (bg * aa - ag * ab) * scale, (bbl * aa - abl * ab) * scale);
+                int refinedIndices = chooseIndices(texels, refined0, refined1, palette);
+                if (error(texels, refined0, refined1, refinedIndices, palette) < error(texels, color0, color1, indices, palette)) {
+                    color0 = refined0;
+                    color1 = refined1;
+                    indices = refinedIndices;
+                }
+            }
+        }
+
+        if (color0 < color1) {
+            int swap = color0;
+            color0 = color1;
+            color1 = swap;
+            indices ^= 0x55555555;
+        } else if (color0 == color1) {
+            indices = 0;
+        }
+        dst.put(out, (byte) color0).put(out + 1, (byte) (color0 >>> 8))
+                .put(out + 2, (byte) color1).put(out + 3, (byte) (color1 >>> 8))
+                .put(out + 4, (byte) indices).put(out + 5, (byte) (indices >>> 8))
+                .put(out + 6, (byte) (indices >>> 16)).put(out + 7, (byte) (indices >>> 24));
+    }
+
+    /**
+     * @return 2 bit indices of the nearest of the four colors between {@code color0} and {@code color1}, texel 0 in
+     * the lowest bits; swapping the endpoints maps index {@code i} to {@code i ^ 1}
+     */
+    private static int chooseIndices(int[] texels, int color0, int color1, int[] palette) {
+        palette(color0, color1, palette);
+        int indices = 0;
+        for (int i = 0; i < 16; i++) {
+            int best = 0, bestDistance = Integer.MAX_VALUE;
+            for (int p = 0; p < 4; p++) {
+                int dr = texels[i * 4] - palette[p * 3], dg = texels[i * 4 + 1] - palette[p * 3 + 1], db = texels[i * 4 + 2] - palette[p * 3 + 2];
+                int distance = dr * dr + dg * dg + db * db;
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = p;
+                }
+            }
+            indices |= best << (i * 2);
+        }
+        return indices;
+    }
+
+    private static int error(int[] texels, int color0, int color1, int indices, int[] palette) {
+        palette(color0, color1, palette);
+        int error = 0;
+        for (int i = 0; i < 16; i++) {
+            int p = (indices >>> (i * 2)) & 3;
+            int dr = texels[i * 4] - palette[p * 3], dg = texels[i * 4 + 1] - palette[p * 3 + 1], db = texels[i * 4 + 2] - palette[p * 3 + 2];
+            error += dr * dr + dg * dg + db * db;
+        }
+        return error;
+    }
+
+    /**
+     * Fills {@code palette} with RGB of the four colors in index order.
+     */
+    private static void palette(int color0, int color1, int[] palette) {
+        unpack565(color0, palette, 0);
+        unpack565(color1, palette, 3);
+        for (int c = 0; c < 3; c++) {
+            palette[6 + c] = (2 * palette[c] + palette[3 + c]) / 3;
+            palette[9 + c] = (palette[c] + 2 * palette[3 + c]) / 3;
+        }
+    }
+
+    private static int pack565(float r, float g, float b) {
+        int r5 = Math.max(0, Math.min(31, Math.round(r * 31 / 255)));
+        int g6 = Math.max(0, Math.min(63, Math.round(g * 63 / 255)));
+        int b5 = Math.max(0, Math.min(31, Math.round(b * 31 / 255)));
+        return r5 << 11 | g6 << 5 | b5;
+    }
+
+    private static void unpack565(int color, int[] rgb, int at) {
+        int r5 = color >>> 11 & 31, g6 = color >>> 5 & 63, b5 = color & 31;
+        rgb[at] = r5 << 3 | r5 >>> 2;
+        rgb[at + 1] = g6 << 2 | g6 >>> 4;
+        rgb[at + 2] = b5 << 3 | b5 >>> 2;
+    }
+
+    private static void encodeAlpha(int[] texels, ByteBuffer dst, int out) {
+        int min = 255, max = 0;
+        for (int i = 0; i < 16; i++) {
+            min = Math.min(min, texels[i * 4 + 3]);
+            max = Math.max(max, texels[i * 4 + 3]);
+        }
+        long indices = 0;
+        if (max > min) {
+            int[] palette = alphaPalette(max, min);
+            for (int i = 0; i < 16; i++) {
+                int alpha = texels[i * 4 + 3];
+                int best = 0;
+                for (int p = 1; p < 8; p++) {
+                    if (Math.abs(alpha - palette[p]) < Math.abs(alpha - palette[best])) {
+                        best = p;
+                    }
+                }
+                indices |= (long) best << (i * 3);
+            }
+        }
+        dst.put(out, (byte) max).put(out + 1, (byte) min);
+        for (int i = 0; i < 6; i++) {
+            dst.put(out + 2 + i, (byte) (indices >>> (i * 8)));
+        }
+    }
+
+    private static int[] alphaPalette(int alpha0, int alpha1) {
+        int[] palette = new int[8];
+        palette[0] = alpha0;
+        palette[1] = alpha1;
+        if (alpha0 > alpha1) {
+            for (int i = 1; i < 7; i++) {
+                palette[i + 1] = ((7 - i) * alpha0 + i * alpha1) / 7;
+            }
+        } else {
+            for (int i = 1; i < 5; i++) {
+                palette[i + 1] = ((5 - i) * alpha0 + i * alpha1) / 5;
+            }
+            palette[6] = 0;
+            palette[7] = 255;
+        }
+        return palette;
+    }
+
+    /**
+     * Reference decoder of {@link #compress}, for measuring the encoding error. Writes tightly packed RGBA8 texels.
+     */
+    static void decompress(ByteBuffer src, int srcOffset, int width, int height, int format, ByteBuffer dst, int dstOffset) {
+        int blocksX = (width + 3) / 4;
+        int blockBytes = MipChain.getBlockBytes(format);
+        int[] colors = new int[12];
+        int[] alphas = new int[8];
+        for (int blockY = 0; blockY < (height + 3) / 4; blockY++) {
+            for (int blockX = 0; blockX < blocksX; blockX++) {
+                int in = srcOffset + (blockY * blocksX + blockX) * blockBytes;
+                long alphaIndices = 0;
+                if (format == VK_FORMAT_BC3_UNORM_BLOCK) {
+                    System.arraycopy(alphaPalette(src.get(in) & 0xFF, src.get(in + 1) & 0xFF), 0, alphas, 0, 8);
+                    for (int i = 0; i < 6; i++) {
+                        alphaIndices |= (long) (src.get(in + 2 + i) & 0xFF) << (i * 8);
+                    }
+                    in += 8;
+                }
+                int color0 = (src.get(in) & 0xFF) | (src.get(in + 1) & 0xFF) << 8;
+                int color1 = (src.get(in + 2) & 0xFF) | (src.get(in + 3) & 0xFF) << 8;
+                int indices = (src.get(in + 4) & 0xFF) | (src.get(in + 5) & 0xFF) << 8
+                        | (src.get(in + 6) & 0xFF) << 16 | (src.get(in + 7) & 0xFF) << 24;
+                palette(color0, color1, colors);
+                if (format != VK_FORMAT_BC3_UNORM_BLOCK && color0 <= color1) {
+                    for (int c = 0; c < 3; c++) {
+                        colors[6 + c] = (colors[c] + colors[3 + c]) / 2;
+                        colors[9 + c] = 0;
+                    }
+                }
+                for (int i = 0; i < 16; i++) {
+                    int x = blockX * 4 + (i & 3), y = blockY * 4 + (i >> 2);
+                    if (x >= width || y >= height) continue;
+                    int p = (indices >>> (i * 2)) & 3;
+                    int texel = dstOffset + (y * width + x) * 4;
+                    dst.put(texel, (byte) colors[p * 3]).put(texel + 1, (byte) colors[p * 3 + 1]).put(texel + 2, (byte) colors[p * 3 + 2])
+                            .put(texel + 3, (byte) (format == VK_FORMAT_BC3_UNORM_BLOCK ? alphas[(int) (alphaIndices >>> (i * 3)) & 7] : 255));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package pl.marconzet.engine;
+
+import org.joml.Matrix4fc;
+
+import java.util.Arrays;
+
+/**
+ * Bounding volume hierarchy over axis aligned boxes, for frustum culling. Primitives are sorted along a Morton curve of
+ * their centers and split top down at the highest differing Morton bit, so building takes three radix sort passes and
+ * one pass per tree level.
+ * <p>
+ * Nodes are stored depth first in flat arrays, with every bound in its own array ({@code minX[]}, {@code minY[]}, ...)
+ * and the left child of a node directly after it. Every subtree covers a contiguous range of {@link #getPrimitives()},
+ * so a node inside the frustum yields its whole range without visiting its children, and culling cost depends on
+ * the nodes crossing the frustum, not on the number of visible primitives.
+ * <p>
+ * Moved primitives are refitted: their leaf and its ancestors are recomputed by {@link #refit()}; the tree shape stays,
+ * so after large movements it should be built again.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class Bvh {
+    public static final int LEAF_SIZE = 4;
+    private static final int STACK_SIZE = 128;
+    private static final int ALL_PLANES = (1 << 6) - 1;
+
+    private float[] bounds;
+    private int[] primitives = new int[0];
+    private int primitiveCount;
+    private int[] leaves = new int[0];
+
+    private float[] minX = new float[0];
+    private float[] minY = new float[0];
+    private float[] minZ = new float[0];
+    private float[] maxX = new float[0];
+    private float[] maxY = new float[0];
+    private float[] maxZ = new float[0];
+    // right child, or -1 for leaves
+    private int[] right = new int[0];
+    private int[] parent = new int[0];
+    // range of primitives in the subtree
+    private int[] first = new int[0];
+    private int[] count = new int[0];
+    private int nodeCount;
+
+    private int[] codes = new int[0];
+    private int[] scratch = new int[0];
+    private int[] scratchCodes = new int[0];
+    private final IntList dirtyLeaves = new IntList();
+    private boolean[] dirty = new boolean[0];
+    private final int[] stack = new int[STACK_SIZE];
+    private final int[] stackMasks = new int[STACK_SIZE];
+
+    /**
+     * Builds the tree over {@code primitives[0..primitiveCount)}.
+     *
+     * @param bounds min xyz and max xyz of every primitive at {@code primitive * 6}; kept, and read again by
+     *               {@link #refit()} and {@link #cull(float[], IntList)}
+     */
+    public void build(int[] primitives, int primitiveCount, float[] bounds) {
+        this.bounds = bounds;
+        this.primitiveCount = primitiveCount;
+        if (this.primitives.length < primitiveCount) {
+            this.primitives = new int[primitiveCount];
+            codes = new int[primitiveCount];
+            scratch = new int[primitiveCount];
+            scratchCodes = new int[primitiveCount];
+        }
+        System.arraycopy(primitives, 0, this.primitives, 0, primitiveCount);
+        // full leaves need this many nodes, splits at Morton bits may take more
+        grow(2 * ((primitiveCount + LEAF_SIZE - 1) / LEAF_SIZE));
+        int maxPrimitive = 0;
+        for (int i = 0; i < primitiveCount; i++) {
+            maxPrimitive = Math.max(maxPrimitive, primitives[i]);
+        }
+        if (leaves.length <= maxPrimitive) {
+            leaves = new int[maxPrimitive + 1];
+        }
+        dirtyLeaves.clear();
+        Arrays.fill(dirty, false);
+
+        sortByMorton();
+        nodeCount = 0;
+        if (primitiveCount > 0) {
+            buildNode(-1, 0, primitiveCount);
+        }
+    }
+
+    private void sortByMorton() {
+        float lowX = Float.POSITIVE_INFINITY, lowY = Float.POSITIVE_INFINITY, lowZ = Float.POSITIVE_INFINITY;
+        float highX = Float.NEGATIVE_INFINITY, highY = Float.NEGATIVE_INFINITY, highZ = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < primitiveCount; i++) {
+            int b = primitives[i] * 6;
+            float x = bounds[b] + bounds[b + 3], y = bounds[b + 1] + bounds[b + 4], z = bounds[b + 2] + bounds[b + 5];
+            lowX = Math.min(lowX, x);
+            lowY = Math.min(lowY, y);
+            lowZ = Math.min(lowZ, z);
+            highX = Math.max(highX, x);
+            highY = Math.max(highY, y);
+            highZ = Math.max(highZ, z);
+        }
+        float scaleX = highX > lowX ? 1023.99f / (highX - lowX) : 0;
+        float scaleY = highY > lowY ? 1023.99f / (highY - lowY) : 0;
+        float scaleZ = highZ > lowZ ? 1023.99f / (highZ - lowZ) : 0;
+        for (int i = 0; i < primitiveCount; i++) {
+            int b = primitives[i] * 6;
+            codes[i] = spread((int) ((bounds[b] + bounds[b + 3] - lowX) * scaleX)) << 2
+                    | spread((int) ((bounds[b + 1] + bounds[b + 4] - lowY) * scaleY)) << 1
+                    | spread((int) ((bounds[b + 2] + bounds[b + 5] - lowZ) * scaleZ));
+        }
+        // three 10 bit passes of an LSD radix sort, primitives move along
+        int[] buckets = new int[1025];
+        for (int shift = 0; shift < 30; shift += 10) {
+            Arrays.fill(buckets, 0);
+            for (int i = 0; i < primitiveCount; i++) {
+                buckets[(codes[i] >>> shift & 1023) + 1]++;
+            }
+            for (int i = 1; i < buckets.length; i++) {
+                buckets[i] += buckets[i - 1];
+            }
+            for (int i = 0; i < primitiveCount; i++) {
+                int at = buckets[codes[i] >>> shift & 1023]++;
+                scratchCodes[at] = codes[i];
+                scratch[at] = primitives[i];
+            }
+            int[] swap = codes;
+            codes = scratchCodes;
+            scratchCodes = swap;
+            swap = primitives;
+            primitives = scratch;
+            scratch = swap;
+        }
+    }
+
+    /**
+     * Spreads the low 10 bits of {@code value} to every third bit.
+     */
+    private static int spread(int value) {
+        value &= 0x3FF;
+        value = (value | value << 16) & 0x030000FF;
+        value = (value | value << 8) & 0x0300F00F;
+        value = (value | value << 4) & 0x030C30C3;
+        value = (value | value << 2) & 0x09249249;
+        return value;
+    }
+
+    private void grow(int capacity) {
+        if (minX.length >= capacity) {
+            return;
+        }
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        minZ = Arrays.copyOf(minZ, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        maxZ = Arrays.copyOf(maxZ, capacity);
+        right = Arrays.copyOf(right, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        first = Arrays.copyOf(first, capacity);
+        count = Arrays.copyOf(count, capacity);
+        dirty = Arrays.copyOf(dirty, capacity);
+    }
+
+    private int buildNode(int parentNode, int from, int to) {
+        if (nodeCount == minX.length) {
+            grow(nodeCount + nodeCount / 2 + 1);
+        }
+        int node = nodeCount++;
+        parent[node] = parentNode;
+        first[node] = from;
+        count[node] = to - from;
+        if (to - from <= LEAF_SIZE) {
+            right[node] = -1;
+            for (int i = from; i < to; i++) {
+                leaves[primitives[i]] = node;
+            }
+            fitLeaf(node);
+            return node;
+        }
+        int split = split(from, to);
+        int left = buildNode(node, from, split);
+        // not assigned directly, building may replace the array
+        int rightNode = buildNode(node, split, to);
+        right[node] = rightNode;
+        fitInner(node, left, rightNode);
+        return node;
+    }
+
+    /**
+     * @return first index of the upper half: where the highest bit differing within the range turns on, or the middle
+     * when all codes are equal
+     */
+    private int split(int from, int to) {
+        int difference = codes[from] ^ codes[to - 1];
+        if (difference == 0) {
+            return (from + to) >>> 1;
+        }
+        int bit = Integer.highestOneBit(difference);
+        int low = from, high = to - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if ((codes[middle] & bit) != 0) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private void fitLeaf(int node) {
+        float x0 = Float.POSITIVE_INFINITY, y0 = Float.POSITIVE_INFINITY, z0 = Float.POSITIVE_INFINITY;
+        float x1 = Float.NEGATIVE_INFINITY, y1 = Float.NEGATIVE_INFINITY, z1 = Float.NEGATIVE_INFINITY;
+        for (int i = first[node], end = i + count[node]; i < end; i++) {
+            int b = primitives[i] * 6;
+            x0 = Math.min(x0, bounds[b]);
+            y0 = Math.min(y0, bounds[b + 1]);
+            z0 = Math.min(z0, bounds[b + 2]);
+            x1 = Math.max(x1, bounds[b + 3]);
+            y1 = Math.max(y1, bounds[b + 4]);
+            z1 = Math.max(z1, bounds[b + 5]);
+        }
+        minX[node] = x0;
+        minY[node] = y0;
+        minZ[node] = z0;
+        maxX[node] = x1;
+        maxY[node] = y1;
+        maxZ[node] = z1;
+    }
+
+    /**
+     * @return whether the bounds of {@code node} changed
+     */
+    private boolean fitInner(int node, int left, int right) {
+        float x0 = Math.min(minX[left], minX[right]), y0 = Math.min(minY[left], minY[right]);
+        float z0 = Math.min(minZ[left], minZ[right]), x1 = Math.max(maxX[left], maxX[right]);
+        float y1 = Math.max(maxY[left], maxY[right]), z1 = Math.max(maxZ[left], maxZ[right]);
+        boolean changed = x0 != minX[node] || y0 != minY[node] || z0 != minZ[node]
+                || x1 != maxX[node] || y1 != maxY[node] || z1 != maxZ[node];
+        minX[node] = x0;
+        minY[node] = y0;
+        minZ[node] = z0;
+        maxX[node] = x1;
+        maxY[node] = y1;
+        maxZ[node] = z1;
+        return changed;
+    }
+
+    /**
+     * Marks {@code primitive}, whose bounds changed, for the next {@link #refit()}.
+     */
+    public void update(int primitive) {
+        int leaf = leaves[primitive];
+        if (!dirty[leaf]) {
+            dirty[leaf] = true;
+            dirtyLeaves.add(leaf);
+        }
+    }
+
+    /**
+     * Recomputes the bounds of leaves with updated primitives and of their ancestors, up to the first ancestor that
+     * does not change. When most leaves are dirty, every node is recomputed in one backwards pass instead.
+     */
+    public void refit() {
+        if (dirtyLeaves.size() == 0) {
+            return;
+        }
+        if (dirtyLeaves.size() > nodeCount / 4) {
+            // children come after their parent
+            for (int node = nodeCount - 1; node >= 0; node--) {
+                if (right[node] < 0) {
+                    fitLeaf(node);
+                } else {
+                    fitInner(node, node + 1, right[node]);
+                }
+            }
+        } else {
+            for (int i = 0; i < dirtyLeaves.size(); i++) {
+                int node = dirtyLeaves.get(i);
+                fitLeaf(node);
+                node = parent[node];
+                while (node >= 0 && fitInner(node, node + 1, right[node])) {
+                    node = parent[node];
+                }
+            }
+        }
+        for (int i = 0; i < dirtyLeaves.size(); i++) {
+            dirty[dirtyLeaves.get(i)] = false;
+        }
+        dirtyLeaves.clear();
+    }
+
+    /**
+     * Appends (first, count) ranges of {@link #getPrimitives()} whose bounds are not fully outside the frustum to
+     * {@code ranges}, adjacent ranges merged. Culling is conservative: boxes crossing a frustum corner may be kept.
+     *
+     * @param planes six planes (a, b, c, d) with normals pointing inside, see {@link #frustumPlanes(Matrix4fc, float[])}
+     * @return number of visible primitives
+     */
+    public int cull(float[] planes, IntList ranges) {
+        if (nodeCount == 0) {
+            return 0;
+        }
+        int visible = 0;
+        int top = 0;
+        stack[0] = 0;
+        stackMasks[0] = ALL_PLANES;
+        while (top >= 0) {
+            int node = stack[top];
+            int mask = stackMasks[top--];
+            float cx = (minX[node] + maxX[node]) * 0.5f, ex = (maxX[node] - minX[node]) * 0.5f;
+            float cy = (minY[node] + maxY[node]) * 0.5f, ey = (maxY[node] - minY[node]) * 0.5f;
+            float cz = (minZ[node] + maxZ[node]) * 0.5f, ez = (maxZ[node] - minZ[node]) * 0.5f;
+            mask = classify(planes, mask, cx, cy, cz, ex, ey, ez);
+            if (mask < 0) {
+                continue;
+            }
+            if (mask == 0) {
+                visible += add(ranges, first[node], count[node]);
+            } else if (right[node] < 0) {
+                for (int i = first[node], end = i + count[node]; i < end; i++) {
+                    int b = primitives[i] * 6;
+                    if (classify(planes, mask, (bounds[b] + bounds[b + 3]) * 0.5f, (bounds[b + 1] + bounds[b + 4]) * 0.5f,
+                            (bounds[b + 2] + bounds[b + 5]) * 0.5f, (bounds[b + 3] - bounds[b]) * 0.5f,
+                            (bounds[b + 4] - bounds[b + 1]) * 0.5f, (bounds[b + 5] - bounds[b + 2]) * 0.5f) >= 0) {
+                        visible += add(ranges, i, 1);
+                    }
+                }
+            } else {
+                if (top + 2 >= STACK_SIZE) {
+                    // deeper than any tree of 30 bit codes; keep the subtree rather than overflow
+                    visible += add(ranges, first[node], count[node]);
+                    continue;
+                }
+                // left is popped first, so ranges come out in order
+                stack[++top] = right[node];
+                stackMasks[top] = mask;
+                stack[++top] = node + 1;
+                stackMasks[top] = mask;
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * @return {@code mask} without the planes the box is fully inside of, or -1 when it is outside of one
+     */
+    private static int classify(float[] planes, int mask, float cx, float cy, float cz, float ex, float ey, float ez) {
+        for (int plane = 0; plane < 6; plane++) {
+            if ((mask & 1 << plane) == 0) {
+                continue;
+            }
+            float a = planes[plane * 4], b = planes[plane * 4 + 1], c = planes[plane * 4 + 2];
+            float distance = a * cx + b * cy + c * cz + planes[plane * 4 + 3];
+            float radius = Math.abs(a) * ex + Math.abs(b) * ey + Math.abs(c) * ez;
+            if (distance + radius < 0) {
+                return -1;
+            }
+            if (distance - radius >= 0) {
+                mask &= ~(1 << plane);
+            }
+        }
+        return mask;
+    }
+
+    private static int add(IntList ranges, int first, int count) {
+        int size = ranges.size();
+        if (size > 0 && ranges.get(size - 2) + ranges.get(size - 1) == first) {
+            ranges.set(size - 1, ranges.get(size - 1) + count);
+        } else {
+            ranges.add(first);
+            ranges.add(count);
+        }
+        return count;
+    }
+
+    /**
+     * Extracts the planes of the view volume of {@code viewProjection} in Vulkan clip space, {@code -w <= x, y <= w}
+     * and {@code 0 <= z <= w}: left, right, bottom, top, near, far, normalized, normals pointing inside.
+     */
+    public static void frustumPlanes(Matrix4fc viewProjection, float[] planes) {
+        Matrix4fc m = viewProjection;
+        plane(planes, 0, m.m03() + m.m00(), m.m13() + m.m10(), m.m23() + m.m20(), m.m33() + m.m30());
+        plane(planes, 1, m.m03() - m.m00(), m.m13() - m.m10(), m.m23() - m.m20(), m.m33() - m.m30());
+        plane(planes, 2, m.m03() + m.m01(), m.m13() + m.m11(), m.m23() + m.m21(), m.m33() + m.m31());
+        plane(planes, 3, m.m03() - m.m01(), m.m13() - m.m11(), m.m23() - m.m21(), m.m33() - m.m31());
+        plane(planes, 4, m.m02(), m.m12(), m.m22(), m.m32());
+        plane(planes, 5, m.m03() - m.m02(), m.m13() - m.m12(), m.m23() - m.m22(), m.m33() - m.m32());
+    }
+
+    private static void plane(float[] planes, int plane, float a, float b, float c, float d) {
+        float length = (float) Math.sqrt(a * a + b * b + c * c);
+        planes[plane * 4] = a / length;
+        planes[plane * 4 + 1] = b / length;
+        planes[plane * 4 + 2] = c / length;
+        planes[plane * 4 + 3] = d / length;
+    }
+
+    /**
+     * @return primitives in tree order, the indices of culled ranges
+     */
+    public int[] getPrimitives() {
+        return primitives;
+    }
+
+    public int getPrimitiveCount() {
+        return primitiveCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+}
@@ -0,0 +1,277 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.vulkan.*;
+
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.lwjgl.vulkan.VK10.*;
+import static pl.marconzet.engine.VKUtil.translateVulkanResult;
+
+/**
+ * Records every frame from scratch: a primary command buffer per frame in flight, and a draw list split across worker
+ * threads, each recording a secondary command buffer from its own command pool, so no pool is used by two threads and
+ * resetting a frame is one {@code vkResetCommandPool} per pool.
+ * <p>
+ * The calling thread records the first share itself; the others are parked between frames and woken per frame, so the
+ * frame loop allocates nothing. Recording time of every thread is kept for {@link #getStatistics()}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class CommandRecorder {
+    /**
+     * Records a part of the draw list.
+     */
+    public interface Task {
+        /**
+         * Records draws {@code first} to {@code end} (exclusive) into {@code commandBuffer}, a secondary command
+         * buffer continuing the render pass; no state is inherited. Called from several threads at once, with
+         * disjoint ranges.
+         *
+         * @param worker index of the recording thread, for per-thread scratch memory
+         */
+        void record(VkCommandBuffer commandBuffer, int worker, int first, int end);
+    }
+
+    private final VkDevice device;
+    private final int threads;
+    private final long[] primaryPools;
+    private final VkCommandBuffer[] primaries;
+    private final long[][] pools;
+    private final VkCommandBuffer[][] secondaries;
+    private final VkCommandBufferBeginInfo primaryBeginInfo;
+    private final VkCommandBufferBeginInfo[] beginInfos;
+    private final VkCommandBufferInheritanceInfo[] inheritanceInfos;
+    private final PointerBuffer executed;
+    private final boolean[] recorded;
+
+    private final Thread[] workers;
+    private final AtomicInteger remaining = new AtomicInteger();
+    private volatile int generation;
+    private volatile boolean running = true;
+    private volatile Throwable failure;
+    private Thread caller;
+
+    // current job, published to the workers by the write of generation
+    private int frame;
+    private long renderPass;
+    private long framebuffer;
+    private int items;
+    private Task task;
+
+    private final long[] lastTimes;
+    private final long[] totalTimes;
+    private final long[] maxTimes;
+    private long totalWallTime;
+    private long frames;
+
+    public CommandRecorder(VkDevice device, int queueFamily, int threads, int framesInFlight) {
+        this.device = device;
+        this.threads = threads;
+        this.primaryPools = new long[framesInFlight];
+        this.primaries = new VkCommandBuffer[framesInFlight];
+        this.pools = new long[framesInFlight][threads];
+        this.secondaries = new VkCommandBuffer[framesInFlight][threads];
+        for (int frame = 0; frame < framesInFlight; frame++) {
+            primaryPools[frame] = createPool(queueFamily);
+            primaries[frame] = allocate(primaryPools[frame], VK_COMMAND_BUFFER_LEVEL_PRIMARY);
+            for (int worker = 0; worker < threads; worker++) {
+                pools[frame][worker] = createPool(queueFamily);
+                secondaries[frame][worker] = allocate(pools[frame][worker], VK_COMMAND_BUFFER_LEVEL_SECONDARY);
+            }
+        }
+        primaryBeginInfo = VkCommandBufferBeginInfo.create()
+                .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_BEGIN_INFO)
+                .flags(VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT);
+        beginInfos = new VkCommandBufferBeginInfo[threads];
+        inheritanceInfos = new VkCommandBufferInheritanceInfo[threads];
+        for (int worker = 0; worker < threads; worker++) {
+            inheritanceInfos[worker] = VkCommandBufferInheritanceInfo.create()
+                    .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_INHERITANCE_INFO)
+                    .subpass(0)
+                    .occlusionQueryEnable(false);
+            beginInfos[worker] = VkCommandBufferBeginInfo.create()
+                    .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_BEGIN_INFO)
+                    .flags(VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT | VK_COMMAND_BUFFER_USAGE_RENDER_PASS_CONTINUE_BIT)
+                    .pInheritanceInfo(inheritanceInfos[worker]);
+        }
+        executed = BufferUtils.createPointerBuffer(threads);
+        recorded = new boolean[threads];
+        lastTimes = new long[threads];
+        totalTimes = new long[threads];
+        maxTimes = new long[threads];
+
+        workers = new Thread[threads - 1];
+        for (int i = 0; i < workers.length; i++) {
+            int worker = i + 1;
+            workers[i] = new Thread(() -> work(worker), "command-recorder-" + worker);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Resets the command pools of {@code frame}, whose last submission must have completed, and begins its primary
+     * command buffer.
+     */
+    public VkCommandBuffer begin(int frame) {
+        check(vkResetCommandPool(device, primaryPools[frame], 0), "reset command pool");
+        for (long pool : pools[frame]) {
+            check(vkResetCommandPool(device, pool, 0), "reset command pool");
+        }
+        check(vkBeginCommandBuffer(primaries[frame], primaryBeginInfo), "begin recording command buffer");
+        return primaries[frame];
+    }
+
+    /**
+     * Records {@code items} draws split evenly across the threads and executes the secondary command buffers in the
+     * primary one of {@code frame}, which has to be inside {@code renderPass}, begun with
+     * {@code VK_SUBPASS_CONTENTS_SECONDARY_COMMAND_BUFFERS}. Returns when all are recorded.
+     */
+    public void execute(int frame, long renderPass, long framebuffer, int items, Task task) {
+        if (items == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        this.frame = frame;
+        this.renderPass = renderPass;
+        this.framebuffer = framebuffer;
+        this.items = items;
+        this.task = task;
+        caller = Thread.currentThread();
+        remaining.set(workers.length);
+        generation++;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        try {
+            record(0);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        while (remaining.get() > 0) {
+            LockSupport.park(this);
+        }
+        this.task = null;
+        Throwable error = failure;
+        if (error != null) {
+            failure = null;
+            throw new RuntimeException("Failed to record draws", error);
+        }
+
+        executed.clear();
+        for (int worker = 0; worker < threads; worker++) {
+            if (recorded[worker]) {
+                executed.put(secondaries[frame][worker]);
+            }
+        }
+        executed.flip();
+        vkCmdExecuteCommands(primaries[frame], executed);
+        totalWallTime += System.nanoTime() - start;
+        frames++;
+    }
+
+    private void work(int worker) {
+        int seen = 0;
+        while (true) {
+            while (generation == seen && running) {
+                LockSupport.park(this);
+            }
+            if (!running) {
+                return;
+            }
+            seen = generation;
+            try {
+                record(worker);
+            } catch (Throwable e) {
+                failure = e;
+            }
+            if (remaining.decrementAndGet() == 0) {
+                LockSupport.unpark(caller);
+            }
+        }
+    }
+
+    private void record(int worker) {
+        long start = System.nanoTime();
+        int first = (int) ((long) items * worker / threads);
+        int end = (int) ((long) items * (worker + 1) / threads);
+        recorded[worker] = first < end;
+        if (first < end) {
+            VkCommandBuffer commandBuffer = secondaries[frame][worker];
+            inheritanceInfos[worker].renderPass(renderPass).framebuffer(framebuffer);
+            check(vkBeginCommandBuffer(commandBuffer, beginInfos[worker]), "begin recording secondary command buffer");
+            task.record(commandBuffer, worker, first, end);
+            check(vkEndCommandBuffer(commandBuffer), "record secondary command buffer");
+        }
+        long time = System.nanoTime() - start;
+        lastTimes[worker] = time;
+        totalTimes[worker] += time;
+        maxTimes[worker] = Math.max(maxTimes[worker], time);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return nanoseconds {@code worker} spent recording the last frame
+     */
+    public long getRecordTime(int worker) {
+        return lastTimes[worker];
+    }
+
+    public String getStatistics() {
+        StringBuilder statistics = new StringBuilder(String.format("recording: %d threads, %.3f ms per frame%n",
+                threads, frames == 0 ? 0 : totalWallTime / 1e6 / frames));
+        for (int worker = 0; worker < threads; worker++) {
+            statistics.append(String.format("  thread %d: %.3f ms average, %.3f ms max%n", worker,
+                    frames == 0 ? 0 : totalTimes[worker] / 1e6 / frames, maxTimes[worker] / 1e6));
+        }
+        return statistics.toString();
+    }
+
+    public void destroy() {
+        running = false;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        for (int frame = 0; frame < primaryPools.length; frame++) {
+            vkDestroyCommandPool(device, primaryPools[frame], null);
+            for (long pool : pools[frame]) {
+                vkDestroyCommandPool(device, pool, null);
+            }
+        }
+    }
+
+    private long createPool(int queueFamily) {
+        VkCommandPoolCreateInfo createInfo = VkCommandPoolCreateInfo.create()
+                .sType(VK_STRUCTURE_TYPE_COMMAND_POOL_CREATE_INFO)
+                .queueFamilyIndex(queueFamily)
+                .flags(VK_COMMAND_POOL_CREATE_TRANSIENT_BIT);
+        LongBuffer pCommandPool = BufferUtils.createLongBuffer(1);
+        check(vkCreateCommandPool(device, createInfo, null, pCommandPool), "create command pool");
+        return pCommandPool.get(0);
+    }
+
+    private VkCommandBuffer allocate(long pool, int level) {
+        VkCommandBufferAllocateInfo allocateInfo = VkCommandBufferAllocateInfo.create()
+                .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_ALLOCATE_INFO)
+                .commandPool(pool)
+                .level(level)
+                .commandBufferCount(1);
+        PointerBuffer pointer = BufferUtils.createPointerBuffer(1);
+        check(vkAllocateCommandBuffers(device, allocateInfo, pointer), "allocate command buffer");
+        return new VkCommandBuffer(pointer.get(0), device);
+    }
+
+    private static void check(int err, String action) {
+        if (err != VK_SUCCESS) {
+            throw new RuntimeException("Failed to " + action + ": " + translateVulkanResult(err));
+        }
+    }
+}
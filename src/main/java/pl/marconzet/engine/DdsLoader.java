@@ -0,0 +1,107 @@
+package pl.marconzet.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * Reads pre-compressed 2D textures from DDS files into a {@link MipChain}, with all mip levels stored in the file.
+ * Supported are {@code DXT1} and {@code DXT5} four-character codes and the {@code DX10} extension header with BC1, BC3
+ * or BC7 formats. The level data is memory-mapped, not copied.
+ * <p>
+ * sRGB variants map to the UNORM formats, the same way decoded images are uploaded as {@code R8G8B8A8_UNORM}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class DdsLoader {
+    private static final int MAGIC = 0x20534444;
+    private static final int HEADER_SIZE = 4 + 124;
+    private static final int DX10_HEADER_SIZE = 20;
+    private static final int DDSD_MIPMAPCOUNT = 0x20000;
+    private static final int DDPF_FOURCC = 0x4;
+    private static final int DXT1 = fourCC("DXT1");
+    private static final int DXT5 = fourCC("DXT5");
+    private static final int DX10 = fourCC("DX10");
+
+    public static boolean isDds(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(".dds");
+    }
+
+    public static MipChain read(Path path) throws IOException {
+        MappedByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Truncated DDS file " + path);
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        file.order(ByteOrder.LITTLE_ENDIAN);
+        if (file.getInt(0) != MAGIC || file.getInt(4) != 124) {
+            throw new IOException("Not a DDS file " + path);
+        }
+        int flags = file.getInt(8);
+        int height = file.getInt(12);
+        int width = file.getInt(16);
+        int levels = (flags & DDSD_MIPMAPCOUNT) != 0 ? Math.max(1, file.getInt(28)) : 1;
+        int pixelFormatFlags = file.getInt(80);
+        int fourCC = file.getInt(84);
+        if ((pixelFormatFlags & DDPF_FOURCC) == 0) {
+            throw new IOException("Uncompressed DDS files are not supported: " + path);
+        }
+
+        int dataOffset = HEADER_SIZE;
+        int format;
+        if (fourCC == DXT1) {
+            format = VK_FORMAT_BC1_RGBA_UNORM_BLOCK;
+        } else if (fourCC == DXT5) {
+            format = VK_FORMAT_BC3_UNORM_BLOCK;
+        } else if (fourCC == DX10) {
+            if (file.capacity() < HEADER_SIZE + DX10_HEADER_SIZE) {
+                throw new IOException("Truncated DDS file " + path);
+            }
+            format = dxgiFormat(file.getInt(HEADER_SIZE), path);
+            if (file.getInt(HEADER_SIZE + 12) != 1) {
+                throw new IOException("DDS texture arrays are not supported: " + path);
+            }
+            dataOffset += DX10_HEADER_SIZE;
+        } else {
+            throw new IOException("Unsupported DDS format " + Integer.toHexString(fourCC) + " in " + path);
+        }
+        levels = Math.min(levels, MipChain.levelCount(width, height));
+
+        int size = MipChain.size(format, width, height, levels);
+        if (file.capacity() - dataOffset < size) {
+            throw new IOException("Truncated DDS file " + path);
+        }
+        file.position(dataOffset).limit(dataOffset + size);
+        ByteBuffer data = file.slice();
+        return new MipChain(data, format, width, height, levels);
+    }
+
+    private static int dxgiFormat(int dxgiFormat, Path path) throws IOException {
+        switch (dxgiFormat) {
+            case 71: // DXGI_FORMAT_BC1_UNORM
+            case 72: // DXGI_FORMAT_BC1_UNORM_SRGB
+                return VK_FORMAT_BC1_RGBA_UNORM_BLOCK;
+            case 77: // DXGI_FORMAT_BC3_UNORM
+            case 78: // DXGI_FORMAT_BC3_UNORM_SRGB
+                return VK_FORMAT_BC3_UNORM_BLOCK;
+            case 98: // DXGI_FORMAT_BC7_UNORM
+            case 99: // DXGI_FORMAT_BC7_UNORM_SRGB
+                return VK_FORMAT_BC7_UNORM_BLOCK;
+            default:
+                throw new IOException("Unsupported DXGI format " + dxgiFormat + " in " + path);
+        }
+    }
+
+    private static int fourCC(String code) {
+        return code.charAt(0) | code.charAt(1) << 8 | code.charAt(2) << 16 | code.charAt(3) << 24;
+    }
+}
@@ -0,0 +1,89 @@
+package pl.marconzet.engine;
+
+import java.util.Arrays;
+
+/**
+ * Growable {@code float[]} used instead of per-element vector objects on hot loading paths.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class FloatList {
+    private float[] data;
+    private int size;
+
+    public FloatList() {
+        this(16);
+    }
+
+    public FloatList(int capacity) {
+        data = new float[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Wraps {@code data} without copying; the list starts full.
+     */
+    public FloatList(float[] data) {
+        this.data = data;
+        this.size = data.length;
+    }
+
+    public void add(float value) {
+        if (size == data.length) {
+            grow(size + 1);
+        }
+        data[size++] = value;
+    }
+
+    public void add(float a, float b) {
+        if (size + 2 > data.length) {
+            grow(size + 2);
+        }
+        data[size++] = a;
+        data[size++] = b;
+    }
+
+    public void add(float a, float b, float c) {
+        if (size + 3 > data.length) {
+            grow(size + 3);
+        }
+        data[size++] = a;
+        data[size++] = b;
+        data[size++] = c;
+    }
+
+    public void addAll(FloatList other) {
+        if (size + other.size > data.length) {
+            grow(size + other.size);
+        }
+        System.arraycopy(other.data, 0, data, size, other.size);
+        size += other.size;
+    }
+
+    public float get(int index) {
+        return data[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the backing array, valid up to {@link #size()}
+     */
+    public float[] array() {
+        return data;
+    }
+
+    public float[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    private void grow(int minCapacity) {
+        data = Arrays.copyOf(data, Math.max(minCapacity, data.length + (data.length >> 1)));
+    }
+}
@@ -0,0 +1,509 @@
+package pl.marconzet.engine;
+
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.vulkan.VkPresentInfoKHR;
+import org.lwjgl.vulkan.VkSubmitInfo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.lwjgl.vulkan.VK10.*;
+import static pl.marconzet.engine.Benchmark.ITERATIONS;
+import static pl.marconzet.engine.Benchmark.WARMUP;
+import static pl.marconzet.engine.Benchmark.start;
+import static pl.marconzet.engine.Benchmark.stop;
+
+/**
+ * Benchmarks of the per-frame CPU work and the resources behind it: uniform updates, frame submission, memory and
+ * staging allocation, instance upload, culling and the pipeline cache, see {@link Benchmark}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+class FrameBenchmark {
+    /**
+     * Per-frame uniform update as done by {@link HelloTriangleApplication}, into a {@link UniformRing} over plain
+     * memory. The steady state must not allocate.
+     */
+    static void uniform() {
+        int slots = 3;
+        int slotSize = UniformRing.slotSize(UniformBufferObject.sizeOf(), 256);
+        UniformRing ring = new UniformRing(BufferUtils.createByteBuffer(slotSize * slots), slotSize, slots);
+        UniformBufferObject ubo = new UniformBufferObject();
+        Matrix4f positionTransform = new Matrix4f().scale(2);
+        int frames = 1_000_000;
+
+        long[] stats = new long[2];
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            for (int frame = 0; frame < frames; frame++) {
+                ubo.modelMatrix.rotationX((float) Math.PI).translate(0f, -5f, 0f).mul(positionTransform);
+                ubo.viewMatrix.translation(0f, 0f, 10f);
+                ubo.projMatrix.setPerspectiveLH((float) Math.PI / 2, 800f / 600f, 0.1f, 1000f);
+                ring.write(frame % slots, ubo);
+            }
+        }
+        stop(stats);
+        System.out.printf("%d frames: %.1f ns/frame, %d bytes allocated, %.4f bytes/frame%n",
+                frames * ITERATIONS, (double) stats[0] / frames / ITERATIONS, stats[1],
+                (double) stats[1] / frames / ITERATIONS);
+        System.out.println("zero allocation: " + (stats[1] == 0));
+    }
+
+    /**
+     * CPU side of {@link HelloTriangleApplication#drawFrame}: uniform update and patching of preallocated submit
+     * and present infos, reported by a {@link FrameProfiler}.
+     */
+    static void frame() {
+        int slotSize = UniformRing.slotSize(UniformBufferObject.sizeOf(), 256);
+        UniformRing ring = new UniformRing(BufferUtils.createByteBuffer(slotSize * 3), slotSize, 3);
+        UniformBufferObject ubo = new UniformBufferObject();
+        PointerBuffer pCommandBuffers = BufferUtils.createPointerBuffer(1);
+        IntBuffer pImageIndex = BufferUtils.createIntBuffer(1);
+        LongBuffer pSwapChain = BufferUtils.createLongBuffer(1);
+        VkSubmitInfo submitInfo = VkSubmitInfo.create().pCommandBuffers(pCommandBuffers);
+        VkPresentInfoKHR presentInfo = VkPresentInfoKHR.create().swapchainCount(1).pSwapchains(pSwapChain).pImageIndices(pImageIndex);
+
+        FrameProfiler profiler = new FrameProfiler(1_000_000);
+        long checksum = 0;
+        for (int frame = 0; frame < 5_000_000; frame++) {
+            int imageIndex = frame % 3;
+            pImageIndex.put(0, imageIndex);
+            ubo.modelMatrix.rotationX((float) Math.PI).translate(0f, -5f, 0f);
+            ubo.viewMatrix.translation(0f, 0f, 10f);
+            ubo.projMatrix.setPerspectiveLH((float) Math.PI / 2, 800f / 600f, 0.1f, 1000f);
+            ring.write(imageIndex, ubo);
+            pCommandBuffers.put(0, 0x1000L + imageIndex);
+            pSwapChain.put(0, 0x2000L);
+            checksum += submitInfo.commandBufferCount() + presentInfo.swapchainCount();
+            profiler.frame();
+        }
+        System.out.println("checksum " + checksum);
+    }
+
+    /**
+     * Random buffer and image workload on a {@link MemoryAllocator} over a backend handing out fake handles; see
+     * {@code MemoryAllocatorTest} for the invariants.
+     */
+    static void allocator() {
+        int deviceLocal = VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT;
+        int hostVisible = VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT;
+        long granularity = 1024;
+        // live and peak device allocations
+        int[] allocations = new int[2];
+        MemoryBackend backend = new MemoryBackend() {
+            private long nextHandle = 1;
+
+            @Override
+            public long allocate(int memoryTypeIndex, long size) {
+                allocations[1] = Math.max(allocations[1], ++allocations[0]);
+                return nextHandle++;
+            }
+
+            @Override
+            public void free(long memory) {
+                allocations[0]--;
+            }
+
+            @Override
+            public long map(long memory, long size) {
+                return memory << 40;
+            }
+        };
+        MemoryAllocator allocator = new MemoryAllocator(backend, new int[]{deviceLocal, hostVisible}, granularity,
+                MemoryAllocator.DEFAULT_BLOCK_SIZE);
+
+        Random random = new Random(7);
+        List<MemoryAllocation> live = new ArrayList<>();
+        int peakResources = 0;
+        long time = System.nanoTime();
+        for (int op = 0; op < 200_000; op++) {
+            if (!live.isEmpty() && random.nextInt(100) < 48) {
+                int i = random.nextInt(live.size());
+                live.get(i).free();
+                live.set(i, live.get(live.size() - 1));
+                live.remove(live.size() - 1);
+            } else {
+                boolean buffer = random.nextBoolean();
+                long size = (long) Math.pow(2, 8 + random.nextDouble() * 14);
+                long alignment = buffer ? 256 : 4096;
+                int properties = buffer && random.nextInt(4) == 0 ? hostVisible : deviceLocal;
+                live.add(allocator.allocate(size, alignment, 0b11, properties, buffer));
+                peakResources = Math.max(peakResources, live.size());
+            }
+        }
+        time = System.nanoTime() - time;
+
+        System.out.printf("200000 operations in %.1f ms, peak %d resources on %d device allocations (live %d)%n",
+                time / 1e6, peakResources, allocations[1], allocations[0]);
+        System.out.print(allocator.getStatistics());
+        for (MemoryAllocation allocation : live) {
+            allocation.free();
+        }
+        System.out.println("blocks kept after freeing everything: " + allocator.getBlockCount());
+        System.out.print(allocator.getStatistics());
+        allocator.destroy();
+        System.out.println("leaked device allocations: " + allocations[0]);
+    }
+
+    /**
+     * Drives a {@link StagingBufferPool} the way {@link UploadManager} does, with simulated fences completing a few
+     * batches late, and checks that live reservations never overlap. The fence latency changes between phases to show
+     * the pool growing up to its cap; once idle for longer than the shrink delay it shrinks back to one ring.
+     */
+    static void staging() throws InterruptedException {
+        long ringSize = 1 << 20;
+        int[] liveRings = new int[1];
+        StagingBufferPool pool = new StagingBufferPool(new StagingBufferPool.Factory() {
+            @Override
+            public StagingRing create(long capacity) {
+                liveRings[0]++;
+                return new StagingRing(capacity);
+            }
+
+            @Override
+            public void destroy(StagingRing ring) {
+                liveRings[0]--;
+            }
+        }, ringSize, 4 * ringSize, 50_000_000L);
+
+        Random random = new Random(7);
+        StagingBufferPool.Range range = new StagingBufferPool.Range();
+        java.util.ArrayDeque<StagingBufferPool.Batch> inFlight = new java.util.ArrayDeque<>();
+        java.util.ArrayDeque<Integer> inFlightSizes = new java.util.ArrayDeque<>();
+        List<Object[]> live = new ArrayList<>();
+        int[] lags = {1, 16, 2};
+        int batchSize = 0;
+        long time = System.nanoTime();
+        for (int phase = 0; phase < lags.length; phase++) {
+            int batches = 0, stalls = 0, errors = 0, peakRings = 0;
+            long staged = 0;
+            for (int upload = 0; upload < 100_000; upload++) {
+                long size = 16 + random.nextInt((int) ringSize / 4);
+                while (!pool.reserve(size, 16, range)) {
+                    if (inFlight.isEmpty()) {
+                        inFlight.add(pool.takeReserved());
+                        inFlightSizes.add(batchSize);
+                        batchSize = 0;
+                        batches++;
+                    }
+                    retire(pool, inFlight, inFlightSizes, live);
+                    stalls++;
+                }
+                long offset = range.getOffset();
+                if (offset % 16 != 0 || offset + size > ringSize) errors++;
+                for (Object[] other : live) {
+                    long otherOffset = (Long) other[1], otherSize = (Long) other[2];
+                    if (other[0] == range.getRing() && offset < otherOffset + otherSize && otherOffset < offset + size) errors++;
+                }
+                live.add(new Object[]{range.getRing(), offset, size});
+                batchSize++;
+                staged += size;
+                peakRings = Math.max(peakRings, pool.getRingCount());
+                if (random.nextInt(8) == 0) {
+                    inFlight.add(pool.takeReserved());
+                    inFlightSizes.add(batchSize);
+                    batchSize = 0;
+                    batches++;
+                    while (inFlight.size() > lags[phase]) {
+                        retire(pool, inFlight, inFlightSizes, live);
+                    }
+                }
+            }
+            System.out.printf("fence lag %2d batches: %.1f MB staged, %d batches, %d stalls, peak %d rings, " +
+                            "%d rings at the end, invariant violations: %d%n",
+                    lags[phase], staged / 1048576.0, batches, stalls, peakRings, pool.getRingCount(), errors);
+        }
+        time = System.nanoTime() - time;
+        System.out.printf("%.1f ms; %s", time / 1e6, pool.getStatistics());
+        inFlight.add(pool.takeReserved());
+        inFlightSizes.add(batchSize);
+        while (!inFlight.isEmpty()) {
+            retire(pool, inFlight, inFlightSizes, live);
+        }
+        Thread.sleep(100);
+        pool.trim();
+        System.out.print("after 100 ms idle: " + pool.getStatistics());
+        pool.destroy();
+        System.out.println("leaked rings: " + liveRings[0]);
+    }
+
+    private static void retire(StagingBufferPool pool, java.util.ArrayDeque<StagingBufferPool.Batch> inFlight,
+                               java.util.ArrayDeque<Integer> inFlightSizes, List<Object[]> live) {
+        pool.release(inFlight.poll());
+        live.subList(0, inFlightSizes.poll()).clear();
+        pool.trim();
+    }
+
+    /**
+     * CPU cost per instance of a {@link Scene} frame: moving every object and writing the instance buffer, with the
+     * objects of three meshes interleaved.
+     */
+    static void instances(int count) {
+        float[] positions = {-0.5f, -0.5f, 0f, 0.5f, -0.5f, 0f, 0.5f, 0.5f, 0f, -0.5f, 0.5f, 0f};
+        float[] texCoords = {0f, 0f, 1f, 0f, 1f, 1f, 0f, 1f};
+        int[] indices = {0, 1, 2, 2, 3, 0};
+        Scene scene = new Scene();
+        for (int mesh = 0; mesh < 3; mesh++) {
+            scene.addMesh(new Model(positions, texCoords, indices, 4));
+        }
+        Matrix4f transform = new Matrix4f();
+        long time = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            scene.add(i % 3, transform.translation(i, 0f, 0f));
+        }
+        long addTime = System.nanoTime() - time;
+        time = System.nanoTime();
+        int[] batches = scene.getBatches();
+        long groupTime = System.nanoTime() - time;
+
+        FloatBuffer target = BufferUtils.createFloatBuffer(count * Scene.INSTANCE_SIZE / 4);
+        long[] stats = new long[2];
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            for (int object = 0; object < count; object++) {
+                scene.setTransform(object, transform.translation(object, i, 0f));
+            }
+            target.clear();
+            scene.write(target);
+        }
+        stop(stats);
+        long moveTime = stats[0];
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            target.clear();
+            scene.write(target);
+        }
+        stop(stats);
+
+        // every batch holds its mesh's objects, every instance the translation of its object
+        int errors = batches.length == 12 ? 0 : 1;
+        for (int b = 0; b < batches.length; b += 4) {
+            for (int instance = batches[b + 2]; instance < batches[b + 2] + batches[b + 3]; instance++) {
+                int object = (instance - batches[b + 2]) * 3 + batches[b];
+                if (target.get(instance * 12 + 3) != object || target.get(instance * 12 + 7) != WARMUP + ITERATIONS - 1) {
+                    errors++;
+                }
+            }
+        }
+        System.out.printf("%d instances of 3 meshes in %d draws, add %.1f ns, grouping %.1f ns per instance%n",
+                count, batches.length / 4, (double) addTime / count, (double) groupTime / count);
+        System.out.printf("moving and writing %.1f ns, writing only %.1f ns per instance per frame (%.2f ms per frame), %.1f MB allocated, errors: %d%n",
+                (double) moveTime / ITERATIONS / count, (double) stats[0] / ITERATIONS / count,
+                stats[0] / 1e6 / ITERATIONS, stats[1] / (1024.0 * 1024.0), errors);
+    }
+
+    /**
+     * {@link Scene#cull(Matrix4fc)} of randomly placed objects seen by a camera inside them: building the hierarchy,
+     * culling a static frame and refitting after moving a tenth of the objects, checked against testing every box.
+     */
+    static void cull(int count) {
+        Random random = new Random(21);
+        Matrix4f viewProjection = new Matrix4f();
+        Scene scene = randomScene(count, random, viewProjection);
+        Matrix4f transform = new Matrix4f();
+
+        long time = System.nanoTime();
+        scene.cull(viewProjection);
+        long buildTime = System.nanoTime() - time;
+        // culling is short, more frames for the compiler to settle
+        int frames = 100 * ITERATIONS;
+        long[] stats = new long[2];
+        for (int i = 0; i < frames + frames; i++) {
+            if (i == frames) start(stats);
+            scene.cull(viewProjection);
+        }
+        stop(stats);
+        long cullTime = stats[0] / 100;
+        long cullAllocated = stats[1];
+
+        int moved = count / 10;
+        long moveTime = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            for (int m = 0; m < moved; m++) {
+                int object = random.nextInt(count);
+                scene.getTransform(object, transform);
+                scene.setTransform(object, transform.translateLocal(random.nextFloat() - 0.5f, 0f, 0f));
+            }
+            time = System.nanoTime();
+            scene.cull(viewProjection);
+            if (i >= WARMUP) moveTime += System.nanoTime() - time;
+        }
+
+        IntList batches = scene.cull(viewProjection);
+        FloatBuffer target = BufferUtils.createFloatBuffer(count * Scene.INSTANCE_SIZE / 4);
+        int visible = scene.write(target);
+        float[] planes = new float[24];
+        Bvh.frustumPlanes(viewProjection, planes);
+        Matrix4f object = new Matrix4f();
+        int expected = 0;
+        for (int i = 0; i < count; i++) {
+            scene.getTransform(i, object);
+            if (boxVisible(object, planes)) expected++;
+        }
+        // every written instance has to be visible, and all visible boxes written
+        int errors = Math.abs(expected - visible);
+        for (int b = 0; b < batches.size(); b += 4) {
+            for (int instance = batches.get(b + 2); instance < batches.get(b + 2) + batches.get(b + 3); instance++) {
+                int at = instance * 12;
+                object.set(target.get(at), target.get(at + 4), target.get(at + 8), 0f,
+                        target.get(at + 1), target.get(at + 5), target.get(at + 9), 0f,
+                        target.get(at + 2), target.get(at + 6), target.get(at + 10), 0f,
+                        target.get(at + 3), target.get(at + 7), target.get(at + 11), 1f);
+                if (!boxVisible(object, planes)) errors++;
+            }
+        }
+        System.out.printf("%d objects, %d visible in %d draws, build %.1f ms%n",
+                count, visible, batches.size() / 4, buildTime / 1e6);
+        System.out.printf("cull %.3f ms per frame (%.1f MB allocated), refit after moving %d objects and cull %.3f ms, errors: %d%n",
+                cullTime / 1e6 / ITERATIONS, cullAllocated / (1024.0 * 1024.0), moved, moveTime / 1e6 / ITERATIONS, errors);
+    }
+
+    /**
+     * The kernel of {@code cull.comp} run on the CPU through {@link IndirectCuller#cull}, over the buffers the
+     * application uploads; {@code IndirectCullerTest} checks it against {@link Scene#cull(Matrix4fc)}.
+     */
+    static void gpuCull(int count) {
+        Matrix4f viewProjection = new Matrix4f();
+        Scene scene = randomScene(count, new Random(21), viewProjection);
+        float[] planes = new float[24];
+        Bvh.frustumPlanes(viewProjection, planes);
+
+        // the buffers of IndirectCuller, filled like HelloTriangleApplication does
+        int[] batches = scene.getBatches();
+        FloatBuffer instances = BufferUtils.createFloatBuffer(count * Scene.INSTANCE_SIZE / 4);
+        scene.write(instances);
+        FloatBuffer bounds = BufferUtils.createFloatBuffer(count * IndirectCuller.BOUNDS_SIZE / 4);
+        scene.writeBounds(bounds);
+        IntBuffer table = BufferUtils.createIntBuffer(batches.length);
+        IntBuffer template = BufferUtils.createIntBuffer(batches.length / 4 * 5);
+        for (int b = 0; b < batches.length; b += 4) {
+            int[] submeshes = scene.getMesh(batches[b]).getSubmeshes();
+            table.put(b / 4).put(submeshes.length / 3).put(batches[b + 2]).put(0);
+            template.put(submeshes[1]).put(0).put(submeshes[0]).put(submeshes[2]).put(0);
+        }
+        IntBuffer commands = BufferUtils.createIntBuffer(template.capacity());
+        FloatBuffer visible = BufferUtils.createFloatBuffer(count * Scene.INSTANCE_SIZE / 4);
+
+        long[] stats = new long[2];
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            template.clear();
+            commands.clear();
+            commands.put(template).clear();
+            IndirectCuller.cull(bounds, table, instances, planes, count, commands, visible);
+        }
+        stop(stats);
+
+        int drawn = 0;
+        for (int b = 0; b < batches.length; b += 4) {
+            drawn += commands.get(b / 4 * 5 + 1);
+        }
+        System.out.printf("%d objects, %d visible in %d indirect draws%n", count, drawn, batches.length / 4);
+        System.out.printf("reference kernel %.3f ms per frame (%.1f MB allocated)%n",
+                stats[0] / 1e6 / ITERATIONS, stats[1] / (1024.0 * 1024.0));
+    }
+
+    /**
+     * {@code count} boxes of three meshes at random places, sizes and rotations in a cube, and in
+     * {@code viewProjection} a camera at the middle of one face looking through it.
+     */
+    private static Scene randomScene(int count, Random random, Matrix4f viewProjection) {
+        float[] positions = {-0.5f, -0.5f, -0.5f, 0.5f, -0.5f, 0.5f, 0.5f, 0.5f, 0.5f, -0.5f, 0.5f, -0.5f};
+        float[] texCoords = {0f, 0f, 1f, 0f, 1f, 1f, 0f, 1f};
+        int[] indices = {0, 1, 2, 2, 3, 0};
+        Scene scene = new Scene();
+        for (int mesh = 0; mesh < 3; mesh++) {
+            scene.addMesh(new Model(positions, texCoords, indices, 4));
+        }
+        float size = (float) Math.cbrt(count) * 4;
+        Matrix4f transform = new Matrix4f();
+        for (int i = 0; i < count; i++) {
+            scene.add(i % 3, transform.translation(random.nextFloat() * size, random.nextFloat() * size,
+                    random.nextFloat() * size).rotateY(random.nextFloat() * 6.28f).scale(1 + random.nextFloat()));
+        }
+        viewProjection.identity()
+                .perspective((float) Math.toRadians(60), 16f / 9f, 0.1f, size / 4, true)
+                .lookAt(size / 2, size / 2, 0, size / 2, size / 2, size, 0, 1, 0);
+        return scene;
+    }
+
+    /**
+     * Validates a pipeline cache file of {@code kilobytes} as {@link PipelineCache} does at startup, and rejects it
+     * for another driver, device or damaged data. Pipeline creation itself needs a device, see
+     * {@code engine.profile}.
+     */
+    static void pipelineCache(int kilobytes) {
+        int vendor = 0x10DE, device = 0x1C82, driver = 0x5A00000;
+        ByteBuffer uuid = BufferUtils.createByteBuffer(VK_UUID_SIZE);
+        Random random = new Random(25);
+        for (int i = 0; i < VK_UUID_SIZE; i++) {
+            uuid.put(i, (byte) random.nextInt());
+        }
+        // the header vkGetPipelineCacheData writes, then opaque driver data
+        ByteBuffer data = ByteBuffer.allocate(kilobytes * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(16 + VK_UUID_SIZE).putInt(VK_PIPELINE_CACHE_HEADER_VERSION_ONE).putInt(vendor).putInt(device)
+                .put(uuid.duplicate());
+        while (data.hasRemaining()) {
+            data.put((byte) random.nextInt());
+        }
+        data.flip();
+
+        ByteBuffer file = PipelineCache.pack(data, vendor, device, driver, uuid);
+        long[] stats = new long[2];
+        int errors = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            ByteBuffer loaded = PipelineCache.validate(file.duplicate().order(ByteOrder.nativeOrder()), vendor, device, driver, uuid);
+            if (loaded == null || !loaded.equals(data)) errors++;
+        }
+        stop(stats);
+
+        ByteBuffer otherUuid = BufferUtils.createByteBuffer(VK_UUID_SIZE);
+        otherUuid.put(uuid.duplicate()).put(0, (byte) (uuid.get(0) + 1)).flip();
+        ByteBuffer corrupt = ByteBuffer.allocate(file.remaining()).order(ByteOrder.nativeOrder());
+        corrupt.put(file.duplicate()).flip();
+        corrupt.put(corrupt.limit() - 1, (byte) (corrupt.get(corrupt.limit() - 1) + 1));
+        ByteBuffer truncated = file.duplicate().order(ByteOrder.nativeOrder());
+        truncated.limit(truncated.limit() - 1);
+        ByteBuffer foreign = PipelineCache.pack(data, vendor, device + 1, driver, uuid);
+        ByteBuffer[] stale = {
+                PipelineCache.pack(data, vendor, device, driver + 1, uuid), PipelineCache.pack(data, vendor, device, driver, otherUuid),
+                corrupt, truncated, foreign};
+        String[] names = {"driver version", "UUID", "damaged data", "truncated file", "driver header of another device"};
+        for (int i = 0; i < stale.length; i++) {
+            boolean rejected = PipelineCache.validate(stale[i].duplicate().order(ByteOrder.nativeOrder()),
+                    vendor, i == 4 ? device + 1 : device, driver, uuid) == null;
+            System.out.printf("  %s: %s%n", names[i], rejected ? "rejected" : "accepted");
+            if (!rejected) errors++;
+        }
+        System.out.printf("%d KB validated in %.3f ms (%.1f MB allocated), errors: %d%n", kilobytes,
+                stats[0] / 1e6 / ITERATIONS, stats[1] / (1024.0 * 1024.0), errors);
+    }
+
+    /**
+     * The unit box transformed by {@code object}, bounded by an axis aligned box, against every plane.
+     */
+    private static boolean boxVisible(Matrix4f object, float[] planes) {
+        float cx = object.m30(), cy = object.m31(), cz = object.m32();
+        float ex = (Math.abs(object.m00()) + Math.abs(object.m10()) + Math.abs(object.m20())) * 0.5f;
+        float ey = (Math.abs(object.m01()) + Math.abs(object.m11()) + Math.abs(object.m21())) * 0.5f;
+        float ez = (Math.abs(object.m02()) + Math.abs(object.m12()) + Math.abs(object.m22())) * 0.5f;
+        for (int p = 0; p < 24; p += 4) {
+            float a = planes[p], b = planes[p + 1], c = planes[p + 2];
+            if (a * cx + b * cy + c * cz + planes[p + 3] + Math.abs(a) * ex + Math.abs(b) * ey + Math.abs(c) * ez < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
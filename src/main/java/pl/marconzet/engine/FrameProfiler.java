@@ -0,0 +1,103 @@
+package pl.marconzet.engine;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Allocation and GC report of the frame loop. Call {@link #frame()} once per frame; every {@code window} frames it
+ * prints the average frame time, heap bytes allocated by the calling thread per frame, direct buffers created and
+ * collections run during the window. Sampling happens only at window boundaries and the probe's own allocation is
+ * subtracted, so a loop that does not allocate reports 0.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class FrameProfiler {
+    /**
+     * Bytes allocated by {@link #allocatedBytes()} itself.
+     */
+    static final long PROBE_OVERHEAD = probeOverhead();
+
+    private final int window;
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final BufferPoolMXBean directPool;
+
+    private int frames;
+    private long startTime;
+    private long startAllocated;
+    private long startDirectCount;
+    private long startCollections;
+    private long startCollectionTime;
+
+    public FrameProfiler(int window) {
+        this.window = window;
+        BufferPoolMXBean direct = null;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                direct = pool;
+            }
+        }
+        this.directPool = direct;
+        begin();
+    }
+
+    public void frame() {
+        if (++frames < window) {
+            return;
+        }
+        long allocated = allocatedBytes() - startAllocated - PROBE_OVERHEAD;
+        long time = System.nanoTime() - startTime;
+        long directCount = directPool != null ? directPool.getCount() - startDirectCount : 0;
+        long collections = collectionCount() - startCollections;
+        long collectionTime = collectionTime() - startCollectionTime;
+        System.out.printf("frames %d: %.3f ms/frame, %.1f heap bytes/frame, %d direct buffers, %d GCs (%d ms)%n",
+                frames, time / 1e6 / frames, (double) allocated / frames, directCount, collections, collectionTime);
+        begin();
+    }
+
+    private void begin() {
+        frames = 0;
+        startDirectCount = directPool != null ? directPool.getCount() : 0;
+        startCollections = collectionCount();
+        startCollectionTime = collectionTime();
+        startTime = System.nanoTime();
+        startAllocated = allocatedBytes();
+    }
+
+    private long collectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(collector.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private long collectionTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            time += Math.max(collector.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    private static long probeOverhead() {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 16; i++) {
+            overhead = Math.min(overhead, -allocatedBytes() + allocatedBytes());
+        }
+        return overhead;
+    }
+
+    /**
+     * @return bytes allocated on the heap by the current thread so far, 0 when the JVM cannot tell
+     */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -2,22 +2,24 @@ package pl.marconzet.engine;
 
 import javafx.util.Pair;
 import org.joml.Matrix4f;
+import org.joml.Vector4f;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.glfw.GLFWFramebufferSizeCallback;
 import org.lwjgl.vulkan.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.glfw.GLFWVulkan.glfwCreateWindowSurface;
 import static org.lwjgl.glfw.GLFWVulkan.glfwGetRequiredInstanceExtensions;
-import static org.lwjgl.stb.STBImage.STBI_rgb_alpha;
-import static org.lwjgl.stb.STBImage.stbi_image_free;
-import static org.lwjgl.stb.STBImage.stbi_load;
+import static org.lwjgl.stb.STBImage.*;
 import static org.lwjgl.system.MemoryUtil.*;
 import static org.lwjgl.system.libc.LibCString.memcpy;
 import static org.lwjgl.vulkan.EXTDebugReport.*;
@@ -47,8 +49,21 @@ public class HelloTriangleApplication {
 
     public Model model;
     public String textureName;
+    public String modelName;
 
     private static final int MAX_FRAMES_IN_FLIGHT = 2;
+    private static final long STAGING_RING_SIZE = 16L << 20;
+    private static final long STAGING_POOL_SIZE = 64L << 20;
+    private static final long STAGING_SHRINK_DELAY = 2_000_000_000L;
+    private static final int DECODER_THREADS = 2;
+    private static final long UPLOAD_BUDGET = 32L << 20;
+    private static final int MAX_TEXTURE_SLOTS = 64;
+    private static final int ATLAS_PADDING = 8;
+    private static final long TEXTURE_BUDGET = 256L << 20;
+    private static final int TEXTURE_LOADS_PER_FRAME = 2;
+    private static final int LOD_LEVELS = 4;
+    // screen space error allowed when picking a coarser level of detail
+    private static final float LOD_PIXELS = 1f;
     private int currentFrame = 0;
     private static long startTime;
 
@@ -72,34 +87,137 @@ public class HelloTriangleApplication {
     private long renderPass;
     private long descriptorSetLayout;
     private List<Long> shaderModules = new ArrayList<>();
+    private PipelineCache pipelineCache;
     private long pipelineLayout;
     private long graphicsPipeline;
     private long[] swapChainFramebuffers;
-    private long commandPool;
     private int msaaSamples = VK_SAMPLE_COUNT_1_BIT;
     private long colorImage;
-    private long colorImageMemory;
+    private MemoryAllocation colorImageMemory;
     private long colorImageView;
     private long depthImage;
-    private long depthImageMemory;
+    private MemoryAllocation depthImageMemory;
     private long depthImageView;
     private int mipLevels;
+    private boolean textureCompressionBC;
+    private int textureFormat;
     private long textureImage;
-    private long textureImageMemory;
+    private MemoryAllocation textureImageMemory;
     private long textureImageView;
     private long textureSampler;
-    private long vertexBuffer;
-    private long vertexBufferMemory;
-    private long indexBuffer;
-    private long indexBufferMemory;
-    private long[] uniformBuffers;
-    private long[] uniformBuffersMemory;
+    private int textureSlots;
+    private TextureTable textureTable;
+    private int textureSlot = -1;
+    private Material material;
+    private final ByteBuffer materialConstants = BufferUtils.createByteBuffer(Material.SIZE);
+    private final List<ResidentTexture> residentTextures = new ArrayList<>();
+    private final TextureResidency residency = new TextureResidency(new TextureResidency.Backend() {
+        @Override
+        public void setBaseLevel(int texture, int baseLevel) {
+            residentTextures.get(texture).targetLevel = baseLevel;
+        }
+    }, TEXTURE_BUDGET, TEXTURE_LOADS_PER_FRAME);
+    private int residentTexture = -1;
+    private final Vector4f corner = new Vector4f();
+    private final List<Long> atlasImages = new ArrayList<>();
+    private final List<MemoryAllocation> atlasMemory = new ArrayList<>();
+    private final List<Long> atlasImageViews = new ArrayList<>();
+    private final Scene scene = new Scene();
+    private final List<MeshBuffers> meshBuffers = new ArrayList<>();
+    private long instanceBuffer;
+    private MemoryAllocation instanceMemory;
+    private FloatBuffer instanceData;
+    private int instanceCapacity;
+    private long[] instanceSerials;
+    private int recordedSceneVersion = -1;
+    private final Matrix4f cullMatrix = new Matrix4f();
+    private final Matrix4f culledMatrix = new Matrix4f();
+    private long culledModifications = -1;
+    private long cullSerial;
+    // streamed models are split into meshlets culled one by one, see cullMeshlets
+    private final boolean meshletCulling = Boolean.getBoolean("engine.meshlets");
+    private final Matrix4f meshletMatrix = new Matrix4f();
+    private final Matrix4f meshletInverse = new Matrix4f();
+    private final Vector4f meshletEye = new Vector4f();
+    private final float[] meshletPlanes = new float[24];
+    private final float[] meshletCamera = new float[3];
+    private final IntList meshletRanges = new IntList();
+    private IndirectCuller culler;
+    private boolean cullingCheck;
+    private final float[] cullPlanes = new float[24];
+    private int indirectSceneVersion = -1;
+    private MemoryAllocator allocator;
+    private UploadManager uploadManager;
+    private UniformRing uniformRing;
+    private final UniformBufferObject ubo = new UniformBufferObject();
+    private VertexFormat vertexFormat;
+    private AssetStreamer streamer;
     private long descriptorPool;
-    private long[] descriptorSets;
-    private VkCommandBuffer[] commandBuffers;
+    private long descriptorSet;
+    private CommandRecorder recorder;
+    private final CommandRecorder.Task drawTask = new CommandRecorder.Task() {
+        @Override
+        public void record(VkCommandBuffer commandBuffer, int worker, int first, int end) {
+            recordDraws(commandBuffer, worker, first, end);
+        }
+    };
+    // (batch offset, first index, index count, vertex offset) of every draw
+    private final IntList drawList = new IntList();
+    private IntList drawBatches = new IntList();
+    private int recordingFrame;
+    private final LongBuffer descriptorSets = BufferUtils.createLongBuffer(1);
+    private final IntBuffer dynamicOffsets = BufferUtils.createIntBuffer(1);
+    private LongBuffer[] workerVertexBuffers;
+    private LongBuffer[] workerOffsets;
+    private VkRenderPassBeginInfo renderPassBeginInfo;
+    // referenced by renderPassBeginInfo
+    private VkClearValue.Buffer clearValues;
     private long[] imageAvailableSemaphore;
     private long[] renderFinishedSemaphore;
     private long[] inFlightFences;
+    private IntBuffer pImageIndex;
+    private LongBuffer pSwapChain;
+    private PointerBuffer[] pSubmitCommandBuffers;
+    private LongBuffer[] pWaitSemaphores;
+    private LongBuffer[] pSignalSemaphores;
+    private IntBuffer pWaitStages;
+    private VkSubmitInfo[] submitInfos;
+    private VkPresentInfoKHR[] presentInfos;
+    private FrameProfiler frameProfiler;
+    private final AssetStreamer.Listener assetListener = new AssetStreamer.Listener() {
+        @Override
+        public void upload(AssetStreamer.Asset asset, UploadManager uploads) {
+            if (asset instanceof AssetStreamer.Mesh) {
+                uploadMesh((AssetStreamer.Mesh) asset);
+            } else {
+                uploadTexture((AssetStreamer.Texture) asset);
+            }
+        }
+
+        @Override
+        public void swapIn(AssetStreamer.Asset asset) {
+            if (asset instanceof AssetStreamer.Mesh) {
+                swapInMesh((AssetStreamer.Mesh) asset);
+            } else {
+                swapInTexture((AssetStreamer.Texture) asset);
+            }
+        }
+
+        @Override
+        public void discard(AssetStreamer.Asset asset) {
+            if (asset instanceof AssetStreamer.Mesh) {
+                AssetStreamer.Mesh mesh = (AssetStreamer.Mesh) asset;
+                destroyMesh(mesh.vertexBuffer, mesh.vertexMemory, mesh.indexBuffer, mesh.indexMemory);
+            } else {
+                AssetStreamer.Texture texture = (AssetStreamer.Texture) asset;
+                if (texture.residency >= 0) {
+                    releaseResidentTexture(texture.residency);
+                } else {
+                    destroyTexture(texture.image, texture.memory, texture.imageView);
+                }
+            }
+        }
+    };
 
 
     public void run() {
@@ -127,6 +245,8 @@ public class HelloTriangleApplication {
     }
 
     private void initVulkan() {
+        long initStart = System.nanoTime();
+        vertexFormat = model != null ? model.getFormat() : VertexFormat.QUANTIZED;
         createInstance();
         if(ENABLE_VALIDATION_LAYERS)
             setupDebugCallback();
@@ -134,32 +254,44 @@ public class HelloTriangleApplication {
         pickPhysicalDevice();
         createLogicalDevice();
         createDeviceQueues();
+        createPipelineCache();
+        createAllocator();
+        createUploadManager();
         createSwapChain();
         getSwapChainImages();
         createImageViews();
         createRenderPass();
         createDescriptorSetLayout();
         createGraphicsPipeline();
-        createCommandPoll();
         createColorResources();
         createDepthResources();
         createFramebuffers();
-        createTextureImage();
-        createTextureImageView();
         createTextureSampler();
-        createVertexBuffer();
-        createIndexBuffer();
+        textureTable = new TextureTable(device, textureSlots, textureSampler);
+        createModelBuffers();
         createUniformBuffers();
+        createIndirectCuller();
+        createInstanceBuffer(Math.max(scene.getObjectCount(), 1));
         createDescriptorPoll();
         createDescriptorSets();
-        createCommandBuffers();
+        createCommandRecorder();
         createSyncObjects();
+        createFrameInfos();
+        createAssetStreamer();
+        uploadManager.waitIdle();
+        pipelineCache.endStartup();
+        if (Boolean.getBoolean("engine.profile")) {
+            System.out.printf("initVulkan: %.1f ms%n", (System.nanoTime() - initStart) / 1e6);
+            System.out.print(pipelineCache.getStatistics());
+            System.out.print(uploadManager.getStatistics());
+            System.out.print(allocator.getStatistics());
+        }
     }
 
     private void createColorResources(){
         int colorFormat = swapChainImageFormat;
 
-        Pair<Long, Long> image = createImage(swapChainExtent.width(), swapChainExtent.height(), 1, msaaSamples, colorFormat, VK_IMAGE_TILING_OPTIMAL, VK_IMAGE_USAGE_TRANSIENT_ATTACHMENT_BIT | VK_IMAGE_USAGE_COLOR_ATTACHMENT_BIT, VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT);
+        Pair<Long, MemoryAllocation> image = createImage(swapChainExtent.width(), swapChainExtent.height(), 1, msaaSamples, colorFormat, VK_IMAGE_TILING_OPTIMAL, VK_IMAGE_USAGE_TRANSIENT_ATTACHMENT_BIT | VK_IMAGE_USAGE_COLOR_ATTACHMENT_BIT, VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT);
         colorImage = image.getKey();
         colorImageMemory = image.getValue();
         colorImageView = createImageView(colorImage, colorFormat, VK_IMAGE_ASPECT_COLOR_BIT, 1);
@@ -180,7 +312,7 @@ public class HelloTriangleApplication {
 
     private void createDepthResources() {
         int depthFormat = findDepthFormat();
-        Pair<Long, Long> image;
+        Pair<Long, MemoryAllocation> image;
         image = createImage(swapChainExtent.width(), swapChainExtent.height(), 1, msaaSamples, depthFormat, VK_IMAGE_TILING_OPTIMAL, VK_IMAGE_USAGE_DEPTH_STENCIL_ATTACHMENT_BIT, VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT);
         depthImage = image.getKey();
         depthImageMemory = image.getValue();
@@ -231,7 +363,7 @@ public class HelloTriangleApplication {
                 .compareOp(VK_COMPARE_OP_ALWAYS)
                 .mipmapMode(VK_SAMPLER_MIPMAP_MODE_LINEAR)
                 .minLod(0f)
-                .maxLod((float)mipLevels)
+                .maxLod(VK_LOD_CLAMP_NONE)
                 .mipLodBias(0f);
 
         LongBuffer pointer = BufferUtils.createLongBuffer(1);
@@ -242,10 +374,6 @@ public class HelloTriangleApplication {
         textureSampler = pointer.get(0);
     }
 
-    private void createTextureImageView() {
-        textureImageView = createImageView(textureImage, VK_FORMAT_R8G8B8A8_UNORM, VK_IMAGE_ASPECT_COLOR_BIT, mipLevels);
-    }
-
     private long createImageView(long image, int format, int aspectFlags, int mipLevels) {
         VkImageViewCreateInfo viewInfo = VkImageViewCreateInfo.create()
                 .sType(VK_STRUCTURE_TYPE_IMAGE_VIEW_CREATE_INFO)
@@ -267,30 +395,8 @@ public class HelloTriangleApplication {
         return pointer.get(0);
     }
 
-    private void copyBufferToImage(long buffer, long image, int width, int height){
-        VkCommandBuffer commandBuffer = beginSingleTimeCommands();
-
-        VkBufferImageCopy.Buffer region = VkBufferImageCopy.create(1)
-                .bufferOffset(0)
-                .bufferRowLength(0)
-                .bufferImageHeight(0);
-
-        region.imageSubresource()
-                .aspectMask(VK_IMAGE_ASPECT_COLOR_BIT)
-                .mipLevel(0)
-                .baseArrayLayer(0)
-                .layerCount(1);
-
-        region.imageOffset().set(0,0,0);
-        region.imageExtent().set(width, height, 1);
-
-        vkCmdCopyBufferToImage(commandBuffer, buffer, image, VK_IMAGE_LAYOUT_TRANSFER_DST_OPTIMAL, region);
-
-        endSingleTimeCommands(commandBuffer);
-    }
-
     private void transitionImageLayout(long image, long format, int oldLayout, int newLayout, int mipLevels) {
-        VkCommandBuffer commandBuffer = beginSingleTimeCommands();
+        VkCommandBuffer commandBuffer = uploadManager.graphicsCommands();
 
         VkImageMemoryBarrier.Buffer barrier = VkImageMemoryBarrier.create(1)
                 .sType(VK_STRUCTURE_TYPE_IMAGE_MEMORY_BARRIER)
@@ -344,89 +450,389 @@ public class HelloTriangleApplication {
         }
 
         vkCmdPipelineBarrier(commandBuffer, sourceStage, destinationStage, 0, null, null, barrier);
+    }
 
-        endSingleTimeCommands(commandBuffer);
+    private void createAssetStreamer() {
+        if (textureCompressionBC && !"false".equals(System.getProperty("engine.textureCompression"))
+                && supportsSampling(VK_FORMAT_BC1_RGB_UNORM_BLOCK)) {
+            textureFormat = VK_FORMAT_BC1_RGB_UNORM_BLOCK;
+        } else if (Boolean.getBoolean("engine.cpuMipmaps") || !supportsLinearBlit(VK_FORMAT_R8G8B8A8_UNORM)) {
+            textureFormat = VK_FORMAT_R8G8B8A8_UNORM;
+        } else {
+            textureFormat = VK_FORMAT_UNDEFINED;
+        }
+        streamer = new AssetStreamer(uploadManager, DECODER_THREADS, UPLOAD_BUDGET);
+        if (textureName != null) {
+            streamTexture(textureName);
+        }
+        if (model == null && modelName != null) {
+            streamModel(modelName);
+        }
     }
 
-    private VkCommandBuffer beginSingleTimeCommands(){
-        VkCommandBufferAllocateInfo allocateInfo = VkCommandBufferAllocateInfo.create()
-                .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_ALLOCATE_INFO)
-                .level(VK_COMMAND_BUFFER_LEVEL_PRIMARY)
-                .commandPool(commandPool)
-                .commandBufferCount(1);
+    /**
+     * Loads a texture resource in the background; it replaces the current texture once uploaded.
+     */
+    public void streamTexture(String name) {
+        streamer.loadTexture(new File(HelloTriangleApplication.class.getResource(name).getFile()).toPath(), textureFormat);
+    }
 
-        PointerBuffer pointer = BufferUtils.createPointerBuffer(1);
-        vkAllocateCommandBuffers(device, allocateInfo, pointer);
-        VkCommandBuffer commandBuffer = new VkCommandBuffer(pointer.get(0), device);
+    /**
+     * Loads a model resource in the background; it replaces the current model once uploaded.
+     */
+    public void streamModel(String name) {
+        streamer.loadMesh(new File(HelloTriangleApplication.class.getResource(name).getFile()).toPath(), vertexFormat,
+                true, meshletCulling, Integer.getInteger("engine.lods", LOD_LEVELS));
+    }
 
-        VkCommandBufferBeginInfo beginInfo = VkCommandBufferBeginInfo.create()
-                .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_BEGIN_INFO)
-                .flags(VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT);
+    /**
+     * Packs texture resources into one {@code size}x{@code size} atlas, tallest first, and registers it in the
+     * texture table. Render thread, between frames; waits for the upload.
+     *
+     * @return a material per name, in the same order
+     */
+    public Material[] createAtlas(int size, String... names) {
+        ByteBuffer[] pixels = new ByteBuffer[names.length];
+        int[] widths = new int[names.length];
+        int[] heights = new int[names.length];
+        TextureAtlas atlas = new TextureAtlas(size, size, ATLAS_PADDING);
+        TextureAtlas.Region[] regions = new TextureAtlas.Region[names.length];
+        try {
+            IntBuffer width = BufferUtils.createIntBuffer(1);
+            IntBuffer height = BufferUtils.createIntBuffer(1);
+            IntBuffer channels = BufferUtils.createIntBuffer(1);
+            for (int i = 0; i < names.length; i++) {
+                String path = new File(HelloTriangleApplication.class.getResource(names[i]).getFile()).getPath();
+                pixels[i] = stbi_load(path, width, height, channels, STBI_rgb_alpha);
+                if (pixels[i] == null) {
+                    throw new RuntimeException("Failed to load texture image: " + stbi_failure_reason());
+                }
+                widths[i] = width.get(0);
+                heights[i] = height.get(0);
+            }
+            Integer[] order = new Integer[names.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> heights[b] - heights[a]);
+            for (int i : order) {
+                regions[i] = atlas.add(pixels[i], widths[i], heights[i]);
+                if (regions[i] == null) {
+                    throw new RuntimeException("Texture atlas of " + size + " texels has no room for " + names[i]);
+                }
+            }
+        } finally {
+            for (ByteBuffer buffer : pixels) {
+                if (buffer != null) {
+                    stbi_image_free(buffer);
+                }
+            }
+        }
 
-        vkBeginCommandBuffer(commandBuffer, beginInfo);
+        MipChain chain = atlas.build(ForkJoinPool.commonPool());
+        Pair<Long, MemoryAllocation> imageBuffer = createImage(size, size, chain.getLevels(), VK_SAMPLE_COUNT_1_BIT,
+                chain.getFormat(), VK_IMAGE_TILING_OPTIMAL, VK_IMAGE_USAGE_TRANSFER_DST_BIT | VK_IMAGE_USAGE_SAMPLED_BIT,
+                VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT);
+        long image = imageBuffer.getKey();
+        uploadManager.uploadMipChain(chain, image);
+        transitionImageLayout(image, chain.getFormat(), VK_IMAGE_LAYOUT_TRANSFER_DST_OPTIMAL,
+                VK_IMAGE_LAYOUT_SHADER_READ_ONLY_OPTIMAL, chain.getLevels());
+        uploadManager.waitIdle();
+        long imageView = createImageView(image, chain.getFormat(), VK_IMAGE_ASPECT_COLOR_BIT, chain.getLevels());
+        atlasImages.add(image);
+        atlasMemory.add(imageBuffer.getValue());
+        atlasImageViews.add(imageView);
+
+        waitForFrames();
+        int slot = textureTable.add(imageView);
+        textureTable.update(descriptorSet);
+        Material[] materials = new Material[names.length];
+        for (int i = 0; i < names.length; i++) {
+            materials[i] = new Material(slot, regions[i]);
+        }
+        return materials;
+    }
 
-        return commandBuffer;
+    /**
+     * Draws the model with {@code material} from now on; a streamed texture replaces only its texture.
+     */
+    public void setMaterial(Material material) {
+        this.material = material;
     }
 
+    private void uploadTexture(AssetStreamer.Texture texture) {
+        int format = texture.chain != null ? texture.chain.getFormat() : VK_FORMAT_R8G8B8A8_UNORM;
+        if (!supportsSampling(format) || (MipChain.getBlockSize(format) > 1 && !textureCompressionBC)) {
+            throw new IllegalArgumentException("Texture format " + format + " is not supported");
+        }
+        if (texture.chain != null) {
+            // only the tail is uploaded now, finer levels follow as the texture gets drawn larger
+            int id = residency.add(texture.width, texture.height, TextureResidency.levelSizes(texture.chain));
+            ResidentTexture resident = new ResidentTexture(texture.chain);
+            resident.targetLevel = residency.getBaseLevel(id);
+            while (residentTextures.size() <= id) {
+                residentTextures.add(null);
+            }
+            residentTextures.set(id, resident);
+            uploadResidentLevels(resident);
+            texture.residency = id;
+            return;
+        }
+        texture.mipLevels = MipChain.levelCount(texture.width, texture.height);
 
-    private void createTextureImage() {
-        IntBuffer[] textureInfo = new IntBuffer[3];
-        for (int i = 0; i < textureInfo.length; i++) {
-            textureInfo[i] = BufferUtils.createIntBuffer(1);
+        int usage = VK_IMAGE_USAGE_TRANSFER_DST_BIT | VK_IMAGE_USAGE_SAMPLED_BIT;
+        Pair<Long, MemoryAllocation> imageBuffer = createImage(
+                texture.width,
+                texture.height,
+                texture.mipLevels, VK_SAMPLE_COUNT_1_BIT, format,
+                VK_IMAGE_TILING_OPTIMAL,
+                usage | VK_IMAGE_USAGE_TRANSFER_SRC_BIT,
+                VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT
+        );
+        texture.image = imageBuffer.getKey();
+        texture.memory = imageBuffer.getValue();
+
+        uploadManager.uploadImage(texture.pixels, texture.image, texture.width, texture.height, 4, texture.mipLevels);
+        generateMipmaps(texture.image, format, texture.width, texture.height, texture.mipLevels);
+        texture.imageView = createImageView(texture.image, format, VK_IMAGE_ASPECT_COLOR_BIT, texture.mipLevels);
+    }
+
+    private void swapInTexture(AssetStreamer.Texture texture) {
+        waitForFrames();
+        if (textureSlot >= 0) {
+            textureTable.remove(textureSlot);
+        }
+        if (texture.residency >= 0) {
+            ResidentTexture resident = residentTextures.get(texture.residency);
+            resident.promote();
+            resident.slot = textureTable.add(resident.imageView);
+            textureSlot = resident.slot;
+        } else {
+            textureSlot = textureTable.add(texture.imageView);
+        }
+        // a streamed texture replaces the texture only, an atlas region of the material stays
+        material = material != null ? material.withTexture(textureSlot) : new Material(textureSlot);
+        textureTable.update(descriptorSet);
+        destroyTexture(textureImage, textureImageMemory, textureImageView);
+        if (residentTexture >= 0) {
+            releaseResidentTexture(residentTexture);
         }
+        textureImage = texture.image;
+        textureImageMemory = texture.memory;
+        textureImageView = texture.imageView;
+        mipLevels = texture.mipLevels;
+        residentTexture = texture.residency;
+        System.out.println(texture.getPath().getFileName() + ": " + texture.getLatencyReport());
+    }
+
+    /**
+     * Records the upload of levels {@code targetLevel} and coarser of {@code texture} into a new image, which replaces
+     * the current one once the upload completed.
+     */
+    private void uploadResidentLevels(ResidentTexture texture) {
+        MipChain chain = texture.chain;
+        int level = texture.targetLevel;
+        int levels = chain.getLevels() - level;
+        Pair<Long, MemoryAllocation> imageBuffer = createImage(chain.getWidth(level), chain.getHeight(level), levels,
+                VK_SAMPLE_COUNT_1_BIT, chain.getFormat(), VK_IMAGE_TILING_OPTIMAL,
+                VK_IMAGE_USAGE_TRANSFER_DST_BIT | VK_IMAGE_USAGE_SAMPLED_BIT, VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT);
+        texture.pendingImage = imageBuffer.getKey();
+        texture.pendingMemory = imageBuffer.getValue();
+        uploadManager.uploadMipChain(chain, texture.pendingImage, level);
+        transitionImageLayout(texture.pendingImage, chain.getFormat(), VK_IMAGE_LAYOUT_TRANSFER_DST_OPTIMAL,
+                VK_IMAGE_LAYOUT_SHADER_READ_ONLY_OPTIMAL, levels);
+        texture.pendingImageView = createImageView(texture.pendingImage, chain.getFormat(), VK_IMAGE_ASPECT_COLOR_BIT, levels);
+        texture.pendingLevel = level;
+        texture.serial = 0;
+    }
 
-        String path = HelloTriangleApplication.class.getResource(textureName).getFile().substring(1);
-        ByteBuffer pixels = stbi_load(path, textureInfo[0], textureInfo[1], textureInfo[2], STBI_rgb_alpha);
-        int texWidth = textureInfo[0].get();
-        int texHeight = textureInfo[1].get();
-        int texChannels = textureInfo[2].get();
-        long imageSize = texWidth * texHeight * 4;
-        if(pixels == null){
-            throw new RuntimeException("Failed ot load texture image");
+    /**
+     * Requests the levels the current texture needs at its projected size, starts uploads of textures whose resident
+     * levels changed and swaps in the ones that finished.
+     */
+    private void updateResidency() {
+        if (residentTexture >= 0 && model != null) {
+            residency.request(residentTexture, projectedSize());
         }
-        mipLevels = (int)Math.floor(Math.log((double)Math.max(texWidth, texHeight))/Math.log(2));
+        residency.update();
+        for (ResidentTexture texture : residentTextures) {
+            if (texture != null && texture.pendingImage == VK_NULL_HANDLE && texture.targetLevel != texture.baseLevel) {
+                uploadResidentLevels(texture);
+            }
+        }
+        long serial = uploadManager.flush();
+        boolean completed = false;
+        for (ResidentTexture texture : residentTextures) {
+            // textures not swapped in yet are promoted by swapInTexture
+            if (texture != null && texture.pendingImage != VK_NULL_HANDLE && texture.slot >= 0) {
+                if (texture.serial == 0) {
+                    texture.serial = serial;
+                } else if (uploadManager.isComplete(texture.serial)) {
+                    completed = true;
+                }
+            }
+        }
+        if (!completed) {
+            return;
+        }
+        waitForFrames();
+        for (ResidentTexture texture : residentTextures) {
+            if (texture != null && texture.pendingImage != VK_NULL_HANDLE && texture.slot >= 0 && texture.serial != 0
+                    && uploadManager.isComplete(texture.serial)) {
+                destroyTexture(texture.image, texture.memory, texture.imageView);
+                texture.promote();
+                if (texture.slot >= 0) {
+                    textureTable.set(texture.slot, texture.imageView);
+                }
+            }
+        }
+        textureTable.update(descriptorSet);
+    }
 
-        Pair<Long, Long> buffer;
-        buffer = createBuffer(imageSize, VK_BUFFER_USAGE_TRANSFER_SRC_BIT, VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT);
-        long stagingBuffer = buffer.getKey();
-        long stagingBufferMemory = buffer.getValue();
-        PointerBuffer pData = BufferUtils.createPointerBuffer(1);
-        vkMapMemory(device, stagingBufferMemory, 0, imageSize, 0, pData);
-        long data = pData.get(0);
-        memCopy(memAddress(pixels), data, imageSize);
-        vkUnmapMemory(device, stagingBufferMemory);
+    /**
+     * @return pixels the model bounds cover along the larger screen axis, seen through {@link #cullMatrix}
+     */
+    private float projectedSize() {
+        float[] bounds = model.getBounds();
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < 8; i++) {
+            cullMatrix.transform(corner.set(bounds[(i & 1) * 3], bounds[(i >> 1 & 1) * 3 + 1],
+                    bounds[(i >> 2 & 1) * 3 + 2], 1f));
+            if (corner.w <= 0f) {
+                // a corner behind the camera, the model may cover the whole screen
+                return Math.max(swapChainExtent.width(), swapChainExtent.height());
+            }
+            minX = Math.min(minX, corner.x / corner.w);
+            maxX = Math.max(maxX, corner.x / corner.w);
+            minY = Math.min(minY, corner.y / corner.w);
+            maxY = Math.max(maxY, corner.y / corner.w);
+        }
+        return Math.max((maxX - minX) * swapChainExtent.width(), (maxY - minY) * swapChainExtent.height()) / 2;
+    }
 
-        stbi_image_free(pixels);
+    private void releaseResidentTexture(int id) {
+        ResidentTexture texture = residentTextures.get(id);
+        if (texture.pendingImage != VK_NULL_HANDLE) {
+            uploadManager.waitIdle();
+        }
+        destroyTexture(texture.image, texture.memory, texture.imageView);
+        destroyTexture(texture.pendingImage, texture.pendingMemory, texture.pendingImageView);
+        residency.remove(id);
+        residentTextures.set(id, null);
+    }
 
-        Pair<Long, Long> imageBuffer = createImage(
-                texWidth,
-                texHeight,
-                mipLevels, VK_SAMPLE_COUNT_1_BIT, VK_FORMAT_R8G8B8A8_UNORM,
-                VK_IMAGE_TILING_OPTIMAL,
-                VK_IMAGE_USAGE_TRANSFER_SRC_BIT | VK_IMAGE_USAGE_TRANSFER_DST_BIT | VK_IMAGE_USAGE_SAMPLED_BIT,
-                VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT
-        );
-        textureImage = imageBuffer.getKey();
-        textureImageMemory = imageBuffer.getValue();
+    private void destroyTexture(long image, MemoryAllocation memory, long imageView) {
+        if (image != VK_NULL_HANDLE) {
+            vkDestroyImageView(device, imageView, null);
+            vkDestroyImage(device, image, null);
+            memory.free();
+        }
+    }
 
-        transitionImageLayout(textureImage, VK_FORMAT_R8G8B8A8_UNORM, VK_IMAGE_LAYOUT_UNDEFINED, VK_IMAGE_LAYOUT_TRANSFER_DST_OPTIMAL, mipLevels);
-        copyBufferToImage(stagingBuffer, textureImage, texWidth, texHeight);
-        //transitionImageLayout(textureImage, VK_FORMAT_R8G8B8A8_UNORM, VK_IMAGE_LAYOUT_TRANSFER_DST_OPTIMAL, VK_IMAGE_LAYOUT_SHADER_READ_ONLY_OPTIMAL, mipLevels);
-        generateMipmaps(textureImage, VK_FORMAT_R8G8B8A8_UNORM, texWidth, texHeight, mipLevels);
+    private void uploadMesh(AssetStreamer.Mesh mesh) {
+        Pair<Long, MemoryAllocation> buffer = createDeviceBuffer(mesh.model.vertices, VK_BUFFER_USAGE_VERTEX_BUFFER_BIT);
+        mesh.vertexBuffer = buffer.getKey();
+        mesh.vertexMemory = buffer.getValue();
+        buffer = createDeviceBuffer(mesh.model.indices, VK_BUFFER_USAGE_INDEX_BUFFER_BIT);
+        mesh.indexBuffer = buffer.getKey();
+        mesh.indexMemory = buffer.getValue();
+    }
 
-        vkDestroyBuffer(device, stagingBuffer, null);
-        vkFreeMemory(device, stagingBufferMemory, null);
+    private void swapInMesh(AssetStreamer.Mesh mesh) {
+        waitForFrames();
+        setModel(mesh.getModel(), new MeshBuffers(mesh.getModel(), mesh.vertexBuffer, mesh.vertexMemory, mesh.indexBuffer, mesh.indexMemory));
+        System.out.println(mesh.getPath().getFileName() + " " + model.getMemoryReport());
+        if (model.getOptimizeReport() != null) {
+            System.out.println(mesh.getPath().getFileName() + " vertex cache " + model.getOptimizeReport());
+        }
+        if (model.getMeshletReport() != null) {
+            System.out.println(mesh.getPath().getFileName() + " " + model.getMeshletReport());
+        }
+        System.out.println(mesh.getPath().getFileName() + ": " + mesh.getLatencyReport());
     }
 
-    private void generateMipmaps(long image, int imageFormat, int texWidth, int texHeight, int mipLevels){
+    /**
+     * Makes {@code model} mesh 0 of the scene. The first model gets {@code engine.instances} objects, one by default,
+     * on a grid; later ones replace it for the same objects.
+     */
+    private void setModel(Model model, MeshBuffers buffers) {
+        this.model = model;
+        if (scene.getMeshCount() == 0) {
+            scene.addMesh(model);
+            meshBuffers.add(buffers);
+            int instances = Integer.getInteger("engine.instances", 1);
+            int side = (int) Math.ceil(Math.sqrt(instances));
+            float[] bounds = model.getBounds();
+            float spacing = 1.25f * Math.max(bounds[3] - bounds[0], bounds[5] - bounds[2]);
+            Matrix4f transform = new Matrix4f();
+            for (int i = 0; i < instances; i++) {
+                transform.translation((i % side - (side - 1) / 2f) * spacing, 0f, -(i / side) * spacing);
+                scene.add(0, transform);
+            }
+        } else {
+            MeshBuffers old = meshBuffers.set(0, buffers);
+            destroyMesh(old.vertexBuffer, old.vertexMemory, old.indexBuffer, old.indexMemory);
+            scene.setMesh(0, model);
+        }
+    }
+
+    /**
+     * Uploads {@code model} and registers it as a scene mesh, for objects added with {@link Scene#add}. Render
+     * thread, between frames; waits for the upload.
+     *
+     * @return id of the mesh
+     */
+    public int addMesh(Model model) {
+        if (model.getFormat() != vertexFormat) {
+            throw new IllegalArgumentException("Mesh vertex format " + model.getFormat() + " differs from the pipeline's " + vertexFormat);
+        }
+        Pair<Long, MemoryAllocation> vertices = createDeviceBuffer(model.vertices, VK_BUFFER_USAGE_VERTEX_BUFFER_BIT);
+        Pair<Long, MemoryAllocation> indices = createDeviceBuffer(model.indices, VK_BUFFER_USAGE_INDEX_BUFFER_BIT);
+        uploadManager.waitIdle();
+        meshBuffers.add(new MeshBuffers(model, vertices.getKey(), vertices.getValue(), indices.getKey(), indices.getValue()));
+        return scene.addMesh(model);
+    }
+
+    public Scene getScene() {
+        return scene;
+    }
+
+    private void destroyMesh(long vertexBuffer, MemoryAllocation vertexMemory, long indexBuffer, MemoryAllocation indexMemory) {
+        if (vertexBuffer != VK_NULL_HANDLE) {
+            vkDestroyBuffer(device, vertexBuffer, null);
+            vertexMemory.free();
+            vkDestroyBuffer(device, indexBuffer, null);
+            indexMemory.free();
+        }
+    }
+
+    /**
+     * Waits until no frame in flight uses the current resources.
+     */
+    private void waitForFrames() {
+        vkWaitForFences(device, inFlightFences, true, Long.MAX_VALUE);
+    }
+
+    private boolean supportsSampling(int imageFormat) {
+        VkFormatProperties formatProperties = VkFormatProperties.create();
+        vkGetPhysicalDeviceFormatProperties(physicalDevice, imageFormat, formatProperties);
+        return (formatProperties.optimalTilingFeatures() & VK_FORMAT_FEATURE_SAMPLED_IMAGE_BIT) > 0;
+    }
+
+    private boolean supportsLinearBlit(int imageFormat) {
         VkFormatProperties formatProperties = VkFormatProperties.create();
         vkGetPhysicalDeviceFormatProperties(physicalDevice, imageFormat, formatProperties);
-        if (!((formatProperties.optimalTilingFeatures() & VK_FORMAT_FEATURE_SAMPLED_IMAGE_FILTER_LINEAR_BIT)>0)) {
+        return (formatProperties.optimalTilingFeatures() & VK_FORMAT_FEATURE_SAMPLED_IMAGE_FILTER_LINEAR_BIT) > 0;
+    }
+
+    private void generateMipmaps(long image, int imageFormat, int texWidth, int texHeight, int mipLevels){
+        if (!supportsLinearBlit(imageFormat)) {
             throw new RuntimeException("Texture image format does not support linear blitting");
         }
 
 
-        VkCommandBuffer commandBuffer = beginSingleTimeCommands();
+        VkCommandBuffer commandBuffer = uploadManager.graphicsCommands();
 
         VkImageMemoryBarrier.Buffer barrier = VkImageMemoryBarrier.create(1)
                 .sType(VK_STRUCTURE_TYPE_IMAGE_MEMORY_BARRIER)
@@ -510,11 +916,9 @@ public class HelloTriangleApplication {
                 null,
                 null,
                 barrier);
-
-        endSingleTimeCommands(commandBuffer);
     }
 
-    private Pair<Long, Long> createImage(int width, int height, int mipLevels, int numSamples, int format, int tilting, int usage, int properties) {
+    private Pair<Long, MemoryAllocation> createImage(int width, int height, int mipLevels, int numSamples, int format, int tilting, int usage, int properties) {
         VkImageCreateInfo imageCreateInfo = VkImageCreateInfo.create()
                 .sType(VK_STRUCTURE_TYPE_IMAGE_CREATE_INFO)
                 .imageType(VK_IMAGE_TYPE_2D)
@@ -527,6 +931,10 @@ public class HelloTriangleApplication {
                 .sharingMode(VK_SHARING_MODE_EXCLUSIVE)
                 .samples(numSamples)
                 .flags(0);
+        if ((usage & VK_IMAGE_USAGE_TRANSFER_DST_BIT) != 0 && uploadManager.getConcurrentFamilies() != null) {
+            imageCreateInfo.sharingMode(VK_SHARING_MODE_CONCURRENT)
+                    .pQueueFamilyIndices(uploadManager.getConcurrentFamilies());
+        }
 
         imageCreateInfo.extent()
                 .width(width)
@@ -543,87 +951,58 @@ public class HelloTriangleApplication {
         VkMemoryRequirements memoryRequirements = VkMemoryRequirements.create();
         vkGetImageMemoryRequirements(device, image, memoryRequirements);
 
-        VkMemoryAllocateInfo allocateInfo = VkMemoryAllocateInfo.create()
-                .sType(VK_STRUCTURE_TYPE_MEMORY_ALLOCATE_INFO)
-                .allocationSize(memoryRequirements.size())
-                .memoryTypeIndex(findMemoryType(memoryRequirements.memoryTypeBits(), properties));
+        MemoryAllocation imageMemory = allocator.allocate(memoryRequirements.size(), memoryRequirements.alignment(),
+                memoryRequirements.memoryTypeBits(), properties, tilting == VK_IMAGE_TILING_LINEAR);
 
-        err = vkAllocateMemory(device, allocateInfo, null, pointer);
-        if(err != VK_SUCCESS){
-            throw new RuntimeException("FAiled to allocate memory: " + translateVulkanResult(err));
-        }
-        long imageMemory = pointer.get(0);
-
-        vkBindImageMemory(device, image, imageMemory, 0);
+        vkBindImageMemory(device, image, imageMemory.getMemory(), imageMemory.getOffset());
 
         return new Pair<>(image, imageMemory);
     }
 
     private void createDescriptorSets() {
-        LongBuffer layouts = BufferUtils.createLongBuffer(swapChainImages.length);
-        for (int i = 0; i < swapChainImages.length; i++) {
-            layouts.put(descriptorSetLayout);
-        }
-        layouts.flip();
         VkDescriptorSetAllocateInfo allocateInfo = VkDescriptorSetAllocateInfo.create()
                 .sType(VK_STRUCTURE_TYPE_DESCRIPTOR_SET_ALLOCATE_INFO)
                 .descriptorPool(descriptorPool)
-                .pSetLayouts(layouts);
+                .pSetLayouts(BufferUtils.createLongBuffer(1).put(0, descriptorSetLayout));
 
 
-        LongBuffer array = BufferUtils.createLongBuffer(swapChainImages.length);
+        LongBuffer array = BufferUtils.createLongBuffer(1);
         int err = vkAllocateDescriptorSets(device, allocateInfo, array);
         if(err != VK_SUCCESS){
             throw new RuntimeException("Failed to create descriptor sets: " + translateVulkanResult(err));
         }
-        descriptorSets = new long[swapChainImages.length];
-        array.get(descriptorSets);
-
-        for (int i = 0; i < swapChainImages.length; i++) {
-            VkDescriptorBufferInfo.Buffer bufferInfo = VkDescriptorBufferInfo.create(1)
-                    .buffer(uniformBuffers[i])
-                    .offset(0)
-                    .range(UniformBufferObject.sizeOf());
-
-            VkDescriptorImageInfo.Buffer imageInfo = VkDescriptorImageInfo.create(1)
-                    .imageLayout(VK_IMAGE_LAYOUT_SHADER_READ_ONLY_OPTIMAL)
-                    .imageView(textureImageView)
-                    .sampler(textureSampler);
-
-            VkWriteDescriptorSet.Buffer writeDescriptor = VkWriteDescriptorSet.create(2);
-            writeDescriptor.get(0)
-                    .sType(VK_STRUCTURE_TYPE_WRITE_DESCRIPTOR_SET)
-                    .dstSet(descriptorSets[i])
-                    .dstBinding(0)
-                    .dstArrayElement(0)
-                    .descriptorType(VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER)
-                    .pBufferInfo(bufferInfo);
-
-            writeDescriptor.get(1)
-                    .sType(VK_STRUCTURE_TYPE_WRITE_DESCRIPTOR_SET)
-                    .dstSet(descriptorSets[i])
-                    .dstBinding(1)
-                    .dstArrayElement(0)
-                    .descriptorType(VK_DESCRIPTOR_TYPE_COMBINED_IMAGE_SAMPLER)
-                    .pImageInfo(imageInfo);
-
-            vkUpdateDescriptorSets(device, writeDescriptor, null);
-        }
+        descriptorSet = array.get(0);
+
+        VkDescriptorBufferInfo.Buffer bufferInfo = VkDescriptorBufferInfo.create(1)
+                .buffer(uniformRing.getBuffer())
+                .offset(0)
+                .range(UniformBufferObject.sizeOf());
+
+        VkWriteDescriptorSet.Buffer writeDescriptor = VkWriteDescriptorSet.create(1);
+        writeDescriptor.get(0)
+                .sType(VK_STRUCTURE_TYPE_WRITE_DESCRIPTOR_SET)
+                .dstSet(descriptorSet)
+                .dstBinding(0)
+                .dstArrayElement(0)
+                .descriptorType(VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER_DYNAMIC)
+                .pBufferInfo(bufferInfo);
+
+        vkUpdateDescriptorSets(device, writeDescriptor, null);
     }
 
     private void createDescriptorPoll() {
         VkDescriptorPoolSize.Buffer poolSize = VkDescriptorPoolSize.create(2);
         poolSize.get(0)
-                .type(VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER)
-                .descriptorCount(swapChainImages.length);
+                .type(VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER_DYNAMIC)
+                .descriptorCount(1);
         poolSize.get(1)
                 .type(VK_DESCRIPTOR_TYPE_COMBINED_IMAGE_SAMPLER)
-                .descriptorCount(swapChainImages.length);
+                .descriptorCount(textureSlots);
 
         VkDescriptorPoolCreateInfo poolCreateInfo = VkDescriptorPoolCreateInfo.create()
                 .sType(VK_STRUCTURE_TYPE_DESCRIPTOR_POOL_CREATE_INFO)
                 .pPoolSizes(poolSize)
-                .maxSets(swapChainImages.length)
+                .maxSets(1)
                 .flags(0);
 
         LongBuffer pointer = BufferUtils.createLongBuffer(1);
@@ -636,31 +1015,36 @@ public class HelloTriangleApplication {
 
     }
 
+    /**
+     * One uniform slot per frame in flight; a slot is rewritten only after the fence of its frame was waited for.
+     */
     private void createUniformBuffers() {
-        long bufferSize = UniformBufferObject.sizeOf();
-
-        uniformBuffers = new long[swapChainImages.length];
-        uniformBuffersMemory = new long[swapChainImages.length];
-
-        for (int i = 0; i < swapChainImages.length; i++) {
-            Pair<Long, Long> buffer;
-            buffer = createBuffer(bufferSize, VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT, VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT);
-            uniformBuffers[i] = buffer.getKey();
-            uniformBuffersMemory[i] = buffer.getValue();
-        }
+        VkPhysicalDeviceProperties properties = VkPhysicalDeviceProperties.create();
+        vkGetPhysicalDeviceProperties(physicalDevice, properties);
+        long alignment = properties.limits().minUniformBufferOffsetAlignment();
+
+        long bufferSize = UniformRing.size(UniformBufferObject.sizeOf(), alignment, MAX_FRAMES_IN_FLIGHT);
+        Pair<Long, MemoryAllocation> buffer = createBuffer(bufferSize, VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT, VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT);
+        uniformRing = new UniformRing(buffer.getKey(), buffer.getValue(),
+                UniformRing.slotSize(UniformBufferObject.sizeOf(), alignment), MAX_FRAMES_IN_FLIGHT);
     }
 
     private void createDescriptorSetLayout() {
+        VkPhysicalDeviceProperties properties = VkPhysicalDeviceProperties.create();
+        vkGetPhysicalDeviceProperties(physicalDevice, properties);
+        textureSlots = Math.min(MAX_TEXTURE_SLOTS, Math.min(properties.limits().maxPerStageDescriptorSamplers(),
+                properties.limits().maxDescriptorSetSamplers()));
+
         VkDescriptorSetLayoutBinding.Buffer layoutBinding = VkDescriptorSetLayoutBinding.create(2);
         layoutBinding.get(0)
                 .binding(0)
-                .descriptorType(VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER)
+                .descriptorType(VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER_DYNAMIC)
                 .descriptorCount(1)
                 .stageFlags(VK_SHADER_STAGE_VERTEX_BIT)
                 .pImmutableSamplers(null);
         layoutBinding.get(1)
                 .binding(1)
-                .descriptorCount(1)
+                .descriptorCount(textureSlots)
                 .descriptorType(VK_DESCRIPTOR_TYPE_COMBINED_IMAGE_SAMPLER)
                 .pImmutableSamplers(null)
                 .stageFlags(VK_SHADER_STAGE_FRAGMENT_BIT);
@@ -677,78 +1061,172 @@ public class HelloTriangleApplication {
         descriptorSetLayout = p.get(0);
     }
 
-    private void createIndexBuffer() {
-        long bufferSize = model.indices.remaining();
-        Pair<Long, Long> buffer;
-        buffer = createBuffer(bufferSize, VK_BUFFER_USAGE_TRANSFER_SRC_BIT, VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT);
-        long stagingBuffer = buffer.getKey();
-        long stagingBufferMemory = buffer.getValue();
-
-        PointerBuffer pData = BufferUtils.createPointerBuffer(1);
-        vkMapMemory(device, stagingBufferMemory, 0, bufferSize, 0, pData);
-        long data = pData.get(0);
-        memCopy(memAddress(model.indices), data, bufferSize);
-        vkUnmapMemory(device, stagingBufferMemory);
-
-        buffer = createBuffer(bufferSize, VK_BUFFER_USAGE_TRANSFER_DST_BIT | VK_BUFFER_USAGE_INDEX_BUFFER_BIT, VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT);
-        indexBuffer = buffer.getKey();
-        indexBufferMemory = buffer.getValue();
-
-        copyBuffer(stagingBuffer, indexBuffer, bufferSize);
-
-        vkDestroyBuffer(device, stagingBuffer, null);
-        vkFreeMemory(device, stagingBufferMemory, null);
+    private void createModelBuffers() {
+        if (model == null) {
+            return;
+        }
+        Pair<Long, MemoryAllocation> vertices = createDeviceBuffer(model.vertices, VK_BUFFER_USAGE_VERTEX_BUFFER_BIT);
+        Pair<Long, MemoryAllocation> indices = createDeviceBuffer(model.indices, VK_BUFFER_USAGE_INDEX_BUFFER_BIT);
+        setModel(model, new MeshBuffers(model, vertices.getKey(), vertices.getValue(), indices.getKey(), indices.getValue()));
     }
 
-    private void createVertexBuffer() {
-        long bufferSize = model.vertices.remaining();
-        Pair<Long, Long> buffer;
-        buffer = createBuffer(bufferSize, VK_BUFFER_USAGE_TRANSFER_SRC_BIT, VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT);
-        long stagingBuffer = buffer.getKey();
-        long stagingBufferMemory = buffer.getValue();
-
-        PointerBuffer pData = BufferUtils.createPointerBuffer(1);
-        vkMapMemory(device, stagingBufferMemory, 0, bufferSize, 0, pData);
-        long data = pData.get(0);
-        memCopy(memAddress(model.vertices), data, bufferSize);
-        vkUnmapMemory(device, stagingBufferMemory);
-
-        buffer = createBuffer(bufferSize, VK_BUFFER_USAGE_TRANSFER_DST_BIT | VK_BUFFER_USAGE_VERTEX_BUFFER_BIT, VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT);
-        vertexBuffer = buffer.getKey();
-        vertexBufferMemory = buffer.getValue();
-
-        copyBuffer(stagingBuffer, vertexBuffer, bufferSize);
-
-        vkDestroyBuffer(device, stagingBuffer, null);
-        vkFreeMemory(device, stagingBufferMemory, null);
+    /**
+     * Instance data of every frame in flight, for {@code capacity} objects each. Like the uniform slots they follow
+     * the frame rather than the swap chain image, whose count may change and whose frames may still be in flight.
+     */
+    private void createInstanceBuffer(int capacity) {
+        // with culling on the GPU the instances are read by the compute shader, compacted ones are drawn
+        int usage = culler != null ? VK_BUFFER_USAGE_STORAGE_BUFFER_BIT : VK_BUFFER_USAGE_VERTEX_BUFFER_BIT;
+        Pair<Long, MemoryAllocation> buffer = createBuffer((long) capacity * Scene.INSTANCE_SIZE * MAX_FRAMES_IN_FLIGHT,
+                usage, VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT);
+        instanceBuffer = buffer.getKey();
+        instanceMemory = buffer.getValue();
+        instanceCapacity = capacity;
+        instanceData = memFloatBuffer(instanceMemory.getMappedAddress(), capacity * Scene.INSTANCE_SIZE / 4 * MAX_FRAMES_IN_FLIGHT);
+        instanceSerials = new long[MAX_FRAMES_IN_FLIGHT];
+        Arrays.fill(instanceSerials, -1);
+        if (culler != null) {
+            culler.setInstances(instanceBuffer);
+        }
     }
 
-    private void copyBuffer(long srcBuffer, long dstBuffer, long size){
-        VkCommandBuffer commandBuffer = beginSingleTimeCommands();
+    /**
+     * With {@code engine.gpuCulling} objects are culled by {@link IndirectCuller} and drawn indirectly at level of
+     * detail 0; {@code engine.gpuCullingCheck} waits for every frame and compares the results with the CPU kernel.
+     */
+    private void createIndirectCuller() {
+        if (!Boolean.getBoolean("engine.gpuCulling")) {
+            return;
+        }
+        cullingCheck = Boolean.getBoolean("engine.gpuCullingCheck");
+        long shaderModule;
+        try {
+            shaderModule = loadShader("cull.spv", device);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        shaderModules.add(shaderModule);
+        culler = new IndirectCuller(device, new IndirectCuller.Factory() {
+            @Override
+            public Pair<Long, MemoryAllocation> createBuffer(long size, int usage, int properties) {
+                return HelloTriangleApplication.this.createBuffer(size, usage, properties);
+            }
+        }, shaderModule, pipelineCache.getHandle(), MAX_FRAMES_IN_FLIGHT, cullingCheck);
+        pipelineCache.recordCreation(culler.getPipelineCreationTime());
+    }
 
-        VkBufferCopy.Buffer copyRegion = VkBufferCopy.create(1)
-                .srcOffset(0)
-                .dstOffset(0)
-                .size(size);
-        vkCmdCopyBuffer(commandBuffer, srcBuffer, dstBuffer, copyRegion);
+    /**
+     * Grows the instance buffer after objects or meshes were added or removed.
+     */
+    private void updateScene() {
+        if (scene.getVersion() == recordedSceneVersion) {
+            return;
+        }
+        recordedSceneVersion = scene.getVersion();
+        if (scene.getObjectCount() > instanceCapacity) {
+            waitForFrames();
+            vkDestroyBuffer(device, instanceBuffer, null);
+            instanceMemory.free();
+            createInstanceBuffer(Math.max(instanceCapacity * 2, scene.getObjectCount()));
+        }
+    }
 
-        endSingleTimeCommands(commandBuffer);
+    /**
+     * Selects the objects in view of {@link #cullMatrix} with their levels of detail and rebuilds the draw list from
+     * their batches. A mesh with meshlets drawn once at level 0 draws its visible meshlets only.
+     */
+    private void cullScene() {
+        drawBatches = scene.cull(cullMatrix, 2 * LOD_PIXELS / swapChainExtent.height());
+        drawList.clear();
+        for (int b = 0; b < drawBatches.size(); b += 4) {
+            MeshBuffers buffers = meshBuffers.get(drawBatches.get(b));
+            if (buffers.meshlets != null && drawBatches.get(b + 1) == 0 && drawBatches.get(b + 3) == 1) {
+                cullMeshlets(b, buffers);
+                continue;
+            }
+            int[] submeshes = buffers.lods[drawBatches.get(b + 1)];
+            for (int s = 0; s < submeshes.length; s += 3) {
+                drawList.add(b, submeshes[s], submeshes[s + 1]);
+                drawList.add(submeshes[s + 2]);
+            }
+        }
+        culledMatrix.set(cullMatrix);
+        culledModifications = scene.getModifications();
+        cullSerial++;
     }
 
-    private void endSingleTimeCommands(VkCommandBuffer commandBuffer) {
-        vkEndCommandBuffer(commandBuffer);
+    /**
+     * Adds the draws of the meshlets of batch {@code b}, a single object, that are in view and face the camera;
+     * instancing would need the test per instance, so instanced meshes are drawn whole.
+     */
+    private void cullMeshlets(int b, MeshBuffers buffers) {
+        scene.getTransform(scene.getDrawnObject(drawBatches.get(b + 2)), meshletMatrix);
+        cullMatrix.mul(meshletMatrix, meshletMatrix);
+        Bvh.frustumPlanes(meshletMatrix, meshletPlanes);
+        // the eye is the model space point projected to w = 0 in the middle of the screen
+        meshletInverse.set(meshletMatrix).invert().transform(meshletEye.set(0f, 0f, 1f, 0f));
+        float[] camera = null;
+        if (Math.abs(meshletEye.w) > 1e-6f) {
+            camera = meshletCamera;
+            camera[0] = meshletEye.x / meshletEye.w;
+            camera[1] = meshletEye.y / meshletEye.w;
+            camera[2] = meshletEye.z / meshletEye.w;
+        }
+        meshletRanges.clear();
+        MeshletBuilder.cull(buffers.meshlets, buffers.meshletBounds, meshletPlanes, camera, meshletRanges);
+        for (int r = 0; r < meshletRanges.size(); r += 3) {
+            drawList.add(b, meshletRanges.get(r), meshletRanges.get(r + 1));
+            drawList.add(meshletRanges.get(r + 2));
+        }
+    }
 
-        PointerBuffer pointerBuffer = BufferUtils.createPointerBuffer(1).put(0, commandBuffer);
-        VkSubmitInfo submitInfo = VkSubmitInfo.create()
-                .sType(VK_STRUCTURE_TYPE_SUBMIT_INFO)
-                .pCommandBuffers(pointerBuffer);
+    /**
+     * Rebuilds the draw list, the command template and the batch table of {@link #culler} after structural changes:
+     * one command per submesh of every mesh, the draw list in the same order, so draw {@code i} uses command {@code i}.
+     */
+    private void buildIndirectDraws() {
+        int[] batches = scene.getBatches();
+        int commandCount = 0;
+        for (int b = 0; b < batches.length; b += 4) {
+            commandCount += meshBuffers.get(batches[b]).lods[0].length / 3;
+        }
+        // the template and the batch table are shared by frames in flight
+        waitForFrames();
+        int instances = Math.max(scene.getObjectCount(), 1);
+        if (!culler.fits(instances, Math.max(commandCount, 1), Math.max(batches.length / 4, 1))) {
+            culler.reserve(instances, Math.max(commandCount, 1), Math.max(batches.length / 4, 1));
+        }
+        IntBuffer template = culler.getTemplate();
+        IntBuffer table = culler.getBatches();
+        drawBatches = new IntList();
+        drawList.clear();
+        for (int b = 0; b < batches.length; b += 4) {
+            int[] submeshes = meshBuffers.get(batches[b]).lods[0];
+            table.put(drawList.size() / 4).put(submeshes.length / 3).put(batches[b + 2]).put(0);
+            drawBatches.add(batches[b], 0, batches[b + 2]);
+            drawBatches.add(batches[b + 3]);
+            for (int s = 0; s < submeshes.length; s += 3) {
+                // index count, instance count set by the shader, first index, vertex offset, first instance
+                template.put(submeshes[s + 1]).put(0).put(submeshes[s]).put(submeshes[s + 2]).put(0);
+                drawList.add(b, submeshes[s], submeshes[s + 1]);
+                drawList.add(submeshes[s + 2]);
+            }
+        }
+        culler.setCommandCount(commandCount);
+        Arrays.fill(instanceSerials, -1);
+        indirectSceneVersion = scene.getVersion();
+    }
 
-        vkQueueSubmit(graphicsQueue, submitInfo, VK_NULL_HANDLE);
-        vkQueueWaitIdle(graphicsQueue);
-        vkFreeCommandBuffers(device, commandPool, pointerBuffer);
+    /**
+     * @return device local buffer holding {@code data}, once the current upload batch completes
+     */
+    private Pair<Long, MemoryAllocation> createDeviceBuffer(ByteBuffer data, int usage) {
+        Pair<Long, MemoryAllocation> buffer = createBuffer(data.remaining(), VK_BUFFER_USAGE_TRANSFER_DST_BIT | usage, VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT);
+        uploadManager.uploadBuffer(data, buffer.getKey(), 0);
+        return buffer;
     }
 
-    private Pair<Long, Long> createBuffer(long size, int usage, int properties) {
+    private Pair<Long, MemoryAllocation> createBuffer(long size, int usage, int properties) {
         VkBufferCreateInfo bufferCreateInfo = VkBufferCreateInfo.create()
                 .sType(VK_STRUCTURE_TYPE_BUFFER_CREATE_INFO)
                 .pNext(NULL)
@@ -756,6 +1234,10 @@ public class HelloTriangleApplication {
                 .usage(usage)
                 .flags(0)
                 .sharingMode(VK_SHARING_MODE_EXCLUSIVE);
+        if ((usage & VK_BUFFER_USAGE_TRANSFER_DST_BIT) != 0 && uploadManager.getConcurrentFamilies() != null) {
+            bufferCreateInfo.sharingMode(VK_SHARING_MODE_CONCURRENT)
+                    .pQueueFamilyIndices(uploadManager.getConcurrentFamilies());
+        }
 
         LongBuffer lPointer = BufferUtils.createLongBuffer(1);
         int err = vkCreateBuffer(device, bufferCreateInfo, null, lPointer);
@@ -767,38 +1249,42 @@ public class HelloTriangleApplication {
         VkMemoryRequirements memoryRequirements = VkMemoryRequirements.create();
         vkGetBufferMemoryRequirements(device, buffer, memoryRequirements);
 
-        VkMemoryAllocateInfo allocateInfo = VkMemoryAllocateInfo.create()
-                .sType(VK_STRUCTURE_TYPE_MEMORY_ALLOCATE_INFO)
-                .pNext(NULL)
-                .allocationSize(memoryRequirements.size())
-                .memoryTypeIndex(
-                        findMemoryType(
-                                memoryRequirements.memoryTypeBits(),
-                                properties
-                        )
-                );
-
-        err = vkAllocateMemory(device, allocateInfo, null, lPointer);
-        if (err != VK_SUCCESS) {
-            throw new RuntimeException("Failed to allocate vertex buffer memory: " + translateVulkanResult(err));
-        }
-        long bufferMemory = lPointer.get(0);
+        MemoryAllocation bufferMemory = allocator.allocate(memoryRequirements.size(), memoryRequirements.alignment(),
+                memoryRequirements.memoryTypeBits(), properties, true);
 
-        vkBindBufferMemory(device, buffer, bufferMemory, 0);
+        vkBindBufferMemory(device, buffer, bufferMemory.getMemory(), bufferMemory.getOffset());
 
         return new Pair<>(buffer,bufferMemory);
     }
 
-    private int findMemoryType(int typeFilter, int properties) {
+    private void createAllocator() {
         VkPhysicalDeviceMemoryProperties memoryProperties = VkPhysicalDeviceMemoryProperties.create();
         vkGetPhysicalDeviceMemoryProperties(physicalDevice, memoryProperties);
-        for (int i = 0; i < memoryProperties.memoryTypeCount(); i++) {
-            if ((typeFilter & (1 << i)) > 0
-                    && (memoryProperties.memoryTypes(i).propertyFlags() & properties) == properties) {
-                return i;
-            }
+        int[] memoryTypeFlags = new int[memoryProperties.memoryTypeCount()];
+        for (int i = 0; i < memoryTypeFlags.length; i++) {
+            memoryTypeFlags[i] = memoryProperties.memoryTypes(i).propertyFlags();
         }
-        throw new RuntimeException("Failed to find suitable memory type");
+        VkPhysicalDeviceProperties properties = VkPhysicalDeviceProperties.create();
+        vkGetPhysicalDeviceProperties(physicalDevice, properties);
+
+        allocator = new MemoryAllocator(new VulkanMemoryBackend(device), memoryTypeFlags,
+                properties.limits().bufferImageGranularity(), MemoryAllocator.DEFAULT_BLOCK_SIZE);
+    }
+
+    private void createUploadManager() {
+        StagingBufferPool staging = new StagingBufferPool(new StagingBufferPool.Factory() {
+            @Override
+            public StagingRing create(long capacity) {
+                Pair<Long, MemoryAllocation> buffer = createBuffer(capacity, VK_BUFFER_USAGE_TRANSFER_SRC_BIT, VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT);
+                return new StagingRing(buffer.getKey(), buffer.getValue(), capacity);
+            }
+
+            @Override
+            public void destroy(StagingRing ring) {
+                ring.destroy(device);
+            }
+        }, STAGING_RING_SIZE, STAGING_POOL_SIZE, STAGING_SHRINK_DELAY);
+        uploadManager = new UploadManager(device, indices, staging, STAGING_RING_SIZE / 4);
     }
 
     private void createDeviceQueues() {
@@ -839,94 +1325,126 @@ public class HelloTriangleApplication {
 
     }
 
-    private void createCommandBuffers() {
-        VkCommandBuffer[] commandBuffers = new VkCommandBuffer[swapChainFramebuffers.length];
-        VkCommandBufferAllocateInfo allocateInfo = VkCommandBufferAllocateInfo.create()
-                .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_ALLOCATE_INFO)
-                .commandPool(commandPool)
-                .level(VK_COMMAND_BUFFER_LEVEL_PRIMARY)
-                .commandBufferCount(commandBuffers.length);
-
-        PointerBuffer pointerBuffer = BufferUtils.createPointerBuffer(commandBuffers.length);
-        int err = vkAllocateCommandBuffers(device, allocateInfo, pointerBuffer);
-        if (err != VK_SUCCESS) {
-            throw new RuntimeException("Failed to allocate command buffers: " + translateVulkanResult(err));
+    /**
+     * Submit and present infos of every frame in flight, filled once so drawFrame only patches the image index and
+     * command buffer. The infos hold raw addresses, so the buffers they point to are kept in fields.
+     */
+    private void createFrameInfos() {
+        pImageIndex = BufferUtils.createIntBuffer(1);
+        pSwapChain = BufferUtils.createLongBuffer(1);
+        pSubmitCommandBuffers = new PointerBuffer[MAX_FRAMES_IN_FLIGHT];
+        submitInfos = new VkSubmitInfo[MAX_FRAMES_IN_FLIGHT];
+        presentInfos = new VkPresentInfoKHR[MAX_FRAMES_IN_FLIGHT];
+        pWaitSemaphores = new LongBuffer[MAX_FRAMES_IN_FLIGHT];
+        pSignalSemaphores = new LongBuffer[MAX_FRAMES_IN_FLIGHT];
+        pWaitStages = BufferUtils.createIntBuffer(1).put(0, VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT);
+        for (int i = 0; i < MAX_FRAMES_IN_FLIGHT; i++) {
+            pWaitSemaphores[i] = BufferUtils.createLongBuffer(1).put(0, imageAvailableSemaphore[i]);
+            pSignalSemaphores[i] = BufferUtils.createLongBuffer(1).put(0, renderFinishedSemaphore[i]);
+            pSubmitCommandBuffers[i] = BufferUtils.createPointerBuffer(1);
+            submitInfos[i] = VkSubmitInfo.create()
+                    .sType(VK_STRUCTURE_TYPE_SUBMIT_INFO)
+                    .waitSemaphoreCount(1)
+                    .pWaitSemaphores(pWaitSemaphores[i])
+                    .pWaitDstStageMask(pWaitStages)
+                    .pCommandBuffers(pSubmitCommandBuffers[i])
+                    .pSignalSemaphores(pSignalSemaphores[i]);
+            presentInfos[i] = VkPresentInfoKHR.create()
+                    .sType(VK_STRUCTURE_TYPE_PRESENT_INFO_KHR)
+                    .pWaitSemaphores(pSignalSemaphores[i])
+                    .swapchainCount(1)
+                    .pSwapchains(pSwapChain)
+                    .pImageIndices(pImageIndex);
         }
-
-        for (int i = 0; i < commandBuffers.length; i++) {
-            long l = pointerBuffer.get();
-            commandBuffers[i] = new VkCommandBuffer(l, device);
+        clearValues = VkClearValue.create(2);
+        clearValues.get(0).color()
+                .float32(0, 100 / 255.0f)
+                .float32(1, 149 / 255.0f)
+                .float32(2, 237 / 255.0f)
+                .float32(3, 1.0f);
+        clearValues.get(1).depthStencil().set(1.0f, 0);
+        renderPassBeginInfo = VkRenderPassBeginInfo.create()
+                .sType(VK_STRUCTURE_TYPE_RENDER_PASS_BEGIN_INFO)
+                .pClearValues(clearValues);
+        renderPassBeginInfo.renderArea()
+                .offset(VkOffset2D.create().set(0, 0))
+                .extent(swapChainExtent);
+        if (Boolean.getBoolean("engine.profile")) {
+            frameProfiler = new FrameProfiler(1000);
         }
+    }
 
-        for (int i = 0; i < commandBuffers.length; i++) {
-            VkCommandBufferBeginInfo bufferBeginInfo = VkCommandBufferBeginInfo.create()
-                    .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_BEGIN_INFO)
-                    .flags(VK_COMMAND_BUFFER_USAGE_SIMULTANEOUS_USE_BIT)
-                    .pInheritanceInfo(null);
+    /**
+     * Records the frame into the primary command buffer of the current frame in flight, draws split across the
+     * threads of {@link #recorder}. Uniforms, instances and culling results are those of the frame in flight, only
+     * the framebuffer is that of swap chain {@code image}.
+     */
+    private VkCommandBuffer recordFrame(int image) {
+        VkCommandBuffer commandBuffer = recorder.begin(currentFrame);
+        if (culler != null) {
+            culler.record(commandBuffer, currentFrame, scene.getObjectCount(), currentFrame * instanceCapacity, cullPlanes);
+        }
+        renderPassBeginInfo.renderPass(renderPass).framebuffer(swapChainFramebuffers[image]);
+        vkCmdBeginRenderPass(commandBuffer, renderPassBeginInfo, VK_SUBPASS_CONTENTS_SECONDARY_COMMAND_BUFFERS);
+        if (material != null) {
+            material.write(materialConstants);
+            dynamicOffsets.put(0, uniformRing.offset(currentFrame));
+            recordingFrame = currentFrame;
+            recorder.execute(currentFrame, renderPass, swapChainFramebuffers[image], drawList.size() / 4, drawTask);
+        }
+        vkCmdEndRenderPass(commandBuffer);
+        int err = vkEndCommandBuffer(commandBuffer);
+        if (err != VK_SUCCESS) {
+            throw new RuntimeException("Failed to record command buffer: " + translateVulkanResult(err));
+        }
+        return commandBuffer;
+    }
 
-            err = vkBeginCommandBuffer(commandBuffers[i], bufferBeginInfo);
-            if (err != VK_SUCCESS) {
-                throw new RuntimeException("Failed to begin recording command buffer: " + translateVulkanResult(err));
+    /**
+     * Records draws {@code first} to {@code end} of {@link #drawList}; runs on several threads at once.
+     */
+    private void recordDraws(VkCommandBuffer commandBuffer, int worker, int first, int end) {
+        vkCmdBindPipeline(commandBuffer, VK_PIPELINE_BIND_POINT_GRAPHICS, graphicsPipeline);
+        vkCmdBindDescriptorSets(commandBuffer, VK_PIPELINE_BIND_POINT_GRAPHICS, pipelineLayout, 0, descriptorSets, dynamicOffsets);
+        vkCmdPushConstants(commandBuffer, pipelineLayout, VK_SHADER_STAGE_FRAGMENT_BIT, Material.OFFSET, materialConstants);
+
+        LongBuffer vertexBuffers = workerVertexBuffers[worker].put(1, culler != null ? culler.getVisibleBuffer() : instanceBuffer);
+        LongBuffer offsets = workerOffsets[worker].put(1, (long) recordingFrame * instanceCapacity * Scene.INSTANCE_SIZE);
+        int boundBatch = -1;
+        for (int item = first; item < end; item++) {
+            int b = drawList.get(item * 4);
+            MeshBuffers buffers = meshBuffers.get(drawBatches.get(b));
+            if (b != boundBatch) {
+                if (culler != null) {
+                    // instance counts come from the GPU, first instances stay 0 for devices without drawIndirectFirstInstance
+                    offsets.put(1, culler.getVisibleOffset(recordingFrame) + (long) drawBatches.get(b + 2) * Scene.INSTANCE_SIZE);
+                }
+                vkCmdBindVertexBuffers(commandBuffer, 0, vertexBuffers.put(0, buffers.vertexBuffer), offsets);
+                vkCmdBindIndexBuffer(commandBuffer, buffers.indexBuffer, 0, buffers.indexType);
+                vkCmdPushConstants(commandBuffer, pipelineLayout, VK_SHADER_STAGE_VERTEX_BIT, 0, buffers.positionTransform);
+                boundBatch = b;
             }
-
-            VkClearValue.Buffer clearValues = VkClearValue.create(2);
-            clearValues.get(0).color()
-                    .float32(0, 100 / 255.0f)
-                    .float32(1, 149 / 255.0f)
-                    .float32(2, 237 / 255.0f)
-                    .float32(3, 1.0f);
-
-            clearValues.get(1).depthStencil().set(1.0f, 0);
-
-            VkRenderPassBeginInfo renderPassBeginInfo = VkRenderPassBeginInfo.create()
-                    .sType(VK_STRUCTURE_TYPE_RENDER_PASS_BEGIN_INFO)
-                    .renderPass(renderPass)
-                    .framebuffer(swapChainFramebuffers[i])
-                    .pClearValues(clearValues);
-            renderPassBeginInfo.renderArea()
-                    .offset(VkOffset2D.create().set(0, 0))
-                    .extent(swapChainExtent);
-
-            vkCmdBeginRenderPass(commandBuffers[i], renderPassBeginInfo, VK_SUBPASS_CONTENTS_INLINE);
-
-            vkCmdBindPipeline(commandBuffers[i], VK_PIPELINE_BIND_POINT_GRAPHICS, graphicsPipeline);
-
-            LongBuffer vertexBuffers = BufferUtils.createLongBuffer(1).put(0, vertexBuffer);
-            LongBuffer offsets = BufferUtils.createLongBuffer(1).put(0, 0);
-            vkCmdBindVertexBuffers(commandBuffers[i], 0, vertexBuffers, offsets);
-
-            vkCmdBindIndexBuffer(commandBuffers[i], indexBuffer, 0, VK_INDEX_TYPE_UINT32);
-
-            LongBuffer descriptorSet = BufferUtils.createLongBuffer(1).put(0, descriptorSets[i]);
-            vkCmdBindDescriptorSets(commandBuffers[i], VK_PIPELINE_BIND_POINT_GRAPHICS, pipelineLayout, 0, descriptorSet, null);
-
-            vkCmdDrawIndexed(commandBuffers[i], model.getIndexLength(), 1, 0, 0, 0);
-
-            vkCmdEndRenderPass(commandBuffers[i]);
-
-            err = vkEndCommandBuffer(commandBuffers[i]);
-            if (err != VK_SUCCESS) {
-                throw new RuntimeException("Failed to record command buffer: " + translateVulkanResult(err));
+            if (culler != null) {
+                vkCmdDrawIndexedIndirect(commandBuffer, culler.getCommandBuffer(), culler.getCommandOffset(recordingFrame, item),
+                        1, IndirectCuller.COMMAND_SIZE);
+                continue;
             }
-
+            // one instanced draw per submesh of every mesh, however many objects use it
+            vkCmdDrawIndexed(commandBuffer, drawList.get(item * 4 + 2), drawBatches.get(b + 3), drawList.get(item * 4 + 1),
+                    drawList.get(item * 4 + 3), drawBatches.get(b + 2));
         }
-
-        this.commandBuffers = commandBuffers;
     }
 
-    private void createCommandPoll() {
-        VkCommandPoolCreateInfo createInfo = VkCommandPoolCreateInfo.create()
-                .sType(VK_STRUCTURE_TYPE_COMMAND_POOL_CREATE_INFO)
-                .queueFamilyIndex(indices.getGraphicsFamily())
-                .flags(0);
-
-
-        LongBuffer pCommandPoll = BufferUtils.createLongBuffer(1);
-        int err = vkCreateCommandPool(device, createInfo, null, pCommandPoll);
-        if (err != VK_SUCCESS) {
-            throw new RuntimeException("Failed to create command pool:" + translateVulkanResult(err));
+    private void createCommandRecorder() {
+        int threads = Integer.getInteger("engine.recordThreads", Math.min(Runtime.getRuntime().availableProcessors(), 8));
+        recorder = new CommandRecorder(device, indices.getGraphicsFamily(), threads, MAX_FRAMES_IN_FLIGHT);
+        workerVertexBuffers = new LongBuffer[threads];
+        workerOffsets = new LongBuffer[threads];
+        for (int worker = 0; worker < threads; worker++) {
+            workerVertexBuffers[worker] = BufferUtils.createLongBuffer(2);
+            workerOffsets[worker] = BufferUtils.createLongBuffer(2);
         }
-        commandPool = pCommandPoll.get();
+        descriptorSets.put(0, descriptorSet);
     }
 
     private void createFramebuffers() {
@@ -1034,17 +1552,25 @@ public class HelloTriangleApplication {
     private void createGraphicsPipeline() {
         VkPipelineShaderStageCreateInfo.Buffer shaderStages = VkPipelineShaderStageCreateInfo.create(2);
         try {
-            shaderStages.get(0).set(loadShader(device, "vert.spv", VK_SHADER_STAGE_VERTEX_BIT));
+            shaderStages.get(0).set(loadShader(device, vertexFormat.getVertexShader(), VK_SHADER_STAGE_VERTEX_BIT));
             shaderStages.get(1).set(loadShader(device, "frag.spv", VK_SHADER_STAGE_FRAGMENT_BIT));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        VkSpecializationMapEntry.Buffer textureCountEntry = VkSpecializationMapEntry.create(1)
+                .constantID(0)
+                .offset(0)
+                .size(4);
+        VkSpecializationInfo fragmentSpecialization = VkSpecializationInfo.create()
+                .pMapEntries(textureCountEntry)
+                .pData(BufferUtils.createByteBuffer(4).putInt(0, textureSlots));
+        shaderStages.get(1).pSpecializationInfo(fragmentSpecialization);
 
         VkPipelineVertexInputStateCreateInfo vertexInputInfo = VkPipelineVertexInputStateCreateInfo.create()
                 .sType(VK_STRUCTURE_TYPE_PIPELINE_VERTEX_INPUT_STATE_CREATE_INFO)
                 .pNext(NULL)
-                .pVertexBindingDescriptions(model.getBindingDescription())
-                .pVertexAttributeDescriptions(model.getAttributeDescriptions());
+                .pVertexBindingDescriptions(vertexFormat.getBindingDescription())
+                .pVertexAttributeDescriptions(vertexFormat.getAttributeDescriptions());
 
         VkPipelineInputAssemblyStateCreateInfo inputAssembly = VkPipelineInputAssemblyStateCreateInfo.create()
                 .sType(VK_STRUCTURE_TYPE_PIPELINE_INPUT_ASSEMBLY_STATE_CREATE_INFO)
@@ -1139,7 +1665,16 @@ public class HelloTriangleApplication {
         VkPipelineLayoutCreateInfo pipelineLayoutInfo = VkPipelineLayoutCreateInfo.create()
                 .sType(VK_STRUCTURE_TYPE_PIPELINE_LAYOUT_CREATE_INFO)
                 .pSetLayouts(BufferUtils.createLongBuffer(1).put(0, descriptorSetLayout))
-                .pPushConstantRanges(null);
+                .pPushConstantRanges(VkPushConstantRange.create(2)
+                        .put(VkPushConstantRange.create()
+                                .stageFlags(VK_SHADER_STAGE_VERTEX_BIT)
+                                .offset(0)
+                                .size(Material.OFFSET))
+                        .put(VkPushConstantRange.create()
+                                .stageFlags(VK_SHADER_STAGE_FRAGMENT_BIT)
+                                .offset(Material.OFFSET)
+                                .size(Material.SIZE))
+                        .flip());
 
         LongBuffer pPipelineLayout = BufferUtils.createLongBuffer(1);
         int err = vkCreatePipelineLayout(device, pipelineLayoutInfo, null, pPipelineLayout);
@@ -1166,7 +1701,9 @@ public class HelloTriangleApplication {
                 .basePipelineIndex(0);
 
         LongBuffer pPipeline = BufferUtils.createLongBuffer(1);
-        err = vkCreateGraphicsPipelines(device, VK_NULL_HANDLE, pipelineInfo, null, pPipeline);
+        long time = System.nanoTime();
+        err = vkCreateGraphicsPipelines(device, pipelineCache.getHandle(), pipelineInfo, null, pPipeline);
+        pipelineCache.recordCreation(System.nanoTime() - time);
         long pipeline = pPipeline.get(0);
         if (err != VK_SUCCESS) {
             throw new AssertionError("Failed to create pipeline: " + translateVulkanResult(err));
@@ -1287,20 +1824,28 @@ public class HelloTriangleApplication {
         return new VkQueue(pQueue.get(), device);
     }
 
+    /**
+     * Pipelines are created through a cache saved to disk at shutdown, unless {@code engine.pipelineCache} is false;
+     * then the cache lives for the run only and startup compiles everything.
+     */
+    private void createPipelineCache() {
+        boolean persistent = !"false".equals(System.getProperty("engine.pipelineCache"));
+        pipelineCache = new PipelineCache(device, physicalDevice, persistent ? PipelineCache.defaultFile() : null);
+    }
+
     private void createLogicalDevice() {
         FloatBuffer pQueuePriorities = BufferUtils.createFloatBuffer(1).put(1.0f);
         pQueuePriorities.flip();
-        VkDeviceQueueCreateInfo.Buffer pQueueCreateInfo = VkDeviceQueueCreateInfo.create(2).put(
-                VkDeviceQueueCreateInfo.create()
-                        .sType(VK_STRUCTURE_TYPE_DEVICE_QUEUE_CREATE_INFO)
-                        .queueFamilyIndex(indices.getGraphicsFamily())
-                        .pQueuePriorities(pQueuePriorities)
-        ).put(
-                VkDeviceQueueCreateInfo.create()
-                        .sType(VK_STRUCTURE_TYPE_DEVICE_QUEUE_CREATE_INFO)
-                        .queueFamilyIndex(indices.getPresentFamily())
-                        .pQueuePriorities(pQueuePriorities)
-        );
+        int[] families = indices.getUniqueFamilies();
+        VkDeviceQueueCreateInfo.Buffer pQueueCreateInfo = VkDeviceQueueCreateInfo.create(families.length);
+        for (int family : families) {
+            pQueueCreateInfo.put(
+                    VkDeviceQueueCreateInfo.create()
+                            .sType(VK_STRUCTURE_TYPE_DEVICE_QUEUE_CREATE_INFO)
+                            .queueFamilyIndex(family)
+                            .pQueuePriorities(pQueuePriorities)
+            );
+        }
         pQueueCreateInfo.flip();
 
         PointerBuffer ppExtensionNames = BufferUtils.createPointerBuffer(DEVICE_EXTENSIONS.length);
@@ -1309,9 +1854,15 @@ public class HelloTriangleApplication {
         }
         ppExtensionNames.flip();
 
+        VkPhysicalDeviceFeatures supportedFeatures = VkPhysicalDeviceFeatures.create();
+        vkGetPhysicalDeviceFeatures(physicalDevice, supportedFeatures);
+        textureCompressionBC = supportedFeatures.textureCompressionBC();
+
         VkPhysicalDeviceFeatures deviceFeatures = VkPhysicalDeviceFeatures.create()
                 .samplerAnisotropy(true)
-                .sampleRateShading(true);
+                .sampleRateShading(true)
+                .shaderSampledImageArrayDynamicIndexing(true)
+                .textureCompressionBC(textureCompressionBC);
         VkDeviceCreateInfo pCreateInfo = VkDeviceCreateInfo.create()
                 .sType(VK_STRUCTURE_TYPE_DEVICE_CREATE_INFO)
                 .pNext(NULL)
@@ -1371,6 +1922,7 @@ public class HelloTriangleApplication {
 
         return deviceProperties.deviceType() == VK_PHYSICAL_DEVICE_TYPE_DISCRETE_GPU
                 && deviceFeatures.samplerAnisotropy()
+                && deviceFeatures.shaderSampledImageArrayDynamicIndexing()
                 && indices.isComplete()
                 && checkDeviceExtensionSupport(physicalDevice)
                 && swapChainGood;
@@ -1519,7 +2071,14 @@ public class HelloTriangleApplication {
         startTime = System.currentTimeMillis();
         while (!glfwWindowShouldClose(window)) {
             glfwPollEvents();
+            streamer.update(assetListener);
+            updateCamera();
+            updateResidency();
+            updateScene();
             drawFrame();
+            if (frameProfiler != null) {
+                frameProfiler.frame();
+            }
         }
 
         vkDeviceWaitIdle(device);
@@ -1527,44 +2086,30 @@ public class HelloTriangleApplication {
 
     private void drawFrame() {
         vkWaitForFences(device, inFlightFences[currentFrame], true, Long.MAX_VALUE);
-        vkResetFences(device, inFlightFences[currentFrame]);
 
-        IntBuffer pointer = BufferUtils.createIntBuffer(1);
-        int err = vkAcquireNextImageKHR(device, swapChain, Long.MAX_VALUE, imageAvailableSemaphore[currentFrame], VK_NULL_HANDLE, pointer);
+        int err = vkAcquireNextImageKHR(device, swapChain, Long.MAX_VALUE, imageAvailableSemaphore[currentFrame], VK_NULL_HANDLE, pImageIndex);
         if(err == VK_ERROR_OUT_OF_DATE_KHR){
             recreateSwapChain();
             return;
         } else if(err != VK_SUCCESS && err != VK_SUBOPTIMAL_KHR){
             throw new RuntimeException(translateVulkanResult(err));
         }
-        int imageIndex = pointer.get(0);
-
-        updateUniformBuffer(imageIndex);
+        vkResetFences(device, inFlightFences[currentFrame]);
+        int imageIndex = pImageIndex.get(0);
 
-        LongBuffer waitSemaphores = BufferUtils.createLongBuffer(1).put(0, imageAvailableSemaphore[currentFrame]);
-        LongBuffer signalSemaphores = BufferUtils.createLongBuffer(1).put(0, renderFinishedSemaphore[currentFrame]);
-        IntBuffer waitStages = BufferUtils.createIntBuffer(1).put(0, VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT);
-        VkSubmitInfo submitInfo = VkSubmitInfo.create()
-                .sType(VK_STRUCTURE_TYPE_SUBMIT_INFO)
-                .waitSemaphoreCount(1)
-                .pWaitSemaphores(waitSemaphores)
-                .pWaitDstStageMask(waitStages)
-                .pCommandBuffers(BufferUtils.createPointerBuffer(1).put(0, commandBuffers[imageIndex]))
-                .pSignalSemaphores(signalSemaphores);
+        updateUniformBuffer(currentFrame);
 
-        err = vkQueueSubmit(graphicsQueue, submitInfo, inFlightFences[currentFrame]);
+        pSubmitCommandBuffers[currentFrame].put(0, recordFrame(imageIndex));
+        err = vkQueueSubmit(graphicsQueue, submitInfos[currentFrame], inFlightFences[currentFrame]);
         if (err != VK_SUCCESS) {
             throw new RuntimeException("Failed to submit draw command buffer: " + translateVulkanResult(err));
         }
+        if (cullingCheck) {
+            checkCulling(currentFrame);
+        }
 
-        VkPresentInfoKHR presentInfo = VkPresentInfoKHR.create()
-                .sType(VK_STRUCTURE_TYPE_PRESENT_INFO_KHR)
-                .pWaitSemaphores(signalSemaphores)
-                .swapchainCount(1)
-                .pSwapchains(BufferUtils.createLongBuffer(1).put(0, swapChain))
-                .pImageIndices(pointer);
-
-        err = vkQueuePresentKHR(presentQueue, presentInfo);
+        pSwapChain.put(0, swapChain);
+        err = vkQueuePresentKHR(presentQueue, presentInfos[currentFrame]);
 
         if (err == VK_ERROR_OUT_OF_DATE_KHR || err == VK_SUBOPTIMAL_KHR || framebufferResized) {
             framebufferResized = false;
@@ -1577,25 +2122,62 @@ public class HelloTriangleApplication {
 
     }
 
-    private void updateUniformBuffer(int currentImage) {
+    /**
+     * Waits for {@code frame} and reports where the GPU culled differently from {@link IndirectCuller#cull}.
+     */
+    private void checkCulling(int frame) {
+        vkQueueWaitIdle(graphicsQueue);
+        FloatBuffer instances = instanceData.duplicate();
+        instances.position(frame * instanceCapacity * Scene.INSTANCE_SIZE / 4);
+        int errors = culler.check(frame, instances.slice(), scene.getObjectCount(), drawBatches.size() / 4, cullPlanes);
+        if (errors > 0) {
+            System.err.println("GPU culling differs from the CPU reference in " + errors + " commands and batches");
+        }
+    }
+
+    /**
+     * Sets the matrices of the frame, and {@link #cullMatrix} from them, which residency and culling see the scene
+     * through.
+     */
+    private void updateCamera() {
         long currentTime = System.currentTimeMillis();
         float time = currentTime - startTime;
         time /= 1000;
 
-        Matrix4f transformation = new Matrix4f().rotateX((float)Math.PI).translate(0f, -5f, 0f);
-        Matrix4f view = new Matrix4f().translate(0f, 0f, 10f);
-        Matrix4f projection = new Matrix4f().perspectiveLH(
+        ubo.modelMatrix.rotationX((float)Math.PI).translate(0f, -5f, 0f);
+        ubo.viewMatrix.translation(0f, 0f, 10f);
+        ubo.projMatrix.setPerspectiveLH(
                 (float)Math.PI/2,
                 (float)swapChainExtent.width()/swapChainExtent.height(),
                 0.1f, 1000f);
+        // objects are culled in the space the vertex shader draws them to
+        ubo.projMatrix.mul(ubo.viewMatrix, cullMatrix).mul(ubo.modelMatrix);
+    }
 
-        UniformBufferObject ubo = new UniformBufferObject(transformation, view, projection);
-
-        PointerBuffer pData = BufferUtils.createPointerBuffer(1);
-        vkMapMemory(device, uniformBuffersMemory[currentImage], 0, ubo.sizeOf(), 0, pData);
-        long data = pData.get(0);
-        memCopy(memAddress(ubo.data), data, ubo.sizeOf());
-        vkUnmapMemory(device, uniformBuffersMemory[currentImage]);
+    private void updateUniformBuffer(int frame) {
+        uniformRing.write(frame, ubo);
+        if (culler != null) {
+            if (indirectSceneVersion != scene.getVersion()) {
+                buildIndirectDraws();
+            }
+            // the frame only uploads changed objects, culling them is the compute shader's work
+            if (instanceSerials[frame] != scene.getModifications()) {
+                instanceData.position(frame * instanceCapacity * Scene.INSTANCE_SIZE / 4);
+                scene.write(instanceData);
+                scene.writeBounds(culler.getBounds(frame));
+                instanceSerials[frame] = scene.getModifications();
+            }
+            Bvh.frustumPlanes(cullMatrix, cullPlanes);
+            return;
+        }
+        if (culledModifications != scene.getModifications() || !cullMatrix.equals(culledMatrix)) {
+            cullScene();
+        }
+        if (instanceSerials[frame] != cullSerial) {
+            instanceData.position(frame * instanceCapacity * Scene.INSTANCE_SIZE / 4);
+            scene.write(instanceData);
+            instanceSerials[frame] = cullSerial;
+        }
 
     }
 
@@ -1619,27 +2201,22 @@ public class HelloTriangleApplication {
         createColorResources();
         createDepthResources();
         createFramebuffers();
-        createCommandBuffers();
+        renderPassBeginInfo.renderArea().extent(swapChainExtent);
+        uploadManager.flush();
     }
 
     private void cleanupSwapChain() {
         vkDestroyImageView(device, colorImageView, null);
         vkDestroyImage(device, colorImage, null);
-        vkFreeMemory(device, colorImageMemory, null);
+        colorImageMemory.free();
 
         vkDestroyImageView(device, depthImageView, null);
         vkDestroyImage(device, depthImage, null);
-        vkFreeMemory(device, depthImageMemory, null);
+        depthImageMemory.free();
 
         for (long framebuffer : swapChainFramebuffers) {
             vkDestroyFramebuffer(device, framebuffer, null);
         }
-        PointerBuffer pointerBuffer = BufferUtils.createPointerBuffer(commandBuffers.length);
-        for (VkCommandBuffer commandBuffer : commandBuffers) {
-            pointerBuffer.put(commandBuffer);
-        }
-        pointerBuffer.flip();
-        vkFreeCommandBuffers(device, commandPool, pointerBuffer);
         vkDestroyPipeline(device, graphicsPipeline, null);
         vkDestroyPipelineLayout(device, pipelineLayout, null);
         vkDestroyRenderPass(device, renderPass, null);
@@ -1650,6 +2227,18 @@ public class HelloTriangleApplication {
     }
 
     private void cleanup() {
+        streamer.shutdown(assetListener);
+        if (Boolean.getBoolean("engine.profile")) {
+            System.out.print(streamer.getStatistics());
+            System.out.print(residency.getStatistics());
+            System.out.print(recorder.getStatistics());
+            System.out.print(pipelineCache.getStatistics());
+        }
+        try {
+            pipelineCache.save();
+        } catch (IOException e) {
+            System.err.println("Failed to save pipeline cache: " + e.getMessage());
+        }
         for (int i = 0; i < MAX_FRAMES_IN_FLIGHT; i++) {
             vkDestroySemaphore(device, renderFinishedSemaphore[i], null);
             vkDestroySemaphore(device, imageAvailableSemaphore[i], null);
@@ -1659,21 +2248,31 @@ public class HelloTriangleApplication {
         for (Long shaderModule : shaderModules) {
             vkDestroyShaderModule(device, shaderModule, null);
         }
-        vkDestroyCommandPool(device, commandPool, null);
+        recorder.destroy();
+        if (culler != null) {
+            culler.destroy();
+        }
         vkDestroyDescriptorPool(device, descriptorPool, null);
         vkDestroyDescriptorSetLayout(device, descriptorSetLayout, null);
-        for (int i = 0; i < swapChainImages.length; i++) {
-            vkDestroyBuffer(device, uniformBuffers[i], null);
-            vkFreeMemory(device, uniformBuffersMemory[i], null);
-        }
+        uniformRing.destroy(device);
         vkDestroySampler(device, textureSampler, null);
-        vkDestroyImageView(device, textureImageView, null);
-        vkDestroyImage(device, textureImage, null);
-        vkFreeMemory(device, textureImageMemory, null);
-        vkDestroyBuffer(device, vertexBuffer, null);
-        vkFreeMemory(device, vertexBufferMemory, null);
-        vkDestroyBuffer(device, indexBuffer, null);
-        vkFreeMemory(device, indexBufferMemory, null);
+        destroyTexture(textureImage, textureImageMemory, textureImageView);
+        for (int id = 0; id < residentTextures.size(); id++) {
+            if (residentTextures.get(id) != null) {
+                releaseResidentTexture(id);
+            }
+        }
+        for (int i = 0; i < atlasImages.size(); i++) {
+            destroyTexture(atlasImages.get(i), atlasMemory.get(i), atlasImageViews.get(i));
+        }
+        for (MeshBuffers buffers : meshBuffers) {
+            destroyMesh(buffers.vertexBuffer, buffers.vertexMemory, buffers.indexBuffer, buffers.indexMemory);
+        }
+        vkDestroyBuffer(device, instanceBuffer, null);
+        instanceMemory.free();
+        uploadManager.destroy();
+        allocator.destroy();
+        pipelineCache.destroy();
         vkDestroyDevice(device, null);
         if(ENABLE_VALIDATION_LAYERS)
             vkDestroyDebugReportCallbackEXT(instance, debugCallbackHandle, null);
@@ -1682,4 +2281,70 @@ public class HelloTriangleApplication {
         glfwDestroyWindow(window);
         glfwTerminate();
     }
+
+    /**
+     * Images of a texture under {@link TextureResidency}: the resident levels in use and, while their upload is in
+     * flight, the ones replacing them.
+     */
+    private static class ResidentTexture {
+        final MipChain chain;
+        int slot = -1;
+        int baseLevel = -1;
+        int targetLevel;
+        long image;
+        MemoryAllocation memory;
+        long imageView;
+        int pendingLevel;
+        long pendingImage;
+        MemoryAllocation pendingMemory;
+        long pendingImageView;
+        long serial;
+
+        ResidentTexture(MipChain chain) {
+            this.chain = chain;
+        }
+
+        void promote() {
+            image = pendingImage;
+            memory = pendingMemory;
+            imageView = pendingImageView;
+            baseLevel = pendingLevel;
+            pendingImage = VK_NULL_HANDLE;
+            pendingMemory = null;
+            pendingImageView = VK_NULL_HANDLE;
+        }
+    }
+
+    /**
+     * Device buffers of a scene mesh and what recording its draws needs.
+     */
+    private static class MeshBuffers {
+        final long vertexBuffer;
+        final MemoryAllocation vertexMemory;
+        final long indexBuffer;
+        final MemoryAllocation indexMemory;
+        final int indexType;
+        // submeshes of every level of detail
+        final int[][] lods;
+        // of level 0, or null
+        final int[] meshlets;
+        final float[] meshletBounds;
+        // vertex stage push constants
+        final ByteBuffer positionTransform;
+
+        MeshBuffers(Model model, long vertexBuffer, MemoryAllocation vertexMemory, long indexBuffer, MemoryAllocation indexMemory) {
+            this.vertexBuffer = vertexBuffer;
+            this.vertexMemory = vertexMemory;
+            this.indexBuffer = indexBuffer;
+            this.indexMemory = indexMemory;
+            this.indexType = model.getIndexType();
+            this.lods = new int[model.getLodCount()][];
+            for (int lod = 0; lod < lods.length; lod++) {
+                lods[lod] = model.getSubmeshes(lod);
+            }
+            this.meshlets = model.getMeshlets();
+            this.meshletBounds = model.getMeshletBounds();
+            this.positionTransform = model.getPositionTransform().get4x3Transposed(BufferUtils.createByteBuffer(Material.OFFSET));
+        }
+    }
 }
@@ -0,0 +1,440 @@
+package pl.marconzet.engine;
+
+import javafx.util.Pair;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.vulkan.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.system.MemoryUtil.memByteBuffer;
+import static org.lwjgl.system.MemoryUtil.memUTF8;
+import static org.lwjgl.vulkan.VK10.*;
+import static pl.marconzet.engine.VKUtil.translateVulkanResult;
+
+/**
+ * Frustum culling on the GPU: a compute shader ({@code cull.comp}) tests the world bounds of every instance, copies the
+ * transforms of visible ones into a compacted instance buffer and counts them into {@code VkDrawIndexedIndirectCommand}s,
+ * which the frame draws with {@code vkCmdDrawIndexedIndirect}. Per frame the CPU only records a copy, a dispatch and
+ * one indirect draw per batch, whatever the number of objects.
+ * <p>
+ * Every batch (a mesh and its instances) has one command per submesh, all drawing the same instances. Commands are
+ * reset from a template before the dispatch. Bounds, compacted instances and commands have a slice per frame in
+ * flight; batches and the template are shared and only change with the scene structure.
+ * <p>
+ * {@link #cull} runs the same kernel on the CPU, to cross-check what the GPU wrote, see {@link #check}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class IndirectCuller {
+    /**
+     * Creates the buffers, bound to memory with the given properties.
+     */
+    public interface Factory {
+        Pair<Long, MemoryAllocation> createBuffer(long size, int usage, int properties);
+    }
+
+    public static final int COMMAND_SIZE = 5 * 4;
+    public static final int BOUNDS_SIZE = 8 * 4;
+    public static final int BATCH_SIZE = 4 * 4;
+    private static final int GROUP_SIZE = 64;
+    private static final int PUSH_CONSTANTS_SIZE = 6 * 16 + 4 * 4;
+    private static final int HOST_MEMORY = VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT;
+
+    private final VkDevice device;
+    private final Factory factory;
+    private final int frames;
+    private final boolean readable;
+    private final long descriptorSetLayout;
+    private final long descriptorPool;
+    private final long descriptorSet;
+    private final long pipelineLayout;
+    private final long pipeline;
+    private final long pipelineCreationTime;
+
+    private int instanceCapacity;
+    private int commandCapacity;
+    private int batchCapacity;
+    private Pair<Long, MemoryAllocation> bounds;
+    private Pair<Long, MemoryAllocation> batches;
+    private Pair<Long, MemoryAllocation> template;
+    private Pair<Long, MemoryAllocation> visible;
+    private Pair<Long, MemoryAllocation> commands;
+    private long instanceBuffer = VK_NULL_HANDLE;
+    private int commandCount;
+
+    private final ByteBuffer constants = BufferUtils.createByteBuffer(PUSH_CONSTANTS_SIZE);
+    private final VkBufferCopy.Buffer copyRegion = VkBufferCopy.create(1);
+    private final VkMemoryBarrier.Buffer barrier = VkMemoryBarrier.create(1);
+    private final LongBuffer descriptorSets = BufferUtils.createLongBuffer(1);
+
+    /**
+     * @param shaderModule compiled {@code cull.comp}, owned by the caller
+     * @param pipelineCache cache the pipeline is created through, or {@code VK_NULL_HANDLE}
+     * @param frames       frames in flight, each with its own slices
+     * @param readable     whether compacted instances and commands are host visible, for {@link #check}
+     */
+    public IndirectCuller(VkDevice device, Factory factory, long shaderModule, long pipelineCache, int frames,
+                          boolean readable) {
+        this.device = device;
+        this.factory = factory;
+        this.frames = frames;
+        this.readable = readable;
+
+        VkDescriptorSetLayoutBinding.Buffer bindings = VkDescriptorSetLayoutBinding.create(5);
+        for (int binding = 0; binding < 5; binding++) {
+            bindings.get(binding)
+                    .binding(binding)
+                    .descriptorType(VK_DESCRIPTOR_TYPE_STORAGE_BUFFER)
+                    .descriptorCount(1)
+                    .stageFlags(VK_SHADER_STAGE_COMPUTE_BIT);
+        }
+        VkDescriptorSetLayoutCreateInfo layoutInfo = VkDescriptorSetLayoutCreateInfo.create()
+                .sType(VK_STRUCTURE_TYPE_DESCRIPTOR_SET_LAYOUT_CREATE_INFO)
+                .pBindings(bindings);
+        LongBuffer pointer = BufferUtils.createLongBuffer(1);
+        check(vkCreateDescriptorSetLayout(device, layoutInfo, null, pointer), "create culling descriptor set layout");
+        descriptorSetLayout = pointer.get(0);
+
+        VkDescriptorPoolCreateInfo poolInfo = VkDescriptorPoolCreateInfo.create()
+                .sType(VK_STRUCTURE_TYPE_DESCRIPTOR_POOL_CREATE_INFO)
+                .pPoolSizes(VkDescriptorPoolSize.create(1)
+                        .type(VK_DESCRIPTOR_TYPE_STORAGE_BUFFER)
+                        .descriptorCount(5))
+                .maxSets(1);
+        check(vkCreateDescriptorPool(device, poolInfo, null, pointer), "create culling descriptor pool");
+        descriptorPool = pointer.get(0);
+
+        VkDescriptorSetAllocateInfo allocateInfo = VkDescriptorSetAllocateInfo.create()
+                .sType(VK_STRUCTURE_TYPE_DESCRIPTOR_SET_ALLOCATE_INFO)
+                .descriptorPool(descriptorPool)
+                .pSetLayouts(BufferUtils.createLongBuffer(1).put(0, descriptorSetLayout));
+        check(vkAllocateDescriptorSets(device, allocateInfo, pointer), "allocate culling descriptor set");
+        descriptorSet = pointer.get(0);
+        descriptorSets.put(0, descriptorSet);
+
+        VkPipelineLayoutCreateInfo pipelineLayoutInfo = VkPipelineLayoutCreateInfo.create()
+                .sType(VK_STRUCTURE_TYPE_PIPELINE_LAYOUT_CREATE_INFO)
+                .pSetLayouts(BufferUtils.createLongBuffer(1).put(0, descriptorSetLayout))
+                .pPushConstantRanges(VkPushConstantRange.create(1)
+                        .stageFlags(VK_SHADER_STAGE_COMPUTE_BIT)
+                        .offset(0)
+                        .size(PUSH_CONSTANTS_SIZE));
+        check(vkCreatePipelineLayout(device, pipelineLayoutInfo, null, pointer), "create culling pipeline layout");
+        pipelineLayout = pointer.get(0);
+
+        VkComputePipelineCreateInfo.Buffer pipelineInfo = VkComputePipelineCreateInfo.create(1)
+                .sType(VK_STRUCTURE_TYPE_COMPUTE_PIPELINE_CREATE_INFO)
+                .stage(VkPipelineShaderStageCreateInfo.create()
+                        .sType(VK_STRUCTURE_TYPE_PIPELINE_SHADER_STAGE_CREATE_INFO)
+                        .stage(VK_SHADER_STAGE_COMPUTE_BIT)
+                        .module(shaderModule)
+                        .pName(memUTF8("main")))
+                .layout(pipelineLayout);
+        long time = System.nanoTime();
+        int err = vkCreateComputePipelines(device, pipelineCache, pipelineInfo, null, pointer);
+        pipelineCreationTime = System.nanoTime() - time;
+        check(err, "create culling pipeline");
+        pipeline = pointer.get(0);
+    }
+
+    /**
+     * @return nanoseconds {@code vkCreateComputePipelines} took for the culling pipeline
+     */
+    public long getPipelineCreationTime() {
+        return pipelineCreationTime;
+    }
+
+    /**
+     * @return whether {@link #reserve} would keep the current buffers
+     */
+    public boolean fits(int instances, int commands, int batches) {
+        return instances <= instanceCapacity && commands <= commandCapacity && batches <= batchCapacity;
+    }
+
+    /**
+     * Makes room for {@code instances} per frame, {@code commands} and {@code batches}; replaced buffers must not be in
+     * use by frames in flight.
+     */
+    public void reserve(int instances, int commands, int batches) {
+        if (instances > instanceCapacity) {
+            instanceCapacity = Math.max(instances, instanceCapacity * 2);
+            bounds = replace(bounds, (long) instanceCapacity * BOUNDS_SIZE * frames, VK_BUFFER_USAGE_STORAGE_BUFFER_BIT,
+                    HOST_MEMORY);
+            visible = replace(visible, (long) instanceCapacity * Scene.INSTANCE_SIZE * frames,
+                    VK_BUFFER_USAGE_STORAGE_BUFFER_BIT | VK_BUFFER_USAGE_VERTEX_BUFFER_BIT,
+                    readable ? HOST_MEMORY : VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT);
+        }
+        if (commands > commandCapacity) {
+            commandCapacity = Math.max(commands, commandCapacity * 2);
+            template = replace(template, (long) commandCapacity * COMMAND_SIZE, VK_BUFFER_USAGE_TRANSFER_SRC_BIT,
+                    HOST_MEMORY);
+            this.commands = replace(this.commands, (long) commandCapacity * COMMAND_SIZE * frames,
+                    VK_BUFFER_USAGE_STORAGE_BUFFER_BIT | VK_BUFFER_USAGE_INDIRECT_BUFFER_BIT | VK_BUFFER_USAGE_TRANSFER_DST_BIT,
+                    readable ? HOST_MEMORY : VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT);
+        }
+        if (batches > batchCapacity) {
+            batchCapacity = Math.max(batches, batchCapacity * 2);
+            this.batches = replace(this.batches, (long) batchCapacity * BATCH_SIZE, VK_BUFFER_USAGE_STORAGE_BUFFER_BIT,
+                    HOST_MEMORY);
+        }
+        updateDescriptors();
+    }
+
+    /**
+     * Sets the buffer holding the instance transforms of every frame; it must not be in use by frames in flight.
+     */
+    public void setInstances(long instanceBuffer) {
+        this.instanceBuffer = instanceBuffer;
+        updateDescriptors();
+    }
+
+    private Pair<Long, MemoryAllocation> replace(Pair<Long, MemoryAllocation> old, long size, int usage, int properties) {
+        if (old != null) {
+            vkDestroyBuffer(device, old.getKey(), null);
+            old.getValue().free();
+        }
+        return factory.createBuffer(size, usage, properties);
+    }
+
+    private void updateDescriptors() {
+        if (bounds == null || commands == null || batches == null || instanceBuffer == VK_NULL_HANDLE) {
+            return;
+        }
+        long[] buffers = {bounds.getKey(), batches.getKey(), instanceBuffer, visible.getKey(), commands.getKey()};
+        VkWriteDescriptorSet.Buffer writes = VkWriteDescriptorSet.create(buffers.length);
+        for (int binding = 0; binding < buffers.length; binding++) {
+            writes.get(binding)
+                    .sType(VK_STRUCTURE_TYPE_WRITE_DESCRIPTOR_SET)
+                    .dstSet(descriptorSet)
+                    .dstBinding(binding)
+                    .descriptorType(VK_DESCRIPTOR_TYPE_STORAGE_BUFFER)
+                    .pBufferInfo(VkDescriptorBufferInfo.create(1)
+                            .buffer(buffers[binding])
+                            .offset(0)
+                            .range(VK_WHOLE_SIZE));
+        }
+        vkUpdateDescriptorSets(device, writes, null);
+    }
+
+    /**
+     * @return bounds of the instances of {@code frame} for the host to write, {@link #BOUNDS_SIZE} bytes each, see
+     * {@link Scene#writeBounds(FloatBuffer)}
+     */
+    public FloatBuffer getBounds(int frame) {
+        return mapped(bounds, (long) frame * instanceCapacity * BOUNDS_SIZE, instanceCapacity * BOUNDS_SIZE).asFloatBuffer();
+    }
+
+    /**
+     * @return (first command, command count, first instance, unused) of every batch, for the host to write; shared by
+     * all frames
+     */
+    public IntBuffer getBatches() {
+        return mapped(batches, 0, batchCapacity * BATCH_SIZE).asIntBuffer();
+    }
+
+    /**
+     * @return commands copied to the slice of the frame before culling, instance counts 0, for the host to write; first
+     * instances are relative to the batch's range of {@link #getVisibleBuffer()}
+     */
+    public IntBuffer getTemplate() {
+        return mapped(template, 0, commandCapacity * COMMAND_SIZE).asIntBuffer();
+    }
+
+    /**
+     * Sets how many commands of the template are used.
+     */
+    public void setCommandCount(int commandCount) {
+        this.commandCount = commandCount;
+    }
+
+    private static ByteBuffer mapped(Pair<Long, MemoryAllocation> buffer, long offset, int size) {
+        return memByteBuffer(buffer.getValue().getMappedAddress() + offset, size).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Records culling {@code count} instances of {@code frame} into {@code commandBuffer}, outside a render pass: reset
+     * of the commands, dispatch, and the barriers making the results visible to indirect draws and vertex input.
+     *
+     * @param instanceBase first instance of the frame in the buffer of {@link #setInstances(long)}
+     * @param planes       six frustum planes, see {@link Bvh#frustumPlanes}
+     */
+    public void record(VkCommandBuffer commandBuffer, int frame, int count, int instanceBase, float[] planes) {
+        // the previous use of these slices has to be done reading before they are rewritten
+        vkCmdPipelineBarrier(commandBuffer, VK_PIPELINE_STAGE_DRAW_INDIRECT_BIT | VK_PIPELINE_STAGE_VERTEX_INPUT_BIT,
+                VK_PIPELINE_STAGE_TRANSFER_BIT | VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT, 0, null, null, null);
+        if (commandCount > 0) {
+            copyRegion.srcOffset(0).dstOffset(getCommandOffset(frame, 0)).size((long) commandCount * COMMAND_SIZE);
+            vkCmdCopyBuffer(commandBuffer, template.getKey(), commands.getKey(), copyRegion);
+        }
+        barrier.get(0)
+                .sType(VK_STRUCTURE_TYPE_MEMORY_BARRIER)
+                .srcAccessMask(VK_ACCESS_TRANSFER_WRITE_BIT)
+                .dstAccessMask(VK_ACCESS_SHADER_READ_BIT | VK_ACCESS_SHADER_WRITE_BIT);
+        vkCmdPipelineBarrier(commandBuffer, VK_PIPELINE_STAGE_TRANSFER_BIT, VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT, 0,
+                barrier, null, null);
+
+        if (count > 0) {
+            for (int i = 0; i < 24; i++) {
+                constants.putFloat(i * 4, planes[i]);
+            }
+            constants.putInt(96, count)
+                    .putInt(100, frame * instanceCapacity)
+                    .putInt(104, instanceBase)
+                    .putInt(108, frame * commandCapacity);
+            vkCmdBindPipeline(commandBuffer, VK_PIPELINE_BIND_POINT_COMPUTE, pipeline);
+            vkCmdBindDescriptorSets(commandBuffer, VK_PIPELINE_BIND_POINT_COMPUTE, pipelineLayout, 0, descriptorSets, null);
+            vkCmdPushConstants(commandBuffer, pipelineLayout, VK_SHADER_STAGE_COMPUTE_BIT, 0, constants);
+            vkCmdDispatch(commandBuffer, (count + GROUP_SIZE - 1) / GROUP_SIZE, 1, 1);
+        }
+
+        barrier.get(0)
+                .srcAccessMask(VK_ACCESS_SHADER_WRITE_BIT)
+                .dstAccessMask(VK_ACCESS_INDIRECT_COMMAND_READ_BIT | VK_ACCESS_VERTEX_ATTRIBUTE_READ_BIT
+                        | (readable ? VK_ACCESS_HOST_READ_BIT : 0));
+        vkCmdPipelineBarrier(commandBuffer, VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT,
+                VK_PIPELINE_STAGE_DRAW_INDIRECT_BIT | VK_PIPELINE_STAGE_VERTEX_INPUT_BIT
+                        | (readable ? VK_PIPELINE_STAGE_HOST_BIT : 0), 0, barrier, null, null);
+    }
+
+    /**
+     * @return buffer of the compacted instance transforms, to bind as per instance vertex data
+     */
+    public long getVisibleBuffer() {
+        return visible.getKey();
+    }
+
+    /**
+     * @return byte offset of the compacted instances of {@code frame} in {@link #getVisibleBuffer()}
+     */
+    public long getVisibleOffset(int frame) {
+        return (long) frame * instanceCapacity * Scene.INSTANCE_SIZE;
+    }
+
+    public long getCommandBuffer() {
+        return commands.getKey();
+    }
+
+    /**
+     * @return byte offset of {@code command} of {@code frame} in {@link #getCommandBuffer()}
+     */
+    public long getCommandOffset(int frame, int command) {
+        return ((long) frame * commandCapacity + command) * COMMAND_SIZE;
+    }
+
+    /**
+     * The culling kernel on the CPU, with the buffer layouts of the shader and every index relative to the given
+     * buffers: tests the {@code count} boxes of {@code bounds} against {@code planes}, appends the transforms of
+     * visible instances to their batch's range of {@code visible} and counts them in {@code commands}. Invocations
+     * run in instance order, so a batch lists its instances in order, unlike on the GPU.
+     */
+    public static void cull(FloatBuffer bounds, IntBuffer batches, FloatBuffer instances, float[] planes, int count,
+                            IntBuffer commands, FloatBuffer visible) {
+        for (int i = 0; i < count; i++) {
+            int b = i * 8;
+            float cx = (bounds.get(b) + bounds.get(b + 4)) * 0.5f, ex = (bounds.get(b + 4) - bounds.get(b)) * 0.5f;
+            float cy = (bounds.get(b + 1) + bounds.get(b + 5)) * 0.5f, ey = (bounds.get(b + 5) - bounds.get(b + 1)) * 0.5f;
+            float cz = (bounds.get(b + 2) + bounds.get(b + 6)) * 0.5f, ez = (bounds.get(b + 6) - bounds.get(b + 2)) * 0.5f;
+            boolean inside = true;
+            for (int p = 0; p < 24 && inside; p += 4) {
+                float a = planes[p], pb = planes[p + 1], c = planes[p + 2];
+                inside = a * cx + pb * cy + c * cz + planes[p + 3] + Math.abs(a) * ex + Math.abs(pb) * ey + Math.abs(c) * ez >= 0;
+            }
+            if (!inside) {
+                continue;
+            }
+            int batch = Float.floatToRawIntBits(bounds.get(b + 3)) * 4;
+            int command = batches.get(batch);
+            int slot = commands.get(command * 5 + 1);
+            commands.put(command * 5 + 1, slot + 1);
+            for (int s = 1; s < batches.get(batch + 1); s++) {
+                int at = (command + s) * 5 + 1;
+                commands.put(at, Math.max(commands.get(at), slot + 1));
+            }
+            int target = (batches.get(batch + 2) + slot) * 12;
+            for (int k = 0; k < 12; k++) {
+                visible.put(target + k, instances.get(i * 12 + k));
+            }
+        }
+    }
+
+    /**
+     * Compares what the GPU wrote for {@code frame}, which must have completed, with {@link #cull} over the same
+     * inputs. Instance order within a batch is not compared, the GPU hands out slots in any order.
+     *
+     * @param instances the frame's instance transforms, 12 floats each
+     * @return number of commands and batches that differ
+     */
+    public int check(int frame, FloatBuffer instances, int count, int batchCount, float[] planes) {
+        if (!readable) {
+            throw new IllegalStateException("Culling results are not host visible");
+        }
+        IntBuffer template = getTemplate();
+        template.limit(commandCount * 5);
+        IntBuffer expectedCommands = BufferUtils.createIntBuffer(commandCount * 5).put(template);
+        expectedCommands.flip();
+        FloatBuffer expectedVisible = BufferUtils.createFloatBuffer(instanceCapacity * 12);
+        cull(getBounds(frame), getBatches(), instances, planes, count, expectedCommands, expectedVisible);
+
+        IntBuffer actualCommands = mapped(commands, getCommandOffset(frame, 0), commandCount * COMMAND_SIZE).asIntBuffer();
+        FloatBuffer actualVisible = mapped(visible, getVisibleOffset(frame), instanceCapacity * Scene.INSTANCE_SIZE).asFloatBuffer();
+        int errors = 0;
+        for (int command = 0; command < commandCount; command++) {
+            for (int k = 0; k < 5; k++) {
+                if (actualCommands.get(command * 5 + k) != expectedCommands.get(command * 5 + k)) {
+                    errors++;
+                    break;
+                }
+            }
+        }
+        IntBuffer batches = getBatches();
+        for (int batch = 0; batch < batchCount; batch++) {
+            int first = batches.get(batch * 4 + 2);
+            int visibleCount = expectedCommands.get(batches.get(batch * 4) * 5 + 1);
+            if (!Arrays.equals(fingerprints(expectedVisible, first, visibleCount), fingerprints(actualVisible, first, visibleCount))) {
+                errors++;
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * @return sorted hashes of the transforms {@code first} to {@code first + count}
+     */
+    private static long[] fingerprints(FloatBuffer transforms, int first, int count) {
+        long[] hashes = new long[count];
+        for (int i = 0; i < count; i++) {
+            long hash = 1125899906842597L;
+            for (int k = 0; k < 12; k++) {
+                hash = 31 * hash + Float.floatToRawIntBits(transforms.get((first + i) * 12 + k));
+            }
+            hashes[i] = hash;
+        }
+        Arrays.sort(hashes);
+        return hashes;
+    }
+
+    public void destroy() {
+        for (Pair<Long, MemoryAllocation> buffer : Arrays.asList(bounds, batches, template, visible, commands)) {
+            if (buffer != null) {
+                vkDestroyBuffer(device, buffer.getKey(), null);
+                buffer.getValue().free();
+            }
+        }
+        vkDestroyPipeline(device, pipeline, null);
+        vkDestroyPipelineLayout(device, pipelineLayout, null);
+        vkDestroyDescriptorPool(device, descriptorPool, null);
+        vkDestroyDescriptorSetLayout(device, descriptorSetLayout, null);
+    }
+
+    private static void check(int err, String action) {
+        if (err != VK_SUCCESS) {
+            throw new RuntimeException("Failed to " + action + ": " + translateVulkanResult(err));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package pl.marconzet.engine;
+
+import java.util.Arrays;
+
+/**
+ * Growable {@code int[]} used instead of {@code List<Integer>} on hot loading paths.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class IntList {
+    private int[] data;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(int capacity) {
+        data = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Wraps {@code data} without copying; the list starts full.
+     */
+    public IntList(int[] data) {
+        this.data = data;
+        this.size = data.length;
+    }
+
+    public void add(int value) {
+        if (size == data.length) {
+            grow(size + 1);
+        }
+        data[size++] = value;
+    }
+
+    public void add(int a, int b, int c) {
+        if (size + 3 > data.length) {
+            grow(size + 3);
+        }
+        data[size++] = a;
+        data[size++] = b;
+        data[size++] = c;
+    }
+
+    public void addAll(IntList other) {
+        if (size + other.size > data.length) {
+            grow(size + other.size);
+        }
+        System.arraycopy(other.data, 0, data, size, other.size);
+        size += other.size;
+    }
+
+    public void insert(int index, int value) {
+        if (size == data.length) {
+            grow(size + 1);
+        }
+        System.arraycopy(data, index, data, index + 1, size - index);
+        data[index] = value;
+        size++;
+    }
+
+    public void remove(int index) {
+        System.arraycopy(data, index + 1, data, index, size - index - 1);
+        size--;
+    }
+
+    public int get(int index) {
+        return data[index];
+    }
+
+    public void set(int index, int value) {
+        data[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Drops the values from {@code size} on.
+     */
+    public void truncate(int size) {
+        this.size = Math.min(this.size, size);
+    }
+
+    /**
+     * @return the backing array, valid up to {@link #size()}
+     */
+    public int[] array() {
+        return data;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    private void grow(int minCapacity) {
+        data = Arrays.copyOf(data, Math.max(minCapacity, data.length + (data.length >> 1)));
+    }
+}
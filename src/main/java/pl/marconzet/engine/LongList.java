@@ -0,0 +1,67 @@
+package pl.marconzet.engine;
+
+import java.util.Arrays;
+
+/**
+ * Growable {@code long[]}, the {@code long} counterpart of {@link IntList}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class LongList {
+    private long[] data;
+    private int size;
+
+    public LongList() {
+        this(16);
+    }
+
+    public LongList(int capacity) {
+        data = new long[Math.max(capacity, 1)];
+    }
+
+    public void add(long value) {
+        if (size == data.length) {
+            grow(size + 1);
+        }
+        data[size++] = value;
+    }
+
+    public void insert(int index, long value) {
+        if (size == data.length) {
+            grow(size + 1);
+        }
+        System.arraycopy(data, index, data, index + 1, size - index);
+        data[index] = value;
+        size++;
+    }
+
+    public void remove(int index) {
+        System.arraycopy(data, index + 1, data, index, size - index - 1);
+        size--;
+    }
+
+    public long get(int index) {
+        return data[index];
+    }
+
+    public void set(int index, long value) {
+        data[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    private void grow(int minCapacity) {
+        data = Arrays.copyOf(data, Math.max(minCapacity, data.length + (data.length >> 1)));
+    }
+}
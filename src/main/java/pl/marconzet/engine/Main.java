@@ -27,13 +27,14 @@ public class Main {
 
     public static void main(String[] args) {
         HelloTriangleApplication application = new HelloTriangleApplication();
-        application.model = ObjFile.read(Main.class.getResourceAsStream("dragon.obj"), true).toModel();
-        //application.model = new Model(vQuad, tQuad, iQuad, 4);
 
         application.textureName = "jp2.png";
         //application.textureName  = "polishFlag.png";
 
+        application.modelName = "dragon.obj";
+
         try {
+            //application.model = new Model(vQuad, tQuad, iQuad, 4);
             application.run();
         } catch (Exception e){
             e.printStackTrace();
@@ -0,0 +1,63 @@
+package pl.marconzet.engine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * What a draw samples: a slot of the {@link TextureTable} and the part of that texture covered by texture coordinates
+ * 0 to 1, the whole texture or a {@link TextureAtlas.Region}. Passed to the fragment shader as push constants at
+ * {@link #OFFSET}, laid out as {@code vec4 uvTransform} (scale, offset) followed by {@code uint textureIndex}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class Material {
+    public static final int SIZE = 5 * 4;
+    /**
+     * Push constant offset, after the per mesh position transform of the vertex stage.
+     */
+    public static final int OFFSET = 12 * 4;
+
+    private final int texture;
+    private final float scaleU;
+    private final float scaleV;
+    private final float offsetU;
+    private final float offsetV;
+
+    public Material(int texture) {
+        this(texture, 1, 1, 0, 0);
+    }
+
+    public Material(int texture, TextureAtlas.Region region) {
+        this(texture, region.getScaleU(), region.getScaleV(), region.getOffsetU(), region.getOffsetV());
+    }
+
+    private Material(int texture, float scaleU, float scaleV, float offsetU, float offsetV) {
+        this.texture = texture;
+        this.scaleU = scaleU;
+        this.scaleV = scaleV;
+        this.offsetU = offsetU;
+        this.offsetV = offsetV;
+    }
+
+    /**
+     * @return this material sampling slot {@code texture} instead, over the same part of it
+     */
+    public Material withTexture(int texture) {
+        return new Material(texture, scaleU, scaleV, offsetU, offsetV);
+    }
+
+    /**
+     * Writes the push constants at index 0 of {@code buffer}.
+     */
+    public void write(ByteBuffer buffer) {
+        buffer.putFloat(0, scaleU)
+                .putFloat(4, scaleV)
+                .putFloat(8, offsetU)
+                .putFloat(12, offsetV)
+                .putInt(16, texture);
+    }
+
+    public int getTexture() {
+        return texture;
+    }
+}
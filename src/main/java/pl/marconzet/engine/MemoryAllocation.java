@@ -0,0 +1,56 @@
+package pl.marconzet.engine;
+
+/**
+ * A range of a device memory block handed out by {@link MemoryAllocator}. Resources are bound at
+ * ({@link #getMemory()}, {@link #getOffset()}).
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MemoryAllocation {
+    final MemoryAllocator.Block block;
+    private final long offset;
+    private final long size;
+    private boolean freed;
+
+    MemoryAllocation(MemoryAllocator.Block block, long offset, long size) {
+        this.block = block;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    public long getMemory() {
+        return block.memory;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getMemoryType() {
+        return block.memoryType;
+    }
+
+    /**
+     * @return host address of the first byte, 0 unless the memory type is host visible
+     */
+    public long getMappedAddress() {
+        return block.mappedAddress == 0 ? 0 : block.mappedAddress + offset;
+    }
+
+    /**
+     * Returns the range to its block; throws {@link IllegalStateException} when called twice, even if the range was
+     * handed out again in between.
+     */
+    public void free() {
+        if (freed) {
+            throw new IllegalStateException("Double free at offset " + offset);
+        }
+        freed = true;
+        block.allocator.free(this);
+    }
+}
@@ -0,0 +1,291 @@
+package pl.marconzet.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.vulkan.VK10.VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT;
+
+/**
+ * Sub-allocates resources from large device memory blocks, one list of blocks per memory type, instead of one
+ * {@code vkAllocateMemory} per resource. Every block keeps an offset-ordered list of free and used ranges; allocation
+ * takes the best fitting free range, freeing merges neighbouring free ranges.
+ * <p>
+ * Linear resources (buffers, linear images) and optimal images never share a {@code bufferImageGranularity} page.
+ * Requests larger than half a block get a dedicated block. Host visible blocks are mapped once for their lifetime.
+ * Empty blocks are returned to the backend, except the last one of each memory type.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MemoryAllocator {
+    public static final long DEFAULT_BLOCK_SIZE = 64L << 20;
+
+    private static final int FREE = 0;
+    private static final int LINEAR = 1;
+    private static final int OPTIMAL = 2;
+
+    private final MemoryBackend backend;
+    private final int[] memoryTypeFlags;
+    private final long granularity;
+    private final long blockSize;
+    private final List<List<Block>> blocks = new ArrayList<>();
+
+    /**
+     * @param memoryTypeFlags {@code propertyFlags} of every memory type of the device
+     */
+    public MemoryAllocator(MemoryBackend backend, int[] memoryTypeFlags, long bufferImageGranularity, long blockSize) {
+        this.backend = backend;
+        this.memoryTypeFlags = memoryTypeFlags;
+        this.granularity = Math.max(bufferImageGranularity, 1);
+        this.blockSize = blockSize;
+        for (int i = 0; i < memoryTypeFlags.length; i++) {
+            blocks.add(new ArrayList<>());
+        }
+    }
+
+    public int findMemoryType(int typeFilter, int properties) {
+        for (int i = 0; i < memoryTypeFlags.length; i++) {
+            if ((typeFilter & (1 << i)) != 0 && (memoryTypeFlags[i] & properties) == properties) {
+                return i;
+            }
+        }
+        throw new RuntimeException("Failed to find suitable memory type");
+    }
+
+    /**
+     * @param memoryTypeBits {@code VkMemoryRequirements.memoryTypeBits} of the resource
+     * @param properties     required memory property flags
+     * @param linear         whether the resource is a buffer or linear image rather than an optimal image
+     */
+    public synchronized MemoryAllocation allocate(long size, long alignment, int memoryTypeBits, int properties, boolean linear) {
+        int memoryType = findMemoryType(memoryTypeBits, properties);
+        int kind = linear ? LINEAR : OPTIMAL;
+        alignment = Math.max(alignment, 1);
+        if (size > blockSize / 2) {
+            Block block = createBlock(memoryType, size, true);
+            return block.allocate(size, alignment, kind);
+        }
+        for (Block block : blocks.get(memoryType)) {
+            MemoryAllocation allocation = block.allocate(size, alignment, kind);
+            if (allocation != null) {
+                return allocation;
+            }
+        }
+        return createBlock(memoryType, blockSize, false).allocate(size, alignment, kind);
+    }
+
+    synchronized void free(MemoryAllocation allocation) {
+        Block block = allocation.block;
+        block.free(allocation.getOffset());
+        if (block.allocationCount == 0) {
+            List<Block> list = blocks.get(block.memoryType);
+            int emptyBlocks = 0;
+            for (Block other : list) {
+                if (other.allocationCount == 0 && !other.dedicated) emptyBlocks++;
+            }
+            if (block.dedicated || emptyBlocks > 1) {
+                list.remove(block);
+                backend.free(block.memory);
+            }
+        }
+    }
+
+    /**
+     * Frees every block, allocations still in use included.
+     */
+    public synchronized void destroy() {
+        for (List<Block> list : blocks) {
+            for (Block block : list) {
+                backend.free(block.memory);
+            }
+            list.clear();
+        }
+    }
+
+    private Block createBlock(int memoryType, long size, boolean dedicated) {
+        long memory = backend.allocate(memoryType, size);
+        long mapped = 0;
+        if ((memoryTypeFlags[memoryType] & VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT) != 0) {
+            mapped = backend.map(memory, size);
+        }
+        Block block = new Block(this, memoryType, memory, size, mapped, dedicated);
+        blocks.get(memoryType).add(block);
+        return block;
+    }
+
+    public synchronized int getBlockCount() {
+        int count = 0;
+        for (List<Block> list : blocks) {
+            count += list.size();
+        }
+        return count;
+    }
+
+    public synchronized int getAllocationCount() {
+        int count = 0;
+        for (List<Block> list : blocks) {
+            for (Block block : list) {
+                count += block.allocationCount;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return per memory type: blocks, reserved and used bytes, allocations, free ranges, largest free range and
+     * external fragmentation, i.e. 1 - largest free range / free bytes
+     */
+    public synchronized String getStatistics() {
+        StringBuilder builder = new StringBuilder();
+        for (int type = 0; type < blocks.size(); type++) {
+            List<Block> list = blocks.get(type);
+            if (list.isEmpty()) continue;
+            long reserved = 0, used = 0, largestFree = 0;
+            int allocations = 0, freeRanges = 0;
+            for (Block block : list) {
+                reserved += block.size;
+                used += block.usedBytes;
+                allocations += block.allocationCount;
+                for (int i = 0; i < block.kinds.size(); i++) {
+                    if (block.kinds.get(i) == FREE) {
+                        freeRanges++;
+                        largestFree = Math.max(largestFree, block.sizes.get(i));
+                    }
+                }
+            }
+            long free = reserved - used;
+            builder.append(String.format("memory type %d: %d blocks, %.2f / %.2f MB used, %d allocations, " +
+                            "%d free ranges, largest %.2f MB, fragmentation %.1f%%%n",
+                    type, list.size(), used / 1048576.0, reserved / 1048576.0, allocations,
+                    freeRanges, largestFree / 1048576.0, free == 0 ? 0 : 100.0 * (1 - (double) largestFree / free)));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * One device memory block, split into offset-ordered ranges stored as parallel lists.
+     */
+    static class Block {
+        final MemoryAllocator allocator;
+        final int memoryType;
+        final long memory;
+        final long size;
+        final long mappedAddress;
+        final boolean dedicated;
+        final LongList offsets = new LongList();
+        final LongList sizes = new LongList();
+        final IntList kinds = new IntList();
+        int allocationCount;
+        long usedBytes;
+
+        Block(MemoryAllocator allocator, int memoryType, long memory, long size, long mappedAddress, boolean dedicated) {
+            this.allocator = allocator;
+            this.memoryType = memoryType;
+            this.memory = memory;
+            this.size = size;
+            this.mappedAddress = mappedAddress;
+            this.dedicated = dedicated;
+            offsets.add(0);
+            sizes.add(size);
+            kinds.add(FREE);
+        }
+
+        MemoryAllocation allocate(long size, long alignment, int kind) {
+            long granularity = allocator.granularity;
+            int best = -1;
+            long bestStart = 0, bestSize = Long.MAX_VALUE;
+            for (int i = 0; i < kinds.size(); i++) {
+                long rangeSize = sizes.get(i);
+                if (kinds.get(i) != FREE || rangeSize < size || rangeSize >= bestSize) continue;
+                long rangeStart = offsets.get(i);
+                long start = alignUp(rangeStart, alignment);
+                if (i > 0 && conflicts(kinds.get(i - 1), kind)
+                        && samePage(offsets.get(i - 1) + sizes.get(i - 1) - 1, start, granularity)) {
+                    start = alignUp(start, granularity);
+                }
+                long end = start + size;
+                if (end > rangeStart + rangeSize) continue;
+                if (i + 1 < kinds.size() && conflicts(kind, kinds.get(i + 1))
+                        && samePage(end - 1, offsets.get(i + 1), granularity)) continue;
+                best = i;
+                bestStart = start;
+                bestSize = rangeSize;
+            }
+            if (best < 0) {
+                return null;
+            }
+
+            long rangeStart = offsets.get(best);
+            long rangeEnd = rangeStart + sizes.get(best);
+            int at = best;
+            if (bestStart > rangeStart) {
+                sizes.set(at, bestStart - rangeStart);
+                at++;
+                insert(at, bestStart, size, kind);
+            } else {
+                sizes.set(at, size);
+                kinds.set(at, kind);
+            }
+            if (bestStart + size < rangeEnd) {
+                insert(at + 1, bestStart + size, rangeEnd - bestStart - size, FREE);
+            }
+            allocationCount++;
+            usedBytes += size;
+            return new MemoryAllocation(this, bestStart, size);
+        }
+
+        void free(long offset) {
+            int i = find(offset);
+            if (i < 0 || kinds.get(i) == FREE) {
+                throw new IllegalStateException("Double free at offset " + offset);
+            }
+            allocationCount--;
+            usedBytes -= sizes.get(i);
+            kinds.set(i, FREE);
+            if (i + 1 < kinds.size() && kinds.get(i + 1) == FREE) {
+                sizes.set(i, sizes.get(i) + sizes.get(i + 1));
+                remove(i + 1);
+            }
+            if (i > 0 && kinds.get(i - 1) == FREE) {
+                sizes.set(i - 1, sizes.get(i - 1) + sizes.get(i));
+                remove(i);
+            }
+        }
+
+        private int find(long offset) {
+            int low = 0, high = offsets.size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long value = offsets.get(middle);
+                if (value < offset) low = middle + 1;
+                else if (value > offset) high = middle - 1;
+                else return middle;
+            }
+            return -1;
+        }
+
+        private void insert(int index, long offset, long size, int kind) {
+            offsets.insert(index, offset);
+            sizes.insert(index, size);
+            kinds.insert(index, kind);
+        }
+
+        private void remove(int index) {
+            offsets.remove(index);
+            sizes.remove(index);
+            kinds.remove(index);
+        }
+
+        private static boolean conflicts(int a, int b) {
+            return a != FREE && b != FREE && a != b;
+        }
+
+        private static boolean samePage(long a, long b, long page) {
+            return a / page == b / page;
+        }
+
+        private static long alignUp(long value, long alignment) {
+            return (value + alignment - 1) / alignment * alignment;
+        }
+    }
+}
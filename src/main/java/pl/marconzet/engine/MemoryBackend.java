@@ -0,0 +1,24 @@
+package pl.marconzet.engine;
+
+/**
+ * Source of device memory blocks for {@link MemoryAllocator}, see {@link VulkanMemoryBackend}; the tests use a CPU
+ * only one.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public interface MemoryBackend {
+    /**
+     * @return handle of a new block of {@code size} bytes of memory type {@code memoryTypeIndex}
+     */
+    long allocate(int memoryTypeIndex, long size);
+
+    void free(long memory);
+
+    /**
+     * Maps the whole block, which stays mapped until it is freed.
+     *
+     * @return host address of the first byte
+     */
+    long map(long memory, long size);
+}
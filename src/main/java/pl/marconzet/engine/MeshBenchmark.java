@@ -0,0 +1,488 @@
+package pl.marconzet.engine;
+
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.lwjgl.BufferUtils;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static pl.marconzet.engine.Benchmark.ITERATIONS;
+import static pl.marconzet.engine.Benchmark.WARMUP;
+import static pl.marconzet.engine.Benchmark.report;
+import static pl.marconzet.engine.Benchmark.start;
+import static pl.marconzet.engine.Benchmark.stop;
+
+/**
+ * Benchmarks of loading and processing meshes: parsing, welding, optimization, vertex formats, levels of detail and
+ * meshlets, see {@link Benchmark}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+class MeshBenchmark {
+    static void obj(Path path) throws IOException {
+        double megabytes = Files.size(path) / (1024.0 * 1024.0);
+
+        Model reference = null;
+        long[] stats = new long[2];
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            try (InputStream in = new FileInputStream(path.toFile())) {
+                reference = ObjFile.read(in, true).toModel();
+            }
+        }
+        stop(stats);
+        report("ObjFile", megabytes, stats);
+
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            ObjParser.read(path);
+        }
+        stop(stats);
+        report("ObjParser parse", megabytes, stats);
+
+        Model model = null;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            model = ObjParser.read(path).toModel(true);
+        }
+        stop(stats);
+        report("ObjParser", megabytes, stats);
+
+        System.out.println("identical output: " + (reference.vertices.equals(model.vertices) && reference.indices.equals(model.indices)));
+    }
+
+    static void objParallel(Path path) throws IOException {
+        double megabytes = Files.size(path) / (1024.0 * 1024.0);
+        long[] stats = new long[2];
+        ObjData reference = null;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            reference = ObjParser.read(path);
+        }
+        stop(stats);
+        report("serial", megabytes, stats);
+        double serial = stats[0];
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(threads * 2, cores) : cores + 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            ObjData data = null;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                    if (i == WARMUP) start(stats);
+                    data = ObjParser.readParallel(buffer, pool);
+                }
+                stop(stats);
+            }
+            pool.shutdown();
+            report(threads + " threads", megabytes, stats);
+            System.out.printf("    speedup %.2fx, identical: %b%n", serial / stats[0], identical(reference, data));
+        }
+    }
+
+    /**
+     * Vertex counts of the slot reuse of {@link ObjData#toModel(boolean)} against welding, compared on the same
+     * attributes: once on position and texture coordinates, the key of slot reuse, and once with normals as well,
+     * the key of {@link ObjData#toWeldedModel(VertexFormat)}.
+     */
+    static void weld(Path path) throws IOException {
+        ObjData data = ObjParser.read(path);
+        int corners = data.getTriangleCount() * 3;
+        System.out.printf("%s: %d positions, %d corners%n", path.getFileName(), data.getPositionCount(), corners);
+        int noReuse = data.toModel(false).getVertexCount();
+        System.out.println("  position, uv");
+        reportWeld(noReuse, data.toModel(true).getVertexCount(), weldedCount(data, false));
+        System.out.println("  position, uv, normal");
+        reportWeld(noReuse, slotReuseCount(data), weldedCount(data, true));
+    }
+
+    private static void reportWeld(int noReuse, int slotReuse, int welded) {
+        int stride = VertexFormat.FLOAT.getStride();
+        for (int i = 0; i < 2; i++) {
+            int vertices = i == 0 ? noReuse : slotReuse;
+            int saved = vertices - welded;
+            System.out.printf("    %-12s %10d vertices, welding removes %d (%.1f%%), %.2f MB of vertex memory%n",
+                    i == 0 ? "no reuse" : "slot reuse", vertices, saved, 100.0 * saved / vertices,
+                    (double) saved * stride / (1024 * 1024));
+        }
+        System.out.printf("    %-12s %10d vertices%n", "welded", welded);
+    }
+
+    /**
+     * @return vertices of {@link ObjData#toModel(boolean)} with smooth slot reuse if slots also kept their normal
+     */
+    private static int slotReuseCount(ObjData data) {
+        float[] texCoord = data.texCoords.array();
+        float[] normal = data.normals.array();
+        int[] face = data.faces.array();
+        int positionCount = data.getPositionCount();
+        boolean[] used = new boolean[positionCount];
+        float[] slots = new float[positionCount * 5];
+        float[] corner = new float[5];
+        int appended = 0;
+        for (int i = 0; i < data.faces.size() / 3; i++) {
+            int pointer = face[i * 3] - 1;
+            int t = face[i * 3 + 1] - 1;
+            int n = face[i * 3 + 2] - 1;
+            corner[0] = t >= 0 ? texCoord[t * 2] : 0;
+            corner[1] = t >= 0 ? texCoord[t * 2 + 1] : 0;
+            for (int k = 0; k < 3; k++) {
+                corner[2 + k] = n >= 0 ? normal[n * 3 + k] : 0;
+            }
+            if (!used[pointer]) {
+                used[pointer] = true;
+                System.arraycopy(corner, 0, slots, pointer * 5, 5);
+            } else {
+                for (int k = 0; k < 5; k++) {
+                    if (slots[pointer * 5 + k] != corner[k]) {
+                        appended++;
+                        break;
+                    }
+                }
+            }
+        }
+        return positionCount + appended;
+    }
+
+    /**
+     * @return distinct (v, vt) or, with {@code normals}, (v, vt, vn) triples of the faces
+     */
+    private static int weldedCount(ObjData data, boolean normals) {
+        int[] face = data.faces.array();
+        int cornerCount = data.faces.size() / 3;
+        VertexWelder welder = new VertexWelder(Math.max(data.getPositionCount(), cornerCount / 6));
+        for (int i = 0; i < cornerCount; i++) {
+            welder.weld(face[i * 3], face[i * 3 + 1], normals ? face[i * 3 + 2] : 0);
+        }
+        return welder.size();
+    }
+
+    static void optimize(Path path) throws IOException {
+        Model model = ObjParser.read(path).toWeldedModel();
+        for (int cacheSize : new int[]{8, 16, 32}) {
+            Model copy = new Model(model.vertices.duplicate(), model.indices.duplicate(), model.getFormat(),
+                    model.getBounds(), model.getIndexType(), model.getSubmeshes());
+            long time = System.nanoTime();
+            String report = copy.optimize(cacheSize);
+            System.out.printf("%s (%.1f ms)%n", report, (System.nanoTime() - time) / 1e6);
+        }
+    }
+
+    /**
+     * {@link Model#generateLods} on one thread and on the common pool, the mesh cache round trip of the levels, and the
+     * levels {@link Scene#cull(Matrix4fc, float)} picks for copies of the mesh at growing distances.
+     */
+    static void lod(Path path) throws IOException {
+        Model model = ObjParser.readParallel(path).toWeldedModel();
+        float[] bounds = model.getBounds();
+        float diagonal = (float) Math.sqrt((bounds[3] - bounds[0]) * (bounds[3] - bounds[0])
+                + (bounds[4] - bounds[1]) * (bounds[4] - bounds[1]) + (bounds[5] - bounds[2]) * (bounds[5] - bounds[2]));
+        Model sequential = null;
+        Model parallel = null;
+        long sequentialTime = 0, parallelTime = 0;
+        ForkJoinPool single = new ForkJoinPool(1);
+        for (int i = 0; i < 2; i++) {
+            sequential = new Model(model.vertices.duplicate(), model.indices.duplicate(), model.getFormat(),
+                    bounds, model.getIndexType(), model.getSubmeshes());
+            long time = System.nanoTime();
+            sequential.generateLods(4, single);
+            sequentialTime = System.nanoTime() - time;
+            parallel = new Model(model.vertices.duplicate(), model.indices.duplicate(), model.getFormat(),
+                    bounds, model.getIndexType(), model.getSubmeshes());
+            time = System.nanoTime();
+            parallel.generateLods(4, ForkJoinPool.commonPool());
+            parallelTime = System.nanoTime() - time;
+        }
+        single.shutdown();
+        int errors = sequential.indices.equals(parallel.indices) ? 0 : 1;
+        for (int lod = 0; lod < parallel.getLodCount(); lod++) {
+            System.out.printf("  lod %d: %9d triangles in %d submeshes, error %.5f (%.4f%% of the diagonal)%n",
+                    lod, parallel.getLodIndexLength(lod) / 3, parallel.getSubmeshes(lod).length / 3,
+                    parallel.getLodError(lod), 100 * parallel.getLodError(lod) / diagonal);
+        }
+        System.out.printf("simplified in %.1f ms on 1 thread, %.1f ms on %d threads%n",
+                sequentialTime / 1e6, parallelTime / 1e6, ForkJoinPool.commonPool().getParallelism());
+
+        Path cache = Files.createTempFile("lods", ".mesh");
+        MeshCache.write(parallel, cache, path, 0);
+        Model cached = MeshCache.read(cache, path, 0, parallel.getFormat());
+        boolean verified = MeshCache.verify(cache);
+        Files.delete(cache);
+        if (cached == null || !verified || cached.getLodCount() != parallel.getLodCount() || !cached.indices.equals(parallel.indices)) {
+            errors++;
+        } else {
+            for (int lod = 0; lod < cached.getLodCount(); lod++) {
+                if (!Arrays.equals(cached.getSubmeshes(lod), parallel.getSubmeshes(lod))
+                        || cached.getLodError(lod) != parallel.getLodError(lod)) {
+                    errors++;
+                }
+            }
+        }
+
+        Scene scene = new Scene();
+        scene.addMesh(parallel);
+        Matrix4f transform = new Matrix4f();
+        for (int i = 1; i <= 200; i++) {
+            scene.add(0, transform.translation(0f, 0f, i * i * diagonal / 400));
+        }
+        Matrix4f viewProjection = new Matrix4f().perspective((float) Math.toRadians(60), 16f / 9f, 0.1f, 1e9f, true)
+                .lookAt(0, 0, -diagonal / 2, 0, 0, 1, 0, 1, 0);
+        IntList batches = scene.cull(viewProjection, 2f / 1080);
+        StringBuilder picked = new StringBuilder();
+        for (int b = 0; b < batches.size(); b += 4) {
+            picked.append(String.format(" lod %d: %d,", batches.get(b + 1), batches.get(b + 3)));
+        }
+        System.out.printf("objects at 1080p, 1 pixel of error:%s cache round trip errors: %d%n", picked, errors);
+    }
+
+    /**
+     * Partitions the mesh into meshlets on one and on all threads, checks the limits and that the triangles are only
+     * reordered, and culls them from cameras around the mesh, every cone culled meshlet checked to face away.
+     */
+    static void meshlets(Path path) throws IOException {
+        Model model = ObjParser.readParallel(path).toWeldedModel();
+        model.optimize(VertexCacheSimulator.DEFAULT_CACHE_SIZE);
+        float[] bounds = model.getBounds();
+        Model sequential = null;
+        Model parallel = null;
+        String stats = null;
+        long sequentialTime = 0, parallelTime = 0;
+        ForkJoinPool single = new ForkJoinPool(1);
+        for (int i = 0; i < WARMUP + 1; i++) {
+            sequential = new Model(model.vertices.duplicate(), model.indices.duplicate(), model.getFormat(),
+                    bounds, model.getIndexType(), model.getSubmeshes());
+            long time = System.nanoTime();
+            sequential.buildMeshlets(single);
+            sequentialTime = System.nanoTime() - time;
+            parallel = new Model(model.vertices.duplicate(), model.indices.duplicate(), model.getFormat(),
+                    bounds, model.getIndexType(), model.getSubmeshes());
+            time = System.nanoTime();
+            stats = parallel.buildMeshlets(ForkJoinPool.commonPool());
+            parallelTime = System.nanoTime() - time;
+        }
+        single.shutdown();
+        System.out.println(stats);
+        System.out.printf("built in %.1f ms on 1 thread, %.1f ms on %d threads%n",
+                sequentialTime / 1e6, parallelTime / 1e6, ForkJoinPool.commonPool().getParallelism());
+
+        int errors = sequential.indices.equals(parallel.indices) ? 0 : 1;
+        int[] meshlets = parallel.getMeshlets();
+        int[] indices = parallel.getIndices();
+        int[] seen = new int[parallel.getVertexCount()];
+        for (int m = 0; m < meshlets.length; m += 4) {
+            int vertices = 0;
+            for (int i = meshlets[m]; i < meshlets[m] + meshlets[m + 1]; i++) {
+                if (seen[indices[i]] != m + 1) {
+                    seen[indices[i]] = m + 1;
+                    vertices++;
+                }
+            }
+            if (vertices != meshlets[m + 3] || vertices > MeshletBuilder.MAX_VERTICES
+                    || meshlets[m + 1] > MeshletBuilder.MAX_TRIANGLES * 3) {
+                errors++;
+            }
+        }
+        if (!Arrays.equals(sortedTriangles(model.getIndices()), sortedTriangles(indices))) {
+            errors++;
+        }
+
+        Path cache = Files.createTempFile("meshlets", ".mesh");
+        MeshCache.write(parallel, cache, path, 0);
+        Model cached = MeshCache.read(cache, path, 0, parallel.getFormat());
+        boolean verified = MeshCache.verify(cache);
+        Files.delete(cache);
+        if (cached == null || !verified || !Arrays.equals(cached.getMeshlets(), meshlets)
+                || !Arrays.equals(cached.getMeshletBounds(), parallel.getMeshletBounds())) {
+            errors++;
+        }
+
+        float[] positions = parallel.getPositions();
+        float[] meshletBounds = parallel.getMeshletBounds();
+        float cx = (bounds[0] + bounds[3]) / 2, cy = (bounds[1] + bounds[4]) / 2, cz = (bounds[2] + bounds[5]) / 2;
+        float diagonal = (float) Math.sqrt((bounds[3] - bounds[0]) * (bounds[3] - bounds[0])
+                + (bounds[4] - bounds[1]) * (bounds[4] - bounds[1]) + (bounds[5] - bounds[2]) * (bounds[5] - bounds[2]));
+        Random random = new Random(24);
+        Matrix4f viewProjection = new Matrix4f();
+        float[] planes = new float[24];
+        float[] camera = new float[3];
+        IntList ranges = new IntList();
+        int views = 20;
+        long frustumVisible = 0, coneVisible = 0, draws = 0, cullTime = 0;
+        for (int view = 0; view < WARMUP + views; view++) {
+            // cameras on a sphere around the mesh, looking at its center or past it
+            double theta = random.nextDouble() * 2 * Math.PI, phi = Math.acos(2 * random.nextDouble() - 1);
+            camera[0] = cx + (float) (Math.sin(phi) * Math.cos(theta)) * diagonal;
+            camera[1] = cy + (float) Math.cos(phi) * diagonal;
+            camera[2] = cz + (float) (Math.sin(phi) * Math.sin(theta)) * diagonal;
+            viewProjection.setPerspective((float) Math.toRadians(50), 16f / 9f, diagonal / 100, diagonal * 3, true)
+                    .lookAt(camera[0], camera[1], camera[2], cx + (random.nextFloat() - 0.5f) * diagonal / 2,
+                            cy + (random.nextFloat() - 0.5f) * diagonal / 2, cz, 0, 1, 0);
+            Bvh.frustumPlanes(viewProjection, planes);
+            ranges.clear();
+            int frustum = MeshletBuilder.cull(meshlets, meshletBounds, planes, null, ranges);
+            ranges.clear();
+            long time = System.nanoTime();
+            int visible = MeshletBuilder.cull(meshlets, meshletBounds, planes, camera, ranges);
+            if (view >= WARMUP) {
+                cullTime += System.nanoTime() - time;
+                frustumVisible += frustum;
+                coneVisible += visible;
+                draws += ranges.size() / 3;
+            }
+            errors += coneErrors(meshlets, meshletBounds, planes, camera, indices, positions);
+        }
+        System.out.printf("%d views: %.1f%% of meshlets in the frustum, %.1f%% also facing the camera, %.1f draws, "
+                        + "cull %.3f ms, errors: %d%n", views, 100.0 * frustumVisible / views / (meshlets.length / 4),
+                100.0 * coneVisible / views / (meshlets.length / 4), (double) draws / views,
+                cullTime / 1e6 / views, errors);
+    }
+
+    /**
+     * @return meshlets in the frustum culled by their cone although a triangle faces the camera
+     */
+    private static int coneErrors(int[] meshlets, float[] bounds, float[] planes, float[] camera, int[] indices,
+                                  float[] positions) {
+        IntList frustum = new IntList();
+        IntList cones = new IntList();
+        int errors = 0;
+        for (int m = 0; m < meshlets.length; m += 4) {
+            int[] single = Arrays.copyOfRange(meshlets, m, m + 4);
+            float[] singleBounds = Arrays.copyOfRange(bounds, m / 4 * MeshletBuilder.BOUNDS_FLOATS, (m / 4 + 1) * MeshletBuilder.BOUNDS_FLOATS);
+            frustum.clear();
+            cones.clear();
+            if (MeshletBuilder.cull(single, singleBounds, planes, null, frustum) == 0
+                    || MeshletBuilder.cull(single, singleBounds, planes, camera, cones) == 1) {
+                continue;
+            }
+            for (int t = meshlets[m]; t < meshlets[m] + meshlets[m + 1]; t += 3) {
+                int pa = indices[t] * 3, pb = indices[t + 1] * 3, pc = indices[t + 2] * 3;
+                float ux = positions[pb] - positions[pa], uy = positions[pb + 1] - positions[pa + 1], uz = positions[pb + 2] - positions[pa + 2];
+                float vx = positions[pc] - positions[pa], vy = positions[pc + 1] - positions[pa + 1], vz = positions[pc + 2] - positions[pa + 2];
+                float nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+                if (nx * (camera[0] - positions[pa]) + ny * (camera[1] - positions[pa + 1]) + nz * (camera[2] - positions[pa + 2]) > 0) {
+                    errors++;
+                    break;
+                }
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * @return every triangle as its rotation starting with the smallest index, sorted, to compare triangle sets
+     */
+    private static long[] sortedTriangles(int[] indices) {
+        long[] keys = new long[indices.length / 3];
+        for (int t = 0; t < indices.length; t += 3) {
+            int a = indices[t], b = indices[t + 1], c = indices[t + 2];
+            int shift = a <= b && a <= c ? 0 : b <= c ? 1 : 2;
+            // 21 bits per index, enough for the meshes benchmarked
+            keys[t / 3] = (long) indices[t + shift] << 42 | (long) indices[t + (shift + 1) % 3] << 21
+                    | indices[t + (shift + 2) % 3];
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    static void formats(Path path) throws IOException {
+        ObjData data = ObjParser.read(path);
+        float[] reference = data.toWeldedModel(VertexFormat.FLOAT).getPositions();
+        for (VertexFormat format : VertexFormat.values()) {
+            Model model = data.toWeldedModel(format);
+            float[] positions = model.getPositions();
+            double error = 0;
+            for (int i = 0; i < positions.length; i++) {
+                error = Math.max(error, Math.abs(positions[i] - reference[i]));
+            }
+            System.out.println(model.getMemoryReport());
+            System.out.printf("  max position error %.6f%n", error);
+        }
+    }
+
+    /**
+     * Model construction from {@code count} vertices: the former {@link Vertex} object per vertex, primitive arrays,
+     * and a {@link VertexSink}. Allocation counts the Java heap only, the vertex buffers themselves are off-heap.
+     */
+    static void model(int count) {
+        int size = count / 3 * 3;
+        float[] positions = new float[size * 3];
+        float[] texCoords = new float[size * 2];
+        int[] indices = new int[size];
+        Random random = new Random(42);
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = random.nextFloat();
+        }
+        for (int i = 0; i < texCoords.length; i++) {
+            texCoords[i] = random.nextFloat();
+        }
+        for (int i = 0; i < size; i++) {
+            indices[i] = i;
+        }
+        double megabytes = (double) size * VertexFormat.FLOAT.getStride() / (1024 * 1024);
+        System.out.printf("%d vertices, %.1f MB of vertex data%n", size, megabytes);
+
+        Model reference = null;
+        long[] stats = new long[2];
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            Vertex[] model = new Vertex[size];
+            for (int v = 0, j = 0, k = 0; v < size; v++) {
+                model[v] = new Vertex(positions[j++], positions[j++], positions[j++], texCoords[k++], texCoords[k++]);
+            }
+            ByteBuffer vertices = BufferUtils.createByteBuffer(size * Vertex.SIZE);
+            FloatBuffer fb = vertices.asFloatBuffer();
+            for (Vertex vertex : model) {
+                vertex.put(fb);
+            }
+            reference = new Model(vertices, size, indices, VertexFormat.FLOAT, new float[6]);
+        }
+        stop(stats);
+        report("Vertex[]", megabytes, stats);
+
+        Model model = null;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            model = new Model(positions, null, texCoords, indices, size, VertexFormat.FLOAT);
+        }
+        stop(stats);
+        report("arrays", megabytes, stats);
+        System.out.println("  identical: " + reference.vertices.equals(model.vertices));
+
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            VertexSink sink = new VertexSink(VertexFormat.FLOAT, null, size, size);
+            for (int v = 0; v < size; v++) {
+                sink.vertex(positions[v * 3], positions[v * 3 + 1], positions[v * 3 + 2], 0, 0, 0,
+                        texCoords[v * 2], texCoords[v * 2 + 1]);
+            }
+            for (int v = 0; v < size; v += 3) {
+                sink.triangle(v, v + 1, v + 2);
+            }
+            model = sink.build();
+        }
+        stop(stats);
+        report("VertexSink", megabytes, stats);
+        System.out.println("  identical: " + reference.vertices.equals(model.vertices));
+    }
+
+    private static boolean identical(ObjData a, ObjData b) {
+        return Arrays.equals(a.positions.toArray(), b.positions.toArray())
+                && Arrays.equals(a.texCoords.toArray(), b.texCoords.toArray())
+                && Arrays.equals(a.normals.toArray(), b.normals.toArray())
+                && Arrays.equals(a.faces.toArray(), b.faces.toArray());
+    }
+}
@@ -0,0 +1,380 @@
+package pl.marconzet.engine;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+import static org.lwjgl.vulkan.VK10.VK_INDEX_TYPE_UINT16;
+import static org.lwjgl.vulkan.VK10.VK_INDEX_TYPE_UINT32;
+
+/**
+ * Binary mesh cache. A cache file holds the vertex and index regions exactly as {@link Model#vertices} and
+ * {@link Model#indices} lay them out, so a loaded model points straight into the memory-mapped file and can be
+ * copied into a staging buffer without touching the Java heap.
+ * <p>
+ * Layout (native byte order): magic, version, flags, {@link VertexFormat} ordinal, stride, attribute count, vertex count,
+ * index count, index size, submesh count, level of detail count, meshlet count (ints), position bounds (6 floats),
+ * source size, source modification time, CRC32 of the data regions (longs), attribute triples (location, format,
+ * offset), submesh count and error of every level of detail (int, float), submesh triples (first index, index count,
+ * vertex offset) of all levels, meshlets (first index, index count, vertex offset, vertex count, then sphere and cone
+ * as 8 floats), padding to {@link #ALIGNMENT}, vertex data, index data of all levels.
+ * A cache is stale when any header field does not match the current source file or vertex layout.
+ * <p>
+ * Loading only checks the header, the tables and the ranges they point at, so a load costs no pass over the data.
+ * The CRC is computed when the cache is written and checked by {@link #verify(Path)}, or on every load with
+ * {@code -Dengine.verifyCache=true}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MeshCache {
+    private static final int MAGIC = 0x4853454D;
+    private static final int VERSION = 7;
+    private static final int FLAG_OPTIMIZED = 1;
+    private static final int FLAG_MESHLETS = 2;
+    // requested level of detail count, above the other flags
+    private static final int LODS_SHIFT = 4;
+    private static final int ALIGNMENT = 16;
+    private static final int FIXED_HEADER_SIZE = 12 * 4 + 6 * 4 + 3 * 8;
+    private static final int MESHLET_SIZE = 4 * 4 + MeshletBuilder.BOUNDS_FLOATS * 4;
+    private static final Path CACHE_DIRECTORY = Paths.get(System.getProperty("engine.cache", ".cache"));
+    private static final boolean VERIFY = Boolean.getBoolean("engine.verifyCache");
+
+    public static Model load(Path source) throws IOException {
+        return load(source, false);
+    }
+
+    public static Model load(Path source, boolean optimize) throws IOException {
+        return load(source, optimize, VertexFormat.QUANTIZED);
+    }
+
+    public static Model load(Path source, boolean optimize, VertexFormat format) throws IOException {
+        return load(source, optimize, 1, format);
+    }
+
+    public static Model load(Path source, boolean optimize, int lods, VertexFormat format) throws IOException {
+        return load(source, optimize, false, lods, format);
+    }
+
+    /**
+     * Loads the model of {@code source} from its cache file, parsing the .obj and writing a fresh cache when the
+     * cache is missing or stale. The reports of the passes run are on the model, see {@link Model#getOptimizeReport()}
+     * and {@link Model#getMeshletReport()}.
+     *
+     * @param optimize whether to run {@link Model#optimize} before caching
+     * @param meshlets whether to run {@link Model#buildMeshlets} before caching
+     * @param lods     levels of detail to generate with {@link Model#generateLods}, 1 for none
+     * @param format   vertex layout of the model
+     */
+    public static Model load(Path source, boolean optimize, boolean meshlets, int lods, VertexFormat format) throws IOException {
+        int flags = (optimize ? FLAG_OPTIMIZED : 0) | (meshlets ? FLAG_MESHLETS : 0) | (lods > 1 ? lods << LODS_SHIFT : 0);
+        Path cache = cacheFile(source, flags, format);
+        Model model = read(cache, source, flags, format);
+        if (model == null) {
+            model = ObjParser.readParallel(source).toWeldedModel(format);
+            if (optimize) {
+                model.optimize(VertexCacheSimulator.DEFAULT_CACHE_SIZE);
+            }
+            if (meshlets) {
+                model.buildMeshlets(ForkJoinPool.commonPool());
+            }
+            if (lods > 1) {
+                model.generateLods(lods, ForkJoinPool.commonPool());
+            }
+            write(model, cache, source, flags);
+        }
+        return model;
+    }
+
+    static Path cacheFile(Path source, int flags, VertexFormat format) {
+        Path absolute = source.toAbsolutePath().normalize();
+        return CACHE_DIRECTORY.resolve(absolute.getFileName() + "-" + Integer.toHexString(absolute.hashCode())
+                + "-" + flags + "-" + format.name().toLowerCase() + ".mesh");
+    }
+
+    /**
+     * Checks the header and the tables of {@code cache} through plain reads and maps the data only once they are
+     * known valid: a mapping stays until it is collected, and would keep {@link #write} from replacing a stale file
+     * on Windows. The data itself is only checked with {@code engine.verifyCache}, see {@link #verify(Path)}.
+     *
+     * @return the cached model, or {@code null} when there is no valid cache for {@code source}
+     */
+    public static Model read(Path cache, Path source, int expectedFlags, VertexFormat expectedFormat) throws IOException {
+        if (!Files.isRegularFile(cache)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FIXED_HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer file = readRegion(channel, 0, FIXED_HEADER_SIZE);
+            if (file.getInt() != MAGIC || file.getInt() != VERSION) {
+                return null;
+            }
+            int flags = file.getInt();
+            int format = file.getInt();
+            int stride = file.getInt();
+            int attributeCount = file.getInt();
+            int vertexCount = file.getInt();
+            int indexCount = file.getInt();
+            int indexSize = file.getInt();
+            int submeshCount = file.getInt();
+            int lodCount = file.getInt();
+            int meshletCount = file.getInt();
+            float[] bounds = new float[6];
+            for (int i = 0; i < bounds.length; i++) {
+                bounds[i] = file.getFloat();
+            }
+            long sourceSize = file.getLong();
+            long sourceModified = file.getLong();
+            long checksum = file.getLong();
+            if (flags != expectedFlags || format != expectedFormat.ordinal() || (indexSize != 2 && indexSize != 4)
+                    || vertexCount < 0 || indexCount < 0
+                    || sourceSize != Files.size(source)
+                    || sourceModified != Files.getLastModifiedTime(source).toMillis()) {
+                return null;
+            }
+
+            long tablesSize = (attributeCount * 3L + lodCount * 2L + submeshCount * 3L) * 4 + (long) meshletCount * MESHLET_SIZE;
+            if (attributeCount < 1 || attributeCount > VertexFormat.MAX_ATTRIBUTES || lodCount < 1 || lodCount > Model.MAX_LODS
+                    || submeshCount < 0 || meshletCount < 0 || FIXED_HEADER_SIZE + tablesSize > size) {
+                return null;
+            }
+            file = readRegion(channel, FIXED_HEADER_SIZE, (int) tablesSize);
+            int[] layout = new int[attributeCount * 3];
+            for (int i = 0; i < layout.length; i++) {
+                layout[i] = file.getInt();
+            }
+            int[][] lods = new int[lodCount][];
+            float[] lodErrors = new float[lodCount];
+            int submeshTotal = 0;
+            for (int lod = 0; lod < lodCount; lod++) {
+                int count = file.getInt();
+                if (count < 1 || count > submeshCount) {
+                    return null;
+                }
+                lods[lod] = new int[count * 3];
+                lodErrors[lod] = file.getFloat();
+                submeshTotal += lods[lod].length;
+            }
+            if (submeshTotal != submeshCount * 3) {
+                return null;
+            }
+            // the tables are outside the checksum, so every range is checked against the data it points into
+            for (int[] submeshes : lods) {
+                for (int i = 0; i < submeshes.length; i++) {
+                    submeshes[i] = file.getInt();
+                }
+                for (int i = 0; i < submeshes.length; i += 3) {
+                    if (!inRange(submeshes[i], submeshes[i + 1], indexCount) || !inRange(submeshes[i + 2], 0, vertexCount)) {
+                        return null;
+                    }
+                }
+            }
+            int[] meshlets = null;
+            float[] meshletBounds = null;
+            if (meshletCount > 0) {
+                meshlets = new int[meshletCount * 4];
+                meshletBounds = new float[meshletCount * MeshletBuilder.BOUNDS_FLOATS];
+                for (int m = 0; m < meshletCount; m++) {
+                    for (int i = 0; i < 4; i++) {
+                        meshlets[m * 4 + i] = file.getInt();
+                    }
+                    for (int i = 0; i < MeshletBuilder.BOUNDS_FLOATS; i++) {
+                        meshletBounds[m * MeshletBuilder.BOUNDS_FLOATS + i] = file.getFloat();
+                    }
+                    if (!inRange(meshlets[m * 4], meshlets[m * 4 + 1], indexCount)
+                            || !inRange(meshlets[m * 4 + 2], meshlets[m * 4 + 3], vertexCount)) {
+                        return null;
+                    }
+                }
+            }
+            if (stride != expectedFormat.getStride() || !Arrays.equals(layout, expectedFormat.getLayout())) {
+                return null;
+            }
+
+            int dataOffset = align(headerSize(attributeCount, lodCount, submeshCount, meshletCount));
+            long vertexBytes = (long) vertexCount * stride;
+            long indexBytes = (long) indexCount * indexSize;
+            if (size != dataOffset + vertexBytes + indexBytes || VERIFY && checksum(channel, dataOffset, size) != checksum) {
+                return null;
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, vertexBytes + indexBytes);
+            ByteBuffer vertices = region(data, 0, (int) vertexBytes);
+            ByteBuffer indices = region(data, (int) vertexBytes, (int) indexBytes);
+            int indexType = indexSize == 2 ? VK_INDEX_TYPE_UINT16 : VK_INDEX_TYPE_UINT32;
+            return new Model(vertices, indices, expectedFormat, bounds, indexType, lods, lodErrors, meshlets, meshletBounds);
+        }
+    }
+
+    /**
+     * Reads the whole data region of {@code cache} and compares it with the CRC written along with it. Meant for
+     * tools and for checking a cache suspected to be damaged, as {@link #read} leaves the data unchecked.
+     *
+     * @return whether {@code cache} is a cache file of this version whose data matches its checksum
+     */
+    public static boolean verify(Path cache) throws IOException {
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FIXED_HEADER_SIZE) {
+                return false;
+            }
+            ByteBuffer file = readRegion(channel, 0, FIXED_HEADER_SIZE);
+            if (file.getInt() != MAGIC || file.getInt() != VERSION) {
+                return false;
+            }
+            file.position(5 * 4);
+            int attributeCount = file.getInt();
+            file.position(9 * 4);
+            int submeshCount = file.getInt();
+            int lodCount = file.getInt();
+            int meshletCount = file.getInt();
+            long checksum = file.getLong(FIXED_HEADER_SIZE - 8);
+            long tablesSize = (attributeCount * 3L + lodCount * 2L + submeshCount * 3L) * 4 + (long) meshletCount * MESHLET_SIZE;
+            if (attributeCount < 1 || attributeCount > VertexFormat.MAX_ATTRIBUTES || lodCount < 1 || lodCount > Model.MAX_LODS
+                    || submeshCount < 0 || meshletCount < 0 || FIXED_HEADER_SIZE + tablesSize > size) {
+                return false;
+            }
+            int dataOffset = align(headerSize(attributeCount, lodCount, submeshCount, meshletCount));
+            return dataOffset <= size && checksum(channel, dataOffset, size) == checksum;
+        }
+    }
+
+    /**
+     * @return {@code length} bytes of {@code channel} from {@code position}, in native byte order
+     */
+    private static ByteBuffer readRegion(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer region = ByteBuffer.allocate(length).order(ByteOrder.nativeOrder());
+        while (region.hasRemaining()) {
+            if (channel.read(region, position + region.position()) < 0) {
+                throw new EOFException(position + length + " bytes expected");
+            }
+        }
+        region.flip();
+        return region;
+    }
+
+    /**
+     * @return CRC32 of {@code channel} from {@code from} to {@code to}
+     */
+    private static long checksum(FileChannel channel, long from, long to) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer chunk = ByteBuffer.allocateDirect((int) Math.min(to - from, 1 << 16));
+        for (long position = from; position < to; ) {
+            chunk.clear().limit((int) Math.min(chunk.capacity(), to - position));
+            int read = channel.read(chunk, position);
+            if (read < 0) {
+                throw new EOFException(to + " bytes expected");
+            }
+            chunk.flip();
+            crc.update(chunk);
+            position += read;
+        }
+        return crc.getValue();
+    }
+
+    public static void write(Model model, Path cache, Path source, int flags) throws IOException {
+        ByteBuffer vertices = model.vertices.duplicate();
+        ByteBuffer indices = model.indices.duplicate();
+        int[] layout = model.getVertexLayout();
+        int lodCount = model.getLodCount();
+        int submeshCount = 0;
+        for (int lod = 0; lod < lodCount; lod++) {
+            submeshCount += model.getSubmeshes(lod).length / 3;
+        }
+
+        int[] meshlets = model.getMeshlets();
+        float[] meshletBounds = model.getMeshletBounds();
+        int meshletCount = meshlets != null ? meshlets.length / 4 : 0;
+
+        CRC32 crc = new CRC32();
+        crc.update(vertices.duplicate());
+        crc.update(indices.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(align(headerSize(layout.length / 3, lodCount, submeshCount, meshletCount)))
+                .order(ByteOrder.nativeOrder());
+        header.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(flags)
+                .putInt(model.getFormat().ordinal())
+                .putInt(model.getStride())
+                .putInt(layout.length / 3)
+                .putInt(model.getVertexCount())
+                .putInt(model.getIndexLength())
+                .putInt(model.getIndexSize())
+                .putInt(submeshCount)
+                .putInt(lodCount)
+                .putInt(meshletCount);
+        for (float value : model.getBounds()) {
+            header.putFloat(value);
+        }
+        header.putLong(Files.size(source))
+                .putLong(Files.getLastModifiedTime(source).toMillis())
+                .putLong(crc.getValue());
+        for (int value : layout) {
+            header.putInt(value);
+        }
+        for (int lod = 0; lod < lodCount; lod++) {
+            header.putInt(model.getSubmeshes(lod).length / 3).putFloat(model.getLodError(lod));
+        }
+        for (int lod = 0; lod < lodCount; lod++) {
+            for (int value : model.getSubmeshes(lod)) {
+                header.putInt(value);
+            }
+        }
+        for (int m = 0; m < meshletCount; m++) {
+            for (int i = 0; i < 4; i++) {
+                header.putInt(meshlets[m * 4 + i]);
+            }
+            for (int i = 0; i < MeshletBuilder.BOUNDS_FLOATS; i++) {
+                header.putFloat(meshletBounds[m * MeshletBuilder.BOUNDS_FLOATS + i]);
+            }
+        }
+        header.rewind();
+
+        if (cache.getParent() != null) {
+            Files.createDirectories(cache.getParent());
+        }
+        Path temporary = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) channel.write(header);
+            while (vertices.hasRemaining()) channel.write(vertices);
+            while (indices.hasRemaining()) channel.write(indices);
+        }
+        Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static ByteBuffer region(ByteBuffer file, int offset, int length) {
+        ByteBuffer region = file.duplicate();
+        region.position(offset).limit(offset + length);
+        return region.slice().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * @return whether {@code first} to {@code first + count} lies within {@code 0} to {@code total}
+     */
+    private static boolean inRange(int first, int count, int total) {
+        return first >= 0 && count >= 0 && (long) first + count <= total;
+    }
+
+    private static int headerSize(int attributeCount, int lodCount, int submeshCount, int meshletCount) {
+        return FIXED_HEADER_SIZE + (attributeCount + submeshCount) * 3 * 4 + lodCount * 2 * 4 + meshletCount * MESHLET_SIZE;
+    }
+
+    private static int align(int size) {
+        return (size + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+}
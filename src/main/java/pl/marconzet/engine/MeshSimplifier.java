@@ -0,0 +1,262 @@
+package pl.marconzet.engine;
+
+import java.util.Arrays;
+
+/**
+ * Mesh simplification with quadric error metrics (Garland, Heckbert: "Surface Simplification Using Quadric Error
+ * Metrics"). Edges are collapsed into one of their vertices, so simplified indices still address the original vertex
+ * buffer and a level of detail costs an index buffer only.
+ * <p>
+ * Every vertex accumulates the planes of its triangles; collapsing u into v costs the sum of squared distances of v
+ * to the planes of both. Collapses are done in passes: all edges are evaluated and sorted by cost, and the cheaper
+ * part is collapsed, every vertex at most once per pass, until the target triangle count is reached. Collapses that
+ * would flip a triangle are rejected. Vertices on open edges are locked, which keeps mesh borders, attribute seams and
+ * the borders between submeshes in place, so the simplified submeshes of a split mesh still fit together.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MeshSimplifier {
+    /**
+     * Share of the sorted collapse candidates tried in one pass; the rest waits for costs updated by the pass.
+     */
+    private static final int PASS_FRACTION = 4;
+
+    public static class Result {
+        public final int[] indices;
+        /**
+         * Square root of the largest collapse cost, an estimate of the distance to the original surface in position
+         * units.
+         */
+        public final float error;
+
+        Result(int[] indices, float error) {
+            this.indices = indices;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Simplifies the triangles of {@code source} to about {@code targetTriangles}, fewer only if no further collapse
+     * is allowed.
+     *
+     * @param positions    xyz of every vertex; {@code source} addresses them from {@code vertexOffset}
+     * @param vertexCount  number of vertices {@code source} addresses
+     */
+    public static Result simplify(int[] source, float[] positions, int vertexOffset, int vertexCount, int targetTriangles) {
+        int[] indices = source.clone();
+        int length = indices.length;
+        double[] quadrics = new double[vertexCount * 10];
+        for (int t = 0; t < length; t += 3) {
+            addPlane(quadrics, positions, vertexOffset, indices[t], indices[t + 1], indices[t + 2]);
+        }
+        boolean[] locked = openEdgeVertices(indices, vertexCount);
+
+        int[] adjacencyOffset = new int[vertexCount + 1];
+        int[] adjacency = new int[length];
+        int[] cursor = new int[vertexCount];
+        int[] remap = new int[vertexCount];
+        boolean[] touched = new boolean[vertexCount];
+        long[] candidates = new long[length];
+        int[] from = new int[length];
+        int[] to = new int[length];
+        float[] costs = new float[length];
+        double maxCost = 0;
+
+        while (length / 3 > targetTriangles) {
+            // triangles around every vertex
+            Arrays.fill(adjacencyOffset, 0);
+            for (int i = 0; i < length; i++) {
+                adjacencyOffset[indices[i] + 1]++;
+            }
+            for (int v = 0; v < vertexCount; v++) {
+                adjacencyOffset[v + 1] += adjacencyOffset[v];
+            }
+            System.arraycopy(adjacencyOffset, 0, cursor, 0, vertexCount);
+            for (int i = 0; i < length; i++) {
+                adjacency[cursor[indices[i]]++] = i / 3;
+            }
+
+            // the cheaper direction of every edge, once per edge of a consistently wound mesh
+            int candidateCount = 0;
+            for (int t = 0; t < length; t += 3) {
+                for (int k = 0; k < 3; k++) {
+                    int a = indices[t + k], b = indices[t + (k + 1) % 3];
+                    if (a > b || locked[a] && locked[b]) {
+                        continue;
+                    }
+                    float costAB = locked[a] ? Float.POSITIVE_INFINITY : cost(quadrics, a, b, positions, vertexOffset);
+                    float costBA = locked[b] ? Float.POSITIVE_INFINITY : cost(quadrics, b, a, positions, vertexOffset);
+                    boolean ab = costAB <= costBA;
+                    from[candidateCount] = ab ? a : b;
+                    to[candidateCount] = ab ? b : a;
+                    costs[candidateCount] = ab ? costAB : costBA;
+                    // non-negative floats sort like their bits
+                    candidates[candidateCount] = (long) Float.floatToIntBits(costs[candidateCount]) << 32 | candidateCount;
+                    candidateCount++;
+                }
+            }
+            if (candidateCount == 0) {
+                break;
+            }
+            Arrays.sort(candidates, 0, candidateCount);
+
+            for (int v = 0; v < vertexCount; v++) {
+                remap[v] = v;
+            }
+            Arrays.fill(touched, false);
+            int triangles = length / 3;
+            int tried = Math.max(candidateCount / PASS_FRACTION, 1);
+            int collapses = 0;
+            for (int i = 0; i < tried && triangles > targetTriangles; i++) {
+                int candidate = (int) candidates[i];
+                int u = from[candidate], v = to[candidate];
+                if (touched[u] || touched[v] || flips(indices, adjacency, adjacencyOffset, positions, vertexOffset, u, v)) {
+                    continue;
+                }
+                for (int k = adjacencyOffset[u]; k < adjacencyOffset[u + 1]; k++) {
+                    int t = adjacency[k] * 3;
+                    if (indices[t] == v || indices[t + 1] == v || indices[t + 2] == v) {
+                        triangles--;
+                    }
+                    touched[indices[t]] = true;
+                    touched[indices[t + 1]] = true;
+                    touched[indices[t + 2]] = true;
+                }
+                remap[u] = v;
+                for (int q = 0; q < 10; q++) {
+                    quadrics[v * 10 + q] += quadrics[u * 10 + q];
+                }
+                maxCost = Math.max(maxCost, costs[candidate]);
+                collapses++;
+            }
+            if (collapses == 0) {
+                break;
+            }
+
+            int written = 0;
+            for (int t = 0; t < length; t += 3) {
+                int a = remap[indices[t]], b = remap[indices[t + 1]], c = remap[indices[t + 2]];
+                if (a != b && b != c && a != c) {
+                    indices[written++] = a;
+                    indices[written++] = b;
+                    indices[written++] = c;
+                }
+            }
+            length = written;
+        }
+        return new Result(Arrays.copyOf(indices, length), (float) Math.sqrt(maxCost));
+    }
+
+    /**
+     * Adds the plane of the triangle as a symmetric 4x4 quadric, upper triangle stored, to each of its vertices.
+     */
+    private static void addPlane(double[] quadrics, float[] positions, int vertexOffset, int a, int b, int c) {
+        int pa = (vertexOffset + a) * 3, pb = (vertexOffset + b) * 3, pc = (vertexOffset + c) * 3;
+        double ux = positions[pb] - positions[pa], uy = positions[pb + 1] - positions[pa + 1], uz = positions[pb + 2] - positions[pa + 2];
+        double vx = positions[pc] - positions[pa], vy = positions[pc + 1] - positions[pa + 1], vz = positions[pc + 2] - positions[pa + 2];
+        double nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length == 0) {
+            return;
+        }
+        nx /= length;
+        ny /= length;
+        nz /= length;
+        double d = -(nx * positions[pa] + ny * positions[pa + 1] + nz * positions[pa + 2]);
+        accumulate(quadrics, a, nx, ny, nz, d);
+        accumulate(quadrics, b, nx, ny, nz, d);
+        accumulate(quadrics, c, nx, ny, nz, d);
+    }
+
+    private static void accumulate(double[] quadrics, int vertex, double nx, double ny, double nz, double d) {
+        int q = vertex * 10;
+        quadrics[q] += nx * nx;
+        quadrics[q + 1] += nx * ny;
+        quadrics[q + 2] += nx * nz;
+        quadrics[q + 3] += nx * d;
+        quadrics[q + 4] += ny * ny;
+        quadrics[q + 5] += ny * nz;
+        quadrics[q + 6] += ny * d;
+        quadrics[q + 7] += nz * nz;
+        quadrics[q + 8] += nz * d;
+        quadrics[q + 9] += d * d;
+    }
+
+    /**
+     * @return error of moving {@code u} onto {@code v}: the summed quadrics of both evaluated at {@code v}
+     */
+    private static float cost(double[] quadrics, int u, int v, float[] positions, int vertexOffset) {
+        int p = (vertexOffset + v) * 3;
+        double x = positions[p], y = positions[p + 1], z = positions[p + 2];
+        int qu = u * 10, qv = v * 10;
+        double[] q = quadrics;
+        double error = (q[qu] + q[qv]) * x * x + 2 * (q[qu + 1] + q[qv + 1]) * x * y + 2 * (q[qu + 2] + q[qv + 2]) * x * z
+                + 2 * (q[qu + 3] + q[qv + 3]) * x
+                + (q[qu + 4] + q[qv + 4]) * y * y + 2 * (q[qu + 5] + q[qv + 5]) * y * z + 2 * (q[qu + 6] + q[qv + 6]) * y
+                + (q[qu + 7] + q[qv + 7]) * z * z + 2 * (q[qu + 8] + q[qv + 8]) * z
+                + q[qu + 9] + q[qv + 9];
+        return (float) Math.max(error, 0);
+    }
+
+    /**
+     * @return whether moving {@code u} onto {@code v} turns a remaining triangle around {@code u} over
+     */
+    private static boolean flips(int[] indices, int[] adjacency, int[] adjacencyOffset, float[] positions,
+                                 int vertexOffset, int u, int v) {
+        for (int k = adjacencyOffset[u]; k < adjacencyOffset[u + 1]; k++) {
+            int t = adjacency[k] * 3;
+            int a = indices[t], b = indices[t + 1], c = indices[t + 2];
+            if (a == v || b == v || c == v) {
+                continue;
+            }
+            int pa = (vertexOffset + a) * 3, pb = (vertexOffset + b) * 3, pc = (vertexOffset + c) * 3;
+            float ux = positions[pb] - positions[pa], uy = positions[pb + 1] - positions[pa + 1], uz = positions[pb + 2] - positions[pa + 2];
+            float vx = positions[pc] - positions[pa], vy = positions[pc + 1] - positions[pa + 1], vz = positions[pc + 2] - positions[pa + 2];
+            float nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+
+            int moved = (vertexOffset + v) * 3;
+            if (a == u) pa = moved;
+            if (b == u) pb = moved;
+            if (c == u) pc = moved;
+            ux = positions[pb] - positions[pa];
+            uy = positions[pb + 1] - positions[pa + 1];
+            uz = positions[pb + 2] - positions[pa + 2];
+            vx = positions[pc] - positions[pa];
+            vy = positions[pc + 1] - positions[pa + 1];
+            vz = positions[pc + 2] - positions[pa + 2];
+            float mx = uy * vz - uz * vy, my = uz * vx - ux * vz, mz = ux * vy - uy * vx;
+            if (nx * mx + ny * my + nz * mz <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return vertices of edges not shared by exactly two triangles
+     */
+    private static boolean[] openEdgeVertices(int[] indices, int vertexCount) {
+        long[] edges = new long[indices.length];
+        for (int t = 0; t < indices.length; t += 3) {
+            for (int k = 0; k < 3; k++) {
+                int a = indices[t + k], b = indices[t + (k + 1) % 3];
+                edges[t + k] = (long) Math.min(a, b) << 32 | Math.max(a, b);
+            }
+        }
+        Arrays.sort(edges);
+        boolean[] locked = new boolean[vertexCount];
+        for (int i = 0; i < edges.length; ) {
+            int end = i + 1;
+            while (end < edges.length && edges[end] == edges[i]) {
+                end++;
+            }
+            if (end - i != 2) {
+                locked[(int) (edges[i] >>> 32)] = true;
+                locked[(int) edges[i]] = true;
+            }
+            i = end;
+        }
+        return locked;
+    }
+}
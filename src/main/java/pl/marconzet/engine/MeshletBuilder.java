@@ -0,0 +1,281 @@
+package pl.marconzet.engine;
+
+import java.util.Arrays;
+
+/**
+ * Splits triangles into meshlets: clusters of at most {@link #MAX_VERTICES} vertices and {@link #MAX_TRIANGLES}
+ * triangles, each bounded by a sphere and a cone of its normals, so a dense mesh can be culled in pieces instead of as
+ * a whole. Meshlets reorder the triangles only; every meshlet is a contiguous range of the index buffer and draws with
+ * the ordinary pipeline.
+ * <p>
+ * A meshlet grows greedily from a seed triangle over triangles sharing its vertices, taking those that add the
+ * fewest new vertices first, and closes when no neighbour fits. Only when its neighbourhood is used up it continues
+ * with the next triangle in index order, which keeps meshes of unconnected triangles from ending up one per meshlet.
+ * <p>
+ * Bounds are 8 floats per meshlet: sphere center and radius, then cone axis and cutoff. The cone is the average
+ * normal of the triangles with the sine of its widest angle to any of them; a cutoff of 1 never culls.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MeshletBuilder {
+    public static final int MAX_VERTICES = 64;
+    public static final int MAX_TRIANGLES = 124;
+    public static final int BOUNDS_FLOATS = 8;
+
+    public static class Result {
+        /**
+         * The triangles of the source, grouped by meshlet.
+         */
+        public final int[] indices;
+        /**
+         * (first index, index count, vertex count) of every meshlet, relative to {@link #indices}.
+         */
+        public final int[] meshlets;
+        public final float[] bounds;
+
+        Result(int[] indices, int[] meshlets, float[] bounds) {
+            this.indices = indices;
+            this.meshlets = meshlets;
+            this.bounds = bounds;
+        }
+    }
+
+    /**
+     * @param positions    xyz of every vertex; {@code source} addresses them from {@code vertexOffset}
+     */
+    public static Result build(int[] source, float[] positions, int vertexOffset) {
+        int length = source.length;
+        int triangleCount = length / 3;
+        // compact vertex ids, a chunk of a large mesh uses few of its vertices
+        int[] vertices = source.clone();
+        Arrays.sort(vertices);
+        int vertexCount = 0;
+        for (int i = 0; i < length; i++) {
+            if (i == 0 || vertices[i] != vertices[i - 1]) {
+                vertices[vertexCount++] = vertices[i];
+            }
+        }
+        int[] local = new int[length];
+        for (int i = 0; i < length; i++) {
+            local[i] = Arrays.binarySearch(vertices, 0, vertexCount, source[i]);
+        }
+
+        // triangles around every vertex
+        int[] adjacencyOffset = new int[vertexCount + 1];
+        for (int i = 0; i < length; i++) {
+            adjacencyOffset[local[i] + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            adjacencyOffset[v + 1] += adjacencyOffset[v];
+        }
+        int[] live = new int[vertexCount];
+        int[] adjacency = new int[length];
+        for (int i = 0; i < length; i++) {
+            adjacency[adjacencyOffset[local[i]] + live[local[i]]++] = i / 3;
+        }
+
+        int[] indices = new int[length];
+        IntList meshlets = new IntList();
+        boolean[] emitted = new boolean[triangleCount];
+        int[] vertexStamp = new int[vertexCount];
+        int[] candidateStamp = new int[triangleCount];
+        IntList candidates = new IntList();
+        int written = 0;
+        int scan = 0;
+        int meshlet = 0;
+        while (written < length) {
+            meshlet++;
+            int first = written;
+            int meshletVertices = 0;
+            int meshletTriangles = 0;
+            candidates.clear();
+            while (meshletTriangles < MAX_TRIANGLES) {
+                int best = -1;
+                int bestNew = 4;
+                int bestLive = Integer.MAX_VALUE;
+                int kept = 0;
+                for (int c = 0; c < candidates.size(); c++) {
+                    int t = candidates.get(c);
+                    if (emitted[t]) {
+                        continue;
+                    }
+                    candidates.set(kept++, t);
+                    int added = 0;
+                    int liveSum = 0;
+                    for (int k = 0; k < 3; k++) {
+                        int v = local[t * 3 + k];
+                        if (vertexStamp[v] != meshlet) added++;
+                        liveSum += live[v];
+                    }
+                    // fewest new vertices, then the triangle most likely to be left over
+                    if (meshletVertices + added <= MAX_VERTICES
+                            && (added < bestNew || added == bestNew && liveSum < bestLive)) {
+                        best = t;
+                        bestNew = added;
+                        bestLive = liveSum;
+                    }
+                }
+                candidates.truncate(kept);
+                if (best < 0) {
+                    if (kept > 0) {
+                        break;
+                    }
+                    while (scan < triangleCount && emitted[scan]) {
+                        scan++;
+                    }
+                    if (scan == triangleCount || meshletVertices + newVertices(local, scan, vertexStamp, meshlet) > MAX_VERTICES) {
+                        break;
+                    }
+                    best = scan;
+                }
+
+                emitted[best] = true;
+                meshletTriangles++;
+                for (int k = 0; k < 3; k++) {
+                    int v = local[best * 3 + k];
+                    indices[written++] = source[best * 3 + k];
+                    live[v]--;
+                    if (vertexStamp[v] != meshlet) {
+                        vertexStamp[v] = meshlet;
+                        meshletVertices++;
+                        for (int a = adjacencyOffset[v]; a < adjacencyOffset[v + 1]; a++) {
+                            int t = adjacency[a];
+                            if (!emitted[t] && candidateStamp[t] != meshlet) {
+                                candidateStamp[t] = meshlet;
+                                candidates.add(t);
+                            }
+                        }
+                    }
+                }
+            }
+            meshlets.add(first, written - first, meshletVertices);
+        }
+
+        int[] ranges = meshlets.toArray();
+        float[] bounds = new float[ranges.length / 3 * BOUNDS_FLOATS];
+        for (int m = 0; m < ranges.length / 3; m++) {
+            computeBounds(indices, ranges[m * 3], ranges[m * 3 + 1], positions, vertexOffset, bounds, m * BOUNDS_FLOATS);
+        }
+        return new Result(indices, ranges, bounds);
+    }
+
+    private static int newVertices(int[] local, int triangle, int[] vertexStamp, int meshlet) {
+        int added = 0;
+        for (int k = 0; k < 3; k++) {
+            if (vertexStamp[local[triangle * 3 + k]] != meshlet) added++;
+        }
+        return added;
+    }
+
+    private static void computeBounds(int[] indices, int first, int count, float[] positions, int vertexOffset,
+                                      float[] bounds, int at) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = first; i < first + count; i++) {
+            int p = (vertexOffset + indices[i]) * 3;
+            minX = Math.min(minX, positions[p]);
+            minY = Math.min(minY, positions[p + 1]);
+            minZ = Math.min(minZ, positions[p + 2]);
+            maxX = Math.max(maxX, positions[p]);
+            maxY = Math.max(maxY, positions[p + 1]);
+            maxZ = Math.max(maxZ, positions[p + 2]);
+        }
+        float cx = (minX + maxX) * 0.5f, cy = (minY + maxY) * 0.5f, cz = (minZ + maxZ) * 0.5f;
+        float radius = 0;
+        for (int i = first; i < first + count; i++) {
+            int p = (vertexOffset + indices[i]) * 3;
+            float dx = positions[p] - cx, dy = positions[p + 1] - cy, dz = positions[p + 2] - cz;
+            radius = Math.max(radius, dx * dx + dy * dy + dz * dz);
+        }
+
+        // normals of the triangles, unit length, degenerate ones left out
+        float[] normals = new float[count];
+        int normalCount = 0;
+        float ax = 0, ay = 0, az = 0;
+        for (int t = first; t < first + count; t += 3) {
+            int pa = (vertexOffset + indices[t]) * 3, pb = (vertexOffset + indices[t + 1]) * 3, pc = (vertexOffset + indices[t + 2]) * 3;
+            float ux = positions[pb] - positions[pa], uy = positions[pb + 1] - positions[pa + 1], uz = positions[pb + 2] - positions[pa + 2];
+            float vx = positions[pc] - positions[pa], vy = positions[pc + 1] - positions[pa + 1], vz = positions[pc + 2] - positions[pa + 2];
+            float nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+            float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0) {
+                continue;
+            }
+            normals[normalCount++] = nx / length;
+            normals[normalCount++] = ny / length;
+            normals[normalCount++] = nz / length;
+            ax += nx / length;
+            ay += ny / length;
+            az += nz / length;
+        }
+        float axisLength = (float) Math.sqrt(ax * ax + ay * ay + az * az);
+        float cutoff = 1;
+        if (axisLength > 0) {
+            ax /= axisLength;
+            ay /= axisLength;
+            az /= axisLength;
+            float minDot = 1;
+            for (int n = 0; n < normalCount; n += 3) {
+                minDot = Math.min(minDot, ax * normals[n] + ay * normals[n + 1] + az * normals[n + 2]);
+            }
+            // normals spread over a half space or more can not all face away
+            if (minDot > 0) {
+                cutoff = (float) Math.sqrt(1 - minDot * minDot);
+            }
+        }
+        bounds[at] = cx;
+        bounds[at + 1] = cy;
+        bounds[at + 2] = cz;
+        bounds[at + 3] = (float) Math.sqrt(radius);
+        bounds[at + 4] = ax;
+        bounds[at + 5] = ay;
+        bounds[at + 6] = az;
+        bounds[at + 7] = cutoff;
+    }
+
+    /**
+     * Selects the meshlets whose sphere intersects the view volume and, given a camera, that have a triangle facing
+     * it. Assumes closed meshes or culled back faces: a meshlet facing away is hidden either way.
+     *
+     * @param meshlets (first index, index count, vertex offset, vertex count) of every meshlet, see
+     *                 {@link Model#getMeshlets()}
+     * @param planes   six planes in the space of the bounds, see {@link Bvh#frustumPlanes}; need not be normalized
+     * @param camera   xyz of the eye in the space of the bounds, or {@code null} to skip the cone test
+     * @param ranges   receives (first index, index count, vertex offset) of the draws, neighbouring meshlets merged
+     * @return number of visible meshlets
+     */
+    public static int cull(int[] meshlets, float[] bounds, float[] planes, float[] camera, IntList ranges) {
+        float[] lengths = new float[6];
+        for (int p = 0; p < 6; p++) {
+            lengths[p] = (float) Math.sqrt(planes[p * 4] * planes[p * 4] + planes[p * 4 + 1] * planes[p * 4 + 1]
+                    + planes[p * 4 + 2] * planes[p * 4 + 2]);
+        }
+        int visible = 0;
+        for (int m = 0, b = 0; m < meshlets.length; m += 4, b += BOUNDS_FLOATS) {
+            float cx = bounds[b], cy = bounds[b + 1], cz = bounds[b + 2], radius = bounds[b + 3];
+            boolean inside = true;
+            for (int p = 0; p < 24 && inside; p += 4) {
+                inside = planes[p] * cx + planes[p + 1] * cy + planes[p + 2] * cz + planes[p + 3] >= -radius * lengths[p / 4];
+            }
+            if (!inside) {
+                continue;
+            }
+            if (camera != null) {
+                float dx = cx - camera[0], dy = cy - camera[1], dz = cz - camera[2];
+                float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+                if (dx * bounds[b + 4] + dy * bounds[b + 5] + dz * bounds[b + 6] >= bounds[b + 7] * distance + radius) {
+                    continue;
+                }
+            }
+            visible++;
+            int last = ranges.size() - 3;
+            if (last >= 0 && ranges.get(last) + ranges.get(last + 1) == meshlets[m] && ranges.get(last + 2) == meshlets[m + 2]) {
+                ranges.set(last + 1, ranges.get(last + 1) + meshlets[m + 1]);
+            } else {
+                ranges.add(meshlets[m], meshlets[m + 1], meshlets[m + 2]);
+            }
+        }
+        return visible;
+    }
+}
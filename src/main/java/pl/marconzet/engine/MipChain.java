@@ -0,0 +1,277 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * Mip chain of a texture, every level tightly packed one after another in a single buffer so the whole chain can be
+ * staged and copied in one batch, see {@link UploadManager#uploadMipChain(MipChain, long)}. Levels are either RGBA8
+ * texels or 4x4 blocks of a block compressed format, see {@link #compress(int, ForkJoinPool)}.
+ * <p>
+ * RGBA8 chains are built on the CPU. Levels are filtered in linear space: color channels are decoded from sRGB,
+ * averaged with a box filter over the exact footprint of the destination texel (two source texels, three with
+ * fractional weights for odd sizes) and encoded back; alpha is averaged as is. Every level is split into row bands
+ * filtered concurrently on a {@link ForkJoinPool}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MipChain {
+    private static final int TEXELS_PER_TASK = 1 << 16;
+    private static final float[] SRGB_TO_LINEAR = new float[256];
+    private static final byte[] LINEAR_TO_SRGB = new byte[4096];
+
+    static {
+        for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+            float c = i / 255f;
+            SRGB_TO_LINEAR[i] = c <= 0.04045f ? c / 12.92f : (float) Math.pow((c + 0.055f) / 1.055f, 2.4f);
+        }
+        for (int i = 0; i < LINEAR_TO_SRGB.length; i++) {
+            float c = (i + 0.5f) / LINEAR_TO_SRGB.length;
+            float s = c <= 0.0031308f ? c * 12.92f : 1.055f * (float) Math.pow(c, 1 / 2.4f) - 0.055f;
+            LINEAR_TO_SRGB[i] = (byte) Math.round(s * 255f);
+        }
+    }
+
+    final ByteBuffer data;
+    private final int format;
+    private final int[] widths;
+    private final int[] heights;
+    private final int[] offsets;
+
+    /**
+     * Wraps an already built chain, e.g. a cached one, without copying.
+     */
+    MipChain(ByteBuffer data, int format, int width, int height, int levels) {
+        this.format = format;
+        this.widths = new int[levels];
+        this.heights = new int[levels];
+        this.offsets = new int[levels + 1];
+        for (int level = 0; level < levels; level++) {
+            widths[level] = Math.max(width >> level, 1);
+            heights[level] = Math.max(height >> level, 1);
+            offsets[level + 1] = offsets[level] + levelSize(format, widths[level], heights[level]);
+        }
+        if (data.remaining() != offsets[levels]) {
+            throw new IllegalArgumentException("Mip chain data holds " + data.remaining() + " bytes, expected " + offsets[levels]);
+        }
+        this.data = data;
+    }
+
+    /**
+     * @return levels of a complete chain down to 1x1
+     */
+    public static int levelCount(int width, int height) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(Math.max(width, height), 1));
+    }
+
+    public static MipChain build(ByteBuffer rgba, int width, int height) {
+        return build(rgba, width, height, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param rgba tightly packed level 0, left untouched
+     */
+    public static MipChain build(ByteBuffer rgba, int width, int height, ForkJoinPool pool) {
+        return build(rgba, width, height, levelCount(width, height), pool);
+    }
+
+    /**
+     * @param rgba   tightly packed level 0, left untouched
+     * @param levels levels to build, at most {@link #levelCount(int, int)}
+     */
+    public static MipChain build(ByteBuffer rgba, int width, int height, int levels, ForkJoinPool pool) {
+        MipChain chain = new MipChain(BufferUtils.createByteBuffer(size(VK_FORMAT_R8G8B8A8_UNORM, width, height, levels)),
+                VK_FORMAT_R8G8B8A8_UNORM, width, height, levels);
+        ByteBuffer base = rgba.duplicate();
+        base.limit(base.position() + width * height * 4);
+        chain.data.put(base).rewind();
+
+        for (int level = 1; level < levels; level++) {
+            final int source = level - 1;
+            final int target = level;
+            int height1 = chain.heights[level];
+            int rowsPerTask = Math.max(1, TEXELS_PER_TASK / chain.widths[level]);
+            int tasks = (height1 + rowsPerTask - 1) / rowsPerTask;
+            if (tasks == 1) {
+                chain.downsample(source, target, 0, height1);
+                continue;
+            }
+            ForkJoinTask<?>[] bands = new ForkJoinTask<?>[tasks];
+            for (int i = 0; i < tasks; i++) {
+                final int from = i * rowsPerTask;
+                final int to = Math.min(height1, from + rowsPerTask);
+                bands[i] = pool.submit(() -> chain.downsample(source, target, from, to));
+            }
+            for (ForkJoinTask<?> band : bands) {
+                band.join();
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * @return copy of this RGBA8 chain encoded to {@code format}, one of the formats of {@link BlockCompressor}
+     */
+    public MipChain compress(int format, ForkJoinPool pool) {
+        if (this.format != VK_FORMAT_R8G8B8A8_UNORM) {
+            throw new IllegalStateException("Only RGBA8 chains can be compressed");
+        }
+        MipChain chain = new MipChain(BufferUtils.createByteBuffer(size(format, widths[0], heights[0], widths.length)),
+                format, widths[0], heights[0], widths.length);
+        for (int level = 0; level < widths.length; level++) {
+            BlockCompressor.compress(data, offsets[level], widths[level], heights[level], format,
+                    chain.data, chain.offsets[level], pool);
+        }
+        return chain;
+    }
+
+    /**
+     * @return bytes of a chain of {@code levels} levels
+     */
+    public static int size(int format, int width, int height, int levels) {
+        int size = 0;
+        for (int level = 0; level < levels; level++) {
+            size += levelSize(format, Math.max(width >> level, 1), Math.max(height >> level, 1));
+        }
+        return size;
+    }
+
+    static int levelSize(int format, int width, int height) {
+        int blockSize = getBlockSize(format);
+        if (blockSize == 1) {
+            return width * height * getBlockBytes(format);
+        }
+        return ((width + blockSize - 1) / blockSize) * ((height + blockSize - 1) / blockSize) * getBlockBytes(format);
+    }
+
+    /**
+     * @return width and height in texels of one block of {@code format}, 1 for uncompressed formats
+     */
+    public static int getBlockSize(int format) {
+        return format == VK_FORMAT_R8G8B8A8_UNORM ? 1 : 4;
+    }
+
+    /**
+     * @return bytes per block of {@code format}
+     */
+    public static int getBlockBytes(int format) {
+        switch (format) {
+            case VK_FORMAT_R8G8B8A8_UNORM:
+                return 4;
+            case VK_FORMAT_BC1_RGB_UNORM_BLOCK:
+            case VK_FORMAT_BC1_RGBA_UNORM_BLOCK:
+                return 8;
+            case VK_FORMAT_BC3_UNORM_BLOCK:
+            case VK_FORMAT_BC7_UNORM_BLOCK:
+                return 16;
+            default:
+                throw new IllegalArgumentException("Unsupported texture format " + format);
+        }
+    }
+
+    /**
+     * Filters rows {@code [from, to)} of level {@code target} from level {@code source}.
+     */
+    private void downsample(int source, int target, int from, int to) {
+        int sourceWidth = widths[source];
+        int sourceHeight = heights[source];
+        int targetWidth = widths[target];
+        int[] xTaps = new int[targetWidth * 3];
+        float[] xWeights = new float[targetWidth * 3];
+        footprint(sourceWidth, targetWidth, xTaps, xWeights);
+        int[] yTaps = new int[3];
+        float[] yWeights = new float[3];
+        int sourceOffset = offsets[source];
+
+        for (int y = from; y < to; y++) {
+            footprint(sourceHeight, heights[target], y, yTaps, yWeights, 0);
+            int out = offsets[target] + y * targetWidth * 4;
+            for (int x = 0; x < targetWidth; x++) {
+                float r = 0, g = 0, b = 0, a = 0;
+                for (int j = 0; j < 3; j++) {
+                    float wy = yWeights[j];
+                    if (wy == 0) continue;
+                    int row = sourceOffset + yTaps[j] * sourceWidth * 4;
+                    for (int i = 0; i < 3; i++) {
+                        float w = wy * xWeights[x * 3 + i];
+                        if (w == 0) continue;
+                        int texel = row + xTaps[x * 3 + i] * 4;
+                        r += w * SRGB_TO_LINEAR[data.get(texel) & 0xFF];
+                        g += w * SRGB_TO_LINEAR[data.get(texel + 1) & 0xFF];
+                        b += w * SRGB_TO_LINEAR[data.get(texel + 2) & 0xFF];
+                        a += w * (data.get(texel + 3) & 0xFF);
+                    }
+                }
+                data.put(out, toSrgb(r));
+                data.put(out + 1, toSrgb(g));
+                data.put(out + 2, toSrgb(b));
+                data.put(out + 3, (byte) Math.min(255, Math.round(a)));
+                out += 4;
+            }
+        }
+    }
+
+    private static void footprint(int sourceSize, int targetSize, int[] taps, float[] weights) {
+        for (int i = 0; i < targetSize; i++) {
+            footprint(sourceSize, targetSize, i, taps, weights, i * 3);
+        }
+    }
+
+    /**
+     * Source texels covered by target texel {@code i} and their coverage, normalized; up to three taps.
+     */
+    private static void footprint(int sourceSize, int targetSize, int i, int[] taps, float[] weights, int at) {
+        float scale = (float) sourceSize / targetSize;
+        float start = i * scale;
+        float end = start + scale;
+        int first = (int) start;
+        for (int k = 0; k < 3; k++) {
+            int texel = Math.min(first + k, sourceSize - 1);
+            float coverage = Math.min(end, first + k + 1) - Math.max(start, first + k);
+            taps[at + k] = texel;
+            weights[at + k] = coverage > 0 ? coverage / scale : 0;
+        }
+    }
+
+    private static byte toSrgb(float linear) {
+        int index = (int) (linear * LINEAR_TO_SRGB.length);
+        return LINEAR_TO_SRGB[Math.max(0, Math.min(index, LINEAR_TO_SRGB.length - 1))];
+    }
+
+    public int getFormat() {
+        return format;
+    }
+
+    public int getLevels() {
+        return widths.length;
+    }
+
+    public int getWidth(int level) {
+        return widths[level];
+    }
+
+    public int getHeight(int level) {
+        return heights[level];
+    }
+
+    /**
+     * @return byte offset of {@code level} in {@link #getData()}
+     */
+    public int getOffset(int level) {
+        return offsets[level];
+    }
+
+    public ByteBuffer getData() {
+        return data.duplicate();
+    }
+
+    public int getSize() {
+        return offsets[widths.length];
+    }
+}
@@ -1,10 +1,14 @@
 package pl.marconzet.engine;
 
+import org.joml.Matrix4f;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.vulkan.VkVertexInputAttributeDescription;
 import org.lwjgl.vulkan.VkVertexInputBindingDescription;
 
 import java.nio.*;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static org.lwjgl.vulkan.VK10.*;
 
@@ -13,66 +17,631 @@ import static org.lwjgl.vulkan.VK10.*;
  * Created 19.09.2018
  */
 public class Model {
+    /**
+     * Largest vertex count addressable with {@code VK_INDEX_TYPE_UINT16} indices.
+     */
+    static final int MAX_SHORT_VERTICES = 1 << 16;
+    public static final int MAX_LODS = 8;
+    /**
+     * Triangles partitioned into meshlets by one task.
+     */
+    static final int MESHLET_CHUNK = 1 << 15;
+
     public ByteBuffer vertices;
     public ByteBuffer indices;
 
-    private Vertex[] model;
     private int[] index;
 
+    private final VertexFormat format;
+    private final int stride;
+    private final int[] layout;
+    /**
+     * Min xyz and max xyz of all positions.
+     */
+    private final float[] bounds;
+    private int vertexCount;
+    private int indexCount;
+    private int indexType;
+    /**
+     * (first index, index count, vertex offset) of every draw; a single one unless a uint16 mesh had to be split.
+     */
+    private int[] submeshes;
+    /**
+     * Submeshes of every level of detail, {@link #submeshes} first; coarser levels index the same vertices, their
+     * indices follow those of level 0 in {@link #indices}.
+     */
+    private int[][] lods;
+    /**
+     * Estimated distance of every level to level 0, in model space.
+     */
+    private float[] lodErrors;
+    /**
+     * (first index, index count, vertex offset, vertex count) of every meshlet of level 0, or {@code null}, see
+     * {@link #buildMeshlets}.
+     */
+    private int[] meshlets;
+    /**
+     * Sphere and normal cone of every meshlet, {@link MeshletBuilder#BOUNDS_FLOATS} each, in model space.
+     */
+    private float[] meshletBounds;
+    /**
+     * For a split mesh, the first copy of every vertex duplicated across submeshes, so passes can undo the split.
+     */
+    private int[] canonical;
+    /**
+     * Results of {@link #optimize} and {@link #buildMeshlets} on this instance, {@code null} until they run.
+     */
+    private String optimizeReport;
+    private String meshletReport;
+
     public Model(float[] v, float[] t, int[] indices, int size){
-        index = indices;
-        model = new Vertex[size];
-        int j = 0, k = 0;
+        this(v, null, t, indices, size, VertexFormat.FLOAT);
+    }
+
+    /**
+     * Packs the vertices straight into {@link #vertices} in the given format.
+     *
+     * @param normals xyz per vertex, or {@code null} when the mesh has none
+     */
+    public Model(float[] positions, float[] normals, float[] texCoords, int[] indices, int size, VertexFormat format) {
+        this.format = format;
+        this.stride = format.getStride();
+        this.layout = format.getLayout();
+        this.bounds = computeBounds(positions, size);
+        this.index = indices;
+        this.vertexCount = size;
+        this.indexCount = indices.length;
+        vertices = BufferUtils.createByteBuffer(size * stride);
         for (int i = 0; i < size; i++) {
-            model[i] = new Vertex(v[j++],v[j++],v[j++],t[k++],t[k++]);
+            float nx = normals != null ? normals[i * 3] : 0;
+            float ny = normals != null ? normals[i * 3 + 1] : 0;
+            float nz = normals != null ? normals[i * 3 + 2] : 0;
+            format.write(vertices, i * stride, positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2],
+                    nx, ny, nz, texCoords[i * 2], texCoords[i * 2 + 1], bounds);
         }
-        fillBuffers();
+        packIndices(indices);
     }
 
-    private void fillBuffers() {
-        vertices = BufferUtils.createByteBuffer(model.length * model[0].sizeOf());
-        FloatBuffer fb = vertices.asFloatBuffer();
-        for (Vertex vertex : model) {
-            vertex.put(fb);
+    /**
+     * Takes over vertices already packed in {@code format}, as filled by a {@link VertexSink}.
+     */
+    Model(ByteBuffer vertices, int vertexCount, int[] indices, VertexFormat format, float[] bounds) {
+        this.vertices = vertices;
+        this.format = format;
+        this.stride = format.getStride();
+        this.layout = format.getLayout();
+        this.bounds = bounds;
+        this.index = indices;
+        this.vertexCount = vertexCount;
+        this.indexCount = indices.length;
+        packIndices(indices);
+    }
+
+    /**
+     * Wraps already interleaved vertex and index data, e.g. regions of a mapped {@link MeshCache} file.
+     * The buffers are used as they are, nothing is copied.
+     */
+    public Model(ByteBuffer vertices, ByteBuffer indices, VertexFormat format, float[] bounds, int indexType, int[] submeshes) {
+        this(vertices, indices, format, bounds, indexType, new int[][]{submeshes}, new float[]{0});
+    }
+
+    /**
+     * Wraps already interleaved vertex and index data holding several levels of detail.
+     */
+    public Model(ByteBuffer vertices, ByteBuffer indices, VertexFormat format, float[] bounds, int indexType,
+                 int[][] lods, float[] lodErrors) {
+        this(vertices, indices, format, bounds, indexType, lods, lodErrors, null, null);
+    }
+
+    /**
+     * Wraps already interleaved vertex and index data holding levels of detail and the meshlets of level 0.
+     */
+    public Model(ByteBuffer vertices, ByteBuffer indices, VertexFormat format, float[] bounds, int indexType,
+                 int[][] lods, float[] lodErrors, int[] meshlets, float[] meshletBounds) {
+        this.vertices = vertices;
+        this.indices = indices;
+        this.format = format;
+        this.stride = format.getStride();
+        this.layout = format.getLayout();
+        this.bounds = bounds;
+        this.indexType = indexType;
+        this.submeshes = lods[0];
+        this.lods = lods;
+        this.lodErrors = lodErrors;
+        this.meshlets = meshlets;
+        this.meshletBounds = meshletBounds;
+        this.vertexCount = vertices.remaining() / stride;
+        this.indexCount = indices.remaining() / getIndexSize();
+    }
+
+    private static float[] computeBounds(float[] positions, int size) {
+        float[] bounds = new float[6];
+        if (size == 0) {
+            return bounds;
+        }
+        for (int k = 0; k < 3; k++) {
+            bounds[k] = Float.POSITIVE_INFINITY;
+            bounds[k + 3] = Float.NEGATIVE_INFINITY;
+        }
+        for (int i = 0; i < size * 3; i++) {
+            bounds[i % 3] = Math.min(bounds[i % 3], positions[i]);
+            bounds[i % 3 + 3] = Math.max(bounds[i % 3 + 3], positions[i]);
+        }
+        return bounds;
+    }
+
+    /**
+     * Writes {@code index} as uint16 when every vertex is addressable that way. Larger meshes are split into
+     * consecutive submeshes of at most {@link #MAX_SHORT_VERTICES} vertices each, drawn with their own vertex offset;
+     * vertices shared across a split are duplicated. uint32 is used only if splitting would not pay off.
+     */
+    private void packIndices(int[] index) {
+        packSubmeshes(index);
+        lods = new int[][]{submeshes};
+        lodErrors = new float[]{0};
+        meshlets = null;
+        meshletBounds = null;
+        meshletReport = null;
+    }
+
+    private void packSubmeshes(int[] index) {
+        if (vertexCount <= MAX_SHORT_VERTICES) {
+            indexType = VK_INDEX_TYPE_UINT16;
+            submeshes = new int[]{0, index.length, 0};
+            canonical = null;
+            indices = BufferUtils.createByteBuffer(index.length * 2);
+            ShortBuffer sb = indices.asShortBuffer();
+            for (int i : index) {
+                sb.put((short) i);
+            }
+            return;
         }
 
-        indices = BufferUtils.createByteBuffer(index.length * 4);
-        IntBuffer ib = indices.asIntBuffer();
-        for (int i : index) {
-            ib.put(i);
+        int[] local = new int[vertexCount];
+        int[] owner = new int[vertexCount];
+        int[] firstCopy = new int[vertexCount];
+        Arrays.fill(firstCopy, -1);
+        IntList order = new IntList(vertexCount);
+        IntList copies = new IntList(vertexCount);
+        IntList parts = new IntList();
+        short[] packed = new short[index.length];
+        int part = 1;
+        int first = 0;
+        int partVertices = 0;
+        for (int t = 0; t < index.length; t += 3) {
+            if (partVertices + 3 > MAX_SHORT_VERTICES) {
+                parts.add(first, t - first, order.size() - partVertices);
+                part++;
+                first = t;
+                partVertices = 0;
+            }
+            for (int k = t; k < t + 3; k++) {
+                int v = index[k];
+                if (owner[v] != part) {
+                    owner[v] = part;
+                    local[v] = partVertices++;
+                    if (firstCopy[v] < 0) {
+                        firstCopy[v] = order.size();
+                    }
+                    copies.add(firstCopy[v]);
+                    order.add(v);
+                }
+                packed[k] = (short) local[v];
+            }
         }
+        parts.add(first, index.length - first, order.size() - partVertices);
+
+        if ((long) order.size() * stride + index.length * 2L >= (long) vertexCount * stride + index.length * 4L) {
+            indexType = VK_INDEX_TYPE_UINT32;
+            submeshes = new int[]{0, index.length, 0};
+            canonical = null;
+            indices = BufferUtils.createByteBuffer(index.length * 4);
+            indices.asIntBuffer().put(index);
+            return;
+        }
+
+        ByteBuffer source = vertices.duplicate().order(ByteOrder.nativeOrder());
+        int base = source.position();
+        ByteBuffer split = BufferUtils.createByteBuffer(order.size() * stride);
+        for (int i = 0; i < order.size(); i++) {
+            for (int b = 0; b < stride; b += 4) {
+                split.putInt(i * stride + b, source.getInt(base + order.get(i) * stride + b));
+            }
+        }
+        vertices = split;
+        vertexCount = order.size();
+        indexType = VK_INDEX_TYPE_UINT16;
+        submeshes = parts.toArray();
+        canonical = copies.toArray();
+        indices = BufferUtils.createByteBuffer(packed.length * 2);
+        indices.asShortBuffer().put(packed);
+        this.index = null;
+    }
+
+    /**
+     * Optional optimization pass: reorders triangles for post-transform vertex cache locality and overdraw, then
+     * renumbers vertices in order of first use for fetch locality. Unreferenced vertices are dropped, as are the
+     * copies made when the mesh was split into uint16 submeshes; the result is split again afterwards. Levels of detail
+     * and meshlets are dropped, so this runs before {@link #buildMeshlets} and {@link #generateLods}.
+     *
+     * @return simulated vertex cache statistics before and after
+     */
+    public String optimize(int cacheSize) {
+        int[] index = getIndices().clone();
+        if (canonical != null) {
+            for (int i = 0; i < index.length; i++) {
+                index[i] = canonical[index[i]];
+            }
+        }
+        VertexCacheSimulator before = new VertexCacheSimulator(cacheSize).simulate(index, vertexCount);
+
+        MeshOptimizer.Ordering ordering = MeshOptimizer.tipsify(index, vertexCount, cacheSize);
+        int[] optimized = MeshOptimizer.sortClusters(ordering, getPositions());
+        VertexCacheSimulator after = new VertexCacheSimulator(cacheSize).simulate(optimized, vertexCount);
+        int[] remap = MeshOptimizer.remapForFetch(optimized, vertexCount);
+
+        int used = 0;
+        for (int target : remap) {
+            if (target >= 0) used++;
+        }
+        ByteBuffer source = vertices.duplicate().order(ByteOrder.nativeOrder());
+        ByteBuffer remapped = BufferUtils.createByteBuffer(used * stride);
+        int base = source.position();
+        for (int v = 0; v < vertexCount; v++) {
+            if (remap[v] < 0) continue;
+            for (int b = 0; b < stride; b += 4) {
+                remapped.putInt(remap[v] * stride + b, source.getInt(base + v * stride + b));
+            }
+        }
+
+        this.index = optimized;
+        this.vertexCount = used;
+        this.vertices = remapped;
+        packIndices(optimized);
+        optimizeReport = "before: " + before + ", after: " + after;
+        return optimizeReport;
+    }
+
+    /**
+     * @return indices into the whole vertex buffer, with submesh vertex offsets applied
+     */
+    public int[] getIndices() {
+        if (index == null) {
+            index = new int[getLodIndexLength(0)];
+            ByteBuffer source = indices.duplicate().order(ByteOrder.nativeOrder());
+            if (indexType == VK_INDEX_TYPE_UINT32) {
+                source.asIntBuffer().get(index);
+            } else {
+                ShortBuffer sb = source.asShortBuffer();
+                for (int s = 0; s < submeshes.length; s += 3) {
+                    for (int i = submeshes[s]; i < submeshes[s] + submeshes[s + 1]; i++) {
+                        index[i] = (sb.get(i) & 0xFFFF) + submeshes[s + 2];
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds up to {@code levels - 1} simplified levels of detail, each with half the triangles of the one before,
+     * simplified from level 0 with {@link MeshSimplifier}. Every level and submesh is simplified as its own task on
+     * {@code pool}. Levels that would not remove at least a tenth of the triangles of the previous one are left out.
+     * Levels of an earlier call are replaced, their indices dropped from the index buffer.
+     */
+    public void generateLods(int levels, ForkJoinPool pool) {
+        levels = Math.max(1, Math.min(levels, MAX_LODS));
+        if (levels == 1 && lods.length == 1) {
+            return;
+        }
+        float[] positions = getPositions();
+        int[][] local = localIndices();
+        int[] localVertices = new int[local.length];
+        for (int s = 0; s < local.length; s++) {
+            for (int value : local[s]) {
+                localVertices[s] = Math.max(localVertices[s], value + 1);
+            }
+        }
+
+        MeshSimplifier.Result[][] results = new MeshSimplifier.Result[levels][local.length];
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[(levels - 1) * local.length];
+        for (int lod = 1; lod < levels; lod++) {
+            for (int s = 0; s < local.length; s++) {
+                final int level = lod, submesh = s;
+                tasks[(lod - 1) * local.length + s] = pool.submit(() -> {
+                    results[level][submesh] = MeshSimplifier.simplify(local[submesh], positions,
+                            submeshes[submesh * 3 + 2], localVertices[submesh], (local[submesh].length / 3) >> level);
+                });
+            }
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        // level 0 comes first in the index buffer, anything after it belongs to the levels replaced here
+        int base = getLodIndexLength(0);
+        int kept = 1;
+        int previous = base;
+        int total = base;
+        for (int lod = 1; lod < levels; lod++) {
+            int length = 0;
+            for (MeshSimplifier.Result result : results[lod]) {
+                length += result.indices.length;
+            }
+            if (length > previous * 9 / 10) {
+                break;
+            }
+            previous = length;
+            total += length;
+            kept++;
+        }
+
+        int indexSize = getIndexSize();
+        ByteBuffer packed = BufferUtils.createByteBuffer(total * indexSize);
+        ByteBuffer levelZero = indices.duplicate();
+        levelZero.limit(levelZero.position() + base * indexSize);
+        packed.put(levelZero);
+        int[][] packedLods = Arrays.copyOf(lods, kept);
+        float[] errors = new float[kept];
+        errors[0] = lodErrors[0];
+        int at = base;
+        for (int lod = 1; lod < kept; lod++) {
+            packedLods[lod] = new int[submeshes.length];
+            for (int s = 0; s < local.length; s++) {
+                int[] simplified = results[lod][s].indices;
+                packedLods[lod][s * 3] = at;
+                packedLods[lod][s * 3 + 1] = simplified.length;
+                packedLods[lod][s * 3 + 2] = submeshes[s * 3 + 2];
+                for (int value : simplified) {
+                    if (indexSize == 2) {
+                        packed.putShort((short) value);
+                    } else {
+                        packed.putInt(value);
+                    }
+                }
+                at += simplified.length;
+                errors[lod] = Math.max(errors[lod], results[lod][s].error);
+            }
+        }
+        packed.flip();
+        indices = packed;
+        indexCount = total;
+        lods = packedLods;
+        lodErrors = errors;
+    }
+
+    /**
+     * Groups the triangles of level 0 into meshlets with {@link MeshletBuilder}, reordering them within their
+     * submesh. Every submesh is split into chunks of {@link #MESHLET_CHUNK} triangles built as their own tasks on
+     * {@code pool}; meshlets do not cross chunks. Coarser levels of detail are kept, they do not depend on the order
+     * of level 0.
+     *
+     * @return meshlet count and average fill and vertex reuse
+     */
+    public String buildMeshlets(ForkJoinPool pool) {
+        float[] positions = getPositions();
+        int[][] local = localIndices();
+        IntList chunks = new IntList();
+        for (int s = 0; s < local.length; s++) {
+            for (int first = 0; first < local[s].length; first += MESHLET_CHUNK * 3) {
+                chunks.add(s, first, Math.min(local[s].length - first, MESHLET_CHUNK * 3));
+            }
+        }
+        MeshletBuilder.Result[] results = new MeshletBuilder.Result[chunks.size() / 3];
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[results.length];
+        for (int c = 0; c < results.length; c++) {
+            final int chunk = c;
+            tasks[c] = pool.submit(() -> {
+                int s = chunks.get(chunk * 3), first = chunks.get(chunk * 3 + 1);
+                results[chunk] = MeshletBuilder.build(Arrays.copyOfRange(local[s], first, first + chunks.get(chunk * 3 + 2)),
+                        positions, submeshes[s * 3 + 2]);
+            });
+        }
+        int count = 0;
+        for (int c = 0; c < tasks.length; c++) {
+            tasks[c].join();
+            count += results[c].meshlets.length / 3;
+        }
+
+        // a mapped cache file is read only
+        ByteBuffer packed = BufferUtils.createByteBuffer(indices.remaining());
+        packed.put(indices.duplicate()).flip();
+        packed.order(ByteOrder.nativeOrder());
+        int indexSize = getIndexSize();
+        int[] packedMeshlets = new int[count * 4];
+        float[] bounds = new float[count * MeshletBuilder.BOUNDS_FLOATS];
+        long vertices = 0;
+        int m = 0;
+        for (int c = 0; c < results.length; c++) {
+            int s = chunks.get(c * 3);
+            int at = submeshes[s * 3] + chunks.get(c * 3 + 1);
+            MeshletBuilder.Result result = results[c];
+            for (int i = 0; i < result.indices.length; i++) {
+                if (indexSize == 2) {
+                    packed.putShort((at + i) * 2, (short) result.indices[i]);
+                } else {
+                    packed.putInt((at + i) * 4, result.indices[i]);
+                }
+            }
+            for (int r = 0; r < result.meshlets.length; r += 3, m++) {
+                packedMeshlets[m * 4] = at + result.meshlets[r];
+                packedMeshlets[m * 4 + 1] = result.meshlets[r + 1];
+                packedMeshlets[m * 4 + 2] = submeshes[s * 3 + 2];
+                packedMeshlets[m * 4 + 3] = result.meshlets[r + 2];
+                vertices += result.meshlets[r + 2];
+            }
+            System.arraycopy(result.bounds, 0, bounds, (m - result.meshlets.length / 3) * MeshletBuilder.BOUNDS_FLOATS,
+                    result.bounds.length);
+        }
+        indices = packed;
+        index = null;
+        meshlets = packedMeshlets;
+        meshletBounds = bounds;
+
+        long triangles = getLodIndexLength(0) / 3;
+        meshletReport = String.format("%d meshlets, %.1f vertices and %.1f triangles each (%.0f%% of %d), vertex reuse %.2f",
+                count, (double) vertices / count, (double) triangles / count,
+                100.0 * triangles / count / MeshletBuilder.MAX_TRIANGLES, MeshletBuilder.MAX_TRIANGLES,
+                triangles * 3.0 / vertices);
+        return meshletReport;
+    }
+
+    /**
+     * @return indices of every submesh of level 0, without the vertex offset
+     */
+    private int[][] localIndices() {
+        int[][] local = new int[submeshes.length / 3][];
+        ByteBuffer source = indices.duplicate().order(ByteOrder.nativeOrder());
+        for (int s = 0; s < local.length; s++) {
+            int first = submeshes[s * 3], count = submeshes[s * 3 + 1];
+            local[s] = new int[count];
+            for (int i = 0; i < count; i++) {
+                local[s][i] = indexType == VK_INDEX_TYPE_UINT16 ? source.getShort((first + i) * 2) & 0xFFFF
+                        : source.getInt((first + i) * 4);
+            }
+        }
+        return local;
+    }
+
+    /**
+     * @return xyz of every vertex, decoded from the position attribute
+     */
+    public float[] getPositions() {
+        ByteBuffer source = vertices.duplicate().order(ByteOrder.nativeOrder());
+        int base = source.position();
+        float[] positions = new float[vertexCount * 3];
+        for (int v = 0; v < vertexCount; v++) {
+            format.readPosition(source, base + v * stride, bounds, positions, v * 3);
+        }
+        return positions;
+    }
+
+    /**
+     * @return transform from stored to model space positions, to be applied before the model matrix;
+     * identity unless positions are quantized against the mesh bounds
+     */
+    public Matrix4f getPositionTransform() {
+        Matrix4f transform = new Matrix4f();
+        if (format == VertexFormat.QUANTIZED) {
+            transform.translate(bounds[0], bounds[1], bounds[2])
+                    .scale(bounds[3] - bounds[0], bounds[4] - bounds[1], bounds[5] - bounds[2]);
+        }
+        return transform;
+    }
+
+    /**
+     * @return GPU memory taken by the vertex and index buffers, compared to the {@link VertexFormat#FLOAT} layout
+     */
+    public String getMemoryReport() {
+        long vertexBytes = (long) vertexCount * stride;
+        long indexBytes = (long) indexCount * getIndexSize();
+        long floatBytes = (long) vertexCount * VertexFormat.FLOAT.getStride();
+        return String.format("%s: %d vertices x %d B = %.2f MB (%.2f MB as FLOAT), %d indices x %d B = %.2f MB, total %.2f MB",
+                format, vertexCount, stride, vertexBytes / 1e6, floatBytes / 1e6,
+                indexCount, getIndexSize(), indexBytes / 1e6, (vertexBytes + indexBytes) / 1e6);
+    }
+
+    /**
+     * @return what {@link #optimize} reported, or {@code null} when it did not run on this instance, as for models
+     * read from {@link MeshCache}
+     */
+    public String getOptimizeReport() {
+        return optimizeReport;
+    }
+
+    /**
+     * @return what {@link #buildMeshlets} reported, or {@code null} when it did not run on this instance
+     */
+    public String getMeshletReport() {
+        return meshletReport;
     }
 
     VkVertexInputBindingDescription.Buffer getBindingDescription() {
-        VkVertexInputBindingDescription.Buffer bindingDescription = VkVertexInputBindingDescription.create(1);
-        bindingDescription.get(0)
-                .binding(0)
-                .stride(model[0].sizeOf())
-                .inputRate(VK_VERTEX_INPUT_RATE_VERTEX);
-        return bindingDescription;
+        return format.getBindingDescription();
     }
 
     VkVertexInputAttributeDescription.Buffer getAttributeDescriptions() {
-        VkVertexInputAttributeDescription.Buffer attributeDescriptions = VkVertexInputAttributeDescription.create(3);
-        attributeDescriptions.get(0)
-                .binding(0)
-                .location(0)
-                .format(VK_FORMAT_R32G32B32_SFLOAT)
-                .offset(model[0].coordinateOffset());
-        attributeDescriptions.get(1)
-                .binding(0)
-                .location(1)
-                .format(VK_FORMAT_R32G32B32_SFLOAT)
-                .offset(model[0].colorOffset());
-        attributeDescriptions.get(2)
-                .binding(0)
-                .location(2)
-                .format(VK_FORMAT_R32G32_SFLOAT)
-                .offset(model[0].texCordOffset());
-        return attributeDescriptions;
+        return format.getAttributeDescriptions();
+    }
+
+    public VertexFormat getFormat() {
+        return format;
+    }
+
+    public float[] getBounds() {
+        return bounds;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    public int[] getVertexLayout() {
+        return layout;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
     }
 
     public int getIndexLength() {
-        return index.length;
+        return indexCount;
+    }
+
+    public int getIndexType() {
+        return indexType;
+    }
+
+    public int getIndexSize() {
+        return indexType == VK_INDEX_TYPE_UINT16 ? 2 : 4;
+    }
+
+    public int[] getSubmeshes() {
+        return submeshes;
+    }
+
+    /**
+     * @return (first index, index count, vertex offset) of every draw of level of detail {@code lod}
+     */
+    public int[] getSubmeshes(int lod) {
+        return lods[lod];
+    }
+
+    /**
+     * @return (first index, index count, vertex offset, vertex count) of every meshlet of level 0, or {@code null}
+     * when none were built
+     */
+    public int[] getMeshlets() {
+        return meshlets;
+    }
+
+    /**
+     * @return center and radius of the bounding sphere, axis and cutoff of the normal cone of every meshlet, in model
+     * space; see {@link MeshletBuilder#cull}
+     */
+    public float[] getMeshletBounds() {
+        return meshletBounds;
+    }
+
+    public int getLodCount() {
+        return lods.length;
+    }
+
+    /**
+     * @return estimated distance of level {@code lod} to level 0, in model space
+     */
+    public float getLodError(int lod) {
+        return lodErrors[lod];
+    }
+
+    /**
+     * @return number of indices drawn for level {@code lod}
+     */
+    public int getLodIndexLength(int lod) {
+        int length = 0;
+        for (int s = 1; s < lods[lod].length; s += 3) {
+            length += lods[lod][s];
+        }
+        return length;
     }
 }
@@ -0,0 +1,161 @@
+package pl.marconzet.engine;
+
+/**
+ * Raw contents of an .obj file kept in primitive arrays, as produced by {@link ObjParser}.
+ * Faces are stored as triangles of (v, vt, vn) triplets with 1-based indices, 0 meaning "not given".
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class ObjData {
+    final FloatList positions;
+    final FloatList texCoords;
+    final FloatList normals;
+    final IntList faces;
+    boolean relative;
+
+    public ObjData() {
+        this(1024);
+    }
+
+    ObjData(int capacity) {
+        positions = new FloatList(capacity * 3);
+        texCoords = new FloatList(capacity * 2);
+        normals = new FloatList(capacity * 3);
+        faces = new IntList(capacity * 9);
+    }
+
+    ObjData(FloatList positions, FloatList texCoords, FloatList normals, IntList faces) {
+        this.positions = positions;
+        this.texCoords = texCoords;
+        this.normals = normals;
+        this.faces = faces;
+    }
+
+    public int getPositionCount() {
+        return positions.size() / 3;
+    }
+
+    public int getTexCoordCount() {
+        return texCoords.size() / 2;
+    }
+
+    public int getNormalCount() {
+        return normals.size() / 3;
+    }
+
+    public int getTriangleCount() {
+        return faces.size() / 9;
+    }
+
+    /**
+     * Builds the model with the same vertex layout as {@link ObjFile#toModel()}: every position keeps its slot
+     * for the first corner that references it, later corners reuse the slot only when {@code smooth} is set and
+     * their texture coordinates match, otherwise they are appended after all positions.
+     */
+    public Model toModel(boolean smooth) {
+        int positionCount = getPositionCount();
+        float[] position = positions.array();
+        float[] texCoord = texCoords.array();
+        int[] face = faces.array();
+        int cornerCount = faces.size() / 3;
+
+        boolean[] used = new boolean[positionCount];
+        float[] slotU = new float[positionCount];
+        float[] slotV = new float[positionCount];
+        IntList appended = new IntList();
+        int[] indices = new int[cornerCount];
+
+        for (int i = 0; i < cornerCount; i++) {
+            int pointer = face[i * 3] - 1;
+            int t = face[i * 3 + 1] - 1;
+            float u = t >= 0 ? texCoord[t * 2] : 0;
+            float v = t >= 0 ? texCoord[t * 2 + 1] : 0;
+            if (!used[pointer]) {
+                used[pointer] = true;
+                slotU[pointer] = u;
+                slotV[pointer] = v;
+                indices[i] = pointer;
+            } else if (smooth && slotU[pointer] == u && slotV[pointer] == v) {
+                indices[i] = pointer;
+            } else {
+                appended.add(i);
+                indices[i] = positionCount + appended.size() - 1;
+            }
+        }
+
+        int size = positionCount + appended.size();
+        float[] vertices = new float[size * 3];
+        float[] texCoords = new float[size * 2];
+        for (int i = 0; i < positionCount; i++) {
+            if (used[i]) {
+                vertices[i * 3] = position[i * 3];
+                vertices[i * 3 + 1] = position[i * 3 + 1];
+                vertices[i * 3 + 2] = position[i * 3 + 2];
+                texCoords[i * 2] = slotU[i];
+                texCoords[i * 2 + 1] = 1 - slotV[i];
+            }
+        }
+        for (int j = 0; j < appended.size(); j++) {
+            int corner = appended.get(j);
+            int p = face[corner * 3] - 1;
+            int t = face[corner * 3 + 1] - 1;
+            int i = positionCount + j;
+            vertices[i * 3] = position[p * 3];
+            vertices[i * 3 + 1] = position[p * 3 + 1];
+            vertices[i * 3 + 2] = position[p * 3 + 2];
+            texCoords[i * 2] = t >= 0 ? texCoord[t * 2] : 0;
+            texCoords[i * 2 + 1] = 1 - (t >= 0 ? texCoord[t * 2 + 1] : 0);
+        }
+        return new Model(vertices, texCoords, indices, size);
+    }
+
+    public Model toWeldedModel() {
+        return toWeldedModel(VertexFormat.QUANTIZED);
+    }
+
+    /**
+     * Builds the model emitting every distinct face corner exactly once. Corners are welded on their
+     * (v, vt, vn) index triple with a {@link VertexWelder} and packed into {@code format}.
+     */
+    public Model toWeldedModel(VertexFormat format) {
+        float[] position = positions.array();
+        float[] texCoord = texCoords.array();
+        float[] normal = normals.array();
+        int[] face = faces.array();
+        int cornerCount = faces.size() / 3;
+
+        VertexWelder welder = new VertexWelder(Math.max(getPositionCount(), cornerCount / 6));
+        IntList firstCorners = new IntList(getPositionCount());
+        int[] indices = new int[cornerCount];
+        for (int i = 0; i < cornerCount; i++) {
+            int index = welder.weld(face[i * 3], face[i * 3 + 1], face[i * 3 + 2]);
+            if (index == firstCorners.size()) {
+                firstCorners.add(i);
+            }
+            indices[i] = index;
+        }
+
+        int size = firstCorners.size();
+        float[] bounds = new float[6];
+        for (int i = 0; i < size; i++) {
+            int p = face[firstCorners.get(i) * 3] - 1;
+            for (int k = 0; k < 3; k++) {
+                float value = position[p * 3 + k];
+                bounds[k] = i == 0 ? value : Math.min(bounds[k], value);
+                bounds[k + 3] = i == 0 ? value : Math.max(bounds[k + 3], value);
+            }
+        }
+        VertexSink sink = new VertexSink(format, bounds, size, 0);
+        for (int i = 0; i < size; i++) {
+            int corner = firstCorners.get(i);
+            int p = face[corner * 3] - 1;
+            int t = face[corner * 3 + 1] - 1;
+            int n = face[corner * 3 + 2] - 1;
+            sink.vertex(position[p * 3], position[p * 3 + 1], position[p * 3 + 2],
+                    n >= 0 ? normal[n * 3] : 0, n >= 0 ? normal[n * 3 + 1] : 0, n >= 0 ? normal[n * 3 + 2] : 0,
+                    t >= 0 ? texCoord[t * 2] : 0, 1 - (t >= 0 ? texCoord[t * 2 + 1] : 0));
+        }
+        return sink.build(indices);
+    }
+}
@@ -0,0 +1,354 @@
+package pl.marconzet.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Allocation-free .obj reader. Scans bytes straight out of a (memory-mapped) {@link ByteBuffer}, parses numbers
+ * by hand and writes them into the primitive arrays of {@link ObjData}. Unlike {@link ObjFile} it accepts any
+ * whitespace, {@code v//vn} and {@code v} face corners, negative indices and polygons (fan triangulated).
+ * Large files can be split into line aligned chunks and parsed on a {@link ForkJoinPool}, see
+ * {@link #readParallel(ByteBuffer, ForkJoinPool)}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class ObjParser {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+    private static final long FLOAT_HALFWAY_MASK = (1L << 29) - 1;
+    private static final long FLOAT_HALFWAY = 1L << 28;
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ByteBuffer data;
+    private final int end;
+    private int position;
+
+    private final int positionBase;
+    private final int texCoordBase;
+    private final int normalBase;
+    private boolean relative;
+
+    private final int[] corner = new int[3];
+    private final int[] first = new int[3];
+    private final int[] previous = new int[3];
+
+    private ObjParser(ByteBuffer data, int from, int to) {
+        this(data, from, to, 0, 0, 0);
+    }
+
+    private ObjParser(ByteBuffer data, int from, int to, int positionBase, int texCoordBase, int normalBase) {
+        this.data = data;
+        this.position = from;
+        this.end = to;
+        this.positionBase = positionBase;
+        this.texCoordBase = texCoordBase;
+        this.normalBase = normalBase;
+    }
+
+    public static ObjData read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        }
+    }
+
+    public static ObjData read(ByteBuffer data) {
+        ObjData obj = new ObjData(Math.max(data.remaining() / 128, 16));
+        new ObjParser(data, data.position(), data.limit()).parse(obj);
+        return obj;
+    }
+
+    public static ObjData readParallel(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return readParallel(buffer, ForkJoinPool.commonPool());
+        }
+    }
+
+    public static ObjData readParallel(ByteBuffer data) {
+        return readParallel(data, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses line aligned chunks of {@code data} concurrently and concatenates them in file order using prefix sums
+     * of the per-chunk attribute counts. The result is identical to {@link #read(ByteBuffer)}.
+     * Chunks that use negative (relative) indices are parsed again once the counts of the preceding chunks are known.
+     */
+    public static ObjData readParallel(ByteBuffer data, ForkJoinPool pool) {
+        int[] bounds = split(data, pool.getParallelism() * CHUNKS_PER_THREAD);
+        int chunks = bounds.length - 1;
+        if (chunks == 1) {
+            return read(data);
+        }
+
+        ObjData[] parts = new ObjData[chunks];
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunks];
+        for (int i = 0; i < chunks; i++) {
+            final int chunk = i;
+            tasks[i] = pool.submit(() -> {
+                parts[chunk] = parseChunk(data, bounds[chunk], bounds[chunk + 1], 0, 0, 0);
+            });
+        }
+        joinAll(tasks);
+
+        int[] positionOffsets = new int[chunks + 1];
+        int[] texCoordOffsets = new int[chunks + 1];
+        int[] normalOffsets = new int[chunks + 1];
+        int[] faceOffsets = new int[chunks + 1];
+        for (int i = 0; i < chunks; i++) {
+            positionOffsets[i + 1] = positionOffsets[i] + parts[i].positions.size();
+            texCoordOffsets[i + 1] = texCoordOffsets[i] + parts[i].texCoords.size();
+            normalOffsets[i + 1] = normalOffsets[i] + parts[i].normals.size();
+            faceOffsets[i + 1] = faceOffsets[i] + parts[i].faces.size();
+        }
+
+        float[] positions = new float[positionOffsets[chunks]];
+        float[] texCoords = new float[texCoordOffsets[chunks]];
+        float[] normals = new float[normalOffsets[chunks]];
+        int[] faces = new int[faceOffsets[chunks]];
+        for (int i = 0; i < chunks; i++) {
+            final int chunk = i;
+            tasks[i] = pool.submit(() -> {
+                ObjData part = parts[chunk];
+                if (part.relative && chunk > 0) {
+                    part = parseChunk(data, bounds[chunk], bounds[chunk + 1],
+                            positionOffsets[chunk] / 3, texCoordOffsets[chunk] / 2, normalOffsets[chunk] / 3);
+                }
+                System.arraycopy(part.positions.array(), 0, positions, positionOffsets[chunk], part.positions.size());
+                System.arraycopy(part.texCoords.array(), 0, texCoords, texCoordOffsets[chunk], part.texCoords.size());
+                System.arraycopy(part.normals.array(), 0, normals, normalOffsets[chunk], part.normals.size());
+                System.arraycopy(part.faces.array(), 0, faces, faceOffsets[chunk], part.faces.size());
+            });
+        }
+        joinAll(tasks);
+
+        return new ObjData(new FloatList(positions), new FloatList(texCoords), new FloatList(normals), new IntList(faces));
+    }
+
+    private static ObjData parseChunk(ByteBuffer data, int from, int to, int positionBase, int texCoordBase, int normalBase) {
+        ObjData obj = new ObjData(Math.max((to - from) / 128, 16));
+        ObjParser parser = new ObjParser(data, from, to, positionBase, texCoordBase, normalBase);
+        parser.parse(obj);
+        obj.relative = parser.relative;
+        return obj;
+    }
+
+    private static int[] split(ByteBuffer data, int parts) {
+        int from = data.position();
+        int to = data.limit();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (to - from) / Math.max(parts, 1));
+        IntList bounds = new IntList();
+        bounds.add(from);
+        int position = from;
+        while (to - position > chunkSize) {
+            position += chunkSize;
+            while (position < to && data.get(position - 1) != '\n') {
+                position++;
+            }
+            if (position < to) {
+                bounds.add(position);
+            }
+        }
+        bounds.add(to);
+        return bounds.toArray();
+    }
+
+    private static void joinAll(ForkJoinTask<?>[] tasks) {
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    private void parse(ObjData obj) {
+        while (position < end) {
+            byte c = data.get(position);
+            if (c == 'v' && position + 1 < end) {
+                byte next = data.get(position + 1);
+                if (isSpace(next)) {
+                    position += 2;
+                    obj.positions.add(parseFloat(), parseFloat(), parseFloat());
+                } else if (next == 't' && position + 2 < end && isSpace(data.get(position + 2))) {
+                    position += 3;
+                    obj.texCoords.add(parseFloat(), parseFloat());
+                } else if (next == 'n' && position + 2 < end && isSpace(data.get(position + 2))) {
+                    position += 3;
+                    obj.normals.add(parseFloat(), parseFloat(), parseFloat());
+                }
+            } else if (c == 'f' && position + 1 < end && isSpace(data.get(position + 1))) {
+                position += 2;
+                parseFace(obj);
+            }
+            skipLine();
+        }
+    }
+
+    private void parseFace(ObjData obj) {
+        int corners = 0;
+        while (parseCorner(obj)) {
+            if (corners == 0) {
+                System.arraycopy(corner, 0, first, 0, 3);
+            } else if (corners >= 2) {
+                obj.faces.add(first[0], first[1], first[2]);
+                obj.faces.add(previous[0], previous[1], previous[2]);
+                obj.faces.add(corner[0], corner[1], corner[2]);
+            }
+            System.arraycopy(corner, 0, previous, 0, 3);
+            corners++;
+        }
+    }
+
+    private boolean parseCorner(ObjData obj) {
+        skipSpaces();
+        if (position >= end || isLineEnd(data.get(position))) {
+            return false;
+        }
+        // checked before resolving, so a chunk parsed without its base ends the same faces as the whole file
+        int index = parseInt();
+        if (index == 0) {
+            return false;
+        }
+        corner[0] = resolve(index, positionBase + obj.getPositionCount());
+        corner[1] = 0;
+        corner[2] = 0;
+        if (position < end && data.get(position) == '/') {
+            position++;
+            if (position < end && data.get(position) != '/') {
+                corner[1] = resolve(parseInt(), texCoordBase + obj.getTexCoordCount());
+            }
+            if (position < end && data.get(position) == '/') {
+                position++;
+                corner[2] = resolve(parseInt(), normalBase + obj.getNormalCount());
+            }
+        }
+        return true;
+    }
+
+    private int resolve(int index, int count) {
+        if (index < 0) {
+            relative = true;
+            return count + index + 1;
+        }
+        return index;
+    }
+
+    private int parseInt() {
+        boolean negative = false;
+        byte c = position < end ? data.get(position) : 0;
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            position++;
+        }
+        int value = 0;
+        while (position < end && isDigit(c = data.get(position))) {
+            value = value * 10 + (c - '0');
+            position++;
+        }
+        return negative ? -value : value;
+    }
+
+    private float parseFloat() {
+        skipSpaces();
+        int start = position;
+        boolean negative = false;
+        byte c = position < end ? data.get(position) : 0;
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+        while (position < end && isDigit(c = data.get(position))) {
+            any = true;
+            if (digits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) digits++;
+            } else {
+                exponent++;
+            }
+            position++;
+        }
+        if (position < end && data.get(position) == '.') {
+            position++;
+            while (position < end && isDigit(c = data.get(position))) {
+                any = true;
+                if (digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) digits++;
+                    exponent--;
+                }
+                position++;
+            }
+        }
+        if (any && position < end && ((c = data.get(position)) == 'e' || c == 'E')) {
+            position++;
+            exponent += parseInt();
+        }
+
+        if (!any || digits > MAX_EXACT_DIGITS || exponent < -22 || exponent > 22) {
+            return parseFloatSlow(start);
+        }
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        // value is the correctly rounded double, narrowing it rounds a second time and only goes wrong when value
+        // landed exactly halfway between two floats (low 29 mantissa bits 1000...0), leave those to Float.parseFloat
+        if ((Double.doubleToRawLongBits(value) & FLOAT_HALFWAY_MASK) == FLOAT_HALFWAY) {
+            return parseFloatSlow(start);
+        }
+        return (float) (negative ? -value : value);
+    }
+
+    private float parseFloatSlow(int start) {
+        position = start;
+        while (position < end && !isSpace(data.get(position)) && !isLineEnd(data.get(position))) {
+            position++;
+        }
+        if (position == start) {
+            return 0;
+        }
+        byte[] token = new byte[position - start];
+        for (int i = 0; i < token.length; i++) {
+            token[i] = data.get(start + i);
+        }
+        return Float.parseFloat(new String(token, StandardCharsets.US_ASCII));
+    }
+
+    private void skipSpaces() {
+        while (position < end && isSpace(data.get(position))) {
+            position++;
+        }
+    }
+
+    private void skipLine() {
+        while (position < end && data.get(position) != '\n') {
+            position++;
+        }
+        position++;
+    }
+
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static boolean isLineEnd(byte c) {
+        return c == '\n' || c == '\r';
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+}
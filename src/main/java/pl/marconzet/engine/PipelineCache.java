@@ -0,0 +1,253 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkPhysicalDevice;
+import org.lwjgl.vulkan.VkPhysicalDeviceProperties;
+import org.lwjgl.vulkan.VkPipelineCacheCreateInfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import static org.lwjgl.vulkan.VK10.*;
+import static pl.marconzet.engine.VKUtil.translateVulkanResult;
+
+/**
+ * A {@code VkPipelineCache} kept on disk between runs, so pipelines compiled by the driver once are reused at startup
+ * and every swap chain recreation.
+ * <p>
+ * The file is seeded into the cache only when it was written for the same device and driver: drivers reject or,
+ * worse, misread data of another version. Layout (native byte order): magic, version, vendor id, device id, driver
+ * version (ints), pipeline cache UUID (16 bytes), data size (int), CRC32 of the data (long), then the data of
+ * {@code vkGetPipelineCacheData}, whose own header is checked against the device as well.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class PipelineCache {
+    private static final int MAGIC = 0x45504950;
+    private static final int VERSION = 1;
+    private static final int UUID_SIZE = VK_UUID_SIZE;
+    private static final int HEADER_SIZE = 5 * 4 + UUID_SIZE + 4 + 8;
+    // header length, header version, vendor id, device id, UUID
+    private static final int VULKAN_HEADER_SIZE = 4 * 4 + UUID_SIZE;
+    private static final Path CACHE_DIRECTORY = Paths.get(System.getProperty("engine.cache", ".cache"));
+
+    private final VkDevice device;
+    private final Path file;
+    private final int vendorId;
+    private final int deviceId;
+    private final int driverVersion;
+    private final ByteBuffer uuid = BufferUtils.createByteBuffer(UUID_SIZE);
+    private final long handle;
+    private final String state;
+    private boolean started;
+    private int startupPipelines;
+    private long startupTime;
+    private int resizes;
+    private long resizeTime;
+    private long maxResizeTime;
+
+    /**
+     * Creates the cache, seeded from {@code file} when it holds data of this device and driver.
+     *
+     * @param file where the cache is saved by {@link #save()}, or {@code null} for none
+     */
+    public PipelineCache(VkDevice device, VkPhysicalDevice physicalDevice, Path file) {
+        this.device = device;
+        this.file = file;
+        VkPhysicalDeviceProperties properties = VkPhysicalDeviceProperties.create();
+        vkGetPhysicalDeviceProperties(physicalDevice, properties);
+        vendorId = properties.vendorID();
+        deviceId = properties.deviceID();
+        driverVersion = properties.driverVersion();
+        uuid.put(properties.pipelineCacheUUID()).flip();
+
+        ByteBuffer initialData = null;
+        String state;
+        if (file == null) {
+            state = "cold, not persisted";
+        } else if (!Files.isRegularFile(file)) {
+            state = "cold, no " + file;
+        } else {
+            try {
+                initialData = validate(ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.nativeOrder()),
+                        vendorId, deviceId, driverVersion, uuid);
+            } catch (IOException e) {
+                initialData = null;
+            }
+            state = initialData != null ? String.format("warm, %.1f KB from %s", initialData.remaining() / 1024.0, file)
+                    : "cold, " + file + " is stale or corrupt";
+        }
+
+        VkPipelineCacheCreateInfo createInfo = VkPipelineCacheCreateInfo.create()
+                .sType(VK_STRUCTURE_TYPE_PIPELINE_CACHE_CREATE_INFO);
+        if (initialData != null) {
+            ByteBuffer direct = BufferUtils.createByteBuffer(initialData.remaining());
+            direct.put(initialData).flip();
+            createInfo.pInitialData(direct);
+        }
+        LongBuffer pCache = BufferUtils.createLongBuffer(1);
+        int err = vkCreatePipelineCache(device, createInfo, null, pCache);
+        if (err != VK_SUCCESS && initialData != null) {
+            // data the driver refuses despite a matching header, start over
+            createInfo.pInitialData(null);
+            state = "cold, " + file + " rejected by the driver";
+            err = vkCreatePipelineCache(device, createInfo, null, pCache);
+        }
+        if (err != VK_SUCCESS) {
+            throw new RuntimeException("Failed to create pipeline cache: " + translateVulkanResult(err));
+        }
+        handle = pCache.get(0);
+        this.state = state;
+    }
+
+    /**
+     * @return the file of the pipeline cache in the cache directory, {@code engine.cache}
+     */
+    public static Path defaultFile() {
+        return CACHE_DIRECTORY.resolve("pipelines.bin");
+    }
+
+    /**
+     * Checks a cache file against the device and driver it is loaded for.
+     *
+     * @return the pipeline cache data of {@code file}, or {@code null} when it does not belong to this device and
+     * driver or is damaged
+     */
+    static ByteBuffer validate(ByteBuffer file, int vendorId, int deviceId, int driverVersion, ByteBuffer uuid) {
+        if (file.remaining() < HEADER_SIZE || file.getInt() != MAGIC || file.getInt() != VERSION
+                || file.getInt() != vendorId || file.getInt() != deviceId || file.getInt() != driverVersion
+                || !matches(file, uuid)) {
+            return null;
+        }
+        int size = file.getInt();
+        long checksum = file.getLong();
+        if (size < VULKAN_HEADER_SIZE || size != file.remaining()) {
+            return null;
+        }
+        ByteBuffer data = file.slice().order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        if (crc.getValue() != checksum) {
+            return null;
+        }
+        // the header written by the driver, little endian by the specification
+        ByteBuffer header = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int headerLength = header.getInt();
+        if (headerLength < VULKAN_HEADER_SIZE || headerLength > size
+                || header.getInt() != VK_PIPELINE_CACHE_HEADER_VERSION_ONE
+                || header.getInt() != vendorId || header.getInt() != deviceId || !matches(header, uuid)) {
+            return null;
+        }
+        return data;
+    }
+
+    private static boolean matches(ByteBuffer buffer, ByteBuffer uuid) {
+        for (int i = 0; i < UUID_SIZE; i++) {
+            if (buffer.get() != uuid.get(uuid.position() + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wraps {@code data} of {@code vkGetPipelineCacheData} in the file header.
+     */
+    static ByteBuffer pack(ByteBuffer data, int vendorId, int deviceId, int driverVersion, ByteBuffer uuid) {
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        ByteBuffer file = ByteBuffer.allocate(HEADER_SIZE + data.remaining()).order(ByteOrder.nativeOrder());
+        file.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(vendorId)
+                .putInt(deviceId)
+                .putInt(driverVersion)
+                .put(uuid.duplicate())
+                .putInt(data.remaining())
+                .putLong(crc.getValue())
+                .put(data.duplicate());
+        file.flip();
+        return file;
+    }
+
+    public long getHandle() {
+        return handle;
+    }
+
+    /**
+     * Records the time a pipeline took to create through the cache. Pipelines before {@link #endStartup()} count
+     * toward startup, every later call is one swap chain recreation.
+     */
+    public void recordCreation(long nanos) {
+        if (!started) {
+            startupPipelines++;
+            startupTime += nanos;
+        } else {
+            resizes++;
+            resizeTime += nanos;
+            maxResizeTime = Math.max(maxResizeTime, nanos);
+        }
+    }
+
+    /**
+     * Ends startup, see {@link #recordCreation(long)}.
+     */
+    public void endStartup() {
+        started = true;
+    }
+
+    public String getStatistics() {
+        return String.format("pipeline cache: %s%n  %d pipelines at startup: %.1f ms, after %d resizes: %.1f ms average, %.1f ms max%n",
+                state, startupPipelines, startupTime / 1e6, resizes, resizes == 0 ? 0 : resizeTime / 1e6 / resizes,
+                maxResizeTime / 1e6);
+    }
+
+    /**
+     * Writes the cache to its file, replacing it atomically; does nothing when there is none.
+     *
+     * @throws IOException when the file cannot be written or the driver fails to return the cache data
+     */
+    public void save() throws IOException {
+        if (file == null) {
+            return;
+        }
+        PointerBuffer pSize = BufferUtils.createPointerBuffer(1);
+        int err = vkGetPipelineCacheData(device, handle, pSize, null);
+        if (err != VK_SUCCESS) {
+            throw new IOException("Failed to get pipeline cache size: " + translateVulkanResult(err));
+        }
+        ByteBuffer data = BufferUtils.createByteBuffer((int) pSize.get(0));
+        err = vkGetPipelineCacheData(device, handle, pSize, data);
+        if (err != VK_SUCCESS) {
+            throw new IOException("Failed to get pipeline cache data: " + translateVulkanResult(err));
+        }
+        data.limit((int) pSize.get(0));
+        ByteBuffer packed = pack(data, vendorId, deviceId, driverVersion, uuid);
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (packed.hasRemaining()) channel.write(packed);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void destroy() {
+        vkDestroyPipelineCache(device, handle, null);
+    }
+}
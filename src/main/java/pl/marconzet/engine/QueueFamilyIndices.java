@@ -18,6 +18,7 @@ import static org.lwjgl.vulkan.VK10.*;
 public class QueueFamilyIndices {
     private int graphicsFamily = -1;
     private int presentFamily = -1;
+    private int transferFamily = -1;
 
     public QueueFamilyIndices(VkPhysicalDevice physicalDevice, long surface) {
         IntBuffer pQueueFamilyCount = BufferUtils.createIntBuffer(1);
@@ -33,16 +34,18 @@ public class QueueFamilyIndices {
             IntBuffer pSupport = BufferUtils.createIntBuffer(1);
             vkGetPhysicalDeviceSurfaceSupportKHR(physicalDevice, i, surface, pSupport);
             boolean support = pSupport.get() == VK_TRUE;
-            if (queueFamily.queueCount() > 0 && (queueFamily.queueFlags() & VK_QUEUE_GRAPHICS_BIT)>0) {
+            if (queueFamily.queueCount() > 0 && (queueFamily.queueFlags() & VK_QUEUE_GRAPHICS_BIT)>0 && graphicsFamily < 0) {
                 this.graphicsFamily = i;
             }
 
-            if (queueFamily.queueCount() > 0 && support) {
+            if (queueFamily.queueCount() > 0 && support && presentFamily < 0) {
                 this.presentFamily = i;
             }
 
-            if (this.isComplete()) {
-                break;
+            if (queueFamily.queueCount() > 0 && transferFamily < 0
+                    && (queueFamily.queueFlags() & VK_QUEUE_TRANSFER_BIT) > 0
+                    && (queueFamily.queueFlags() & (VK_QUEUE_GRAPHICS_BIT | VK_QUEUE_COMPUTE_BIT)) == 0) {
+                this.transferFamily = i;
             }
 
             i++;
@@ -60,4 +63,30 @@ public class QueueFamilyIndices {
     public int getPresentFamily() {
         return presentFamily;
     }
+
+    /**
+     * @return a transfer-only family, usually backed by a DMA engine, or the graphics family when there is none
+     */
+    public int getTransferFamily() {
+        return transferFamily >= 0 ? transferFamily : graphicsFamily;
+    }
+
+    public boolean hasDedicatedTransfer() {
+        return transferFamily >= 0;
+    }
+
+    /**
+     * @return distinct families the device needs queues from
+     */
+    public int[] getUniqueFamilies() {
+        IntList families = new IntList();
+        for (int family : new int[]{graphicsFamily, presentFamily, getTransferFamily()}) {
+            boolean seen = false;
+            for (int j = 0; j < families.size(); j++) {
+                seen |= families.get(j) == family;
+            }
+            if (!seen) families.add(family);
+        }
+        return families.toArray();
+    }
 }
@@ -0,0 +1,414 @@
+package pl.marconzet.engine;
+
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Objects placed in the world, each drawing one of a set of shared meshes with its own affine transform.
+ * <p>
+ * Objects are grouped by mesh and level of detail into batches, so every mesh is drawn with one instanced call per
+ * level however many objects use it. {@link #write(FloatBuffer)} fills the per-instance vertex data in batch order: the object transform as three rows
+ * of a 3x4 matrix ({@link #INSTANCE_SIZE} bytes), read by the vertex shader at locations 3 to 5. The
+ * {@link Model#getPositionTransform()} of the mesh is applied per batch, not per instance.
+ * <p>
+ * Transforms are kept in one flat array; adding or removing objects or meshes changes {@link #getVersion()}, after
+ * which batches are regrouped and recorded draws have to be recorded again. Moving objects does not.
+ * <p>
+ * {@link #cull(Matrix4fc, float)} selects the objects whose world bounds intersect the view volume, through a {@link Bvh}
+ * built after structural changes and refitted when objects move, and picks the coarsest level of detail of every one
+ * whose {@link Model#getLodError error} projected to the screen stays below a threshold.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class Scene {
+    public static final int INSTANCE_SIZE = 12 * 4;
+    private static final int FLOATS = 12;
+
+    private final List<Model> meshes = new ArrayList<>();
+    private int[] objectMeshes = new int[16];
+    private float[] transforms = new float[16 * FLOATS];
+    private final IntList free = new IntList();
+    private int count;
+    private int objects;
+
+    private int version;
+    private long modifications;
+    private int groupedVersion = -1;
+    private int[] order = new int[0];
+    private int[] batches = new int[0];
+    private float[] instances = new float[0];
+    private int[] drawOrder = new int[0];
+    private int drawCount;
+
+    private float[] objectBounds = new float[16 * 6];
+    private final Bvh bvh = new Bvh();
+    private int bvhVersion = -1;
+    private final float[] planes = new float[24];
+    private final IntList ranges = new IntList();
+    private final IntList visibleBatches = new IntList();
+    private int[] visibleOrder = new int[0];
+    private int[] visibleKeys = new int[0];
+    private int[] batchStarts = new int[0];
+
+    /**
+     * @return id of the mesh
+     */
+    public int addMesh(Model model) {
+        meshes.add(model);
+        version++;
+        return meshes.size() - 1;
+    }
+
+    /**
+     * Replaces the model of {@code mesh} for every object using it.
+     */
+    public void setMesh(int mesh, Model model) {
+        meshes.set(mesh, model);
+        version++;
+        modifications++;
+    }
+
+    public Model getMesh(int mesh) {
+        return meshes.get(mesh);
+    }
+
+    public int getMeshCount() {
+        return meshes.size();
+    }
+
+    /**
+     * @return id of the new object
+     */
+    public int add(int mesh, Matrix4fc transform) {
+        if (mesh < 0 || mesh >= meshes.size()) {
+            throw new IllegalArgumentException("Unknown mesh " + mesh);
+        }
+        int object;
+        if (free.size() > 0) {
+            object = free.get(free.size() - 1);
+            free.remove(free.size() - 1);
+        } else {
+            object = count++;
+            if (object == objectMeshes.length) {
+                objectMeshes = Arrays.copyOf(objectMeshes, object * 2);
+                transforms = Arrays.copyOf(transforms, object * 2 * FLOATS);
+                objectBounds = Arrays.copyOf(objectBounds, object * 2 * 6);
+            }
+        }
+        objectMeshes[object] = mesh;
+        rows(transform, transforms, object * FLOATS);
+        objects++;
+        version++;
+        modifications++;
+        return object;
+    }
+
+    /**
+     * Removes {@code object}; its id may be handed out again by {@link #add}.
+     *
+     * @throws IllegalArgumentException when {@code object} was never added or is already removed
+     */
+    public void remove(int object) {
+        if (object < 0 || object >= count || objectMeshes[object] < 0) {
+            throw new IllegalArgumentException("Unknown object " + object);
+        }
+        objectMeshes[object] = -1;
+        free.add(object);
+        objects--;
+        version++;
+        modifications++;
+    }
+
+    /**
+     * Moves {@code object}; only the next {@link #write(FloatBuffer)} changes, batches stay the same.
+     */
+    public void setTransform(int object, Matrix4fc transform) {
+        rows(transform, transforms, object * FLOATS);
+        if (bvhVersion == version) {
+            computeBounds(object);
+            bvh.update(object);
+        }
+        modifications++;
+    }
+
+    /**
+     * Copies the transform of {@code object} into {@code transform}.
+     */
+    public void getTransform(int object, Matrix4f transform) {
+        int at = object * FLOATS;
+        transform.set(transforms[at], transforms[at + 4], transforms[at + 8], 0f,
+                transforms[at + 1], transforms[at + 5], transforms[at + 9], 0f,
+                transforms[at + 2], transforms[at + 6], transforms[at + 10], 0f,
+                transforms[at + 3], transforms[at + 7], transforms[at + 11], 1f);
+    }
+
+    /**
+     * @return mesh drawn by {@code object}
+     */
+    public int getObjectMesh(int object) {
+        return objectMeshes[object];
+    }
+
+    public int getObjectCount() {
+        return objects;
+    }
+
+    /**
+     * @return counter of structural changes: objects or meshes added or removed, meshes replaced
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return counter of every change, including moved objects; instance data written before is stale when it differs
+     */
+    public long getModifications() {
+        return modifications;
+    }
+
+    /**
+     * Selects all objects, at level of detail 0, for the next {@link #write(FloatBuffer)}.
+     *
+     * @return (mesh, level of detail, first instance, instance count) of every mesh with objects, in the order of
+     * {@link #write(FloatBuffer)}
+     */
+    public int[] getBatches() {
+        group();
+        drawOrder = order;
+        drawCount = objects;
+        return batches;
+    }
+
+    /**
+     * Selects the objects inside the view volume of {@code viewProjection} at level of detail 0.
+     */
+    public IntList cull(Matrix4fc viewProjection) {
+        return cull(viewProjection, 0);
+    }
+
+    /**
+     * Selects the objects inside the view volume of {@code viewProjection} (Vulkan clip space) for the next
+     * {@link #write(FloatBuffer)}. Rebuilds the hierarchy after structural changes, refits it after moves.
+     *
+     * @param lodThreshold largest error of a level of detail, in normalized device coordinates along y, e.g. 2 pixels
+     *                     divided by the viewport height for one pixel; 0 keeps level 0
+     * @return (mesh, level of detail, first instance, instance count) of every batch with visible objects, valid until
+     * the next call
+     */
+    public IntList cull(Matrix4fc viewProjection, float lodThreshold) {
+        if (bvhVersion != version) {
+            group();
+            for (int instance = 0; instance < objects; instance++) {
+                computeBounds(order[instance]);
+            }
+            bvh.build(order, objects, objectBounds);
+            bvhVersion = version;
+            if (visibleOrder.length < objects) {
+                visibleOrder = new int[objects];
+                visibleKeys = new int[objects];
+            }
+            batchStarts = new int[meshes.size() * Model.MAX_LODS + 1];
+        } else {
+            bvh.refit();
+        }
+        Bvh.frustumPlanes(viewProjection, planes);
+        ranges.clear();
+        int visible = bvh.cull(planes, ranges);
+
+        // projected size: clip w is the view depth, the length of the y row the scale of the projection
+        float rowY = (float) Math.sqrt(viewProjection.m01() * viewProjection.m01()
+                + viewProjection.m11() * viewProjection.m11() + viewProjection.m21() * viewProjection.m21());
+        float wx = viewProjection.m03(), wy = viewProjection.m13(), wz = viewProjection.m23(), ww = viewProjection.m33();
+
+        // counting sort of the visible objects by mesh and level of detail
+        int[] primitives = bvh.getPrimitives();
+        Arrays.fill(batchStarts, 0);
+        int visibleCount = 0;
+        for (int r = 0; r < ranges.size(); r += 2) {
+            for (int i = ranges.get(r), end = i + ranges.get(r + 1); i < end; i++) {
+                int object = primitives[i];
+                int mesh = objectMeshes[object];
+                int lod = lodThreshold > 0 ? selectLod(object, meshes.get(mesh), rowY, wx, wy, wz, ww, lodThreshold) : 0;
+                int key = mesh * Model.MAX_LODS + lod;
+                visibleKeys[visibleCount++] = key;
+                batchStarts[key + 1]++;
+            }
+        }
+        visibleBatches.clear();
+        for (int key = 0; key < batchStarts.length - 1; key++) {
+            if (batchStarts[key + 1] > 0) {
+                visibleBatches.add(key / Model.MAX_LODS, key % Model.MAX_LODS, batchStarts[key]);
+                visibleBatches.add(batchStarts[key + 1]);
+            }
+            batchStarts[key + 1] += batchStarts[key];
+        }
+        visibleCount = 0;
+        for (int r = 0; r < ranges.size(); r += 2) {
+            for (int i = ranges.get(r), end = i + ranges.get(r + 1); i < end; i++) {
+                visibleOrder[batchStarts[visibleKeys[visibleCount++]]++] = primitives[i];
+            }
+        }
+        drawOrder = visibleOrder;
+        drawCount = visible;
+        return visibleBatches;
+    }
+
+    /**
+     * @return object of {@code instance} in the order of the last {@link #getBatches()} or {@link #cull(Matrix4fc, float)}
+     */
+    public int getDrawnObject(int instance) {
+        return drawOrder[instance];
+    }
+
+    /**
+     * Writes the instance data of the objects selected by the last {@link #getBatches()} or {@link #cull(Matrix4fc, float)},
+     * grouped by mesh, at the position of {@code target}.
+     *
+     * @return number of instances written
+     */
+    public int write(FloatBuffer target) {
+        for (int instance = 0; instance < drawCount; instance++) {
+            System.arraycopy(transforms, drawOrder[instance] * FLOATS, instances, instance * FLOATS, FLOATS);
+        }
+        // one bulk copy, a put per instance costs more than the gather
+        target.put(instances, 0, drawCount * FLOATS);
+        return drawCount;
+    }
+
+    /**
+     * Writes the world bounds of all objects in the order of {@link #getBatches()}, for {@link IndirectCuller}: min xyz
+     * and the index of the batch as float bits, max xyz and 0.
+     *
+     * @return number of instances written
+     */
+    public int writeBounds(FloatBuffer target) {
+        group();
+        for (int b = 0; b < batches.length; b += 4) {
+            float batch = Float.intBitsToFloat(b / 4);
+            for (int instance = batches[b + 2], end = instance + batches[b + 3]; instance < end; instance++) {
+                int object = order[instance];
+                computeBounds(object);
+                int at = object * 6;
+                target.put(objectBounds[at]).put(objectBounds[at + 1]).put(objectBounds[at + 2]).put(batch)
+                        .put(objectBounds[at + 3]).put(objectBounds[at + 4]).put(objectBounds[at + 5]).put(0f);
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * @return coarsest level of detail of {@code mesh} whose error, scaled by the object and projected at the nearest
+     * depth of its bounds, is at most {@code threshold}
+     */
+    private int selectLod(int object, Model mesh, float rowY, float wx, float wy, float wz, float ww, float threshold) {
+        int lods = mesh.getLodCount();
+        if (lods == 1) {
+            return 0;
+        }
+        int b = object * 6;
+        float cx = (objectBounds[b] + objectBounds[b + 3]) * 0.5f, ex = (objectBounds[b + 3] - objectBounds[b]) * 0.5f;
+        float cy = (objectBounds[b + 1] + objectBounds[b + 4]) * 0.5f, ey = (objectBounds[b + 4] - objectBounds[b + 1]) * 0.5f;
+        float cz = (objectBounds[b + 2] + objectBounds[b + 5]) * 0.5f, ez = (objectBounds[b + 5] - objectBounds[b + 2]) * 0.5f;
+        float depth = wx * cx + wy * cy + wz * cz + ww - (Math.abs(wx) * ex + Math.abs(wy) * ey + Math.abs(wz) * ez);
+        if (depth <= 0) {
+            return 0;
+        }
+        // largest scale along a model axis: the longest column of the transform
+        int t = object * FLOATS;
+        float scale = 0;
+        for (int column = 0; column < 3; column++) {
+            float x = transforms[t + column], y = transforms[t + 4 + column], z = transforms[t + 8 + column];
+            scale = Math.max(scale, x * x + y * y + z * z);
+        }
+        float projection = (float) Math.sqrt(scale) * rowY / depth;
+        int lod = 0;
+        while (lod + 1 < lods && mesh.getLodError(lod + 1) * projection <= threshold) {
+            lod++;
+        }
+        return lod;
+    }
+
+    /**
+     * World bounds of {@code object}: the box of its mesh bounds transformed, as center and absolute extents.
+     */
+    private void computeBounds(int object) {
+        float[] mesh = meshes.get(objectMeshes[object]).getBounds();
+        float cx = (mesh[0] + mesh[3]) * 0.5f, cy = (mesh[1] + mesh[4]) * 0.5f, cz = (mesh[2] + mesh[5]) * 0.5f;
+        float ex = (mesh[3] - mesh[0]) * 0.5f, ey = (mesh[4] - mesh[1]) * 0.5f, ez = (mesh[5] - mesh[2]) * 0.5f;
+        int t = object * FLOATS;
+        int b = object * 6;
+        for (int row = 0; row < 3; row++) {
+            float r0 = transforms[t + row * 4], r1 = transforms[t + row * 4 + 1], r2 = transforms[t + row * 4 + 2];
+            float center = r0 * cx + r1 * cy + r2 * cz + transforms[t + row * 4 + 3];
+            float extent = Math.abs(r0) * ex + Math.abs(r1) * ey + Math.abs(r2) * ez;
+            objectBounds[b + row] = center - extent;
+            objectBounds[b + row + 3] = center + extent;
+        }
+    }
+
+    /**
+     * Counting sort of the objects by mesh, redone after structural changes only.
+     */
+    private void group() {
+        if (groupedVersion == version) {
+            return;
+        }
+        int[] starts = new int[meshes.size() + 1];
+        for (int object = 0; object < count; object++) {
+            if (objectMeshes[object] >= 0) {
+                starts[objectMeshes[object] + 1]++;
+            }
+        }
+        int used = 0;
+        for (int mesh = 0; mesh < meshes.size(); mesh++) {
+            if (starts[mesh + 1] > 0) {
+                used++;
+            }
+            starts[mesh + 1] += starts[mesh];
+        }
+        batches = new int[used * 4];
+        for (int mesh = 0, b = 0; mesh < meshes.size(); mesh++) {
+            if (starts[mesh + 1] > starts[mesh]) {
+                batches[b++] = mesh;
+                batches[b++] = 0;
+                batches[b++] = starts[mesh];
+                batches[b++] = starts[mesh + 1] - starts[mesh];
+            }
+        }
+        if (order.length < objects) {
+            order = new int[objects];
+            instances = new float[objects * FLOATS];
+        }
+        for (int object = 0; object < count; object++) {
+            if (objectMeshes[object] >= 0) {
+                order[starts[objectMeshes[object]]++] = object;
+            }
+        }
+        groupedVersion = version;
+    }
+
+    /**
+     * Stores the upper three rows of {@code matrix} into {@code target} from {@code at}.
+     */
+    private static void rows(Matrix4fc matrix, float[] target, int at) {
+        target[at] = matrix.m00();
+        target[at + 1] = matrix.m10();
+        target[at + 2] = matrix.m20();
+        target[at + 3] = matrix.m30();
+        target[at + 4] = matrix.m01();
+        target[at + 5] = matrix.m11();
+        target[at + 6] = matrix.m21();
+        target[at + 7] = matrix.m31();
+        target[at + 8] = matrix.m02();
+        target[at + 9] = matrix.m12();
+        target[at + 10] = matrix.m22();
+        target[at + 11] = matrix.m32();
+    }
+}
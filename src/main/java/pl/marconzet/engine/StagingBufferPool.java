@@ -0,0 +1,198 @@
+package pl.marconzet.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Grows and shrinks a set of equally sized {@link StagingRing}s. Reservations come from the ring used last, then from
+ * the other rings, and only then from a new ring, as long as the total stays within the size cap. Space is handed back
+ * per submitted batch, see {@link #takeReserved()} and {@link #release(Batch)}, once the batch's fence has signaled.
+ * <p>
+ * Shrink policy: {@link #trim()} destroys rings that have been empty for longer than the shrink delay, keeping one.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class StagingBufferPool {
+    /**
+     * Creates and destroys the buffers behind the rings.
+     */
+    public interface Factory {
+        StagingRing create(long capacity);
+
+        void destroy(StagingRing ring);
+    }
+
+    private final Factory factory;
+    private final long ringSize;
+    private final long maxSize;
+    private final long shrinkDelay;
+    private final List<StagingRing> rings = new ArrayList<>();
+    private final LongList emptySince = new LongList();
+    private int current;
+
+    private int created;
+    private int destroyed;
+    private int peakRings;
+
+    /**
+     * @param ringSize    capacity of every ring, the largest single reservation
+     * @param maxSize     cap on the capacity of all rings together
+     * @param shrinkDelay nanoseconds a ring has to stay empty before {@link #trim()} destroys it
+     */
+    public StagingBufferPool(Factory factory, long ringSize, long maxSize, long shrinkDelay) {
+        if (maxSize < ringSize) {
+            throw new IllegalArgumentException("Staging pool cap " + maxSize + " is smaller than one ring of " + ringSize);
+        }
+        this.factory = factory;
+        this.ringSize = ringSize;
+        this.maxSize = maxSize;
+        this.shrinkDelay = shrinkDelay;
+    }
+
+    /**
+     * Reserves {@code size} bytes aligned to {@code alignment}.
+     *
+     * @return false when every ring is full and the cap does not allow another one; releasing older batches helps
+     */
+    public boolean reserve(long size, long alignment, Range range) {
+        if (size > ringSize) {
+            throw new IllegalArgumentException("Staging reservation of " + size + " bytes exceeds the ring size " + ringSize);
+        }
+        for (int i = 0; i < rings.size(); i++) {
+            int index = (current + i) % rings.size();
+            if (reserve(index, size, alignment, range)) {
+                current = index;
+                return true;
+            }
+        }
+        if ((long) (rings.size() + 1) * ringSize > maxSize) {
+            return false;
+        }
+        rings.add(factory.create(ringSize));
+        emptySince.add(0);
+        created++;
+        peakRings = Math.max(peakRings, rings.size());
+        current = rings.size() - 1;
+        return reserve(current, size, alignment, range);
+    }
+
+    private boolean reserve(int index, long size, long alignment, Range range) {
+        StagingRing ring = rings.get(index);
+        long offset = ring.reserve(size, alignment);
+        if (offset < 0) {
+            return false;
+        }
+        range.ring = ring;
+        range.offset = offset;
+        return true;
+    }
+
+    /**
+     * @return space reserved since the previous call, to be released together once the batch using it has completed
+     */
+    public Batch takeReserved() {
+        Batch batch = new Batch();
+        for (StagingRing ring : rings) {
+            long bytes = ring.takeReserved();
+            if (bytes > 0) {
+                batch.rings.add(ring);
+                batch.bytes.add(bytes);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * @return whether space has been reserved since the last {@link #takeReserved()}
+     */
+    public boolean hasReserved() {
+        for (StagingRing ring : rings) {
+            if (ring.getReserved() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Releases a batch; batches have to be released in the order they were taken.
+     */
+    public void release(Batch batch) {
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.rings.size(); i++) {
+            StagingRing ring = batch.rings.get(i);
+            ring.release(batch.bytes.get(i));
+            if (ring.getUsed() == 0) {
+                emptySince.set(rings.indexOf(ring), now);
+            }
+        }
+    }
+
+    /**
+     * Destroys rings that stayed empty for longer than the shrink delay, keeping at least one.
+     */
+    public void trim() {
+        long now = System.nanoTime();
+        for (int i = rings.size() - 1; i >= 0 && rings.size() > 1; i--) {
+            StagingRing ring = rings.get(i);
+            if (ring.getUsed() == 0 && now - emptySince.get(i) > shrinkDelay) {
+                factory.destroy(ring);
+                rings.remove(i);
+                emptySince.remove(i);
+                destroyed++;
+            }
+        }
+        if (current >= rings.size()) {
+            current = 0;
+        }
+    }
+
+    public int getRingCount() {
+        return rings.size();
+    }
+
+    public long getCapacity() {
+        return (long) rings.size() * ringSize;
+    }
+
+    public String getStatistics() {
+        return String.format("staging: %d x %.1f MB rings (peak %d, cap %.1f MB), %d created, %d destroyed%n",
+                rings.size(), ringSize / 1048576.0, peakRings, maxSize / 1048576.0, created, destroyed);
+    }
+
+    /**
+     * Destroys every ring; nothing may be in flight.
+     */
+    public void destroy() {
+        for (StagingRing ring : rings) {
+            factory.destroy(ring);
+        }
+        rings.clear();
+        emptySince.clear();
+    }
+
+    /**
+     * Result of {@link #reserve(long, long, Range)}, reusable.
+     */
+    public static class Range {
+        StagingRing ring;
+        long offset;
+
+        public StagingRing getRing() {
+            return ring;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+    }
+
+    /**
+     * Space reserved for one submitted batch, per ring.
+     */
+    public static class Batch {
+        final List<StagingRing> rings = new ArrayList<>(1);
+        final LongList bytes = new LongList(1);
+    }
+}
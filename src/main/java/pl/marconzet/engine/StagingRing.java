@@ -0,0 +1,121 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.vulkan.VkDevice;
+
+import static org.lwjgl.vulkan.VK10.VK_NULL_HANDLE;
+import static org.lwjgl.vulkan.VK10.vkDestroyBuffer;
+
+/**
+ * Host visible transfer source buffer handed out front to back as a ring. Space is reserved at the head and released
+ * in the same order it was reserved, once the GPU work reading it has completed, see {@link UploadManager}.
+ * A reservation never wraps: when it does not fit before the end of the buffer it starts at 0 and the skipped tail
+ * is accounted to it.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class StagingRing {
+    private final long buffer;
+    private final MemoryAllocation memory;
+    private final long capacity;
+
+    private long head;
+    private long used;
+    private long reserved;
+
+    /**
+     * @param memory   host visible, host coherent allocation bound to {@code buffer}
+     * @param capacity size of {@code buffer}
+     */
+    public StagingRing(long buffer, MemoryAllocation memory, long capacity) {
+        this.buffer = buffer;
+        this.memory = memory;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Ring bookkeeping without a buffer.
+     */
+    StagingRing(long capacity) {
+        this.buffer = VK_NULL_HANDLE;
+        this.memory = null;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return offset of {@code size} free bytes aligned to {@code alignment}, -1 when the ring has no such range until
+     * older reservations are released
+     */
+    public long reserve(long size, long alignment) {
+        if (used == 0) {
+            head = 0;
+        }
+        long tail = head - used;
+        if (tail < 0) tail += capacity;
+        long start = (head + alignment - 1) / alignment * alignment;
+        if (used == 0 || tail < head) {
+            if (start + size > capacity) {
+                if (size > tail) return -1;
+                start = 0;
+                size += capacity - head;
+            } else {
+                size += start - head;
+            }
+        } else if (tail > head && start + size <= tail) {
+            size += start - head;
+        } else {
+            return -1;
+        }
+        used += size;
+        reserved += size;
+        head = (head + size) % capacity;
+        return start;
+    }
+
+    /**
+     * @return bytes reserved since the previous call; the caller releases them when the work using them is done
+     */
+    public long takeReserved() {
+        long bytes = reserved;
+        reserved = 0;
+        return bytes;
+    }
+
+    /**
+     * Releases the oldest {@code bytes} reserved bytes.
+     */
+    public void release(long bytes) {
+        used -= bytes;
+    }
+
+    public long getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return host address of {@code offset}
+     */
+    public long address(long offset) {
+        return memory.getMappedAddress() + offset;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getUsed() {
+        return used;
+    }
+
+    /**
+     * @return bytes reserved since the last {@link #takeReserved()}
+     */
+    public long getReserved() {
+        return reserved;
+    }
+
+    public void destroy(VkDevice device) {
+        vkDestroyBuffer(device, buffer, null);
+        memory.free();
+    }
+}
@@ -0,0 +1,142 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Packs small RGBA8 textures into one larger texture, so many materials share one {@link TextureTable} slot and
+ * differ only in the {@link Region} of their {@link Material}. Textures are placed on shelves left to right, a new
+ * shelf starting above the tallest texture of the previous one; adding textures tallest first packs best.
+ * <p>
+ * Every texture is surrounded by a gutter of {@code padding} texels repeating its edges and starts at a multiple of
+ * {@code padding}, so the mip chain from {@link #build(ForkJoinPool)} stops at the level where the gutter is one
+ * texel wide and neighbours never bleed into each other. Texture coordinates of atlas materials have to stay within
+ * 0 to 1, the sampler cannot repeat a region.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class TextureAtlas {
+    private final int width;
+    private final int height;
+    private final int padding;
+    private final ByteBuffer pixels;
+    private int shelfX;
+    private int shelfY;
+    private int shelfHeight;
+    private long usedArea;
+    private int regions;
+
+    /**
+     * @param padding gutter width in texels, a power of two
+     */
+    public TextureAtlas(int width, int height, int padding) {
+        if (Integer.bitCount(padding) != 1) {
+            throw new IllegalArgumentException("Atlas padding " + padding + " is not a power of two");
+        }
+        this.width = width;
+        this.height = height;
+        this.padding = padding;
+        this.pixels = BufferUtils.createByteBuffer(width * height * 4);
+    }
+
+    /**
+     * Copies a tightly packed RGBA8 texture into the atlas.
+     *
+     * @return where the texture was placed, null when it does not fit anymore
+     */
+    public Region add(ByteBuffer rgba, int textureWidth, int textureHeight) {
+        int cellWidth = align(textureWidth + 2 * padding);
+        int cellHeight = align(textureHeight + 2 * padding);
+        if (shelfX + cellWidth > width) {
+            shelfY += shelfHeight;
+            shelfX = 0;
+            shelfHeight = 0;
+        }
+        if (cellWidth > width || shelfY + cellHeight > height) {
+            return null;
+        }
+        ByteBuffer source = rgba.duplicate().order(pixels.order());
+        int x0 = shelfX + padding;
+        int y0 = shelfY + padding;
+        for (int y = -padding; y < textureHeight + padding; y++) {
+            int sourceRow = source.position() + Math.max(0, Math.min(y, textureHeight - 1)) * textureWidth * 4;
+            int targetRow = ((y0 + y) * width + x0) * 4;
+            for (int x = -padding; x < textureWidth + padding; x++) {
+                pixels.putInt(targetRow + x * 4, source.getInt(sourceRow + Math.max(0, Math.min(x, textureWidth - 1)) * 4));
+            }
+        }
+        shelfX += cellWidth;
+        shelfHeight = Math.max(shelfHeight, cellHeight);
+        usedArea += (long) textureWidth * textureHeight;
+        regions++;
+        return new Region((float) textureWidth / width, (float) textureHeight / height,
+                (float) x0 / width, (float) y0 / height);
+    }
+
+    private int align(int size) {
+        return (size + padding - 1) & -padding;
+    }
+
+    /**
+     * @return the atlas with as many mip levels as the gutter allows
+     */
+    public MipChain build(ForkJoinPool pool) {
+        int levels = Math.min(Integer.numberOfTrailingZeros(padding) + 1, MipChain.levelCount(width, height));
+        return MipChain.build(pixels, width, height, levels, pool);
+    }
+
+    /**
+     * @return share of the atlas covered by textures, gutters excluded
+     */
+    public double getOccupancy() {
+        return (double) usedArea / ((long) width * height);
+    }
+
+    public int getRegionCount() {
+        return regions;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Placement of one texture, as the scale and offset mapping its texture coordinates into the atlas.
+     */
+    public static class Region {
+        private final float scaleU;
+        private final float scaleV;
+        private final float offsetU;
+        private final float offsetV;
+
+        Region(float scaleU, float scaleV, float offsetU, float offsetV) {
+            this.scaleU = scaleU;
+            this.scaleV = scaleV;
+            this.offsetU = offsetU;
+            this.offsetV = offsetV;
+        }
+
+        public float getScaleU() {
+            return scaleU;
+        }
+
+        public float getScaleV() {
+            return scaleV;
+        }
+
+        public float getOffsetU() {
+            return offsetU;
+        }
+
+        public float getOffsetV() {
+            return offsetV;
+        }
+    }
+}
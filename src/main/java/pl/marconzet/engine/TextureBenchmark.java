@@ -0,0 +1,363 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.BufferUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.lwjgl.vulkan.VK10.*;
+import static pl.marconzet.engine.Benchmark.ITERATIONS;
+import static pl.marconzet.engine.Benchmark.WARMUP;
+import static pl.marconzet.engine.Benchmark.report;
+import static pl.marconzet.engine.Benchmark.start;
+import static pl.marconzet.engine.Benchmark.stop;
+
+/**
+ * Benchmarks of texture preparation and streaming: mip chains, block compression, atlas packing and residency, see
+ * {@link Benchmark}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+class TextureBenchmark {
+    /**
+     * Builds the mip chain of a synthetic {@code size}x{@code size} texture on one thread and on every core, then
+     * writes and reads it through the {@link TextureCache} format. A black and white checkerboard checks the gamma
+     * correct filter: its 1x1 level has to be the sRGB encoding of 50% gray, 188, not 128.
+     */
+    static void mips(int size) throws IOException {
+        ByteBuffer pixels = BufferUtils.createByteBuffer(size * size * 4);
+        Random random = new Random(7);
+        for (int i = 0; i < size * size; i++) {
+            int x = i % size, y = i / size;
+            pixels.put((byte) (x * 255 / size)).put((byte) (y * 255 / size)).put((byte) random.nextInt(256)).put((byte) 255);
+        }
+        pixels.flip();
+        double megabytes = MipChain.size(VK_FORMAT_R8G8B8A8_UNORM, size, size, MipChain.levelCount(size, size)) / (1024.0 * 1024.0);
+        long[] stats = new long[2];
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        MipChain reference = null;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            reference = MipChain.build(pixels, size, size, single);
+        }
+        stop(stats);
+        single.shutdown();
+        report("1 thread", megabytes, stats);
+        double serial = stats[0];
+
+        MipChain chain = null;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            if (i == WARMUP) start(stats);
+            chain = MipChain.build(pixels, size, size);
+        }
+        stop(stats);
+        report(ForkJoinPool.getCommonPoolParallelism() + " threads", megabytes, stats);
+        System.out.printf("    speedup %.2fx, identical: %b, %d levels%n",
+                serial / stats[0], reference.getData().equals(chain.getData()), chain.getLevels());
+
+        cache(chain, megabytes, stats);
+
+        for (int i = 0; i < size * size; i++) {
+            byte value = (byte) (((i % size) + (i / size)) % 2 == 0 ? 0 : 255);
+            pixels.put(i * 4, value).put(i * 4 + 1, value).put(i * 4 + 2, value);
+        }
+        chain = MipChain.build(pixels, size, size);
+        ByteBuffer data = chain.getData();
+        int last = chain.getOffset(chain.getLevels() - 1);
+        System.out.printf("checkerboard 1x1 level: %d %d %d %d%n",
+                data.get(last) & 0xFF, data.get(last + 1) & 0xFF, data.get(last + 2) & 0xFF, data.get(last + 3) & 0xFF);
+    }
+
+    /**
+     * Times writing and reading {@code chain} through the {@link TextureCache} format and checks that the cache file
+     * name follows the source content.
+     */
+    private static void cache(MipChain chain, double megabytes, long[] stats) throws IOException {
+        Path source = Files.createTempFile("texture", ".png");
+        Path cache = Files.createTempFile("texture", ".mips");
+        try {
+            Files.write(source, new byte[]{1});
+            Path name = TextureCache.cacheFile(source, chain.getFormat());
+            for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                if (i == WARMUP) start(stats);
+                TextureCache.write(chain, cache);
+            }
+            stop(stats);
+            report("cache write", megabytes, stats);
+            MipChain cached = null;
+            for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                if (i == WARMUP) start(stats);
+                cached = TextureCache.read(cache);
+            }
+            stop(stats);
+            report("cache read", megabytes, stats);
+            System.out.println("    identical: " + (cached != null && cached.getFormat() == chain.getFormat()
+                    && cached.getData().equals(chain.getData())));
+            Files.write(source, new byte[]{1, 2});
+            System.out.println("    new cache file after source change: " + !name.equals(TextureCache.cacheFile(source, chain.getFormat())));
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(cache);
+        }
+    }
+
+    /**
+     * Compresses the mip chain of a smooth synthetic {@code size}x{@code size} texture to BC1 and BC3 on one thread
+     * and on every core, reports the PSNR of level 0 against the source, and round-trips the BC3 chain through a DDS
+     * file and the {@link TextureCache} format.
+     */
+    static void blockCompression(int size) throws IOException {
+        ByteBuffer pixels = BufferUtils.createByteBuffer(size * size * 4);
+        Random random = new Random(7);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                double wave = Math.sin(x / 37.0) * Math.cos(y / 23.0);
+                double distance = Math.hypot(x - size / 2.0, y - size / 2.0) / size;
+                pixels.put((byte) (x * 255 / size)).put((byte) (y * 255 / size))
+                        .put((byte) Math.max(0, Math.min(255, 128 + 120 * wave + random.nextGaussian() * 4)))
+                        .put((byte) Math.max(0, Math.min(255, 255 - distance * 300)));
+            }
+        }
+        pixels.flip();
+        MipChain chain = MipChain.build(pixels, size, size);
+        double megabytes = chain.getSize() / (1024.0 * 1024.0);
+        long[] stats = new long[2];
+
+        MipChain compressed = null;
+        for (int format : new int[]{VK_FORMAT_BC1_RGB_UNORM_BLOCK, VK_FORMAT_BC3_UNORM_BLOCK}) {
+            String name = format == VK_FORMAT_BC1_RGB_UNORM_BLOCK ? "BC1" : "BC3";
+            ForkJoinPool single = new ForkJoinPool(1);
+            MipChain reference = null;
+            for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                if (i == WARMUP) start(stats);
+                reference = chain.compress(format, single);
+            }
+            stop(stats);
+            single.shutdown();
+            report(name + " 1 thread", megabytes, stats);
+            double serial = stats[0];
+            for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+                if (i == WARMUP) start(stats);
+                compressed = chain.compress(format, ForkJoinPool.commonPool());
+            }
+            stop(stats);
+            report(name + " " + ForkJoinPool.getCommonPoolParallelism() + " threads", megabytes, stats);
+
+            ByteBuffer decoded = BufferUtils.createByteBuffer(size * size * 4);
+            BlockCompressor.decompress(compressed.getData(), 0, size, size, format, decoded, 0);
+            System.out.printf("    speedup %.2fx, identical: %b, %.1f:1 (%.1f MB), PSNR RGB %.2f dB, alpha %.2f dB%n",
+                    serial / stats[0], reference.getData().equals(compressed.getData()),
+                    (double) chain.getSize() / compressed.getSize(), compressed.getSize() / (1024.0 * 1024.0),
+                    psnr(pixels, decoded, 0, 3), psnr(pixels, decoded, 3, 1));
+        }
+
+        Path dds = Files.createTempFile("texture", ".dds");
+        try {
+            writeDds(compressed, dds);
+            MipChain loaded = DdsLoader.read(dds);
+            System.out.println("DDS round trip identical: " + (loaded.getFormat() == compressed.getFormat()
+                    && loaded.getLevels() == compressed.getLevels() && loaded.getData().equals(compressed.getData())));
+        } finally {
+            Files.deleteIfExists(dds);
+        }
+        cache(compressed, megabytes, stats);
+    }
+
+    /**
+     * Packs {@code count} solid color textures of random sizes from 16 to 256 texels, tallest first, into 4096x4096
+     * atlases until all are placed, then checks that regions do not overlap and that every region, gutter included,
+     * holds only its own color on every mip level.
+     */
+    static void atlas(int count) {
+        Random random = new Random(7);
+        int[][] sizes = new int[count][];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = new int[]{16 + random.nextInt(241), 16 + random.nextInt(241), i};
+        }
+        Arrays.sort(sizes, (a, b) -> b[1] - a[1]);
+
+        long time = System.nanoTime();
+        List<TextureAtlas> atlases = new ArrayList<>();
+        List<List<Object[]>> placed = new ArrayList<>();
+        TextureAtlas atlas = null;
+        for (int[] size : sizes) {
+            ByteBuffer pixels = BufferUtils.createByteBuffer(size[0] * size[1] * 4);
+            for (int i = 0; i < size[0] * size[1]; i++) {
+                pixels.putInt(i * 4, size[2] * 0x9E3779B1 | 0xFF000000);
+            }
+            TextureAtlas.Region region = atlas == null ? null : atlas.add(pixels, size[0], size[1]);
+            if (region == null) {
+                atlas = new TextureAtlas(4096, 4096, 8);
+                atlases.add(atlas);
+                placed.add(new ArrayList<>());
+                region = atlas.add(pixels, size[0], size[1]);
+            }
+            placed.get(placed.size() - 1).add(new Object[]{region, size});
+        }
+        time = System.nanoTime() - time;
+
+        long buildTime = System.nanoTime();
+        List<MipChain> chains = new ArrayList<>();
+        for (TextureAtlas each : atlases) {
+            chains.add(each.build(ForkJoinPool.commonPool()));
+        }
+        buildTime = System.nanoTime() - buildTime;
+
+        int errors = 0;
+        for (int a = 0; a < atlases.size(); a++) {
+            MipChain chain = chains.get(a);
+            List<Object[]> regions = placed.get(a);
+            for (int i = 0; i < regions.size(); i++) {
+                TextureAtlas.Region region = (TextureAtlas.Region) regions.get(i)[0];
+                int color = ((int[]) regions.get(i)[1])[2] * 0x9E3779B1 | 0xFF000000;
+                for (int j = 0; j < i; j++) {
+                    TextureAtlas.Region other = (TextureAtlas.Region) regions.get(j)[0];
+                    if (region.getOffsetU() < other.getOffsetU() + other.getScaleU() && other.getOffsetU() < region.getOffsetU() + region.getScaleU()
+                            && region.getOffsetV() < other.getOffsetV() + other.getScaleV() && other.getOffsetV() < region.getOffsetV() + region.getScaleV()) {
+                        errors++;
+                    }
+                }
+                ByteBuffer data = chain.getData().order(java.nio.ByteOrder.nativeOrder());
+                for (int level = 0; level < chain.getLevels(); level++) {
+                    // texels fully inside the region and its gutter, from the level 0 rectangle rounded inwards
+                    int width = chain.getWidth(level), scale = 1 << level;
+                    int x0 = (Math.round(region.getOffsetU() * 4096) - 8 + scale - 1) / scale;
+                    int x1 = (Math.round((region.getOffsetU() + region.getScaleU()) * 4096) + 8) / scale;
+                    int y0 = (Math.round(region.getOffsetV() * 4096) - 8 + scale - 1) / scale;
+                    int y1 = (Math.round((region.getOffsetV() + region.getScaleV()) * 4096) + 8) / scale;
+                    for (int y = y0; y < y1; y++) {
+                        for (int x = x0; x < x1; x++) {
+                            if (data.getInt(chain.getOffset(level) + (y * width + x) * 4) != color) errors++;
+                        }
+                    }
+                }
+            }
+        }
+        double occupancy = 0;
+        for (TextureAtlas each : atlases) {
+            occupancy += each.getOccupancy();
+        }
+        System.out.printf("%d textures in %d atlases of 4096x4096 with %d levels, %.1f%% occupied on average%n",
+                count, atlases.size(), chains.get(0).getLevels(), occupancy / atlases.size() * 100);
+        System.out.printf("packing %.1f ms, mip chains %.1f ms, bleeding or overlapping texels: %d%n",
+                time / 1e6, buildTime / 1e6, errors);
+    }
+
+    /**
+     * Simulates a scene of BC1 textures drawn with Zipf distributed popularity at drifting screen sizes, against a
+     * backend that only records base levels.
+     */
+    static void residency(int count) {
+        final int frames = 2000;
+        final int drawsPerFrame = 300;
+        final long budget = 256L << 20;
+        Random random = new Random(11);
+        int[] backendLevels = new int[count];
+        TextureResidency residency = new TextureResidency(new TextureResidency.Backend() {
+            @Override
+            public void setBaseLevel(int texture, int baseLevel) {
+                backendLevels[texture] = baseLevel;
+            }
+        }, budget, 32);
+
+        long[][] sizes = new long[count][];
+        float[] screenSizes = new float[count];
+        for (int i = 0; i < count; i++) {
+            int size = 1024 << random.nextInt(3);
+            sizes[i] = new long[MipChain.levelCount(size, size)];
+            for (int level = 0; level < sizes[i].length; level++) {
+                sizes[i][level] = MipChain.levelSize(VK_FORMAT_BC1_RGB_UNORM_BLOCK, Math.max(size >> level, 1), Math.max(size >> level, 1));
+            }
+            int texture = residency.add(size, size, sizes[i]);
+            backendLevels[texture] = residency.getBaseLevel(texture);
+            screenSizes[i] = (float) Math.pow(2, 5 + random.nextDouble() * 6);
+        }
+        // Zipf with exponent 1 over the textures, in a random order
+        double[] cumulative = new double[count];
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        int[] ranks = new int[count];
+        for (int i = 0; i < count; i++) {
+            ranks[i] = i;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ranks[i];
+            ranks[i] = ranks[j];
+            ranks[j] = swap;
+        }
+
+        int errors = 0;
+        long overBudget = 0;
+        long updateTime = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            for (int draw = 0; draw < drawsPerFrame; draw++) {
+                int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                int texture = ranks[index < 0 ? -index - 1 : index];
+                // the camera moves, so every texture drifts between 32 and 2048 pixels
+                screenSizes[texture] = Math.max(32f, Math.min(2048f, screenSizes[texture] * (float) Math.pow(2, random.nextGaussian() * 0.1)));
+                residency.request(texture, screenSizes[texture]);
+            }
+            long time = System.nanoTime();
+            residency.update();
+            updateTime += System.nanoTime() - time;
+
+            long resident = 0;
+            for (int texture = 0; texture < count; texture++) {
+                if (backendLevels[texture] != residency.getBaseLevel(texture)) errors++;
+                for (int level = backendLevels[texture]; level < sizes[texture].length; level++) {
+                    resident += sizes[texture][level];
+                }
+            }
+            if (resident != residency.getResidentBytes()) errors++;
+            overBudget = Math.max(overBudget, resident - budget);
+        }
+        System.out.printf("%d textures, %d frames of %d draws, %.3f ms per update%n",
+                count, frames, drawsPerFrame, updateTime / 1e6 / frames);
+        System.out.print(residency.getStatistics());
+        System.out.printf("backend mismatches: %d, bytes over budget at most: %d%n", errors, Math.max(overBudget, 0));
+    }
+
+    private static double psnr(ByteBuffer expected, ByteBuffer actual, int firstChannel, int channels) {
+        double error = 0;
+        for (int i = 0; i < expected.remaining(); i += 4) {
+            for (int c = firstChannel; c < firstChannel + channels; c++) {
+                int difference = (expected.get(i + c) & 0xFF) - (actual.get(i + c) & 0xFF);
+                error += difference * difference;
+            }
+        }
+        error /= expected.remaining() / 4 * channels;
+        return error == 0 ? Double.POSITIVE_INFINITY : 10 * Math.log10(255 * 255 / error);
+    }
+
+    /**
+     * Writes a BC3 chain as a DXT5 DDS file, the minimal header {@link DdsLoader} reads.
+     */
+    private static void writeDds(MipChain chain, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(128).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, 0x20534444).putInt(4, 124).putInt(8, 0x1007 | 0x20000)
+                .putInt(12, chain.getHeight(0)).putInt(16, chain.getWidth(0)).putInt(28, chain.getLevels())
+                .putInt(76, 32).putInt(80, 0x4).putInt(84, 'D' | 'X' << 8 | 'T' << 16 | '5' << 24)
+                .putInt(108, 0x1000 | 0x8 | 0x400000);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer data = chain.getData();
+            while (header.hasRemaining()) channel.write(header);
+            while (data.hasRemaining()) channel.write(data);
+        }
+    }
+}
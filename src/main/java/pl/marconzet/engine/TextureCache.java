@@ -0,0 +1,168 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.BufferUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+import static org.lwjgl.stb.STBImage.*;
+
+/**
+ * Disk cache of baked {@link MipChain}s, so a texture is decoded, filtered and compressed once. The levels are stored
+ * exactly as {@link MipChain#getData()} lays them out and loaded by memory-mapping the file.
+ * <p>
+ * Cache files are named after the SHA-1 of the source file content and the format, so an edited source gets a new
+ * cache file and identical sources share one. Layout (native byte order): magic, version, format, width, height,
+ * levels (ints), CRC32 of the data (long), padding to {@link #ALIGNMENT}, level data.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class TextureCache {
+    private static final int MAGIC = 0x5350494D;
+    private static final int VERSION = 2;
+    private static final int ALIGNMENT = 16;
+    private static final int HEADER_SIZE = 6 * 4 + 8;
+    private static final Path CACHE_DIRECTORY = Paths.get(System.getProperty("engine.cache", ".cache"));
+
+    /**
+     * Loads the mip chain of {@code source} in {@code format}, {@code R8G8B8A8_UNORM} or one of the formats of
+     * {@link BlockCompressor}, from its cache file; decodes, builds and compresses it when there is no valid cache.
+     * DDS files are read as they are, in the format they are stored in.
+     */
+    public static MipChain load(Path source, int format) throws IOException {
+        if (DdsLoader.isDds(source)) {
+            return DdsLoader.read(source);
+        }
+        Path cache = cacheFile(source, format);
+        MipChain chain = read(cache);
+        if (chain == null || chain.getFormat() != format) {
+            IntBuffer width = BufferUtils.createIntBuffer(1);
+            IntBuffer height = BufferUtils.createIntBuffer(1);
+            IntBuffer channels = BufferUtils.createIntBuffer(1);
+            ByteBuffer pixels = stbi_load(source.toString(), width, height, channels, STBI_rgb_alpha);
+            if (pixels == null) {
+                throw new IOException("Failed to load texture image: " + stbi_failure_reason());
+            }
+            try {
+                chain = MipChain.build(pixels, width.get(0), height.get(0));
+            } finally {
+                stbi_image_free(pixels);
+            }
+            if (format != chain.getFormat()) {
+                chain = chain.compress(format, ForkJoinPool.commonPool());
+            }
+            write(chain, cache);
+            // the mapped copy keeps the levels off the heap while the chain is held for residency changes
+            MipChain written = read(cache);
+            if (written != null) {
+                chain = written;
+            }
+        }
+        return chain;
+    }
+
+    static Path cacheFile(Path source, int format) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest.digest()) {
+            name.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return CACHE_DIRECTORY.resolve(name.append('-').append(format).append(".mips").toString());
+    }
+
+    /**
+     * @return the cached chain, or {@code null} when {@code cache} is missing or invalid
+     */
+    public static MipChain read(Path cache) throws IOException {
+        if (!Files.isRegularFile(cache)) {
+            return null;
+        }
+        MappedByteBuffer file;
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            if (channel.size() < align(HEADER_SIZE)) {
+                return null;
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        file.order(ByteOrder.nativeOrder());
+
+        if (file.getInt() != MAGIC || file.getInt() != VERSION) {
+            return null;
+        }
+        int format = file.getInt();
+        int width = file.getInt();
+        int height = file.getInt();
+        int levels = file.getInt();
+        long checksum = file.getLong();
+        try {
+            if (width <= 0 || height <= 0 || levels != MipChain.levelCount(width, height)
+                    || file.capacity() != align(HEADER_SIZE) + (long) MipChain.size(format, width, height, levels)) {
+                return null;
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        file.position(align(HEADER_SIZE));
+        ByteBuffer data = file.slice();
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        if (crc.getValue() != checksum) {
+            return null;
+        }
+        return new MipChain(data, format, width, height, levels);
+    }
+
+    public static void write(MipChain chain, Path cache) throws IOException {
+        ByteBuffer data = chain.getData();
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(align(HEADER_SIZE)).order(ByteOrder.nativeOrder());
+        header.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(chain.getFormat())
+                .putInt(chain.getWidth(0))
+                .putInt(chain.getHeight(0))
+                .putInt(chain.getLevels())
+                .putLong(crc.getValue());
+        header.rewind();
+
+        if (cache.getParent() != null) {
+            Files.createDirectories(cache.getParent());
+        }
+        Path temporary = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) channel.write(header);
+            while (data.hasRemaining()) channel.write(data);
+        }
+        Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int align(int size) {
+        return (size + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+}
@@ -0,0 +1,283 @@
+package pl.marconzet.engine;
+
+import java.util.Arrays;
+
+/**
+ * Decides which mip levels of which textures are resident, under a memory budget. Every texture keeps a contiguous
+ * range of levels, from its base level down to 1x1; levels no larger than {@link #TAIL_SIZE} form the tail, which is
+ * always resident.
+ * <p>
+ * {@link #request(int, float)} records, per frame, the screen size a texture is drawn at, which gives the level it
+ * wants. {@link #update()} then raises the base level of textures drawn in that frame, one level per texture and
+ * update, most recently used textures first. Memory for a new level comes from, in order: levels finer than what
+ * their texture wants, then the finest level of the least recently used texture. Levels of textures requested in the
+ * current frame are never evicted; when nothing else can go, the load waits.
+ * <p>
+ * The actual images are managed by a {@link Backend}, told the new base level of every texture whose residency
+ * changed. No device is involved here, so the policy can be exercised on the CPU, see {@code Benchmark residency}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class TextureResidency {
+    public static final int TAIL_SIZE = 64;
+
+    /**
+     * Creates and destroys the resident levels.
+     */
+    public interface Backend {
+        /**
+         * Makes levels {@code baseLevel} to the last one of {@code texture} resident and releases finer levels.
+         */
+        void setBaseLevel(int texture, int baseLevel);
+    }
+
+    private final Backend backend;
+    private final long budget;
+    private final int loadsPerUpdate;
+
+    private long[][] levelSizes = new long[16][];
+    private int[] maxSizes = new int[16];
+    private int[] baseLevels = new int[16];
+    private int[] tailLevels = new int[16];
+    private int[] wantedLevels = new int[16];
+    private long[] lastUsed = new long[16];
+    private boolean[] changed = new boolean[16];
+    // intrusive doubly linked list in use order, least recently used first
+    private int[] previous = new int[16];
+    private int[] next = new int[16];
+    private int head = -1;
+    private int tail = -1;
+    private final IntList free = new IntList();
+    private int count;
+
+    private long frame;
+    private long residentBytes;
+    private long peakBytes;
+    private long hits;
+    private long misses;
+    private long loads;
+    private long evictions;
+    private long stalls;
+
+    /**
+     * @param budget         bytes of resident levels to stay under; tails count too, but are never evicted
+     * @param loadsPerUpdate levels loaded per {@link #update()} at most
+     */
+    public TextureResidency(Backend backend, long budget, int loadsPerUpdate) {
+        this.backend = backend;
+        this.budget = budget;
+        this.loadsPerUpdate = loadsPerUpdate;
+    }
+
+    /**
+     * Registers a texture with only its tail resident. The backend is not told; the caller makes the tail resident,
+     * from {@link #getBaseLevel(int)}.
+     *
+     * @param levelSizes bytes of every mip level, finest first
+     * @return id of the texture
+     */
+    public int add(int width, int height, long[] levelSizes) {
+        int texture;
+        if (free.size() > 0) {
+            texture = free.get(free.size() - 1);
+            free.remove(free.size() - 1);
+        } else {
+            texture = count++;
+            if (texture == baseLevels.length) {
+                grow();
+            }
+        }
+        int levels = levelSizes.length;
+        int tailLevel = levels - 1;
+        while (tailLevel > 0 && Math.max(Math.max(width >> (tailLevel - 1), height >> (tailLevel - 1)), 1) <= TAIL_SIZE) {
+            tailLevel--;
+        }
+        this.levelSizes[texture] = levelSizes.clone();
+        maxSizes[texture] = Math.max(width, height);
+        tailLevels[texture] = tailLevel;
+        baseLevels[texture] = tailLevel;
+        wantedLevels[texture] = tailLevel;
+        lastUsed[texture] = frame;
+        for (int level = tailLevel; level < levels; level++) {
+            residentBytes += levelSizes[level];
+        }
+        peakBytes = Math.max(peakBytes, residentBytes);
+        link(texture);
+        return texture;
+    }
+
+    /**
+     * Forgets a texture; destroying its images is up to the caller.
+     */
+    public void remove(int texture) {
+        for (int level = baseLevels[texture]; level < levelSizes[texture].length; level++) {
+            residentBytes -= levelSizes[texture][level];
+        }
+        unlink(texture);
+        levelSizes[texture] = null;
+        changed[texture] = false;
+        free.add(texture);
+    }
+
+    /**
+     * Marks {@code texture} as drawn this frame, covering about {@code screenSize} pixels along its larger side.
+     */
+    public void request(int texture, float screenSize) {
+        int wanted = (int) Math.floor(Math.log(maxSizes[texture] / Math.max(screenSize, 1f)) / Math.log(2));
+        wanted = Math.max(0, Math.min(wanted, tailLevels[texture]));
+        if (lastUsed[texture] != frame) {
+            wantedLevels[texture] = wanted;
+            lastUsed[texture] = frame;
+            unlink(texture);
+            link(texture);
+        } else {
+            wantedLevels[texture] = Math.min(wantedLevels[texture], wanted);
+        }
+        if (baseLevels[texture] <= wanted) {
+            hits++;
+        } else {
+            misses++;
+        }
+    }
+
+    /**
+     * Loads and evicts levels, tells the backend about every changed texture and starts the next frame.
+     */
+    public void update() {
+        int budgetLoads = loadsPerUpdate;
+        // textures drawn this frame, most recently used first
+        for (int texture = tail; texture >= 0 && budgetLoads > 0 && lastUsed[texture] == frame; texture = previous[texture]) {
+            if (baseLevels[texture] <= wantedLevels[texture]) {
+                continue;
+            }
+            long size = levelSizes[texture][baseLevels[texture] - 1];
+            if (!makeRoom(size, texture)) {
+                stalls++;
+                break;
+            }
+            baseLevels[texture]--;
+            residentBytes += size;
+            peakBytes = Math.max(peakBytes, residentBytes);
+            changed[texture] = true;
+            loads++;
+            budgetLoads--;
+        }
+        for (int texture = 0; texture < count; texture++) {
+            if (changed[texture]) {
+                changed[texture] = false;
+                backend.setBaseLevel(texture, baseLevels[texture]);
+            }
+        }
+        frame++;
+    }
+
+    /**
+     * Evicts levels until {@code size} more bytes fit into the budget, never from {@code loading}.
+     */
+    private boolean makeRoom(long size, int loading) {
+        // first levels finer than wanted, least recently used first
+        for (int texture = head; texture >= 0 && residentBytes + size > budget; texture = next[texture]) {
+            while (texture != loading && baseLevels[texture] < wantedLevels[texture] && residentBytes + size > budget) {
+                evict(texture);
+            }
+        }
+        // then the finest level of textures not drawn this frame
+        for (int texture = head; texture >= 0 && residentBytes + size > budget; texture = next[texture]) {
+            if (lastUsed[texture] == frame) {
+                break;
+            }
+            while (texture != loading && baseLevels[texture] < tailLevels[texture] && residentBytes + size > budget) {
+                evict(texture);
+            }
+        }
+        return residentBytes + size <= budget;
+    }
+
+    private void evict(int texture) {
+        residentBytes -= levelSizes[texture][baseLevels[texture]];
+        baseLevels[texture]++;
+        changed[texture] = true;
+        evictions++;
+    }
+
+    private void link(int texture) {
+        previous[texture] = tail;
+        next[texture] = -1;
+        if (tail >= 0) {
+            next[tail] = texture;
+        } else {
+            head = texture;
+        }
+        tail = texture;
+    }
+
+    private void unlink(int texture) {
+        if (previous[texture] >= 0) {
+            next[previous[texture]] = next[texture];
+        } else {
+            head = next[texture];
+        }
+        if (next[texture] >= 0) {
+            previous[next[texture]] = previous[texture];
+        } else {
+            tail = previous[texture];
+        }
+    }
+
+    private void grow() {
+        int capacity = baseLevels.length * 2;
+        levelSizes = Arrays.copyOf(levelSizes, capacity);
+        maxSizes = Arrays.copyOf(maxSizes, capacity);
+        baseLevels = Arrays.copyOf(baseLevels, capacity);
+        tailLevels = Arrays.copyOf(tailLevels, capacity);
+        wantedLevels = Arrays.copyOf(wantedLevels, capacity);
+        lastUsed = Arrays.copyOf(lastUsed, capacity);
+        changed = Arrays.copyOf(changed, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        next = Arrays.copyOf(next, capacity);
+    }
+
+    /**
+     * @return bytes of every level of {@code chain}, finest first
+     */
+    public static long[] levelSizes(MipChain chain) {
+        long[] sizes = new long[chain.getLevels()];
+        for (int level = 0; level < sizes.length; level++) {
+            sizes[level] = chain.getOffset(level + 1) - chain.getOffset(level);
+        }
+        return sizes;
+    }
+
+    public int getBaseLevel(int texture) {
+        return baseLevels[texture];
+    }
+
+    public int getWantedLevel(int texture) {
+        return wantedLevels[texture];
+    }
+
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public String getStatistics() {
+        long requests = hits + misses;
+        return String.format("textures: %.1f / %.1f MB resident (peak %.1f MB), %d hits, %d misses (%.1f%% hit rate), " +
+                        "%d levels loaded, %d evicted, %d stalled loads%n",
+                residentBytes / 1048576.0, budget / 1048576.0, peakBytes / 1048576.0, hits, misses,
+                requests == 0 ? 100 : hits * 100.0 / requests, loads, evictions, stalls);
+    }
+}
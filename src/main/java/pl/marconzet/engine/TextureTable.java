@@ -0,0 +1,110 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.vulkan.VkDescriptorImageInfo;
+import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkWriteDescriptorSet;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * Slots of the combined image sampler array every draw samples from. Textures are registered once and referenced by
+ * slot index, from a {@link Material} in push constants or from instance data, so objects with different textures draw
+ * without rebinding descriptors.
+ * <p>
+ * The array has a fixed size and no descriptor may be left unwritten, so free slots point at the texture of the lowest
+ * used slot. Changes are collected and written by {@link #update(long)} when the descriptor set is not in use.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class TextureTable {
+    private final VkDevice device;
+    private final long sampler;
+    private final long[] imageViews;
+    private final IntList free = new IntList();
+    private boolean dirty;
+
+    public TextureTable(VkDevice device, int capacity, long sampler) {
+        this.device = device;
+        this.sampler = sampler;
+        this.imageViews = new long[capacity];
+        for (int slot = capacity - 1; slot >= 0; slot--) {
+            free.add(slot);
+        }
+    }
+
+    /**
+     * @return slot of {@code imageView}, a texture in {@code SHADER_READ_ONLY_OPTIMAL}
+     */
+    public int add(long imageView) {
+        if (free.size() == 0) {
+            throw new IllegalStateException("All " + imageViews.length + " texture slots are in use");
+        }
+        int slot = free.get(free.size() - 1);
+        free.remove(free.size() - 1);
+        imageViews[slot] = imageView;
+        dirty = true;
+        return slot;
+    }
+
+    /**
+     * Points {@code slot} at another view of its texture, e.g. after its resident mip levels changed.
+     */
+    public void set(int slot, long imageView) {
+        imageViews[slot] = imageView;
+        dirty = true;
+    }
+
+    /**
+     * Frees {@code slot}; the texture may be destroyed once the next {@link #update(long)} has run.
+     */
+    public void remove(int slot) {
+        imageViews[slot] = VK_NULL_HANDLE;
+        free.add(slot);
+        dirty = true;
+    }
+
+    /**
+     * Writes every slot into binding 1 of {@code descriptorSet} if anything changed. The set must not be in use.
+     *
+     * @return whether the table has a texture, i.e. whether the set can be used
+     */
+    public boolean update(long descriptorSet) {
+        long fallback = VK_NULL_HANDLE;
+        for (long imageView : imageViews) {
+            if (imageView != VK_NULL_HANDLE) {
+                fallback = imageView;
+                break;
+            }
+        }
+        if (!dirty || fallback == VK_NULL_HANDLE) {
+            return fallback != VK_NULL_HANDLE;
+        }
+        VkDescriptorImageInfo.Buffer imageInfo = VkDescriptorImageInfo.create(imageViews.length);
+        for (int slot = 0; slot < imageViews.length; slot++) {
+            imageInfo.get(slot)
+                    .imageLayout(VK_IMAGE_LAYOUT_SHADER_READ_ONLY_OPTIMAL)
+                    .imageView(imageViews[slot] != VK_NULL_HANDLE ? imageViews[slot] : fallback)
+                    .sampler(sampler);
+        }
+        VkWriteDescriptorSet.Buffer writeDescriptor = VkWriteDescriptorSet.create(1);
+        writeDescriptor.get(0)
+                .sType(VK_STRUCTURE_TYPE_WRITE_DESCRIPTOR_SET)
+                .dstSet(descriptorSet)
+                .dstBinding(1)
+                .dstArrayElement(0)
+                .descriptorType(VK_DESCRIPTOR_TYPE_COMBINED_IMAGE_SAMPLER)
+                .pImageInfo(imageInfo);
+        vkUpdateDescriptorSets(device, writeDescriptor, null);
+        dirty = false;
+        return true;
+    }
+
+    public int getCapacity() {
+        return imageViews.length;
+    }
+
+    public int getUsed() {
+        return imageViews.length - free.size();
+    }
+}
@@ -1,34 +1,25 @@
 package pl.marconzet.engine;
 
 import org.joml.Matrix4f;
-import org.lwjgl.BufferUtils;
 
 import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
 
 /**
+ * Uniform block of the vertex shader. The matrices are meant to be updated in place every frame and written straight
+ * into mapped memory, see {@link UniformRing}.
+ *
  * @author MarconZet
  * Created 25.09.2018
  */
 public class UniformBufferObject {
-    public ByteBuffer data;
+    public final Matrix4f modelMatrix = new Matrix4f();
+    public final Matrix4f viewMatrix = new Matrix4f();
+    public final Matrix4f projMatrix = new Matrix4f();
 
-    private Matrix4f modelMatrix;
-    private Matrix4f viewMatrix;
-    private Matrix4f projMatrix;
-
-    public UniformBufferObject(Matrix4f modelMatrix, Matrix4f viewMatrix, Matrix4f projMatrix) {
-        this.modelMatrix = modelMatrix;
-        this.viewMatrix = viewMatrix;
-        this.projMatrix = projMatrix;
-
-        data = BufferUtils.createByteBuffer((int)sizeOf());
-        FloatBuffer fb = data.asFloatBuffer();
-        modelMatrix.get(fb);
-        fb.position(16);
-        viewMatrix.get(fb);
-        fb.position(32);
-        projMatrix.get(fb);
+    public void write(ByteBuffer target, int offset) {
+        modelMatrix.get(offset, target);
+        viewMatrix.get(offset + 16 * 4, target);
+        projMatrix.get(offset + 32 * 4, target);
     }
 
     public static long sizeOf(){
@@ -0,0 +1,79 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.vulkan.VkDevice;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.system.MemoryUtil.memByteBuffer;
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * One host visible, host coherent uniform buffer split into equally sized slots, written through the persistent
+ * mapping of its {@link MemoryAllocation}.
+ * Slots are bound with a {@code VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER_DYNAMIC} descriptor at {@link #offset(int)}, so
+ * a single descriptor set serves every slot and updating a slot is a plain memory write.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class UniformRing {
+    private final long buffer;
+    private final MemoryAllocation memory;
+    private final int slotSize;
+    private final int slots;
+    private final ByteBuffer mapped;
+
+    /**
+     * @param memory host visible allocation bound to {@code buffer}, holding {@link #size(long, long, int)} bytes
+     */
+    public UniformRing(long buffer, MemoryAllocation memory, int slotSize, int slots) {
+        this.buffer = buffer;
+        this.memory = memory;
+        this.slotSize = slotSize;
+        this.slots = slots;
+        this.mapped = memByteBuffer(memory.getMappedAddress(), slotSize * slots);
+    }
+
+    /**
+     * Ring over plain memory, without a device.
+     */
+    UniformRing(ByteBuffer mapped, int slotSize, int slots) {
+        this.buffer = VK_NULL_HANDLE;
+        this.memory = null;
+        this.slotSize = slotSize;
+        this.slots = slots;
+        this.mapped = mapped;
+    }
+
+    /**
+     * @return slot size: {@code elementSize} rounded up to {@code minUniformBufferOffsetAlignment}
+     */
+    public static int slotSize(long elementSize, long alignment) {
+        return (int) ((elementSize + alignment - 1) / alignment * alignment);
+    }
+
+    public static long size(long elementSize, long alignment, int slots) {
+        return (long) slotSize(elementSize, alignment) * slots;
+    }
+
+    public int offset(int slot) {
+        return slot * slotSize;
+    }
+
+    public void write(int slot, UniformBufferObject ubo) {
+        ubo.write(mapped, offset(slot));
+    }
+
+    public long getBuffer() {
+        return buffer;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public void destroy(VkDevice device) {
+        vkDestroyBuffer(device, buffer, null);
+        memory.free();
+    }
+}
@@ -0,0 +1,481 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.vulkan.*;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+
+import static org.lwjgl.system.MemoryUtil.memAddress;
+import static org.lwjgl.system.MemoryUtil.memCopy;
+import static org.lwjgl.vulkan.VK10.*;
+import static pl.marconzet.engine.VKUtil.translateVulkanResult;
+
+/**
+ * Batches resource uploads into as few submissions as possible. Data is copied into a {@link StagingBufferPool} and
+ * the copy commands are recorded into one open command buffer until {@link #flush()}; every submission gets a fence and
+ * its staging space is released once the fence signals, so nothing waits on a queue going idle.
+ * <p>
+ * Copies run on the dedicated transfer queue family when the device has one. Work that needs a graphics queue, like
+ * blits and barriers against fragment stages, is recorded into {@link #graphicsCommands()} and submitted after the
+ * transfer batch, waiting on it with a semaphore. Resources written by both families should then be created with
+ * {@code VK_SHARING_MODE_CONCURRENT} over {@link #getConcurrentFamilies()}.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class UploadManager {
+    private static final long STAGING_ALIGNMENT = 16;
+
+    private final VkDevice device;
+    private final StagingBufferPool staging;
+    private final long chunkSize;
+    private final StagingBufferPool.Range range = new StagingBufferPool.Range();
+    private final boolean dedicated;
+    private final VkQueue transferQueue;
+    private final VkQueue graphicsQueue;
+    private final long transferPool;
+    private final long graphicsPool;
+    private final IntBuffer concurrentFamilies;
+    private final ArrayDeque<Submission> inFlight = new ArrayDeque<>();
+    private final LongList freeFences = new LongList();
+    private final LongList freeSemaphores = new LongList();
+    private final PointerBuffer pCommandBuffer = BufferUtils.createPointerBuffer(1);
+    private final LongBuffer pWaitSemaphore = BufferUtils.createLongBuffer(1);
+    private final LongBuffer pSignalSemaphore = BufferUtils.createLongBuffer(1);
+    private final IntBuffer pWaitStage = BufferUtils.createIntBuffer(1).put(0, VK_PIPELINE_STAGE_ALL_COMMANDS_BIT);
+    private final VkSubmitInfo submitInfo = VkSubmitInfo.create()
+            .sType(VK_STRUCTURE_TYPE_SUBMIT_INFO)
+            .pCommandBuffers(pCommandBuffer);
+
+    private VkCommandBuffer transferCommands;
+    private VkCommandBuffer graphicsCommands;
+
+    private long submittedSerial;
+    private long completedSerial;
+
+    private int uploads;
+    private long uploadedBytes;
+    private int submissions;
+    private int fenceWaits;
+    private long waitTime;
+
+    /**
+     * @param chunkSize largest piece staged at once, at most the ring size of {@code staging}
+     */
+    public UploadManager(VkDevice device, QueueFamilyIndices indices, StagingBufferPool staging, long chunkSize) {
+        this.device = device;
+        this.staging = staging;
+        this.chunkSize = chunkSize;
+        this.dedicated = indices.getTransferFamily() != indices.getGraphicsFamily();
+        this.transferQueue = getQueue(indices.getTransferFamily());
+        this.graphicsQueue = getQueue(indices.getGraphicsFamily());
+        this.transferPool = createCommandPool(indices.getTransferFamily());
+        this.graphicsPool = dedicated ? createCommandPool(indices.getGraphicsFamily()) : transferPool;
+        if (dedicated) {
+            concurrentFamilies = BufferUtils.createIntBuffer(2);
+            concurrentFamilies.put(0, indices.getGraphicsFamily()).put(1, indices.getTransferFamily());
+        } else {
+            concurrentFamilies = null;
+        }
+    }
+
+    /**
+     * Copies {@code data} into {@code dstBuffer} at {@code dstOffset}. The data is staged before returning.
+     */
+    public void uploadBuffer(ByteBuffer data, long dstBuffer, long dstOffset) {
+        long address = memAddress(data);
+        long size = data.remaining();
+        VkBufferCopy.Buffer region = VkBufferCopy.create(1);
+        for (long done = 0; done < size; ) {
+            long chunk = Math.min(size - done, chunkSize);
+            stage(address + done, chunk);
+            region.srcOffset(range.getOffset()).dstOffset(dstOffset + done).size(chunk);
+            vkCmdCopyBuffer(transferCommands(), range.getRing().getBuffer(), dstBuffer, region);
+            done += chunk;
+        }
+        uploads++;
+        uploadedBytes += size;
+    }
+
+    /**
+     * Moves every mip level of {@code image} to {@code TRANSFER_DST_OPTIMAL} and copies tightly packed
+     * {@code pixels} into level 0. The image is left in {@code TRANSFER_DST_OPTIMAL}, finishing it is up to the
+     * caller, usually in {@link #graphicsCommands()}.
+     */
+    public void uploadImage(ByteBuffer pixels, long image, int width, int height, int texelSize, int mipLevels) {
+        transitionToTransferDst(image, mipLevels);
+        copyLevel(memAddress(pixels), image, 0, width, height, 1, texelSize);
+        uploads++;
+        uploadedBytes += (long) width * height * texelSize;
+    }
+
+    /**
+     * Moves every level of {@code image} to {@code TRANSFER_DST_OPTIMAL} and copies all levels of {@code chain} into
+     * it, compressed formats included. Consecutive levels that fit into one staging chunk together, the small tail of
+     * the chain, are staged in one piece and copied with a single command. The image is left in
+     * {@code TRANSFER_DST_OPTIMAL}.
+     */
+    public void uploadMipChain(MipChain chain, long image) {
+        uploadMipChain(chain, image, 0);
+    }
+
+    /**
+     * Same as {@link #uploadMipChain(MipChain, long)} for the levels from {@code firstLevel} on, copied into level 0
+     * onwards of an image sized like level {@code firstLevel}.
+     */
+    public void uploadMipChain(MipChain chain, long image, int firstLevel) {
+        transitionToTransferDst(image, chain.getLevels() - firstLevel);
+        long address = memAddress(chain.getData());
+        int level = firstLevel;
+        while (level < chain.getLevels()) {
+            int last = level;
+            while (last + 1 < chain.getLevels() && chain.getOffset(last + 2) - chain.getOffset(level) <= chunkSize) {
+                last++;
+            }
+            long size = chain.getOffset(last + 1) - chain.getOffset(level);
+            if (size > chunkSize) {
+                copyLevel(address + chain.getOffset(level), image, level - firstLevel, chain.getWidth(level), chain.getHeight(level),
+                        MipChain.getBlockSize(chain.getFormat()), MipChain.getBlockBytes(chain.getFormat()));
+                level++;
+                continue;
+            }
+            stage(address + chain.getOffset(level), size);
+            VkBufferImageCopy.Buffer regions = VkBufferImageCopy.create(last - level + 1);
+            for (int i = level; i <= last; i++) {
+                VkBufferImageCopy region = regions.get(i - level)
+                        .bufferOffset(range.getOffset() + chain.getOffset(i) - chain.getOffset(level))
+                        .bufferRowLength(0)
+                        .bufferImageHeight(0);
+                region.imageSubresource()
+                        .aspectMask(VK_IMAGE_ASPECT_COLOR_BIT)
+                        .mipLevel(i - firstLevel)
+                        .baseArrayLayer(0)
+                        .layerCount(1);
+                region.imageOffset().set(0, 0, 0);
+                region.imageExtent().set(chain.getWidth(i), chain.getHeight(i), 1);
+            }
+            vkCmdCopyBufferToImage(transferCommands(), range.getRing().getBuffer(), image, VK_IMAGE_LAYOUT_TRANSFER_DST_OPTIMAL, regions);
+            level = last + 1;
+        }
+        uploads++;
+        uploadedBytes += chain.getSize() - chain.getOffset(firstLevel);
+    }
+
+    private void transitionToTransferDst(long image, int mipLevels) {
+        VkImageMemoryBarrier.Buffer barrier = VkImageMemoryBarrier.create(1)
+                .sType(VK_STRUCTURE_TYPE_IMAGE_MEMORY_BARRIER)
+                .oldLayout(VK_IMAGE_LAYOUT_UNDEFINED)
+                .newLayout(VK_IMAGE_LAYOUT_TRANSFER_DST_OPTIMAL)
+                .srcQueueFamilyIndex(VK_QUEUE_FAMILY_IGNORED)
+                .dstQueueFamilyIndex(VK_QUEUE_FAMILY_IGNORED)
+                .srcAccessMask(0)
+                .dstAccessMask(VK_ACCESS_TRANSFER_WRITE_BIT)
+                .image(image);
+        barrier.subresourceRange()
+                .aspectMask(VK_IMAGE_ASPECT_COLOR_BIT)
+                .baseMipLevel(0)
+                .levelCount(mipLevels)
+                .baseArrayLayer(0)
+                .layerCount(1);
+        vkCmdPipelineBarrier(transferCommands(), VK_PIPELINE_STAGE_TOP_OF_PIPE_BIT, VK_PIPELINE_STAGE_TRANSFER_BIT,
+                0, null, null, barrier);
+    }
+
+    /**
+     * Copies one tightly packed level in chunks of whole rows of {@code blockSize}x{@code blockSize} blocks, texels
+     * for uncompressed formats.
+     */
+    private void copyLevel(long address, long image, int mipLevel, int width, int height, int blockSize, int blockBytes) {
+        long rowSize = (long) (width + blockSize - 1) / blockSize * blockBytes;
+        if (rowSize > chunkSize) {
+            throw new IllegalArgumentException("Image row of " + rowSize + " bytes exceeds the staging chunk size");
+        }
+        int rowsPerChunk = (int) (chunkSize / rowSize) * blockSize;
+        VkBufferImageCopy.Buffer region = VkBufferImageCopy.create(1)
+                .bufferRowLength(0)
+                .bufferImageHeight(0);
+        region.imageSubresource()
+                .aspectMask(VK_IMAGE_ASPECT_COLOR_BIT)
+                .mipLevel(mipLevel)
+                .baseArrayLayer(0)
+                .layerCount(1);
+        for (int row = 0; row < height; row += rowsPerChunk) {
+            int rows = Math.min(rowsPerChunk, height - row);
+            stage(address + row / blockSize * rowSize, (rows + blockSize - 1) / blockSize * rowSize);
+            region.bufferOffset(range.getOffset());
+            region.imageOffset().set(0, row, 0);
+            region.imageExtent().set(width, rows, 1);
+            vkCmdCopyBufferToImage(transferCommands(), range.getRing().getBuffer(), image, VK_IMAGE_LAYOUT_TRANSFER_DST_OPTIMAL, region);
+        }
+    }
+
+    /**
+     * @return the open command buffer of the transfer batch
+     */
+    public VkCommandBuffer transferCommands() {
+        if (transferCommands == null) {
+            transferCommands = begin(transferPool);
+        }
+        return transferCommands;
+    }
+
+    /**
+     * @return the open command buffer executed on the graphics queue after the transfer batch of the same flush
+     */
+    public VkCommandBuffer graphicsCommands() {
+        if (!dedicated) {
+            return transferCommands();
+        }
+        if (graphicsCommands == null) {
+            graphicsCommands = begin(graphicsPool);
+        }
+        return graphicsCommands;
+    }
+
+    /**
+     * Submits the recorded batches without waiting for them.
+     *
+     * @return serial of the submission, see {@link #isComplete(long)}
+     */
+    public long flush() {
+        retire();
+        if (transferCommands == null && graphicsCommands == null) {
+            return submittedSerial;
+        }
+        Submission submission = new Submission(++submittedSerial, transferCommands, graphicsCommands,
+                staging.takeReserved(), takeFence());
+        if (transferCommands != null) {
+            check(vkEndCommandBuffer(transferCommands), "end transfer commands");
+        }
+        if (graphicsCommands != null) {
+            check(vkEndCommandBuffer(graphicsCommands), "end graphics commands");
+        }
+        if (transferCommands != null && graphicsCommands != null) {
+            submission.semaphore = takeSemaphore();
+            submit(dedicated ? transferQueue : graphicsQueue, transferCommands, VK_NULL_HANDLE, submission.semaphore, VK_NULL_HANDLE);
+            submit(graphicsQueue, graphicsCommands, submission.semaphore, VK_NULL_HANDLE, submission.fence);
+        } else if (transferCommands != null) {
+            submit(dedicated ? transferQueue : graphicsQueue, transferCommands, VK_NULL_HANDLE, VK_NULL_HANDLE, submission.fence);
+        } else {
+            submit(graphicsQueue, graphicsCommands, VK_NULL_HANDLE, VK_NULL_HANDLE, submission.fence);
+        }
+        transferCommands = null;
+        graphicsCommands = null;
+        inFlight.add(submission);
+        submissions++;
+        return submission.serial;
+    }
+
+    /**
+     * @return whether the submission returned by {@link #flush()} as {@code serial} has completed
+     */
+    public boolean isComplete(long serial) {
+        retire();
+        return serial <= completedSerial;
+    }
+
+    /**
+     * Flushes and waits for every submitted batch.
+     */
+    public void waitIdle() {
+        flush();
+        while (!inFlight.isEmpty()) {
+            waitOldest();
+        }
+    }
+
+    /**
+     * @return whether every submitted batch has completed, releasing the ones that did
+     */
+    public boolean isIdle() {
+        retire();
+        return inFlight.isEmpty();
+    }
+
+    /**
+     * @return queue families for {@code VK_SHARING_MODE_CONCURRENT}, null when uploads and rendering share one
+     */
+    public IntBuffer getConcurrentFamilies() {
+        return concurrentFamilies;
+    }
+
+    public boolean hasDedicatedTransferQueue() {
+        return dedicated;
+    }
+
+    public String getStatistics() {
+        return String.format("uploads: %d, %.2f MB in %d submissions on the %s queue, %d fence waits (%.1f ms)%n",
+                uploads, uploadedBytes / 1048576.0, submissions, dedicated ? "transfer" : "graphics",
+                fenceWaits, waitTime / 1e6) + staging.getStatistics();
+    }
+
+    public void destroy() {
+        waitIdle();
+        for (int i = 0; i < freeFences.size(); i++) {
+            vkDestroyFence(device, freeFences.get(i), null);
+        }
+        for (int i = 0; i < freeSemaphores.size(); i++) {
+            vkDestroySemaphore(device, freeSemaphores.get(i), null);
+        }
+        vkDestroyCommandPool(device, transferPool, null);
+        if (dedicated) {
+            vkDestroyCommandPool(device, graphicsPool, null);
+        }
+        staging.destroy();
+    }
+
+    /**
+     * Copies {@code size} bytes into staging memory, waiting for older batches when the pool is full.
+     * The copy ends up in {@link #range}.
+     */
+    private void stage(long address, long size) {
+        if (!staging.reserve(size, STAGING_ALIGNMENT, range)) {
+            do {
+                retire();
+                if (inFlight.isEmpty()) {
+                    flush();
+                }
+                if (inFlight.isEmpty()) {
+                    throw new IllegalStateException("Staging pool has no room for " + size + " bytes");
+                }
+                waitOldest();
+            } while (!staging.reserve(size, STAGING_ALIGNMENT, range));
+        }
+        memCopy(address, range.getRing().address(range.getOffset()), size);
+    }
+
+    private void waitOldest() {
+        Submission submission = inFlight.peek();
+        long start = System.nanoTime();
+        check(vkWaitForFences(device, submission.fence, true, Long.MAX_VALUE), "wait for upload fence");
+        waitTime += System.nanoTime() - start;
+        fenceWaits++;
+        retire();
+    }
+
+    /**
+     * Releases completed submissions, oldest first.
+     */
+    private void retire() {
+        while (!inFlight.isEmpty() && vkGetFenceStatus(device, inFlight.peek().fence) == VK_SUCCESS) {
+            Submission submission = inFlight.poll();
+            completedSerial = submission.serial;
+            staging.release(submission.staging);
+            if (submission.transferCommands != null) {
+                vkFreeCommandBuffers(device, transferPool, submission.transferCommands);
+            }
+            if (submission.graphicsCommands != null) {
+                vkFreeCommandBuffers(device, graphicsPool, submission.graphicsCommands);
+            }
+            check(vkResetFences(device, submission.fence), "reset upload fence");
+            freeFences.add(submission.fence);
+            if (submission.semaphore != VK_NULL_HANDLE) {
+                freeSemaphores.add(submission.semaphore);
+            }
+        }
+        staging.trim();
+    }
+
+    private void submit(VkQueue queue, VkCommandBuffer commandBuffer, long waitSemaphore, long signalSemaphore, long fence) {
+        pCommandBuffer.put(0, commandBuffer);
+        submitInfo.waitSemaphoreCount(0).pSignalSemaphores(null);
+        if (waitSemaphore != VK_NULL_HANDLE) {
+            pWaitSemaphore.put(0, waitSemaphore);
+            submitInfo.waitSemaphoreCount(1)
+                    .pWaitSemaphores(pWaitSemaphore)
+                    .pWaitDstStageMask(pWaitStage);
+        }
+        if (signalSemaphore != VK_NULL_HANDLE) {
+            pSignalSemaphore.put(0, signalSemaphore);
+            submitInfo.pSignalSemaphores(pSignalSemaphore);
+        }
+        check(vkQueueSubmit(queue, submitInfo, fence), "submit upload batch");
+    }
+
+    private VkCommandBuffer begin(long commandPool) {
+        VkCommandBufferAllocateInfo allocateInfo = VkCommandBufferAllocateInfo.create()
+                .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_ALLOCATE_INFO)
+                .level(VK_COMMAND_BUFFER_LEVEL_PRIMARY)
+                .commandPool(commandPool)
+                .commandBufferCount(1);
+
+        PointerBuffer pointer = BufferUtils.createPointerBuffer(1);
+        check(vkAllocateCommandBuffers(device, allocateInfo, pointer), "allocate upload command buffer");
+        VkCommandBuffer commandBuffer = new VkCommandBuffer(pointer.get(0), device);
+
+        VkCommandBufferBeginInfo beginInfo = VkCommandBufferBeginInfo.create()
+                .sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_BEGIN_INFO)
+                .flags(VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT);
+        check(vkBeginCommandBuffer(commandBuffer, beginInfo), "begin upload command buffer");
+        return commandBuffer;
+    }
+
+    private long takeFence() {
+        if (freeFences.size() > 0) {
+            long fence = freeFences.get(freeFences.size() - 1);
+            freeFences.remove(freeFences.size() - 1);
+            return fence;
+        }
+        VkFenceCreateInfo createInfo = VkFenceCreateInfo.create()
+                .sType(VK_STRUCTURE_TYPE_FENCE_CREATE_INFO);
+        LongBuffer pFence = BufferUtils.createLongBuffer(1);
+        check(vkCreateFence(device, createInfo, null, pFence), "create upload fence");
+        return pFence.get(0);
+    }
+
+    private long takeSemaphore() {
+        if (freeSemaphores.size() > 0) {
+            long semaphore = freeSemaphores.get(freeSemaphores.size() - 1);
+            freeSemaphores.remove(freeSemaphores.size() - 1);
+            return semaphore;
+        }
+        VkSemaphoreCreateInfo createInfo = VkSemaphoreCreateInfo.create()
+                .sType(VK_STRUCTURE_TYPE_SEMAPHORE_CREATE_INFO);
+        LongBuffer pSemaphore = BufferUtils.createLongBuffer(1);
+        check(vkCreateSemaphore(device, createInfo, null, pSemaphore), "create upload semaphore");
+        return pSemaphore.get(0);
+    }
+
+    private long createCommandPool(int queueFamily) {
+        VkCommandPoolCreateInfo createInfo = VkCommandPoolCreateInfo.create()
+                .sType(VK_STRUCTURE_TYPE_COMMAND_POOL_CREATE_INFO)
+                .queueFamilyIndex(queueFamily)
+                .flags(VK_COMMAND_POOL_CREATE_TRANSIENT_BIT);
+        LongBuffer pCommandPool = BufferUtils.createLongBuffer(1);
+        check(vkCreateCommandPool(device, createInfo, null, pCommandPool), "create upload command pool");
+        return pCommandPool.get(0);
+    }
+
+    private VkQueue getQueue(int queueFamily) {
+        PointerBuffer pQueue = BufferUtils.createPointerBuffer(1);
+        vkGetDeviceQueue(device, queueFamily, 0, pQueue);
+        return new VkQueue(pQueue.get(0), device);
+    }
+
+    private static void check(int err, String action) {
+        if (err != VK_SUCCESS) {
+            throw new RuntimeException("Failed to " + action + ": " + translateVulkanResult(err));
+        }
+    }
+
+    private static class Submission {
+        final long serial;
+        final VkCommandBuffer transferCommands;
+        final VkCommandBuffer graphicsCommands;
+        final StagingBufferPool.Batch staging;
+        final long fence;
+        long semaphore = VK_NULL_HANDLE;
+
+        Submission(long serial, VkCommandBuffer transferCommands, VkCommandBuffer graphicsCommands, StagingBufferPool.Batch staging, long fence) {
+            this.serial = serial;
+            this.transferCommands = transferCommands;
+            this.graphicsCommands = graphicsCommands;
+            this.staging = staging;
+            this.fence = fence;
+        }
+    }
+}
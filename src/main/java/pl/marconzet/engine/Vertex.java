@@ -3,10 +3,18 @@ package pl.marconzet.engine;
 import java.nio.FloatBuffer;
 
 /**
+ * One vertex of the original object-per-vertex model layout. {@link Model} no longer uses it, see {@link VertexSink};
+ * it remains as the baseline of {@code Benchmark model}.
+ *
  * @author MarconZet
  * Created 28.09.2018
  */
 public class Vertex {
+    public static final int COORDINATE_OFFSET = 0;
+    public static final int COLOR_OFFSET = 4 * 3;
+    public static final int TEX_CORD_OFFSET = 4 * (3 + 3);
+    public static final int SIZE = 4 * (3 + 3 + 2);
+
     private float[] coordinate;
     private float[] color;
     private float[] texCord;
@@ -22,19 +30,19 @@ public class Vertex {
     }
 
     public int coordinateOffset(){
-        return 0;
+        return COORDINATE_OFFSET;
     }
 
     public int colorOffset(){
-        return 4 * coordinate.length;
+        return COLOR_OFFSET;
     }
 
     public int texCordOffset(){
-        return 4 * (coordinate.length + color.length);
+        return TEX_CORD_OFFSET;
     }
 
 
     public int sizeOf(){
-        return 4 * (coordinate.length + color.length + texCord.length);
+        return SIZE;
     }
 }
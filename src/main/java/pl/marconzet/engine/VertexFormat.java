@@ -0,0 +1,227 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.vulkan.VkVertexInputAttributeDescription;
+import org.lwjgl.vulkan.VkVertexInputBindingDescription;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * Interleaved vertex layouts a {@link Model} can be stored in. Every format feeds the same shader inputs:
+ * position at location 0, normal at location 1 and texture coordinate at location 2, all from binding 0. Binding 1
+ * holds the per-instance transform of {@link Scene}, at locations 3 to 5.
+ * <ul>
+ * <li>{@link #FLOAT}: 32 bytes, float position, normal and texture coordinate.</li>
+ * <li>{@link #HALF}: 16 bytes, half-float position, octahedral snorm16 normal, half-float texture coordinate.</li>
+ * <li>{@link #QUANTIZED}: 16 bytes, unorm16 position relative to the mesh bounds, octahedral snorm16 normal,
+ * half-float texture coordinate. The bounds are applied through {@link Model#getPositionTransform()}.</li>
+ * </ul>
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public enum VertexFormat {
+    FLOAT(32, "vert.spv", new int[]{
+            0, VK_FORMAT_R32G32B32_SFLOAT, 0,
+            1, VK_FORMAT_R32G32B32_SFLOAT, 12,
+            2, VK_FORMAT_R32G32_SFLOAT, 24
+    }),
+    HALF(16, "vert_oct.spv", new int[]{
+            0, VK_FORMAT_R16G16B16A16_SFLOAT, 0,
+            1, VK_FORMAT_R16G16_SNORM, 8,
+            2, VK_FORMAT_R16G16_SFLOAT, 12
+    }),
+    QUANTIZED(16, "vert_oct.spv", new int[]{
+            0, VK_FORMAT_R16G16B16A16_UNORM, 0,
+            1, VK_FORMAT_R16G16_SNORM, 8,
+            2, VK_FORMAT_R16G16_SFLOAT, 12
+    });
+
+    /**
+     * Attributes a layout may have, the {@code maxVertexInputAttributes} every Vulkan device supports.
+     */
+    public static final int MAX_ATTRIBUTES = 16;
+
+    private final int stride;
+    private final String vertexShader;
+    private final int[] layout;
+
+    VertexFormat(int stride, String vertexShader, int[] layout) {
+        this.stride = stride;
+        this.vertexShader = vertexShader;
+        this.layout = layout;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * @return compiled vertex shader matching this layout, built from shader.vert by compile.bat
+     */
+    public String getVertexShader() {
+        return vertexShader;
+    }
+
+    /**
+     * @return (location, format, offset) of every attribute
+     */
+    public int[] getLayout() {
+        return layout;
+    }
+
+    VkVertexInputBindingDescription.Buffer getBindingDescription() {
+        VkVertexInputBindingDescription.Buffer bindingDescription = VkVertexInputBindingDescription.create(2);
+        bindingDescription.get(0)
+                .binding(0)
+                .stride(stride)
+                .inputRate(VK_VERTEX_INPUT_RATE_VERTEX);
+        bindingDescription.get(1)
+                .binding(1)
+                .stride(Scene.INSTANCE_SIZE)
+                .inputRate(VK_VERTEX_INPUT_RATE_INSTANCE);
+        return bindingDescription;
+    }
+
+    VkVertexInputAttributeDescription.Buffer getAttributeDescriptions() {
+        VkVertexInputAttributeDescription.Buffer attributeDescriptions = VkVertexInputAttributeDescription.create(layout.length / 3 + 3);
+        for (int i = 0; i < layout.length / 3; i++) {
+            attributeDescriptions.get(i)
+                    .binding(0)
+                    .location(layout[i * 3])
+                    .format(layout[i * 3 + 1])
+                    .offset(layout[i * 3 + 2]);
+        }
+        for (int row = 0; row < 3; row++) {
+            attributeDescriptions.get(layout.length / 3 + row)
+                    .binding(1)
+                    .location(3 + row)
+                    .format(VK_FORMAT_R32G32B32A32_SFLOAT)
+                    .offset(row * 16);
+        }
+        return attributeDescriptions;
+    }
+
+    /**
+     * Writes one vertex at absolute byte {@code offset}.
+     *
+     * @param bounds min xyz and max xyz of all positions, used by {@link #QUANTIZED}
+     */
+    public void write(ByteBuffer target, int offset, float x, float y, float z, float nx, float ny, float nz,
+                      float u, float v, float[] bounds) {
+        switch (this) {
+            case FLOAT:
+                target.putFloat(offset, x).putFloat(offset + 4, y).putFloat(offset + 8, z)
+                        .putFloat(offset + 12, nx).putFloat(offset + 16, ny).putFloat(offset + 20, nz)
+                        .putFloat(offset + 24, u).putFloat(offset + 28, v);
+                return;
+            case HALF:
+                target.putShort(offset, toHalf(x)).putShort(offset + 2, toHalf(y)).putShort(offset + 4, toHalf(z))
+                        .putShort(offset + 6, toHalf(1));
+                break;
+            case QUANTIZED:
+                target.putShort(offset, toUnorm(x, bounds[0], bounds[3]))
+                        .putShort(offset + 2, toUnorm(y, bounds[1], bounds[4]))
+                        .putShort(offset + 4, toUnorm(z, bounds[2], bounds[5]))
+                        .putShort(offset + 6, (short) 0xFFFF);
+                break;
+        }
+        float length = Math.abs(nx) + Math.abs(ny) + Math.abs(nz);
+        float ox = 0, oy = 0;
+        if (length > 0) {
+            ox = nx / length;
+            oy = ny / length;
+            if (nz < 0) {
+                // the sign of decodeNormal in shader.vert, which counts zero as positive
+                float wrappedX = (1 - Math.abs(oy)) * (ox >= 0 ? 1f : -1f);
+                float wrappedY = (1 - Math.abs(ox)) * (oy >= 0 ? 1f : -1f);
+                ox = wrappedX;
+                oy = wrappedY;
+            }
+        }
+        target.putShort(offset + 8, toSnorm(ox)).putShort(offset + 10, toSnorm(oy))
+                .putShort(offset + 12, toHalf(u)).putShort(offset + 14, toHalf(v));
+    }
+
+    /**
+     * Reads back the position of the vertex at absolute byte {@code offset} into {@code out[at..at+2]}.
+     */
+    public void readPosition(ByteBuffer source, int offset, float[] bounds, float[] out, int at) {
+        for (int k = 0; k < 3; k++) {
+            switch (this) {
+                case FLOAT:
+                    out[at + k] = source.getFloat(offset + k * 4);
+                    break;
+                case HALF:
+                    out[at + k] = fromHalf(source.getShort(offset + k * 2));
+                    break;
+                case QUANTIZED:
+                    float t = (source.getShort(offset + k * 2) & 0xFFFF) / 65535f;
+                    out[at + k] = bounds[k] + t * (bounds[k + 3] - bounds[k]);
+                    break;
+            }
+        }
+    }
+
+    private static short toUnorm(float value, float min, float max) {
+        float t = max > min ? (value - min) / (max - min) : 0;
+        return (short) Math.round(Math.min(Math.max(t, 0), 1) * 65535);
+    }
+
+    private static short toSnorm(float value) {
+        return (short) Math.round(Math.min(Math.max(value, -1), 1) * 32767);
+    }
+
+    /**
+     * IEEE 754 binary16 conversion with round to nearest even.
+     */
+    static short toHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+        if (exponent == 0xFF) {
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+        }
+        int halfExponent = exponent - 127 + 15;
+        if (halfExponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        }
+        if (halfExponent <= 0) {
+            if (halfExponent < -10) {
+                return (short) sign;
+            }
+            mantissa |= 0x800000;
+            int shift = 14 - halfExponent;
+            int half = mantissa >> shift;
+            int rest = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (rest > halfway || (rest == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        int half = (halfExponent << 10) | (mantissa >> 13);
+        int rest = mantissa & 0x1FFF;
+        if (rest > 0x1000 || (rest == 0x1000 && (half & 1) != 0)) {
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    static float fromHalf(short value) {
+        int bits = value & 0xFFFF;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+        if (exponent == 0) {
+            float magnitude = mantissa / 16777216f;
+            return sign != 0 ? -magnitude : magnitude;
+        }
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+}
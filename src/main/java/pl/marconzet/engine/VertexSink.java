@@ -0,0 +1,85 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Streams vertices and triangles straight into the interleaved buffer of a {@link Model}, without any per-vertex
+ * objects. The vertex buffer grows by doubling when the expected vertex count is exceeded.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class VertexSink {
+    private final VertexFormat format;
+    private final float[] bounds;
+    private final int stride;
+    private ByteBuffer vertices;
+    private int vertexCount;
+    private final IntList indices;
+
+    /**
+     * @param bounds min xyz and max xyz enclosing every position to come; required by {@link VertexFormat#QUANTIZED},
+     *               computed from the vertices otherwise when {@code null}
+     */
+    public VertexSink(VertexFormat format, float[] bounds, int expectedVertices, int expectedIndices) {
+        if (bounds == null && format == VertexFormat.QUANTIZED) {
+            throw new IllegalArgumentException("Quantized vertices need the mesh bounds up front");
+        }
+        this.format = format;
+        this.bounds = bounds != null ? bounds.clone() : new float[]{
+                Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        this.stride = format.getStride();
+        this.vertices = BufferUtils.createByteBuffer(Math.max(expectedVertices, 1) * stride);
+        this.indices = new IntList(Math.max(expectedIndices, 3));
+    }
+
+    /**
+     * @return index of the new vertex
+     */
+    public int vertex(float x, float y, float z, float nx, float ny, float nz, float u, float v) {
+        if ((vertexCount + 1) * stride > vertices.capacity()) {
+            ByteBuffer grown = BufferUtils.createByteBuffer(vertices.capacity() * 2);
+            vertices.limit(vertexCount * stride);
+            grown.put(vertices).clear();
+            vertices = grown;
+        }
+        if (format != VertexFormat.QUANTIZED) {
+            bounds[0] = Math.min(bounds[0], x);
+            bounds[1] = Math.min(bounds[1], y);
+            bounds[2] = Math.min(bounds[2], z);
+            bounds[3] = Math.max(bounds[3], x);
+            bounds[4] = Math.max(bounds[4], y);
+            bounds[5] = Math.max(bounds[5], z);
+        }
+        format.write(vertices, vertexCount * stride, x, y, z, nx, ny, nz, u, v, bounds);
+        return vertexCount++;
+    }
+
+    public void triangle(int a, int b, int c) {
+        indices.add(a, b, c);
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public Model build() {
+        return build(indices.toArray());
+    }
+
+    /**
+     * Builds the model with {@code indices} instead of the triangles passed to the sink.
+     */
+    Model build(int[] indices) {
+        if (vertexCount == 0) {
+            Arrays.fill(bounds, 0);
+        }
+        vertices.limit(vertexCount * stride);
+        return new Model(vertices.slice().order(ByteOrder.nativeOrder()), vertexCount, indices, format, bounds);
+    }
+}
@@ -0,0 +1,84 @@
+package pl.marconzet.engine;
+
+/**
+ * Open-addressing hash map from an OBJ (v, vt, vn) index triple to a vertex index. Keys and values live in flat
+ * {@code int[]} tables with linear probing, so welding millions of face corners allocates nothing per corner.
+ * Vertex indices are handed out in insertion order.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class VertexWelder {
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public VertexWelder(int expectedVertices) {
+        int capacity = Integer.highestOneBit(Math.max(expectedVertices, 8) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @param v  1-based position index, never 0
+     * @param vt 1-based texture coordinate index or 0
+     * @param vn 1-based normal index or 0
+     * @return index of the vertex for this triple; equals the previous {@link #size()} if the triple is new
+     */
+    public int weld(int v, int vt, int vn) {
+        int slot = hash(v, vt, vn) & mask;
+        while (keys[slot * 3] != EMPTY) {
+            if (keys[slot * 3] == v && keys[slot * 3 + 1] == vt && keys[slot * 3 + 2] == vn) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot * 3] = v;
+        keys[slot * 3 + 1] = vt;
+        keys[slot * 3 + 2] = vn;
+        values[slot] = size;
+        if (++size * 2 > values.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldValues.length * 2);
+        for (int i = 0; i < oldValues.length; i++) {
+            int v = oldKeys[i * 3];
+            if (v == EMPTY) continue;
+            int vt = oldKeys[i * 3 + 1];
+            int vn = oldKeys[i * 3 + 2];
+            int slot = hash(v, vt, vn) & mask;
+            while (keys[slot * 3] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot * 3] = v;
+            keys[slot * 3 + 1] = vt;
+            keys[slot * 3 + 2] = vn;
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity * 3];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(int v, int vt, int vn) {
+        int h = v * 0x9E3779B1;
+        h ^= vt * 0x85EBCA77;
+        h ^= vn * 0xC2B2AE3D;
+        return h ^ (h >>> 15);
+    }
+}
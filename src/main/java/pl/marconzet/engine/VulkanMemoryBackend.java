@@ -0,0 +1,55 @@
+package pl.marconzet.engine;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.vulkan.VkDevice;
+import org.lwjgl.vulkan.VkMemoryAllocateInfo;
+
+import java.nio.LongBuffer;
+
+import static org.lwjgl.vulkan.VK10.*;
+import static pl.marconzet.engine.VKUtil.translateVulkanResult;
+
+/**
+ * {@link MemoryBackend} calling {@code vkAllocateMemory} and {@code vkMapMemory} on a device.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class VulkanMemoryBackend implements MemoryBackend {
+    private final VkDevice device;
+
+    public VulkanMemoryBackend(VkDevice device) {
+        this.device = device;
+    }
+
+    @Override
+    public long allocate(int memoryTypeIndex, long size) {
+        VkMemoryAllocateInfo allocateInfo = VkMemoryAllocateInfo.create()
+                .sType(VK_STRUCTURE_TYPE_MEMORY_ALLOCATE_INFO)
+                .allocationSize(size)
+                .memoryTypeIndex(memoryTypeIndex);
+
+        LongBuffer pointer = BufferUtils.createLongBuffer(1);
+        int err = vkAllocateMemory(device, allocateInfo, null, pointer);
+        if (err != VK_SUCCESS) {
+            throw new RuntimeException("Failed to allocate memory: " + translateVulkanResult(err));
+        }
+        return pointer.get(0);
+    }
+
+    @Override
+    public void free(long memory) {
+        vkFreeMemory(device, memory, null);
+    }
+
+    @Override
+    public long map(long memory, long size) {
+        PointerBuffer pData = BufferUtils.createPointerBuffer(1);
+        int err = vkMapMemory(device, memory, 0, size, 0, pData);
+        if (err != VK_SUCCESS) {
+            throw new RuntimeException("Failed to map memory: " + translateVulkanResult(err));
+        }
+        return pData.get(0);
+    }
+}
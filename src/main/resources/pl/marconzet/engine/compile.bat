@@ -1,2 +1,4 @@
 C:\VulkanSDK\1.1.82.1\Bin\glslangValidator.exe -V shader.vert
+C:\VulkanSDK\1.1.82.1\Bin\glslangValidator.exe -V -DOCTAHEDRAL_NORMALS shader.vert -o vert_oct.spv
 C:\VulkanSDK\1.1.82.1\Bin\glslangValidator.exe -V shader.frag
+C:\VulkanSDK\1.1.82.1\Bin\glslangValidator.exe -V cull.comp -o cull.spv
@@ -1,13 +1,21 @@
 #version 450
 #extension GL_ARB_separate_shader_objects : enable
 
-layout(location = 0) in vec3 fragColor;
+layout(constant_id = 0) const int TEXTURE_COUNT = 64;
+
+layout(location = 0) in vec3 fragNormal;
 layout(location = 1) in vec2 fragTexCoord;
 
 layout(location = 0) out vec4 outColor;
 
-layout(binding = 1) uniform sampler2D texSampler;
+layout(binding = 1) uniform sampler2D textures[TEXTURE_COUNT];
+
+// after the vertex stage range, see Material
+layout(push_constant) uniform Material {
+    layout(offset = 48) vec4 uvTransform;
+    uint textureIndex;
+} material;
 
 void main() {
-    outColor = texture(texSampler, fragTexCoord);
+    outColor = texture(textures[material.textureIndex], fragTexCoord * material.uvTransform.xy + material.uvTransform.zw);
 }
@@ -7,19 +7,50 @@ layout(binding = 0) uniform UniformBufferObject {
     mat4 proj;
 } ubo;
 
+// rows of Model.getPositionTransform(), per mesh
+layout(push_constant) uniform Mesh {
+    vec4 positionTransform[3];
+} mesh;
+
 layout(location = 0) in vec3 inPosition;
-layout(location = 1) in vec3 inColor;
+#ifdef OCTAHEDRAL_NORMALS
+layout(location = 1) in vec2 inNormal;
+#else
+layout(location = 1) in vec3 inNormal;
+#endif
 layout(location = 2) in vec2 inTexCoord;
+// per instance: rows of the 3x4 object transform, see Scene
+layout(location = 3) in vec4 inTransform0;
+layout(location = 4) in vec4 inTransform1;
+layout(location = 5) in vec4 inTransform2;
 
-layout(location = 0) out vec3 fragColor;
+layout(location = 0) out vec3 fragNormal;
 layout(location = 1) out vec2 fragTexCoord;
 
 out gl_PerVertex {
     vec4 gl_Position;
 };
 
+#ifdef OCTAHEDRAL_NORMALS
+vec3 decodeNormal(vec2 e) {
+    vec3 n = vec3(e, 1.0 - abs(e.x) - abs(e.y));
+    float t = max(-n.z, 0.0);
+    n.xy += vec2(n.x >= 0.0 ? -t : t, n.y >= 0.0 ? -t : t);
+    return normalize(n);
+}
+#else
+vec3 decodeNormal(vec3 n) {
+    return n;
+}
+#endif
+
 void main() {
-    gl_Position = ubo.proj * ubo.view * ubo.model * vec4(inPosition, 1.0);
-    fragColor = inColor;
+    vec4 stored = vec4(inPosition, 1.0);
+    vec4 position = vec4(dot(mesh.positionTransform[0], stored), dot(mesh.positionTransform[1], stored),
+            dot(mesh.positionTransform[2], stored), 1.0);
+    vec3 world = vec3(dot(inTransform0, position), dot(inTransform1, position), dot(inTransform2, position));
+    gl_Position = ubo.proj * ubo.view * ubo.model * vec4(world, 1.0);
+    vec3 normal = decodeNormal(inNormal);
+    fragNormal = normalize(vec3(dot(inTransform0.xyz, normal), dot(inTransform1.xyz, normal), dot(inTransform2.xyz, normal)));
     fragTexCoord = inTexCoord;
-}
\ No newline at end of file
+}
@@ -0,0 +1,150 @@
+package pl.marconzet.engine;
+
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.vulkan.VK10.VK_FORMAT_BC1_RGB_UNORM_BLOCK;
+import static org.lwjgl.vulkan.VK10.VK_FORMAT_BC3_UNORM_BLOCK;
+import static org.lwjgl.vulkan.VK10.VK_FORMAT_BC7_UNORM_BLOCK;
+
+/**
+ * Round trips through {@link BlockCompressor#decompress}. The bounds leave a few dB of room below what the encoder
+ * reaches on the same images.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class BlockCompressorTest {
+    private static final int SIZE = 256;
+
+    @Test
+    public void bc1KeepsSmoothImages() {
+        ByteBuffer pixels = smooth(SIZE, SIZE);
+        ByteBuffer decoded = roundTrip(pixels, SIZE, SIZE, VK_FORMAT_BC1_RGB_UNORM_BLOCK);
+        assertTrue(psnr(pixels, decoded, 0, 3) > 38);
+    }
+
+    @Test
+    public void bc3KeepsSmoothImagesAndAlpha() {
+        ByteBuffer pixels = smooth(SIZE, SIZE);
+        ByteBuffer decoded = roundTrip(pixels, SIZE, SIZE, VK_FORMAT_BC3_UNORM_BLOCK);
+        assertTrue(psnr(pixels, decoded, 0, 3) > 38);
+        assertTrue(psnr(pixels, decoded, 3, 1) > 40);
+    }
+
+    @Test
+    public void solidBlocksOnlyLoseTheEndpointPrecision() {
+        ByteBuffer pixels = BufferUtils.createByteBuffer(8 * 8 * 4);
+        for (int i = 0; i < 64; i++) {
+            pixels.put((byte) 201).put((byte) 99).put((byte) 14).put((byte) 77);
+        }
+        pixels.flip();
+        ByteBuffer decoded = roundTrip(pixels, 8, 8, VK_FORMAT_BC3_UNORM_BLOCK);
+        for (int i = 0; i < 64; i++) {
+            // 5, 6 and 5 bits per channel
+            assertEquals(201, decoded.get(i * 4) & 0xFF, 4);
+            assertEquals(99, decoded.get(i * 4 + 1) & 0xFF, 2);
+            assertEquals(14, decoded.get(i * 4 + 2) & 0xFF, 4);
+            assertEquals(77, decoded.get(i * 4 + 3) & 0xFF);
+        }
+    }
+
+    @Test
+    public void edgeBlocksRepeatTheLastRowAndColumn() {
+        int width = 13;
+        int height = 7;
+        ByteBuffer pixels = smooth(width, height);
+        ByteBuffer padded = BufferUtils.createByteBuffer(16 * 8 * 4);
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 16; x++) {
+                padded.putInt((y * 16 + x) * 4, pixels.getInt((Math.min(y, height - 1) * width + Math.min(x, width - 1)) * 4));
+            }
+        }
+        ByteBuffer decoded = roundTrip(pixels, width, height, VK_FORMAT_BC3_UNORM_BLOCK);
+        ByteBuffer decodedPadded = roundTrip(padded, 16, 8, VK_FORMAT_BC3_UNORM_BLOCK);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(decodedPadded.getInt((y * 16 + x) * 4), decoded.getInt((y * width + x) * 4));
+            }
+        }
+    }
+
+    @Test
+    public void noiseStaysBounded() {
+        byte[] noise = new byte[64 * 64 * 4];
+        new Random(4).nextBytes(noise);
+        ByteBuffer pixels = BufferUtils.createByteBuffer(noise.length);
+        pixels.put(noise).flip();
+        ByteBuffer decoded = roundTrip(pixels, 64, 64, VK_FORMAT_BC3_UNORM_BLOCK);
+        assertTrue(psnr(pixels, decoded, 0, 3) > 10);
+        assertTrue(psnr(pixels, decoded, 3, 1) > 25);
+    }
+
+    @Test
+    public void resultDoesNotDependOnThreads() {
+        ByteBuffer pixels = smooth(SIZE, SIZE);
+        int size = MipChain.size(VK_FORMAT_BC3_UNORM_BLOCK, SIZE, SIZE, 1);
+        ByteBuffer single = BufferUtils.createByteBuffer(size);
+        ByteBuffer parallel = BufferUtils.createByteBuffer(size);
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            BlockCompressor.compress(pixels, 0, SIZE, SIZE, VK_FORMAT_BC3_UNORM_BLOCK, single, 0, one);
+            BlockCompressor.compress(pixels, 0, SIZE, SIZE, VK_FORMAT_BC3_UNORM_BLOCK, parallel, 0, four);
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+        assertEquals(single, parallel);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedFormatThrows() {
+        ByteBuffer pixels = smooth(4, 4);
+        BlockCompressor.compress(pixels, 0, 4, 4, VK_FORMAT_BC7_UNORM_BLOCK, BufferUtils.createByteBuffer(16), 0,
+                ForkJoinPool.commonPool());
+    }
+
+    private static ByteBuffer roundTrip(ByteBuffer pixels, int width, int height, int format) {
+        ByteBuffer compressed = BufferUtils.createByteBuffer(MipChain.size(format, width, height, 1));
+        BlockCompressor.compress(pixels, 0, width, height, format, compressed, 0, ForkJoinPool.commonPool());
+        ByteBuffer decoded = BufferUtils.createByteBuffer(width * height * 4);
+        BlockCompressor.decompress(compressed, 0, width, height, format, decoded, 0);
+        return decoded;
+    }
+
+    /**
+     * Gradients and a wave in color, a radial falloff in alpha, as the bc benchmark uses.
+     */
+    private static ByteBuffer smooth(int width, int height) {
+        ByteBuffer pixels = BufferUtils.createByteBuffer(width * height * 4);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double wave = Math.sin(x / 37.0) * Math.cos(y / 23.0);
+                double distance = Math.hypot(x - width / 2.0, y - height / 2.0) / Math.max(width, height);
+                pixels.put((byte) (x * 255 / width)).put((byte) (y * 255 / height))
+                        .put((byte) (128 + 120 * wave))
+                        .put((byte) Math.max(0, Math.min(255, 255 - distance * 300)));
+            }
+        }
+        pixels.flip();
+        return pixels;
+    }
+
+    private static double psnr(ByteBuffer expected, ByteBuffer actual, int firstChannel, int channels) {
+        double error = 0;
+        for (int i = 0; i < expected.remaining(); i += 4) {
+            for (int c = firstChannel; c < firstChannel + channels; c++) {
+                int difference = (expected.get(i + c) & 0xFF) - (actual.get(i + c) & 0xFF);
+                error += difference * difference;
+            }
+        }
+        error /= expected.remaining() / 4 * channels;
+        return error == 0 ? Double.POSITIVE_INFINITY : 10 * Math.log10(255 * 255 / error);
+    }
+}
@@ -0,0 +1,152 @@
+package pl.marconzet.engine;
+
+import org.joml.Matrix4f;
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link IndirectCuller#cull}, the reference of {@code cull.comp}, against {@link Scene#cull} and every box on its
+ * own.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class IndirectCullerTest {
+    private static final int COUNT = 3000;
+
+    @Test
+    public void matchesSceneCulling() {
+        Random random = new Random(21);
+        float size = (float) Math.cbrt(COUNT) * 4;
+        Scene scene = randomScene(random, size);
+        Matrix4f viewProjection = new Matrix4f()
+                .perspective((float) Math.toRadians(60), 16f / 9f, 0.1f, size / 4, true)
+                .lookAt(size / 2, size / 2, 0, size / 2, size / 2, size, 0, 1, 0);
+        int drawn = check(scene, viewProjection);
+        assertTrue(drawn > 0 && drawn < COUNT);
+    }
+
+    @Test
+    public void matchesSceneCullingFromOutside() {
+        Random random = new Random(5);
+        float size = (float) Math.cbrt(COUNT) * 4;
+        Scene scene = randomScene(random, size);
+        Matrix4f viewProjection = new Matrix4f()
+                .perspective((float) Math.toRadians(90), 1f, 0.1f, size * 4, true)
+                .lookAt(-size, size * 2, -size, size / 2, size / 2, size / 2, 0, 1, 0);
+        check(scene, viewProjection);
+    }
+
+    @Test
+    public void drawsNothingLookingAway() {
+        Random random = new Random(8);
+        float size = (float) Math.cbrt(COUNT) * 4;
+        Scene scene = randomScene(random, size);
+        Matrix4f viewProjection = new Matrix4f()
+                .perspective((float) Math.toRadians(60), 1f, 0.1f, size * 4, true)
+                .lookAt(-1, size / 2, size / 2, -size, size / 2, size / 2, 0, 1, 0);
+        assertEquals(0, check(scene, viewProjection));
+    }
+
+    /**
+     * Culls {@code scene} with the kernel, over the buffers the application uploads, and compares every command and
+     * visible instance.
+     *
+     * @return number of instances drawn
+     */
+    private static int check(Scene scene, Matrix4f viewProjection) {
+        int count = scene.getObjectCount();
+        float[] planes = new float[24];
+        Bvh.frustumPlanes(viewProjection, planes);
+
+        int[] batches = scene.getBatches();
+        FloatBuffer instances = BufferUtils.createFloatBuffer(count * Scene.INSTANCE_SIZE / 4);
+        scene.write(instances);
+        FloatBuffer bounds = BufferUtils.createFloatBuffer(count * IndirectCuller.BOUNDS_SIZE / 4);
+        scene.writeBounds(bounds);
+        IntBuffer table = BufferUtils.createIntBuffer(batches.length);
+        IntBuffer commands = BufferUtils.createIntBuffer(batches.length / 4 * 5);
+        for (int b = 0; b < batches.length; b += 4) {
+            int[] submeshes = scene.getMesh(batches[b]).getSubmeshes();
+            table.put(b / 4).put(submeshes.length / 3).put(batches[b + 2]).put(0);
+            commands.put(submeshes[1]).put(0).put(submeshes[0]).put(submeshes[2]).put(0);
+        }
+        FloatBuffer visible = BufferUtils.createFloatBuffer(count * Scene.INSTANCE_SIZE / 4);
+        IndirectCuller.cull(bounds, table, instances, planes, count, commands, visible);
+
+        IntList expectedBatches = scene.cull(viewProjection);
+        int drawn = 0;
+        int expectedDrawn = 0;
+        for (int b = 0; b < batches.length; b += 4) {
+            int[] submeshes = scene.getMesh(batches[b]).getSubmeshes();
+            int command = b / 4 * 5;
+            assertEquals("index count", submeshes[1], commands.get(command));
+            assertEquals("first index", submeshes[0], commands.get(command + 2));
+            assertEquals("vertex offset", submeshes[2], commands.get(command + 3));
+            int instanceCount = commands.get(command + 1);
+            int expected = 0;
+            for (int e = 0; e < expectedBatches.size(); e += 4) {
+                if (expectedBatches.get(e) == batches[b]) expected = expectedBatches.get(e + 3);
+            }
+            assertEquals("instances of mesh " + batches[b], expected, instanceCount);
+            drawn += instanceCount;
+        }
+
+        Matrix4f object = new Matrix4f();
+        for (int i = 0; i < count; i++) {
+            scene.getTransform(i, object);
+            if (boxVisible(object, planes)) expectedDrawn++;
+        }
+        assertEquals(expectedDrawn, drawn);
+        for (int b = 0; b < batches.length; b += 4) {
+            for (int slot = 0; slot < commands.get(b / 4 * 5 + 1); slot++) {
+                int at = (batches[b + 2] + slot) * 12;
+                object.set(visible.get(at), visible.get(at + 4), visible.get(at + 8), 0f,
+                        visible.get(at + 1), visible.get(at + 5), visible.get(at + 9), 0f,
+                        visible.get(at + 2), visible.get(at + 6), visible.get(at + 10), 0f,
+                        visible.get(at + 3), visible.get(at + 7), visible.get(at + 11), 1f);
+                assertTrue("invisible instance written", boxVisible(object, planes));
+            }
+        }
+        return drawn;
+    }
+
+    private static Scene randomScene(Random random, float size) {
+        float[] positions = {-0.5f, -0.5f, -0.5f, 0.5f, -0.5f, 0.5f, 0.5f, 0.5f, 0.5f, -0.5f, 0.5f, -0.5f};
+        float[] texCoords = {0f, 0f, 1f, 0f, 1f, 1f, 0f, 1f};
+        int[] indices = {0, 1, 2, 2, 3, 0};
+        Scene scene = new Scene();
+        for (int mesh = 0; mesh < 3; mesh++) {
+            scene.addMesh(new Model(positions, texCoords, indices, 4));
+        }
+        Matrix4f transform = new Matrix4f();
+        for (int i = 0; i < COUNT; i++) {
+            scene.add(i % 3, transform.translation(random.nextFloat() * size, random.nextFloat() * size,
+                    random.nextFloat() * size).rotateY(random.nextFloat() * 6.28f).scale(1 + random.nextFloat()));
+        }
+        return scene;
+    }
+
+    /**
+     * The box of a unit cube under {@code object} against {@code planes}, as the kernel tests it.
+     */
+    private static boolean boxVisible(Matrix4f object, float[] planes) {
+        float cx = object.m30(), cy = object.m31(), cz = object.m32();
+        float ex = (Math.abs(object.m00()) + Math.abs(object.m10()) + Math.abs(object.m20())) * 0.5f;
+        float ey = (Math.abs(object.m01()) + Math.abs(object.m11()) + Math.abs(object.m21())) * 0.5f;
+        float ez = (Math.abs(object.m02()) + Math.abs(object.m12()) + Math.abs(object.m22())) * 0.5f;
+        for (int p = 0; p < 24; p += 4) {
+            float a = planes[p], b = planes[p + 1], c = planes[p + 2];
+            if (a * cx + b * cy + c * cz + planes[p + 3] + Math.abs(a) * ex + Math.abs(b) * ey + Math.abs(c) * ez < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
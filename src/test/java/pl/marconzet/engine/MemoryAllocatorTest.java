@@ -0,0 +1,173 @@
+package pl.marconzet.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MemoryAllocatorTest {
+    private static final int DEVICE_LOCAL = VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT;
+    private static final int HOST_VISIBLE = VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT;
+    private static final long GRANULARITY = 1024;
+    private static final long BLOCK_SIZE = 1 << 20;
+
+    private MockMemoryBackend backend;
+    private MemoryAllocator allocator;
+
+    @Before
+    public void setUp() {
+        backend = new MockMemoryBackend(4096);
+        allocator = new MemoryAllocator(backend, new int[]{DEVICE_LOCAL, HOST_VISIBLE}, GRANULARITY, BLOCK_SIZE);
+    }
+
+    @Test
+    public void allocationsAreAligned() {
+        long[] alignments = {1, 4, 256, 4096, 65536};
+        for (int i = 0; i < 50; i++) {
+            long alignment = alignments[i % alignments.length];
+            MemoryAllocation allocation = allocator.allocate(100 + i * 37, alignment, 0b1, DEVICE_LOCAL, true);
+            assertEquals(0, allocation.getOffset() % alignment);
+        }
+    }
+
+    @Test
+    public void buffersAndOptimalImagesDoNotSharePages() {
+        MemoryAllocation buffer = allocator.allocate(100, 1, 0b1, DEVICE_LOCAL, true);
+        MemoryAllocation image = allocator.allocate(100, 1, 0b1, DEVICE_LOCAL, false);
+        MemoryAllocation secondBuffer = allocator.allocate(100, 1, 0b1, DEVICE_LOCAL, true);
+        assertEquals(buffer.getMemory(), image.getMemory());
+        assertNotEquals(page(buffer.getOffset() + buffer.getSize() - 1), page(image.getOffset()));
+        assertNotEquals(page(image.getOffset() + image.getSize() - 1), page(secondBuffer.getOffset()));
+    }
+
+    @Test
+    public void sameKindsSharePages() {
+        MemoryAllocation first = allocator.allocate(100, 1, 0b1, DEVICE_LOCAL, true);
+        MemoryAllocation second = allocator.allocate(100, 1, 0b1, DEVICE_LOCAL, true);
+        assertEquals(first.getOffset() + first.getSize(), second.getOffset());
+    }
+
+    @Test
+    public void randomWorkloadKeepsInvariants() {
+        Random random = new Random(7);
+        List<MemoryAllocation> live = new ArrayList<>();
+        List<Boolean> linear = new ArrayList<>();
+        List<Long> alignments = new ArrayList<>();
+        for (int op = 0; op < 20_000; op++) {
+            if (!live.isEmpty() && random.nextInt(100) < 48) {
+                int i = random.nextInt(live.size());
+                live.remove(i).free();
+                linear.remove(i);
+                alignments.remove(i);
+            } else {
+                boolean buffer = random.nextBoolean();
+                long alignment = buffer ? 256 : 4096;
+                int properties = buffer && random.nextInt(4) == 0 ? HOST_VISIBLE : DEVICE_LOCAL;
+                live.add(allocator.allocate((long) Math.pow(2, 6 + random.nextDouble() * 13), alignment, 0b11,
+                        properties, buffer));
+                linear.add(buffer);
+                alignments.add(alignment);
+            }
+        }
+
+        Integer[] order = new Integer[live.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> live.get(a).getMemory() != live.get(b).getMemory()
+                ? Long.compare(live.get(a).getMemory(), live.get(b).getMemory())
+                : Long.compare(live.get(a).getOffset(), live.get(b).getOffset()));
+        for (int k = 0; k < order.length; k++) {
+            MemoryAllocation allocation = live.get(order[k]);
+            assertEquals(0, allocation.getOffset() % alignments.get(order[k]));
+            if (k == 0) continue;
+            MemoryAllocation previous = live.get(order[k - 1]);
+            if (previous.getMemory() != allocation.getMemory()) continue;
+            long previousEnd = previous.getOffset() + previous.getSize();
+            assertTrue("overlapping allocations", previousEnd <= allocation.getOffset());
+            if (linear.get(order[k - 1]) != linear.get(order[k])) {
+                assertNotEquals(page(previousEnd - 1), page(allocation.getOffset()));
+            }
+        }
+        assertEquals(live.size(), allocator.getAllocationCount());
+    }
+
+    @Test
+    public void freeMergesNeighbours() {
+        MemoryAllocation a = allocator.allocate(1000, 1, 0b1, DEVICE_LOCAL, true);
+        MemoryAllocation b = allocator.allocate(1000, 1, 0b1, DEVICE_LOCAL, true);
+        MemoryAllocation c = allocator.allocate(1000, 1, 0b1, DEVICE_LOCAL, true);
+        a.free();
+        c.free();
+        b.free();
+        // without merging the three ranges would be too small, and the range after them starts at 3000
+        MemoryAllocation merged = allocator.allocate(3000, 1, 0b1, DEVICE_LOCAL, true);
+        assertEquals(a.getMemory(), merged.getMemory());
+        assertEquals(0, merged.getOffset());
+        assertEquals(1, backend.getAllocationCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void doubleFreeThrows() {
+        MemoryAllocation allocation = allocator.allocate(1000, 1, 0b1, DEVICE_LOCAL, true);
+        allocator.allocate(1000, 1, 0b1, DEVICE_LOCAL, true);
+        allocation.free();
+        allocation.free();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void doubleFreeThrowsAfterReuse() {
+        MemoryAllocation allocation = allocator.allocate(1000, 1, 0b1, DEVICE_LOCAL, true);
+        allocation.free();
+        MemoryAllocation reused = allocator.allocate(1000, 1, 0b1, DEVICE_LOCAL, true);
+        assertEquals(allocation.getOffset(), reused.getOffset());
+        allocation.free();
+    }
+
+    @Test
+    public void emptyBlocksAreReleasedButOne() {
+        List<MemoryAllocation> allocations = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            allocations.add(allocator.allocate(BLOCK_SIZE / 2, 1, 0b1, DEVICE_LOCAL, true));
+        }
+        assertEquals(3, backend.getAllocationCount());
+        for (MemoryAllocation allocation : allocations) {
+            allocation.free();
+        }
+        assertEquals(1, allocator.getBlockCount());
+        assertEquals(1, backend.getAllocationCount());
+        allocator.destroy();
+        assertEquals(0, backend.getAllocationCount());
+    }
+
+    @Test
+    public void dedicatedBlocksAreReleased() {
+        MemoryAllocation large = allocator.allocate(BLOCK_SIZE, 1, 0b1, DEVICE_LOCAL, false);
+        assertEquals(0, large.getOffset());
+        assertEquals(1, backend.getAllocationCount());
+        large.free();
+        assertEquals(0, backend.getAllocationCount());
+        assertEquals(0, allocator.getBlockCount());
+    }
+
+    @Test
+    public void hostVisibleMemoryIsMapped() {
+        MemoryAllocation mapped = allocator.allocate(100, 256, 0b11, HOST_VISIBLE, true);
+        MemoryAllocation local = allocator.allocate(100, 256, 0b11, DEVICE_LOCAL, true);
+        assertEquals(1, mapped.getMemoryType());
+        assertNotEquals(0, mapped.getMappedAddress());
+        assertEquals(0, local.getMappedAddress());
+    }
+
+    private static long page(long offset) {
+        return offset / GRANULARITY;
+    }
+}
@@ -0,0 +1,177 @@
+package pl.marconzet.engine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MeshCacheTest {
+    private static final int GRID = 24;
+    // magic, version, flags, format, stride, attribute count, ... (12 ints), bounds (6 floats), 3 longs
+    private static final int FIXED_HEADER_SIZE = 12 * 4 + 6 * 4 + 3 * 8;
+    private static final VertexFormat FORMAT = VertexFormat.QUANTIZED;
+    private static final int FLAGS = 3;
+
+    private Path directory;
+    private Path source;
+    private Path cache;
+    private Model model;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("mesh-cache");
+        source = directory.resolve("grid.obj");
+        Files.write(source, grid().getBytes(StandardCharsets.US_ASCII));
+        cache = directory.resolve("grid.mesh");
+        model = ObjParser.read(source).toWeldedModel(FORMAT);
+        model.optimize(VertexCacheSimulator.DEFAULT_CACHE_SIZE);
+        model.buildMeshlets(ForkJoinPool.commonPool());
+        model.generateLods(3, ForkJoinPool.commonPool());
+        MeshCache.write(model, cache, source, FLAGS);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(cache);
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Model cached = MeshCache.read(cache, source, FLAGS, FORMAT);
+        assertNotNull(cached);
+        assertEquals(model.vertices, cached.vertices);
+        assertEquals(model.indices, cached.indices);
+        assertEquals(model.getVertexCount(), cached.getVertexCount());
+        assertEquals(model.getIndexType(), cached.getIndexType());
+        assertArrayEquals(model.getBounds(), cached.getBounds(), 0f);
+        assertEquals(model.getLodCount(), cached.getLodCount());
+        for (int lod = 0; lod < model.getLodCount(); lod++) {
+            assertArrayEquals(model.getSubmeshes(lod), cached.getSubmeshes(lod));
+            assertEquals(model.getLodError(lod), cached.getLodError(lod), 0f);
+        }
+        assertArrayEquals(model.getMeshlets(), cached.getMeshlets());
+        assertArrayEquals(model.getMeshletBounds(), cached.getMeshletBounds(), 0f);
+        assertTrue(MeshCache.verify(cache));
+    }
+
+    @Test
+    public void staleWhenSourceChanges() throws IOException {
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 1000));
+        assertNull(MeshCache.read(cache, source, FLAGS, FORMAT));
+    }
+
+    @Test
+    public void staleWhenSourceGrows() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(source);
+        Files.write(source, "\n".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(source, modified);
+        assertNull(MeshCache.read(cache, source, FLAGS, FORMAT));
+    }
+
+    @Test
+    public void staleForOtherFlagsOrFormat() throws IOException {
+        assertNull(MeshCache.read(cache, source, 0, FORMAT));
+        assertNull(MeshCache.read(cache, source, FLAGS, VertexFormat.FLOAT));
+    }
+
+    @Test
+    public void missingCacheIsNotAnError() throws IOException {
+        assertNull(MeshCache.read(directory.resolve("missing.mesh"), source, FLAGS, FORMAT));
+    }
+
+    @Test
+    public void rejectsWrongMagic() throws IOException {
+        overwriteInt(0, 0);
+        assertNull(MeshCache.read(cache, source, FLAGS, FORMAT));
+        assertFalse(MeshCache.verify(cache));
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws IOException {
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 2);
+        }
+        assertNull(MeshCache.read(cache, source, FLAGS, FORMAT));
+    }
+
+    @Test
+    public void rejectsSubmeshOutsideIndexData() throws IOException {
+        int attributes = FORMAT.getLayout().length / 3;
+        // index count of the first submesh of level 0
+        int at = FIXED_HEADER_SIZE + attributes * 3 * 4 + model.getLodCount() * 2 * 4 + 4;
+        overwriteInt(at, model.getIndexLength() + 1);
+        assertNull(MeshCache.read(cache, source, FLAGS, FORMAT));
+    }
+
+    @Test
+    public void rejectsHugeCounts() throws IOException {
+        // submesh count
+        overwriteInt(9 * 4, Integer.MAX_VALUE);
+        assertNull(MeshCache.read(cache, source, FLAGS, FORMAT));
+        assertFalse(MeshCache.verify(cache));
+    }
+
+    @Test
+    public void verifyFindsCorruptData() throws IOException {
+        long size = Files.size(cache);
+        ByteBuffer last = ByteBuffer.allocate(1);
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.read(last, size - 1);
+            last.put(0, (byte) ~last.get(0)).rewind();
+            channel.write(last, size - 1);
+        }
+        // loads skip the data checksum, it is checked on demand
+        assertFalse(MeshCache.verify(cache));
+    }
+
+    private void overwriteInt(long position, int value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.nativeOrder());
+        buffer.putInt(0, value);
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE)) {
+            channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Wavy {@code GRID}x{@code GRID} quads with texture coordinates and normals.
+     */
+    private static String grid() {
+        StringBuilder builder = new StringBuilder();
+        for (int y = 0; y <= GRID; y++) {
+            for (int x = 0; x <= GRID; x++) {
+                builder.append("v ").append(x).append(' ').append(Math.sin(x * 0.5) * Math.cos(y * 0.3)).append(' ')
+                        .append(y).append('\n');
+                builder.append("vt ").append((float) x / GRID).append(' ').append((float) y / GRID).append('\n');
+            }
+        }
+        builder.append("vn 0 1 0\n");
+        for (int y = 0; y < GRID; y++) {
+            for (int x = 0; x < GRID; x++) {
+                int a = y * (GRID + 1) + x + 1;
+                int b = a + 1;
+                int c = a + GRID + 2;
+                int d = a + GRID + 1;
+                builder.append(String.format("f %d/%d/1 %d/%d/1 %d/%d/1 %d/%d/1%n", a, a, b, b, c, c, d, d));
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,177 @@
+package pl.marconzet.engine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MeshOptimizerTest {
+    private static final int GRID = 40;
+    private static final int CACHE_SIZE = VertexCacheSimulator.DEFAULT_CACHE_SIZE;
+
+    @Test
+    public void simulatorCountsFifoMisses() {
+        VertexCacheSimulator simulator = new VertexCacheSimulator(3);
+        simulator.simulate(new int[]{0, 1, 2, 2, 1, 3}, 4);
+        assertEquals(4, simulator.getMisses());
+        assertEquals(2f, simulator.getAcmr(), 0f);
+        assertEquals(1f, simulator.getAtvr(), 0f);
+        // 3 evicts 0 from the fifo, and hits do not refresh entries
+        simulator.simulate(new int[]{0, 1, 2, 1, 3, 0}, 4);
+        assertEquals(5, simulator.getMisses());
+    }
+
+    @Test
+    public void tipsifyKeepsTriangles() {
+        int[] indices = shuffledGrid(new Random(1));
+        MeshOptimizer.Ordering ordering = MeshOptimizer.tipsify(indices, vertexCount(), CACHE_SIZE);
+        assertArrayEquals(triangles(indices), triangles(ordering.indices));
+        assertEquals(0, ordering.clusters[0]);
+        for (int c = 1; c < ordering.clusters.length; c++) {
+            assertTrue(ordering.clusters[c] > ordering.clusters[c - 1]);
+        }
+        assertTrue(ordering.clusters[ordering.clusters.length - 1] < indices.length / 3);
+    }
+
+    @Test
+    public void tipsifyDoesNotIncreaseAcmr() {
+        int[] indices = shuffledGrid(new Random(2));
+        MeshOptimizer.Ordering ordering = MeshOptimizer.tipsify(indices, vertexCount(), CACHE_SIZE);
+        float before = new VertexCacheSimulator(CACHE_SIZE).simulate(indices, vertexCount()).getAcmr();
+        float after = new VertexCacheSimulator(CACHE_SIZE).simulate(ordering.indices, vertexCount()).getAcmr();
+        assertTrue(after + " > " + before, after <= before);
+        // an already good order stays good
+        float again = new VertexCacheSimulator(CACHE_SIZE).simulate(
+                MeshOptimizer.tipsify(ordering.indices, vertexCount(), CACHE_SIZE).indices, vertexCount()).getAcmr();
+        assertTrue(again <= after * 1.05f);
+    }
+
+    @Test
+    public void sortClustersKeepsTriangles() {
+        int[] indices = shuffledGrid(new Random(3));
+        MeshOptimizer.Ordering ordering = MeshOptimizer.tipsify(indices, vertexCount(), CACHE_SIZE);
+        int[] sorted = MeshOptimizer.sortClusters(ordering, positions());
+        assertArrayEquals(triangles(indices), triangles(sorted));
+    }
+
+    @Test
+    public void remapForFetchIsAPermutation() {
+        int[] indices = shuffledGrid(new Random(4));
+        int[] original = indices.clone();
+        int[] remap = MeshOptimizer.remapForFetch(indices, vertexCount());
+        boolean[] taken = new boolean[vertexCount()];
+        for (int target : remap) {
+            assertTrue(target >= 0);
+            assertFalse(taken[target]);
+            taken[target] = true;
+        }
+        int next = 0;
+        for (int i = 0; i < indices.length; i++) {
+            assertEquals(remap[original[i]], indices[i]);
+            if (indices[i] == next) next++;
+            assertTrue("not in order of first reference", indices[i] < next);
+        }
+    }
+
+    @Test
+    public void optimizeKeepsTrianglesAndDoesNotIncreaseAcmr() {
+        int[] indices = shuffledGrid(new Random(5));
+        float[] positions = positions();
+        Model model = new Model(positions, null, new float[vertexCount() * 2], indices.clone(), vertexCount(),
+                VertexFormat.FLOAT);
+        float before = new VertexCacheSimulator(CACHE_SIZE).simulate(indices, vertexCount()).getAcmr();
+        model.optimize(CACHE_SIZE);
+
+        int[] optimized = model.getIndices();
+        float[] optimizedPositions = model.getPositions();
+        float after = new VertexCacheSimulator(CACHE_SIZE).simulate(optimized, model.getVertexCount()).getAcmr();
+        assertTrue(after + " > " + before, after <= before);
+        assertEquals(vertexCount(), model.getVertexCount());
+        // vertices moved, so triangles are compared by the grid points they join
+        int[] optimizedIds = new int[optimized.length];
+        for (int i = 0; i < optimized.length; i++) {
+            optimizedIds[i] = gridPoint(optimizedPositions, optimized[i]);
+        }
+        assertArrayEquals(triangles(indices), triangles(optimizedIds));
+    }
+
+    private static int vertexCount() {
+        return (GRID + 1) * (GRID + 1);
+    }
+
+    /**
+     * Positions of the grid, vertex {@code y * (GRID + 1) + x} at {@code (x, 0, y)}.
+     */
+    private static float[] positions() {
+        float[] positions = new float[vertexCount() * 3];
+        for (int v = 0; v < vertexCount(); v++) {
+            positions[v * 3] = v % (GRID + 1);
+            positions[v * 3 + 2] = v / (GRID + 1);
+        }
+        return positions;
+    }
+
+    private static int gridPoint(float[] positions, int vertex) {
+        return Math.round(positions[vertex * 3 + 2]) * (GRID + 1) + Math.round(positions[vertex * 3]);
+    }
+
+    /**
+     * Triangles of a {@code GRID}x{@code GRID} quad grid in random order, each rotated randomly.
+     */
+    private static int[] shuffledGrid(Random random) {
+        int[] triangles = new int[GRID * GRID * 2 * 3];
+        int t = 0;
+        for (int y = 0; y < GRID; y++) {
+            for (int x = 0; x < GRID; x++) {
+                int a = y * (GRID + 1) + x;
+                int b = a + 1;
+                int c = a + GRID + 2;
+                int d = a + GRID + 1;
+                t = put(triangles, t, a, b, c, random.nextInt(3));
+                t = put(triangles, t, c, d, a, random.nextInt(3));
+            }
+        }
+        for (int i = triangles.length / 3 - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            for (int k = 0; k < 3; k++) {
+                int swap = triangles[i * 3 + k];
+                triangles[i * 3 + k] = triangles[j * 3 + k];
+                triangles[j * 3 + k] = swap;
+            }
+        }
+        return triangles;
+    }
+
+    private static int put(int[] triangles, int at, int a, int b, int c, int rotation) {
+        int[] corners = {a, b, c};
+        for (int k = 0; k < 3; k++) {
+            triangles[at++] = corners[(k + rotation) % 3];
+        }
+        return at;
+    }
+
+    /**
+     * @return every triangle rotated to start at its smallest index, winding kept, sorted
+     */
+    private static long[] triangles(int[] indices) {
+        long[] triangles = new long[indices.length / 3];
+        for (int t = 0; t < triangles.length; t++) {
+            int a = indices[t * 3], b = indices[t * 3 + 1], c = indices[t * 3 + 2];
+            while (a > b || a > c) {
+                int swap = a;
+                a = b;
+                b = c;
+                c = swap;
+            }
+            triangles[t] = ((long) a << 42) | ((long) b << 21) | c;
+        }
+        Arrays.sort(triangles);
+        return triangles;
+    }
+}
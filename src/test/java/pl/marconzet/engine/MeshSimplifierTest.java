@@ -0,0 +1,135 @@
+package pl.marconzet.engine;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MeshSimplifierTest {
+    private static final int GRID = 64;
+
+    @Test
+    public void errorGrowsAsTrianglesAreRemoved() {
+        Model model = waves(GRID);
+        int[] indices = model.getIndices();
+        float[] positions = model.getPositions();
+        float previous = 0;
+        for (int shift = 1; shift <= 5; shift++) {
+            MeshSimplifier.Result result = MeshSimplifier.simplify(indices, positions, 0, model.getVertexCount(),
+                    indices.length / 3 >> shift);
+            assertTrue(result.indices.length < indices.length);
+            assertTrue("error " + result.error + " after " + previous, result.error >= previous);
+            previous = result.error;
+        }
+        assertTrue(previous > 0);
+    }
+
+    @Test
+    public void levelErrorsAreMonotonic() {
+        Model model = waves(GRID);
+        model.generateLods(5, ForkJoinPool.commonPool());
+        assertEquals(5, model.getLodCount());
+        assertEquals(0f, model.getLodError(0), 0f);
+        for (int lod = 1; lod < model.getLodCount(); lod++) {
+            assertTrue(model.getLodError(lod) >= model.getLodError(lod - 1));
+            assertTrue(model.getLodIndexLength(lod) <= model.getLodIndexLength(lod - 1) * 9 / 10);
+        }
+    }
+
+    @Test
+    public void simplifiedTrianglesAreValid() {
+        Model model = waves(GRID);
+        int[] indices = model.getIndices();
+        MeshSimplifier.Result result = MeshSimplifier.simplify(indices, model.getPositions(), 0,
+                model.getVertexCount(), indices.length / 3 / 8);
+        assertEquals(0, result.indices.length % 3);
+        boolean[] used = new boolean[model.getVertexCount()];
+        for (int t = 0; t < result.indices.length; t += 3) {
+            int a = result.indices[t], b = result.indices[t + 1], c = result.indices[t + 2];
+            assertTrue(a != b && b != c && c != a);
+            used[a] = used[b] = used[c] = true;
+        }
+        // open edges are locked, so the border of the grid stays
+        for (int i = 0; i <= GRID; i++) {
+            assertTrue(used[i]);
+            assertTrue(used[GRID * (GRID + 1) + i]);
+            assertTrue(used[i * (GRID + 1)]);
+            assertTrue(used[i * (GRID + 1) + GRID]);
+        }
+    }
+
+    @Test
+    public void flatSurfacesSimplifyWithoutError() {
+        Model model = waves(GRID);
+        float[] positions = model.getPositions();
+        for (int v = 0; v < model.getVertexCount(); v++) {
+            positions[v * 3 + 1] = 0;
+        }
+        int[] indices = model.getIndices();
+        MeshSimplifier.Result result = MeshSimplifier.simplify(indices, positions, 0, model.getVertexCount(),
+                indices.length / 3 / 4);
+        assertTrue(result.indices.length <= indices.length / 2);
+        assertEquals(0f, result.error, 1e-3f);
+    }
+
+    @Test
+    public void generatingAgainReplacesTheLevels() {
+        Model model = waves(GRID);
+        int levelZero = model.getLodIndexLength(0);
+        model.generateLods(4, ForkJoinPool.commonPool());
+        int length = model.getIndexLength();
+        int lodCount = model.getLodCount();
+        float[] errors = new float[lodCount];
+        for (int lod = 0; lod < lodCount; lod++) {
+            errors[lod] = model.getLodError(lod);
+        }
+
+        model.generateLods(4, ForkJoinPool.commonPool());
+        assertEquals(length, model.getIndexLength());
+        assertEquals(length * model.getIndexSize(), model.indices.remaining());
+        assertEquals(lodCount, model.getLodCount());
+        for (int lod = 0; lod < lodCount; lod++) {
+            assertEquals(errors[lod], model.getLodError(lod), 0f);
+        }
+
+        model.generateLods(2, ForkJoinPool.commonPool());
+        assertEquals(2, model.getLodCount());
+        assertEquals(levelZero + model.getLodIndexLength(1), model.getIndexLength());
+        model.generateLods(1, ForkJoinPool.commonPool());
+        assertEquals(1, model.getLodCount());
+        assertEquals(levelZero, model.getIndexLength());
+    }
+
+    /**
+     * A {@code grid}x{@code grid} quad height field of overlapping waves.
+     */
+    static Model waves(int grid) {
+        int count = (grid + 1) * (grid + 1);
+        float[] positions = new float[count * 3];
+        for (int v = 0; v < count; v++) {
+            int x = v % (grid + 1), y = v / (grid + 1);
+            positions[v * 3] = x;
+            positions[v * 3 + 1] = (float) (Math.sin(x * 0.3) * Math.cos(y * 0.2) * 2 + Math.sin((x + y) * 0.05) * 6);
+            positions[v * 3 + 2] = y;
+        }
+        int[] indices = new int[grid * grid * 6];
+        int i = 0;
+        for (int y = 0; y < grid; y++) {
+            for (int x = 0; x < grid; x++) {
+                int a = y * (grid + 1) + x;
+                indices[i++] = a;
+                indices[i++] = a + grid + 1;
+                indices[i++] = a + 1;
+                indices[i++] = a + 1;
+                indices[i++] = a + grid + 1;
+                indices[i++] = a + grid + 2;
+            }
+        }
+        return new Model(positions, null, new float[count * 2], indices, count, VertexFormat.FLOAT);
+    }
+}
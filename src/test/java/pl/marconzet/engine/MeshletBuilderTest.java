@@ -0,0 +1,134 @@
+package pl.marconzet.engine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MeshletBuilderTest {
+
+    @Test
+    public void meshletsStayWithinTheLimits() {
+        Model model = MeshSimplifierTest.waves(80);
+        int[] source = model.getIndices();
+        float[] positions = model.getPositions();
+        MeshletBuilder.Result result = MeshletBuilder.build(source, positions, 0);
+        check(source, positions, result);
+        // a connected grid fills its meshlets
+        int count = result.meshlets.length / 3;
+        assertTrue(count <= source.length / 3 / (MeshletBuilder.MAX_TRIANGLES / 2));
+    }
+
+    @Test
+    public void unconnectedTrianglesShareMeshlets() {
+        int triangles = 1000;
+        Random random = new Random(10);
+        float[] positions = new float[triangles * 9];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = random.nextFloat() * 100;
+        }
+        int[] source = new int[triangles * 3];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = i;
+        }
+        MeshletBuilder.Result result = MeshletBuilder.build(source, positions, 0);
+        check(source, positions, result);
+        int perMeshlet = MeshletBuilder.MAX_VERTICES / 3;
+        assertEquals((triangles + perMeshlet - 1) / perMeshlet, result.meshlets.length / 3);
+    }
+
+    @Test
+    public void vertexOffsetAddressesPositions() {
+        Model model = MeshSimplifierTest.waves(20);
+        int[] source = model.getIndices();
+        float[] positions = model.getPositions();
+        int offset = 7;
+        float[] shifted = new float[positions.length + offset * 3];
+        System.arraycopy(positions, 0, shifted, offset * 3, positions.length);
+        MeshletBuilder.Result result = MeshletBuilder.build(source, shifted, offset);
+        assertArrayEquals(MeshletBuilder.build(source, positions, 0).bounds, result.bounds, 0f);
+    }
+
+    @Test
+    public void modelMeshletsStayWithinTheLimits() {
+        Model model = MeshSimplifierTest.waves(200);
+        int[] before = model.getIndices().clone();
+        model.buildMeshlets(ForkJoinPool.commonPool());
+        int[] after = model.getIndices();
+        assertArrayEquals(triangles(before, 0, before.length), triangles(after, 0, after.length));
+
+        int[] meshlets = model.getMeshlets();
+        int next = 0;
+        for (int m = 0; m < meshlets.length; m += 4) {
+            assertEquals(next, meshlets[m]);
+            next += meshlets[m + 1];
+            assertTrue(meshlets[m + 1] <= MeshletBuilder.MAX_TRIANGLES * 3);
+            assertTrue(meshlets[m + 3] <= MeshletBuilder.MAX_VERTICES);
+            Set<Integer> vertices = new HashSet<>();
+            for (int i = meshlets[m]; i < meshlets[m] + meshlets[m + 1]; i++) {
+                vertices.add(after[i]);
+            }
+            assertEquals(meshlets[m + 3], vertices.size());
+        }
+        assertEquals(model.getLodIndexLength(0), next);
+    }
+
+    /**
+     * Meshlets cover the result in order, keep the limits and the triangles of {@code source}, and their spheres hold
+     * their vertices.
+     */
+    private static void check(int[] source, float[] positions, MeshletBuilder.Result result) {
+        assertArrayEquals(triangles(source, 0, source.length), triangles(result.indices, 0, result.indices.length));
+        int next = 0;
+        for (int r = 0, m = 0; r < result.meshlets.length; r += 3, m++) {
+            int first = result.meshlets[r], count = result.meshlets[r + 1];
+            assertEquals(next, first);
+            next += count;
+            assertTrue(count > 0 && count % 3 == 0);
+            assertTrue(count / 3 + " triangles", count / 3 <= MeshletBuilder.MAX_TRIANGLES);
+            Set<Integer> vertices = new HashSet<>();
+            for (int i = first; i < first + count; i++) {
+                vertices.add(result.indices[i]);
+            }
+            assertTrue(vertices.size() + " vertices", vertices.size() <= MeshletBuilder.MAX_VERTICES);
+            assertEquals(vertices.size(), result.meshlets[r + 2]);
+
+            int b = m * MeshletBuilder.BOUNDS_FLOATS;
+            for (int v : vertices) {
+                double dx = positions[v * 3] - result.bounds[b];
+                double dy = positions[v * 3 + 1] - result.bounds[b + 1];
+                double dz = positions[v * 3 + 2] - result.bounds[b + 2];
+                assertTrue(Math.sqrt(dx * dx + dy * dy + dz * dz) <= result.bounds[b + 3] * 1.0001f + 1e-4f);
+            }
+        }
+        assertEquals(source.length, next);
+    }
+
+    /**
+     * @return every triangle rotated to start at its smallest index, winding kept, sorted
+     */
+    private static long[] triangles(int[] indices, int from, int to) {
+        long[] triangles = new long[(to - from) / 3];
+        for (int t = 0; t < triangles.length; t++) {
+            int a = indices[from + t * 3], b = indices[from + t * 3 + 1], c = indices[from + t * 3 + 2];
+            while (a > b || a > c) {
+                int swap = a;
+                a = b;
+                b = c;
+                c = swap;
+            }
+            triangles[t] = ((long) a << 42) | ((long) b << 21) | c;
+        }
+        Arrays.sort(triangles);
+        return triangles;
+    }
+}
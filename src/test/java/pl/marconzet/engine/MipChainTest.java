@@ -0,0 +1,135 @@
+package pl.marconzet.engine;
+
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.vulkan.VK10.VK_FORMAT_BC1_RGB_UNORM_BLOCK;
+import static org.lwjgl.vulkan.VK10.VK_FORMAT_R8G8B8A8_UNORM;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MipChainTest {
+
+    @Test
+    public void levelCountGoesDownToOneTexel() {
+        assertEquals(1, MipChain.levelCount(1, 1));
+        assertEquals(9, MipChain.levelCount(256, 256));
+        assertEquals(9, MipChain.levelCount(300, 17));
+        assertEquals(3, MipChain.levelCount(1, 7));
+    }
+
+    @Test
+    public void levelSizesHalveAndRoundDown() {
+        MipChain chain = MipChain.build(random(37, 10, new Random(1)), 37, 10);
+        int[] widths = {37, 18, 9, 4, 2, 1};
+        int[] heights = {10, 5, 2, 1, 1, 1};
+        assertEquals(widths.length, chain.getLevels());
+        int offset = 0;
+        for (int level = 0; level < widths.length; level++) {
+            assertEquals(widths[level], chain.getWidth(level));
+            assertEquals(heights[level], chain.getHeight(level));
+            assertEquals(offset, chain.getOffset(level));
+            offset += widths[level] * heights[level] * 4;
+        }
+        assertEquals(offset, chain.getSize());
+        assertEquals(offset, MipChain.size(VK_FORMAT_R8G8B8A8_UNORM, 37, 10, widths.length));
+        assertEquals(offset, chain.getData().remaining());
+    }
+
+    @Test
+    public void blockCompressedLevelsRoundUpToBlocks() {
+        // 10x6 is 3x2 blocks, 5x3 and 2x1 one block each row, 1x1 one block
+        int expected = (3 * 2 + 2 * 1 + 1 + 1) * 8;
+        assertEquals(expected, MipChain.size(VK_FORMAT_BC1_RGB_UNORM_BLOCK, 10, 6, 4));
+    }
+
+    @Test
+    public void levelZeroIsCopiedAsIs() {
+        ByteBuffer rgba = random(13, 7, new Random(2));
+        MipChain chain = MipChain.build(rgba, 13, 7);
+        ByteBuffer data = chain.getData();
+        for (int i = 0; i < 13 * 7 * 4; i++) {
+            assertEquals(rgba.get(i), data.get(i));
+        }
+        assertEquals(0, rgba.position());
+    }
+
+    @Test
+    public void oddSizesShareTheMiddleTexel() {
+        // alpha is filtered as is: 5 texels onto 2, each covering 2.5 of them
+        ByteBuffer rgba = BufferUtils.createByteBuffer(5 * 4);
+        rgba.put(2 * 4 + 3, (byte) 255);
+        MipChain chain = MipChain.build(rgba, 5, 1, 2, ForkJoinPool.commonPool());
+        ByteBuffer data = chain.getData();
+        assertEquals(2, chain.getWidth(1));
+        assertEquals(51, data.get(chain.getOffset(1) + 3) & 0xFF);
+        assertEquals(51, data.get(chain.getOffset(1) + 4 + 3) & 0xFF);
+    }
+
+    @Test
+    public void oddSizesWeighEveryTexel() {
+        ByteBuffer rgba = BufferUtils.createByteBuffer(3 * 3 * 4);
+        rgba.put(4 * 4 + 3, (byte) 255);
+        rgba.put(8 * 4 + 3, (byte) 255);
+        MipChain chain = MipChain.build(rgba, 3, 3);
+        assertEquals(1, chain.getWidth(1));
+        assertEquals(Math.round(2 * 255f / 9), chain.getData().get(chain.getOffset(1) + 3) & 0xFF);
+    }
+
+    @Test
+    public void colorIsFilteredInLinearSpace() {
+        ByteBuffer rgba = BufferUtils.createByteBuffer(2 * 4);
+        rgba.put(0, (byte) 255).put(1, (byte) 255).put(2, (byte) 255);
+        MipChain chain = MipChain.build(rgba, 2, 1);
+        // half of linear white is 188 in sRGB, not 128
+        int red = chain.getData().get(chain.getOffset(1)) & 0xFF;
+        assertEquals(188, red, 1);
+    }
+
+    @Test
+    public void constantImagesStayConstant() {
+        ByteBuffer rgba = BufferUtils.createByteBuffer(45 * 23 * 4);
+        for (int i = 0; i < 45 * 23; i++) {
+            rgba.put(i * 4, (byte) 200).put(i * 4 + 1, (byte) 30).put(i * 4 + 2, (byte) 90).put(i * 4 + 3, (byte) 128);
+        }
+        MipChain chain = MipChain.build(rgba, 45, 23);
+        ByteBuffer data = chain.getData();
+        for (int level = 1; level < chain.getLevels(); level++) {
+            int offset = chain.getOffset(level);
+            for (int t = 0; t < chain.getWidth(level) * chain.getHeight(level); t++) {
+                assertEquals(200, data.get(offset + t * 4) & 0xFF, 1);
+                assertEquals(30, data.get(offset + t * 4 + 1) & 0xFF, 1);
+                assertEquals(90, data.get(offset + t * 4 + 2) & 0xFF, 1);
+                assertEquals(128, data.get(offset + t * 4 + 3) & 0xFF);
+            }
+        }
+    }
+
+    @Test
+    public void resultDoesNotDependOnThreads() {
+        ByteBuffer rgba = random(601, 333, new Random(3));
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            assertEquals(MipChain.build(rgba, 601, 333, one).getData(), MipChain.build(rgba, 601, 333, four).getData());
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+    }
+
+    private static ByteBuffer random(int width, int height, Random random) {
+        byte[] texels = new byte[width * height * 4];
+        random.nextBytes(texels);
+        ByteBuffer rgba = BufferUtils.createByteBuffer(texels.length);
+        rgba.put(texels).flip();
+        return rgba;
+    }
+}
@@ -0,0 +1,64 @@
+package pl.marconzet.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CPU-only {@link MemoryBackend} handing out fake handles and addresses, to exercise {@link MemoryAllocator} without
+ * a device. Enforces a {@code maxMemoryAllocationCount} like a driver would and tracks what is live.
+ *
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class MockMemoryBackend implements MemoryBackend {
+    private final int maxAllocationCount;
+    private final Map<Long, Long> live = new HashMap<>();
+    private long nextHandle = 1;
+    private long liveBytes;
+    private int peakAllocationCount;
+
+    public MockMemoryBackend(int maxAllocationCount) {
+        this.maxAllocationCount = maxAllocationCount;
+    }
+
+    @Override
+    public long allocate(int memoryTypeIndex, long size) {
+        if (live.size() >= maxAllocationCount) {
+            throw new RuntimeException("Failed to allocate memory: maxMemoryAllocationCount of " + maxAllocationCount + " reached");
+        }
+        long handle = nextHandle++;
+        live.put(handle, size);
+        liveBytes += size;
+        peakAllocationCount = Math.max(peakAllocationCount, live.size());
+        return handle;
+    }
+
+    @Override
+    public void free(long memory) {
+        Long size = live.remove(memory);
+        if (size == null) {
+            throw new IllegalStateException("Freeing unknown memory " + memory);
+        }
+        liveBytes -= size;
+    }
+
+    @Override
+    public long map(long memory, long size) {
+        if (!live.containsKey(memory)) {
+            throw new IllegalStateException("Mapping unknown memory " + memory);
+        }
+        return memory << 40;
+    }
+
+    public int getAllocationCount() {
+        return live.size();
+    }
+
+    public int getPeakAllocationCount() {
+        return peakAllocationCount;
+    }
+
+    public long getLiveBytes() {
+        return liveBytes;
+    }
+}
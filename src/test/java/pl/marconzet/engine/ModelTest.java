@@ -0,0 +1,115 @@
+package pl.marconzet.engine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.vulkan.VK10.VK_INDEX_TYPE_UINT16;
+import static org.lwjgl.vulkan.VK10.VK_INDEX_TYPE_UINT32;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class ModelTest {
+    @Test
+    public void smallMeshesUseOneShortSubmesh() {
+        int grid = 100;
+        Model model = gridModel(grid, gridIndices(grid, null));
+        assertEquals(VK_INDEX_TYPE_UINT16, model.getIndexType());
+        assertArrayEquals(new int[]{0, grid * grid * 6, 0}, model.getSubmeshes());
+    }
+
+    @Test
+    public void largeMeshesAreSplitIntoShortSubmeshes() {
+        int grid = 300;
+        int[] indices = gridIndices(grid, null);
+        Model model = gridModel(grid, indices);
+        assertEquals(VK_INDEX_TYPE_UINT16, model.getIndexType());
+        int[] submeshes = model.getSubmeshes();
+        assertTrue(submeshes.length / 3 >= 2);
+
+        ByteBuffer packed = model.indices.duplicate().order(ByteOrder.nativeOrder());
+        int next = 0;
+        for (int s = 0; s < submeshes.length; s += 3) {
+            assertEquals("submeshes cover the indices in order", next, submeshes[s]);
+            assertEquals(0, submeshes[s + 1] % 3);
+            next += submeshes[s + 1];
+            int end = s + 3 < submeshes.length ? submeshes[s + 5] : model.getVertexCount();
+            int vertices = end - submeshes[s + 2];
+            assertTrue(vertices + " vertices in submesh " + s / 3, vertices <= Model.MAX_SHORT_VERTICES);
+            for (int i = submeshes[s]; i < submeshes[s] + submeshes[s + 1]; i++) {
+                assertTrue((packed.getShort(i * 2) & 0xFFFF) < vertices);
+            }
+        }
+        assertEquals(indices.length, next);
+        assertTriangles(grid, indices, model);
+    }
+
+    @Test
+    public void scatteredMeshesFallBackToIntIndices() {
+        int grid = 300;
+        int[] indices = gridIndices(grid, new Random(6));
+        Model model = gridModel(grid, indices);
+        assertEquals(VK_INDEX_TYPE_UINT32, model.getIndexType());
+        assertEquals((grid + 1) * (grid + 1), model.getVertexCount());
+        assertTriangles(grid, indices, model);
+    }
+
+    /**
+     * The triangles of {@code model} join the same grid points, in the same winding, as {@code indices}.
+     */
+    private static void assertTriangles(int grid, int[] indices, Model model) {
+        int[] packed = model.getIndices();
+        float[] positions = model.getPositions();
+        int[] points = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            int v = packed[i];
+            points[i] = Math.round(positions[v * 3 + 2]) * (grid + 1) + Math.round(positions[v * 3]);
+        }
+        assertArrayEquals(indices, points);
+    }
+
+    private static Model gridModel(int grid, int[] indices) {
+        int count = (grid + 1) * (grid + 1);
+        float[] positions = new float[count * 3];
+        for (int v = 0; v < count; v++) {
+            positions[v * 3] = v % (grid + 1);
+            positions[v * 3 + 2] = v / (grid + 1);
+        }
+        return new Model(positions, null, new float[count * 2], indices, count, VertexFormat.FLOAT);
+    }
+
+    /**
+     * @param random shuffles the triangles when not {@code null}
+     */
+    private static int[] gridIndices(int grid, Random random) {
+        int[] indices = new int[grid * grid * 6];
+        int i = 0;
+        for (int y = 0; y < grid; y++) {
+            for (int x = 0; x < grid; x++) {
+                int a = y * (grid + 1) + x;
+                indices[i++] = a;
+                indices[i++] = a + 1;
+                indices[i++] = a + grid + 2;
+                indices[i++] = a + grid + 2;
+                indices[i++] = a + grid + 1;
+                indices[i++] = a;
+            }
+        }
+        if (random != null) {
+            for (int t = indices.length / 3 - 1; t > 0; t--) {
+                int j = random.nextInt(t + 1);
+                for (int k = 0; k < 3; k++) {
+                    int swap = indices[t * 3 + k];
+                    indices[t * 3 + k] = indices[j * 3 + k];
+                    indices[j * 3 + k] = swap;
+                }
+            }
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,79 @@
+package pl.marconzet.engine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class ObjParserParallelTest {
+    // several chunks of ObjParser.MIN_CHUNK_SIZE
+    private static final int QUADS = 40_000;
+
+    @Test
+    public void absoluteIndicesMatchSequential() {
+        check(generate(new Random(3), false));
+    }
+
+    @Test
+    public void relativeIndicesMatchSequential() {
+        check(generate(new Random(4), true));
+    }
+
+    private static void check(ByteBuffer data) {
+        assertTrue(data.remaining() > 3 << 20);
+        ObjData expected = ObjParser.read(data.duplicate());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ObjData actual = ObjParser.readParallel(data.duplicate(), pool);
+            assertEquals(QUADS * 2, expected.getTriangleCount());
+            assertArrayEquals(expected.positions.toArray(), actual.positions.toArray(), 0f);
+            assertArrayEquals(expected.texCoords.toArray(), actual.texCoords.toArray(), 0f);
+            assertArrayEquals(expected.normals.toArray(), actual.normals.toArray(), 0f);
+            assertArrayEquals(expected.faces.toArray(), actual.faces.toArray());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Quads with their own corners, texture coordinates and normal; with {@code relative} every other quad refers
+     * to them with negative indices.
+     */
+    private static ByteBuffer generate(Random random, boolean relative) {
+        StringBuilder builder = new StringBuilder(QUADS * 160);
+        for (int quad = 0; quad < QUADS; quad++) {
+            for (int corner = 0; corner < 4; corner++) {
+                builder.append(String.format(Locale.ROOT, "v %.6f %.4f %.5e%n",
+                        random.nextFloat() * 100 - 50, random.nextFloat(), random.nextGaussian()));
+                builder.append(String.format(Locale.ROOT, "vt %.5f %.5f%n", random.nextFloat(), random.nextFloat()));
+            }
+            builder.append(String.format(Locale.ROOT, "vn %.4f %.4f %.4f%n",
+                    random.nextFloat(), random.nextFloat(), random.nextFloat()));
+            if (relative && quad % 2 == 1) {
+                builder.append("f -4/-4/-1 -3/-3/-1 -2/-2/-1\nf -2/-2/-1 -1/-1/-1 -4/-4/-1\n");
+            } else {
+                int v = quad * 4 + 1;
+                int n = quad + 1;
+                builder.append("f ").append(v).append('/').append(v).append('/').append(n)
+                        .append(' ').append(v + 1).append('/').append(v + 1).append('/').append(n)
+                        .append(' ').append(v + 2).append('/').append(v + 2).append('/').append(n).append('\n');
+                builder.append("f ").append(v + 2).append('/').append(v + 2).append('/').append(n)
+                        .append(' ').append(v + 3).append('/').append(v + 3).append('/').append(n)
+                        .append(' ').append(v).append('/').append(v).append('/').append(n).append('\n');
+            }
+        }
+        byte[] bytes = builder.toString().getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,79 @@
+package pl.marconzet.engine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class ObjParserTest {
+    private static final String TRIANGLE = "v 0 0 0\nv 1 0 0\nv 0 1 0\nvn 0 0 1\n";
+
+    @Test
+    public void faceEndingAtEndOfFile() {
+        ObjData obj = ObjParser.read(bytes(TRIANGLE + "f 1//1 2//1 3//"));
+        assertEquals(1, obj.getTriangleCount());
+        assertEquals(0, obj.faces.get(8));
+    }
+
+    @Test
+    public void exponentEndingAtEndOfFile() {
+        ObjData obj = ObjParser.read(bytes("v 1 2 3e"));
+        assertEquals(1, obj.getPositionCount());
+        assertEquals(3f, obj.positions.get(2), 0f);
+    }
+
+    @Test
+    public void signEndingAtEndOfFile() {
+        ObjData obj = ObjParser.read(bytes(TRIANGLE + "f 1 2 3/-"));
+        assertEquals(1, obj.getTriangleCount());
+    }
+
+    @Test
+    public void floatsMatchFloatParseFloat() {
+        Random random = new Random(11);
+        StringBuilder text = new StringBuilder();
+        String[] values = new String[30_000];
+        for (int i = 0; i < values.length; i++) {
+            int digits = 7 + random.nextInt(3);
+            long mantissa = (long) Math.pow(10, digits - 1) + (long) (random.nextDouble() * 9 * Math.pow(10, digits - 1));
+            int point = random.nextInt(digits + 1);
+            String number = Long.toString(mantissa);
+            values[i] = (random.nextBoolean() ? "-" : "") + number.substring(0, point) + "." + number.substring(point)
+                    + (random.nextInt(4) == 0 ? String.format(Locale.ROOT, "e%d", random.nextInt(21) - 10) : "");
+        }
+        for (int i = 0; i < values.length; i += 3) {
+            text.append("v ").append(values[i]).append(' ').append(values[i + 1]).append(' ').append(values[i + 2]).append('\n');
+        }
+        ObjData obj = ObjParser.read(bytes(text.toString()));
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], Float.parseFloat(values[i]), obj.positions.get(i), 0f);
+        }
+    }
+
+    @Test
+    public void floatsCloseToHalfwayRoundOnce() {
+        // the nearest double of each is exactly halfway between two floats, narrowing it rounds the wrong way
+        String[] values = {"1.00000661611557", "1.00001460313797", "1.00002783536911", "1.00003319978714",
+                "1.00004643201828", "1.00005441904068"};
+        ObjData obj = ObjParser.read(bytes("v " + values[0] + " " + values[1] + " " + values[2] + "\nv " + values[3]
+                + " " + values[4] + " " + values[5] + "\n"));
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], Float.parseFloat(values[i]), obj.positions.get(i), 0f);
+        }
+    }
+
+    private static ByteBuffer bytes(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,141 @@
+package pl.marconzet.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.vulkan.VK10.VK_PIPELINE_CACHE_HEADER_VERSION_ONE;
+import static org.lwjgl.vulkan.VK10.VK_UUID_SIZE;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class PipelineCacheTest {
+    private static final int VENDOR = 0x10DE;
+    private static final int DEVICE = 0x1B80;
+    private static final int DRIVER = 0x1A2B3C;
+    // magic, version, vendor, device, driver, then the UUID
+    private static final int UUID_OFFSET = 5 * 4;
+    private static final int HEADER_SIZE = UUID_OFFSET + VK_UUID_SIZE + 4 + 8;
+
+    private ByteBuffer uuid;
+    private ByteBuffer data;
+
+    @Before
+    public void setUp() {
+        uuid = uuid(1);
+        data = driverData(VENDOR, DEVICE, uuid, 200);
+    }
+
+    @Test
+    public void packedDataValidates() {
+        ByteBuffer file = PipelineCache.pack(data, VENDOR, DEVICE, DRIVER, uuid);
+        ByteBuffer validated = PipelineCache.validate(file, VENDOR, DEVICE, DRIVER, uuid);
+        assertNotNull(validated);
+        assertEquals(data, validated);
+    }
+
+    @Test
+    public void rejectsOtherVendor() {
+        assertNull(PipelineCache.validate(pack(), VENDOR + 1, DEVICE, DRIVER, uuid));
+    }
+
+    @Test
+    public void rejectsOtherDevice() {
+        assertNull(PipelineCache.validate(pack(), VENDOR, DEVICE + 1, DRIVER, uuid));
+    }
+
+    @Test
+    public void rejectsOtherDriver() {
+        assertNull(PipelineCache.validate(pack(), VENDOR, DEVICE, DRIVER + 1, uuid));
+    }
+
+    @Test
+    public void rejectsOtherUuid() {
+        assertNull(PipelineCache.validate(pack(), VENDOR, DEVICE, DRIVER, uuid(2)));
+    }
+
+    @Test
+    public void rejectsWrongChecksum() {
+        ByteBuffer file = pack();
+        int last = file.limit() - 1;
+        file.put(last, (byte) ~file.get(last));
+        assertNull(PipelineCache.validate(file, VENDOR, DEVICE, DRIVER, uuid));
+    }
+
+    @Test
+    public void rejectsTruncatedData() {
+        ByteBuffer file = pack();
+        file.limit(file.limit() - 1);
+        assertNull(PipelineCache.validate(file, VENDOR, DEVICE, DRIVER, uuid));
+        file.limit(HEADER_SIZE - 1);
+        assertNull(PipelineCache.validate(file, VENDOR, DEVICE, DRIVER, uuid));
+    }
+
+    @Test
+    public void rejectsWrongMagic() {
+        ByteBuffer file = pack();
+        file.putInt(0, 0);
+        assertNull(PipelineCache.validate(file, VENDOR, DEVICE, DRIVER, uuid));
+    }
+
+    @Test
+    public void rejectsDriverHeaderOfAnotherDevice() {
+        // a matching file header around data the driver wrote for another device
+        assertNull(PipelineCache.validate(PipelineCache.pack(driverData(VENDOR, DEVICE + 1, uuid, 64),
+                VENDOR, DEVICE, DRIVER, uuid), VENDOR, DEVICE, DRIVER, uuid));
+        assertNull(PipelineCache.validate(PipelineCache.pack(driverData(VENDOR + 1, DEVICE, uuid, 64),
+                VENDOR, DEVICE, DRIVER, uuid), VENDOR, DEVICE, DRIVER, uuid));
+        assertNull(PipelineCache.validate(PipelineCache.pack(driverData(VENDOR, DEVICE, uuid(3), 64),
+                VENDOR, DEVICE, DRIVER, uuid), VENDOR, DEVICE, DRIVER, uuid));
+    }
+
+    @Test
+    public void rejectsDriverHeaderLongerThanTheData() {
+        ByteBuffer bad = driverData(VENDOR, DEVICE, uuid, 0);
+        bad.putInt(0, bad.remaining() + 1);
+        assertNull(PipelineCache.validate(PipelineCache.pack(bad, VENDOR, DEVICE, DRIVER, uuid),
+                VENDOR, DEVICE, DRIVER, uuid));
+    }
+
+    @Test
+    public void uuidPositionIsRespected() {
+        ByteBuffer offset = ByteBuffer.allocate(VK_UUID_SIZE + 4);
+        offset.position(4);
+        offset.put(uuid.duplicate());
+        offset.position(4);
+        assertNotNull(PipelineCache.validate(pack(), VENDOR, DEVICE, DRIVER, offset));
+    }
+
+    private ByteBuffer pack() {
+        return PipelineCache.pack(data, VENDOR, DEVICE, DRIVER, uuid);
+    }
+
+    private static ByteBuffer uuid(int seed) {
+        ByteBuffer uuid = ByteBuffer.allocate(VK_UUID_SIZE);
+        for (int i = 0; i < VK_UUID_SIZE; i++) {
+            uuid.put(i, (byte) (seed * 31 + i));
+        }
+        return uuid;
+    }
+
+    /**
+     * Data as {@code vkGetPipelineCacheData} returns it: the little endian header of the specification, then
+     * {@code payload} bytes.
+     */
+    private static ByteBuffer driverData(int vendor, int device, ByteBuffer uuid, int payload) {
+        int headerLength = 4 * 4 + VK_UUID_SIZE;
+        ByteBuffer data = ByteBuffer.allocate(headerLength + payload).order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(headerLength).putInt(VK_PIPELINE_CACHE_HEADER_VERSION_ONE).putInt(vendor).putInt(device)
+                .put(uuid.duplicate());
+        for (int i = 0; i < payload; i++) {
+            data.put((byte) (i * 7));
+        }
+        data.flip();
+        return data;
+    }
+}
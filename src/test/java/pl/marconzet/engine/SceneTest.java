@@ -0,0 +1,51 @@
+package pl.marconzet.engine;
+
+import org.joml.Matrix4f;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class SceneTest {
+    private Scene scene;
+
+    @Before
+    public void setUp() {
+        float[] positions = {-0.5f, -0.5f, 0f, 0.5f, -0.5f, 0f, 0.5f, 0.5f, 0f};
+        float[] texCoords = {0f, 0f, 1f, 0f, 1f, 1f};
+        scene = new Scene();
+        scene.addMesh(new Model(positions, texCoords, new int[]{0, 1, 2}, 3));
+    }
+
+    @Test
+    public void removedIdsAreReused() {
+        int first = scene.add(0, new Matrix4f());
+        scene.add(0, new Matrix4f());
+        scene.remove(first);
+        assertEquals(1, scene.getObjectCount());
+        assertEquals(first, scene.add(0, new Matrix4f()));
+        assertEquals(2, scene.getObjectCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doubleRemoveThrows() {
+        int object = scene.add(0, new Matrix4f());
+        scene.remove(object);
+        scene.remove(object);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void removingUnknownObjectThrows() {
+        scene.add(0, new Matrix4f());
+        scene.remove(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void removingNegativeObjectThrows() {
+        scene.remove(-1);
+    }
+}
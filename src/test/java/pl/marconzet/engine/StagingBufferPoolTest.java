@@ -0,0 +1,162 @@
+package pl.marconzet.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class StagingBufferPoolTest {
+    private static final long RING_SIZE = 4096;
+
+    private int created;
+    private int destroyed;
+    private StagingBufferPool.Factory factory;
+    private StagingBufferPool.Range range;
+
+    @Before
+    public void setUp() {
+        created = 0;
+        destroyed = 0;
+        factory = new StagingBufferPool.Factory() {
+            @Override
+            public StagingRing create(long capacity) {
+                created++;
+                return new StagingRing(capacity);
+            }
+
+            @Override
+            public void destroy(StagingRing ring) {
+                destroyed++;
+            }
+        };
+        range = new StagingBufferPool.Range();
+    }
+
+    @Test
+    public void releasedSpaceIsReused() {
+        StagingBufferPool pool = new StagingBufferPool(factory, RING_SIZE, 4 * RING_SIZE, Long.MAX_VALUE);
+        for (int frame = 0; frame < 100; frame++) {
+            assertTrue(pool.reserve(RING_SIZE / 2, 16, range));
+            assertTrue(pool.reserve(RING_SIZE / 2, 16, range));
+            pool.release(pool.takeReserved());
+        }
+        assertEquals(1, created);
+        assertEquals(1, pool.getRingCount());
+    }
+
+    @Test
+    public void growsUpToTheCapOnly() {
+        StagingBufferPool pool = new StagingBufferPool(factory, RING_SIZE, 3 * RING_SIZE, Long.MAX_VALUE);
+        StagingRing first = null;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(pool.reserve(RING_SIZE, 1, range));
+            assertNotSame(first, range.getRing());
+            first = range.getRing();
+        }
+        assertFalse(pool.reserve(1, 1, range));
+        assertEquals(3, created);
+        assertEquals(3 * RING_SIZE, pool.getCapacity());
+
+        pool.release(pool.takeReserved());
+        assertTrue(pool.reserve(RING_SIZE, 1, range));
+        assertEquals(3, created);
+    }
+
+    @Test
+    public void reservationsInFlightDoNotOverlap() {
+        StagingBufferPool pool = new StagingBufferPool(factory, RING_SIZE, 2 * RING_SIZE, Long.MAX_VALUE);
+        Random random = new Random(9);
+        List<long[]> ranges = new ArrayList<>();
+        List<StagingRing> rings = new ArrayList<>();
+        long[] alignments = {1, 4, 16, 256};
+        while (true) {
+            long size = 1 + random.nextInt(700);
+            long alignment = alignments[random.nextInt(alignments.length)];
+            if (!pool.reserve(size, alignment, range)) break;
+            assertEquals(0, range.getOffset() % alignment);
+            assertTrue(range.getOffset() + size <= RING_SIZE);
+            for (int i = 0; i < ranges.size(); i++) {
+                if (rings.get(i) != range.getRing()) continue;
+                long[] other = ranges.get(i);
+                assertTrue("overlapping reservations",
+                        range.getOffset() >= other[0] + other[1] || range.getOffset() + size <= other[0]);
+            }
+            ranges.add(new long[]{range.getOffset(), size});
+            rings.add(range.getRing());
+        }
+        assertEquals(2, pool.getRingCount());
+    }
+
+    @Test
+    public void steadyStreamingStopsCreatingRings() {
+        StagingBufferPool pool = new StagingBufferPool(factory, RING_SIZE, 8 * RING_SIZE, Long.MAX_VALUE);
+        Random random = new Random(12);
+        ArrayDeque<StagingBufferPool.Batch> inFlight = new ArrayDeque<>();
+        int createdAfterWarmUp = 0;
+        for (int frame = 0; frame < 2000; frame++) {
+            if (frame == 100) createdAfterWarmUp = created;
+            for (int upload = random.nextInt(4); upload > 0; upload--) {
+                assertTrue(pool.reserve(1 + random.nextInt((int) RING_SIZE / 2), 16, range));
+            }
+            inFlight.add(pool.takeReserved());
+            // three frames in flight
+            if (inFlight.size() > 3) {
+                pool.release(inFlight.poll());
+            }
+        }
+        assertEquals(createdAfterWarmUp, created);
+        assertTrue(pool.getCapacity() < 8 * RING_SIZE);
+    }
+
+    @Test
+    public void trimKeepsRingsInUseAndOneEmptyRing() {
+        StagingBufferPool pool = new StagingBufferPool(factory, RING_SIZE, 4 * RING_SIZE, 0);
+        pool.reserve(RING_SIZE, 1, range);
+        StagingBufferPool.Batch first = pool.takeReserved();
+        pool.reserve(RING_SIZE, 1, range);
+        pool.reserve(RING_SIZE, 1, range);
+        StagingBufferPool.Batch rest = pool.takeReserved();
+        pool.release(first);
+        pool.trim();
+        assertEquals(2, pool.getRingCount());
+        assertEquals(1, destroyed);
+        pool.release(rest);
+        pool.trim();
+        assertEquals(1, pool.getRingCount());
+        assertEquals(2, destroyed);
+        assertTrue(pool.reserve(RING_SIZE, 1, range));
+        assertEquals(3, created);
+        pool.destroy();
+        assertEquals(created, destroyed);
+    }
+
+    @Test
+    public void emptyRingsAreKeptWithinTheShrinkDelay() {
+        StagingBufferPool pool = new StagingBufferPool(factory, RING_SIZE, 4 * RING_SIZE, Long.MAX_VALUE);
+        pool.reserve(RING_SIZE, 1, range);
+        pool.reserve(RING_SIZE, 1, range);
+        pool.release(pool.takeReserved());
+        pool.trim();
+        assertEquals(2, pool.getRingCount());
+        assertEquals(0, destroyed);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reservationLargerThanARingThrows() {
+        new StagingBufferPool(factory, RING_SIZE, 4 * RING_SIZE, 0).reserve(RING_SIZE + 1, 1, range);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capSmallerThanARingThrows() {
+        new StagingBufferPool(factory, RING_SIZE, RING_SIZE - 1, 0);
+    }
+}
@@ -0,0 +1,156 @@
+package pl.marconzet.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class TextureResidencyTest {
+    private static final int SIZE = 256;
+    private static final long[] LEVEL_SIZES = levelSizes(SIZE);
+    // levels of 64x64 and smaller
+    private static final long TAIL_BYTES = LEVEL_SIZES[2] + LEVEL_SIZES[3] + LEVEL_SIZES[4] + LEVEL_SIZES[5]
+            + LEVEL_SIZES[6] + LEVEL_SIZES[7] + LEVEL_SIZES[8];
+
+    private int[] backendLevels;
+    private int backendCalls;
+    private TextureResidency.Backend backend;
+
+    @Before
+    public void setUp() {
+        backendLevels = new int[]{-1, -1, -1};
+        backendCalls = 0;
+        backend = (texture, baseLevel) -> {
+            backendLevels[texture] = baseLevel;
+            backendCalls++;
+        };
+    }
+
+    @Test
+    public void texturesStartWithTheirTail() {
+        TextureResidency residency = new TextureResidency(backend, Long.MAX_VALUE, 8);
+        int texture = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        assertEquals(2, residency.getBaseLevel(texture));
+        assertEquals(TAIL_BYTES, residency.getResidentBytes());
+        assertEquals(0, backendCalls);
+    }
+
+    @Test
+    public void levelsLoadOneAtATime() {
+        TextureResidency residency = new TextureResidency(backend, Long.MAX_VALUE, 8);
+        int texture = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        residency.request(texture, SIZE);
+        assertEquals(0, residency.getWantedLevel(texture));
+        residency.update();
+        assertEquals(1, backendLevels[texture]);
+        residency.request(texture, SIZE);
+        residency.update();
+        assertEquals(0, backendLevels[texture]);
+        assertEquals(TAIL_BYTES + LEVEL_SIZES[1] + LEVEL_SIZES[0], residency.getResidentBytes());
+        residency.request(texture, SIZE);
+        residency.update();
+        assertEquals(2, backendCalls);
+    }
+
+    @Test
+    public void hitsAndMissesAreCounted() {
+        TextureResidency residency = new TextureResidency(backend, Long.MAX_VALUE, 8);
+        int texture = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        // the tail covers small draws
+        residency.request(texture, 16);
+        assertEquals(1, residency.getHits());
+        assertEquals(0, residency.getMisses());
+        residency.request(texture, SIZE / 2);
+        assertEquals(1, residency.getMisses());
+        residency.update();
+        residency.request(texture, SIZE / 2);
+        assertEquals(2, residency.getHits());
+        assertEquals(1, residency.getMisses());
+        assertEquals(0, residency.getEvictions());
+    }
+
+    @Test
+    public void budgetIsNeverExceeded() {
+        TextureResidency residency = new TextureResidency(backend, 3 * TAIL_BYTES + 2 * LEVEL_SIZES[1], 8);
+        int first = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        int second = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        int third = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        for (int frame = 0; frame < 4; frame++) {
+            residency.request(first, SIZE / 2);
+            residency.request(second, SIZE / 2);
+            residency.request(third, SIZE / 2);
+            residency.update();
+            assertTrue(residency.getResidentBytes() <= 3 * TAIL_BYTES + 2 * LEVEL_SIZES[1]);
+        }
+        // most recently requested first; levels of textures drawn this frame are never evicted
+        assertEquals(2, residency.getBaseLevel(first));
+        assertEquals(1, residency.getBaseLevel(second));
+        assertEquals(1, residency.getBaseLevel(third));
+        assertEquals(0, residency.getEvictions());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedFirst() {
+        TextureResidency residency = new TextureResidency(backend, 3 * TAIL_BYTES + 2 * LEVEL_SIZES[1], 8);
+        int first = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        int second = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        int third = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        residency.request(first, SIZE / 2);
+        residency.update();
+        residency.request(second, SIZE / 2);
+        residency.update();
+        residency.request(third, SIZE / 2);
+        residency.update();
+        assertEquals(2, backendLevels[first]);
+        assertEquals(1, backendLevels[second]);
+        assertEquals(1, backendLevels[third]);
+        assertEquals(1, residency.getEvictions());
+    }
+
+    @Test
+    public void levelsFinerThanWantedAreEvictedFirst() {
+        TextureResidency residency = new TextureResidency(backend, 3 * TAIL_BYTES + 2 * LEVEL_SIZES[1], 8);
+        int first = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        int second = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        int third = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        residency.request(first, SIZE / 2);
+        residency.update();
+        residency.request(second, SIZE / 2);
+        residency.update();
+        // second now wants only its tail, so its level goes before the older one of first
+        residency.request(second, 16);
+        residency.request(third, SIZE / 2);
+        residency.update();
+        assertEquals(1, backendLevels[first]);
+        assertEquals(2, backendLevels[second]);
+        assertEquals(1, backendLevels[third]);
+        assertEquals(1, residency.getEvictions());
+    }
+
+    @Test
+    public void removedTexturesReleaseTheirLevels() {
+        TextureResidency residency = new TextureResidency(backend, Long.MAX_VALUE, 8);
+        int first = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        int second = residency.add(SIZE, SIZE, LEVEL_SIZES);
+        residency.request(first, SIZE);
+        residency.update();
+        residency.remove(first);
+        assertEquals(TAIL_BYTES, residency.getResidentBytes());
+        assertEquals(first, residency.add(SIZE, SIZE, LEVEL_SIZES));
+        assertEquals(2, residency.getBaseLevel(second));
+    }
+
+    private static long[] levelSizes(int size) {
+        int levels = 32 - Integer.numberOfLeadingZeros(size);
+        long[] sizes = new long[levels];
+        for (int level = 0; level < levels; level++) {
+            long side = Math.max(size >> level, 1);
+            sizes[level] = side * side * 4;
+        }
+        return sizes;
+    }
+}
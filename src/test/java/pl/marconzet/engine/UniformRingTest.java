@@ -0,0 +1,65 @@
+package pl.marconzet.engine;
+
+import org.joml.Matrix4f;
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class UniformRingTest {
+    private static final int SLOTS = 3;
+    private static final int FRAMES = 100_000;
+
+    private ByteBuffer mapped;
+    private UniformRing ring;
+    private UniformBufferObject ubo;
+    private Matrix4f positionTransform;
+
+    @Before
+    public void setUp() {
+        int slotSize = UniformRing.slotSize(UniformBufferObject.sizeOf(), 256);
+        mapped = BufferUtils.createByteBuffer(slotSize * SLOTS);
+        ring = new UniformRing(mapped, slotSize, SLOTS);
+        ubo = new UniformBufferObject();
+        positionTransform = new Matrix4f().scale(2);
+    }
+
+    @Test
+    public void slotsDoNotOverlap() {
+        for (int slot = 1; slot < SLOTS; slot++) {
+            assertTrue(ring.offset(slot) - ring.offset(slot - 1) >= UniformBufferObject.sizeOf());
+            assertEquals(0, ring.offset(slot) % 256);
+        }
+        assertTrue(ring.offset(SLOTS - 1) + UniformBufferObject.sizeOf() <= mapped.capacity());
+    }
+
+    @Test
+    public void steadyStateUpdateAllocatesNothing() {
+        // warm up so the measured frames run compiled code
+        update(FRAMES);
+        long start = FrameProfiler.allocatedBytes();
+        update(FRAMES);
+        long allocated = FrameProfiler.allocatedBytes() - start - FrameProfiler.PROBE_OVERHEAD;
+        assertEquals(0, allocated);
+        assertEquals(2f, mapped.getFloat(ring.offset((FRAMES - 1) % SLOTS)), 0f);
+    }
+
+    /**
+     * The per-frame uniform update of the application, writing frame after frame into the ring.
+     */
+    private void update(int frames) {
+        for (int frame = 0; frame < frames; frame++) {
+            ubo.modelMatrix.rotationX((float) Math.PI).translate(0f, -5f, 0f).mul(positionTransform);
+            ubo.viewMatrix.translation(0f, 0f, 10f);
+            ubo.projMatrix.setPerspectiveLH((float) Math.PI / 2, 800f / 600f, 0.1f, 1000f);
+            ring.write(frame % SLOTS, ubo);
+        }
+    }
+}
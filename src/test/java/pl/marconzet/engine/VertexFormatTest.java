@@ -0,0 +1,82 @@
+package pl.marconzet.engine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author MarconZet
+ * Created 18.10.2026
+ */
+public class VertexFormatTest {
+    // two snorm16 steps of the octahedral coordinates, stretched by at most 2 when decoded
+    private static final float NORMAL_ERROR = 4f / 32767;
+
+    @Test
+    public void axisAlignedNormalsRoundTrip() {
+        for (int axis = 0; axis < 3; axis++) {
+            for (int sign = -1; sign <= 1; sign += 2) {
+                float[] normal = new float[3];
+                normal[axis] = sign;
+                assertRoundTrip(normal[0], normal[1], normal[2]);
+            }
+        }
+    }
+
+    @Test
+    public void normalsWithZeroComponentsRoundTrip() {
+        assertRoundTrip(0f, 0.6f, -0.8f);
+        assertRoundTrip(0.6f, 0f, -0.8f);
+        assertRoundTrip(0f, -0.6f, -0.8f);
+        assertRoundTrip(-0.6f, 0f, -0.8f);
+        assertRoundTrip(0.6f, 0.8f, 0f);
+        assertRoundTrip(-0.6f, -0.8f, 0f);
+    }
+
+    @Test
+    public void diagonalNormalsRoundTrip() {
+        float d = (float) (1 / Math.sqrt(3));
+        for (int i = 0; i < 8; i++) {
+            assertRoundTrip((i & 1) == 0 ? d : -d, (i & 2) == 0 ? d : -d, (i & 4) == 0 ? d : -d);
+        }
+    }
+
+    @Test
+    public void randomNormalsRoundTrip() {
+        Random random = new Random(3);
+        for (int i = 0; i < 10000; i++) {
+            float x = (float) random.nextGaussian(), y = (float) random.nextGaussian(), z = (float) random.nextGaussian();
+            float length = (float) Math.sqrt(x * x + y * y + z * z);
+            assertRoundTrip(x / length, y / length, z / length);
+        }
+    }
+
+    private static void assertRoundTrip(float nx, float ny, float nz) {
+        for (VertexFormat format : new VertexFormat[]{VertexFormat.HALF, VertexFormat.QUANTIZED}) {
+            ByteBuffer vertex = ByteBuffer.allocate(format.getStride()).order(ByteOrder.nativeOrder());
+            format.write(vertex, 0, 0, 0, 0, nx, ny, nz, 0, 0, new float[]{-1, -1, -1, 1, 1, 1});
+            float[] decoded = decodeNormal(vertex.getShort(8), vertex.getShort(10));
+            String message = format + " (" + nx + ", " + ny + ", " + nz + ")";
+            assertEquals(message, nx, decoded[0], NORMAL_ERROR);
+            assertEquals(message, ny, decoded[1], NORMAL_ERROR);
+            assertEquals(message, nz, decoded[2], NORMAL_ERROR);
+        }
+    }
+
+    /**
+     * decodeNormal of shader.vert, on the snorm16 values as the vertex input unpacks them.
+     */
+    private static float[] decodeNormal(short encodedX, short encodedY) {
+        float x = Math.max(encodedX / 32767f, -1f), y = Math.max(encodedY / 32767f, -1f);
+        float z = 1 - Math.abs(x) - Math.abs(y);
+        float t = Math.max(-z, 0);
+        x += x >= 0 ? -t : t;
+        y += y >= 0 ? -t : t;
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        return new float[]{x / length, y / length, z / length};
+    }
+}